@@ -0,0 +1,41 @@
+package asteroids.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+@SuppressWarnings("all")
+
+/**
+ * The entry point running the benchmarks of the Asteroid project and writing their results as JSON.
+ * Results of two releases can be compared with any JMH result viewer to catch regressions.
+ *
+ * Usage: BenchmarkMain [result file] [benchmark regex]
+ * The result file defaults to benchmark-results.json, the regex to all benchmarks in this package.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class BenchmarkMain {
+
+    /**
+     * Constant registering the file the results are written to if no file is given.
+     */
+    public final static String DEFAULT_RESULT_FILE = "benchmark-results.json";
+
+    public static void main(String[] args) throws RunnerException {
+        String resultFile = (args.length > 0) ? args[0] : DEFAULT_RESULT_FILE;
+        String include = (args.length > 1) ? args[1] : BenchmarkMain.class.getPackage().getName() + ".*";
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .shouldFailOnError(true)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,86 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Ship;
+import asteroids.model.World;
+
+import java.util.Random;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of factory methods creating the worlds used by the benchmarks.
+ * Entities are placed on a square lattice with a small random offset and get a random velocity.
+ * Every tenth entity is a ship, all other entities are asteroids.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class BenchmarkWorlds {
+
+    /**
+     * Constant registering the radius of the entities in the benchmark worlds.
+     */
+    public final static double RADIUS = 10;
+
+    /**
+     * Constant registering the distance between neighbouring lattice points in a sparse world.
+     */
+    public final static double SPARSE_SPACING = 20 * RADIUS;
+
+    /**
+     * Constant registering the distance between neighbouring lattice points in a dense world.
+     */
+    public final static double DENSE_SPACING = 3 * RADIUS;
+
+    /**
+     * Constant registering the maximum speed of the entities in the benchmark worlds.
+     */
+    public final static double MAXIMUM_SPEED = 50;
+
+    private BenchmarkWorlds(){
+    }
+
+    /**
+     * Return a new world containing the given number of entities in the given layout.
+     *
+     * @param   nbEntities
+     *          The number of entities in the new world.
+     * @param   layout
+     *          Either "sparse" or "dense".
+     * @param   seed
+     *          The seed of the random positions and velocities.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the layout is not known.
+     *          | !layout.equals("sparse") && !layout.equals("dense")
+     */
+    public static World createWorld(int nbEntities, String layout, long seed) throws IllegalArgumentException {
+        double spacing;
+        if ("sparse".equals(layout))
+            spacing = SPARSE_SPACING;
+        else if ("dense".equals(layout))
+            spacing = DENSE_SPACING;
+        else
+            throw new IllegalArgumentException("Unknown layout: " + layout);
+
+        Random random = new Random(seed);
+        int nbPerRow = (int) Math.ceil(Math.sqrt(nbEntities));
+        double size = nbPerRow * spacing;
+        World world = new World(size, size);
+        double jitter = (spacing - 2.2 * RADIUS) / 2;
+
+        for (int i = 0; i < nbEntities; i++) {
+            double x = (i % nbPerRow + 0.5) * spacing + (2 * random.nextDouble() - 1) * jitter;
+            double y = (i / nbPerRow + 0.5) * spacing + (2 * random.nextDouble() - 1) * jitter;
+            double velocityX = (2 * random.nextDouble() - 1) * MAXIMUM_SPEED;
+            double velocityY = (2 * random.nextDouble() - 1) * MAXIMUM_SPEED;
+            if (i % 10 == 0)
+                world.addEntity(new Ship(x, y, velocityX, velocityY, 0, RADIUS, 1E10));
+            else
+                world.addEntity(new Asteroid(x, y, velocityX, velocityY, RADIUS));
+        }
+        return world;
+    }
+}
@@ -0,0 +1,50 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Collision;
+import asteroids.model.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to find the first collision in a world,
+ * both without a horizon and within the horizon of one frame of 1/30 seconds.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollisionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int nbEntities;
+
+    @Param({"sparse", "dense"})
+    public String layout;
+
+    private Collision collision;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        World world = BenchmarkWorlds.createWorld(nbEntities, layout, 42);
+        collision = new Collision(world);
+    }
+
+    @Benchmark
+    public double getTimeToFirstCollision(){
+        return collision.getTimeToFirstCollision();
+    }
+
+    @Benchmark
+    public double getTimeToFirstCollisionWithinFrame(){
+        return collision.getTimeToFirstCollision(1 / 30.0);
+    }
+}
@@ -0,0 +1,76 @@
+package asteroids.benchmarks;
+
+import asteroids.model.AsyncCollisionListener;
+import asteroids.model.World;
+import asteroids.part2.CollisionListener;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring how much a costly collision listener slows down the evolution of a world for one frame of
+ * 1/30 seconds, when the world calls the listener itself and when an AsyncCollisionListener hands the collisions
+ * to it on a consumer thread. The listener burns a fixed amount of work for every collision, like playing a sound.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CollisionListenerBenchmark {
+
+    @Param({"100", "1000"})
+    public int nbEntities;
+
+    @Param({"none", "direct", "async"})
+    public String delivery;
+
+    @Param({"1000"})
+    public long workPerCollision;
+
+    private World world;
+
+    private CollisionListener listener;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        world = BenchmarkWorlds.createWorld(nbEntities, "dense", 42);
+        CollisionListener costly = new CollisionListener() {
+            @Override
+            public void boundaryCollision(Object entity, double x, double y){
+                Blackhole.consumeCPU(workPerCollision);
+            }
+
+            @Override
+            public void objectCollision(Object entity1, Object entity2, double x, double y){
+                Blackhole.consumeCPU(workPerCollision);
+            }
+        };
+        if ("direct".equals(delivery))
+            listener = costly;
+        else if ("async".equals(delivery))
+            listener = new AsyncCollisionListener(costly, 1 << 16);
+        else
+            listener = null;
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown(){
+        if (listener instanceof AsyncCollisionListener)
+            ((AsyncCollisionListener) listener).close();
+    }
+
+    @Benchmark
+    public World evolve(){
+        world.evolve(1 / 30.0, listener);
+        return world;
+    }
+}
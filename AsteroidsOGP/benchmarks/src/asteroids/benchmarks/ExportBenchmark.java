@@ -0,0 +1,90 @@
+package asteroids.benchmarks;
+
+import asteroids.facade.Facade;
+import asteroids.model.*;
+import asteroids.util.ModelException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to read the position, velocity and radius of every entity of a world
+ * through the per-entity getters of the facade, which allocate an array per call, compared with one bulk export
+ * into an array and into a direct buffer.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExportBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int nbEntities;
+
+    private World world;
+
+    private Facade facade;
+
+    private double[] array;
+
+    private DoubleBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        world = BenchmarkWorlds.createWorld(nbEntities, "sparse", 42);
+        facade = new Facade();
+        array = new double[world.getAllEntities().size() * EntityExport.STRIDE];
+        buffer = ByteBuffer.allocateDirect(8 * array.length).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    @Benchmark
+    public void facadeGetters(Blackhole blackhole) throws ModelException {
+        for (Entity entity : world.getAllEntitiesOfType(Entity.class)) {
+            if (entity instanceof Ship) {
+                blackhole.consume(facade.getShipPosition((Ship) entity));
+                blackhole.consume(facade.getShipVelocity((Ship) entity));
+                blackhole.consume(facade.getShipRadius((Ship) entity));
+            }
+            else if (entity instanceof Asteroid) {
+                blackhole.consume(facade.getAsteroidPosition((Asteroid) entity));
+                blackhole.consume(facade.getAsteroidVelocity((Asteroid) entity));
+                blackhole.consume(facade.getAsteroidRadius((Asteroid) entity));
+            }
+            else {
+                blackhole.consume(entity.getPosition().getValues());
+                blackhole.consume(entity.getVelocity().getValues());
+                blackhole.consume(entity.getRadius());
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] exportToArray() throws ModelException {
+        facade.exportEntities(world, array, 0);
+        return array;
+    }
+
+    @Benchmark
+    public DoubleBuffer exportToDirectBuffer() throws ModelException {
+        buffer.clear();
+        facade.exportEntities(world, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public int exportChangedSince() throws ModelException {
+        return facade.exportEntitiesChangedSince(world, world.getExportEpoch(), array, 0);
+    }
+}
@@ -0,0 +1,95 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Entity;
+import asteroids.model.MutableVector;
+import asteroids.model.Vector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the cost of testing whether and when two entities collide.
+ * The vector benchmarks compute the time to a collision the way Entity did before, building immutable vectors
+ * for every difference and product. The scalar benchmarks call the methods of Entity, which work on raw doubles.
+ * Run with the GC profiler ("-prof gc", or the main method of this class) and compare gc.alloc.rate.norm,
+ * the number of bytes allocated per pair test.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PairTestBenchmark {
+
+    private Entity entity1;
+    private Entity entity2;
+    private MutableVector deltaV;
+    private MutableVector deltaR;
+
+    @Setup
+    public void setUp(){
+        entity1 = new Asteroid(100, 100, 30, 10, 20);
+        entity2 = new Asteroid(400, 180, -25, -5, 25);
+        deltaV = new MutableVector();
+        deltaR = new MutableVector();
+    }
+
+    @Benchmark
+    public double timeToCollisionWithVectors(){
+        Vector deltaV = entity1.deltaV(entity2);
+        Vector deltaR = entity1.deltaR(entity2);
+        double sigma = entity1.sigma(entity2);
+        double d = deltaV.scalarProduct(deltaR) * deltaV.scalarProduct(deltaR)
+                - deltaV.scalarProduct(deltaV) * (deltaR.scalarProduct(deltaR) - sigma * sigma);
+        if (deltaV.scalarProduct(deltaR) >= 0 || d <= 0)
+            return Double.POSITIVE_INFINITY;
+        return -(deltaV.scalarProduct(deltaR) + Math.sqrt(d)) / deltaV.scalarProduct(deltaV);
+    }
+
+    @Benchmark
+    public double timeToCollisionWithMutableVectors(){
+        entity1.deltaV(entity2, deltaV);
+        entity1.deltaR(entity2, deltaR);
+        double sigma = entity1.sigma(entity2);
+        double deltaVDeltaR = deltaV.scalarProduct(deltaR.getX(), deltaR.getY());
+        double d = deltaVDeltaR * deltaVDeltaR
+                - deltaV.vectorLengthSquared() * (deltaR.vectorLengthSquared() - sigma * sigma);
+        if (deltaVDeltaR >= 0 || d <= 0)
+            return Double.POSITIVE_INFINITY;
+        return -(deltaVDeltaR + Math.sqrt(d)) / deltaV.vectorLengthSquared();
+    }
+
+    @Benchmark
+    public double timeToCollisionWithScalars(){
+        return entity1.getTimeToCollision(entity2);
+    }
+
+    @Benchmark
+    public boolean willCollideWithScalars(){
+        return entity1.willCollide(entity2);
+    }
+
+    /**
+     * Run this benchmark with the GC profiler, which reports the bytes allocated per pair test.
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(PairTestBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
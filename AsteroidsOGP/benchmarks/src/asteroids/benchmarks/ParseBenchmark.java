@@ -0,0 +1,110 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Program;
+import asteroids.model.program.ProgramFactory;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ParserVisitor;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.part3.programs.internal.generated.AsteroidsProgramLexer;
+import asteroids.part3.programs.internal.generated.AsteroidsProgramParser;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to parse a corpus made of the programs in resources/programs, repeated a
+ * number of times. The corpus is parsed with a new lexer and parser using full LL prediction for every program,
+ * as the program parser used to do, and with the program parser, both on a single thread and in parallel.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    /**
+     * Constant registering the programs of the corpus on the class path.
+     */
+    public final static String[] PROGRAMS = {"/asteroids/resources/programs/program.txt",
+            "/asteroids/resources/programs/program_simple.txt", "/asteroids/resources/programs/program_assignment.txt",
+            "/asteroids/resources/programs/syntax_test.txt"};
+
+    /**
+     * The number of times every program occurs in the corpus.
+     */
+    @Param({"1", "100"})
+    public int scale;
+
+    private List<String> corpus;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> programs = new ArrayList<>();
+        for (String name : PROGRAMS) {
+            try (InputStream stream = ParseBenchmark.class.getResourceAsStream(name)) {
+                if (stream == null)
+                    throw new IOException("Program not found: " + name);
+                programs.add(new Scanner(stream, StandardCharsets.UTF_8.name()).useDelimiter("\\A").next());
+            }
+        }
+        corpus = new ArrayList<>();
+        for (int i = 0; i < scale; i++)
+            corpus.addAll(programs);
+    }
+
+    @Benchmark
+    public List<Program> parseWithFullLL(){
+        List<Program> result = new ArrayList<>();
+        for (String source : corpus) {
+            ProgramFactory factory = new ProgramFactory();
+            AsteroidsProgramParser parser = new AsteroidsProgramParser(
+                    new CommonTokenStream(new AsteroidsProgramLexer(CharStreams.fromString(source))));
+            ParserVisitor<?, ?, ?, Program> visitor = new ParserVisitor<>(factory);
+            visitor.visitProgram(parser.program());
+            result.add(createProgram(visitor));
+        }
+        return result;
+    }
+
+    private static <E, S, F> Program createProgram(ParserVisitor<E, S, F, Program> visitor){
+        return visitor.getFactory().createProgram(visitor.getFunctions(), visitor.getMain());
+    }
+
+    @Benchmark
+    public List<Program> parse() throws IOException {
+        List<Program> result = new ArrayList<>();
+        for (String source : corpus)
+            result.add(getProgram(ProgramParser.create(new ProgramFactory()).parseString(source)));
+        return result;
+    }
+
+    @Benchmark
+    public List<Program> parseInParallel() throws IOException {
+        List<Program> result = new ArrayList<>();
+        for (ParseOutcome<Program> outcome : ProgramParser.parseStrings(corpus, ProgramFactory::new))
+            result.add(getProgram(outcome));
+        return result;
+    }
+
+    private static Program getProgram(ParseOutcome<Program> outcome) throws IOException {
+        if (outcome.isFail())
+            throw new IOException("Program could not be parsed: " + outcome.getFailValue());
+        return outcome.getSuccessValue();
+    }
+}
@@ -0,0 +1,98 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Bullet;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.program.ProgramFactory;
+import asteroids.part3.programs.internal.ProgramParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to execute a program on a ship for one frame of 1/30 seconds and for one
+ * second. The program is the one in resources/programs/program.txt, turning by a positive angle, since the turn
+ * statement rejects the negative angle of that file.
+ * The program is parsed and loaded on a new ship before every iteration, and is either compiled to bytecode
+ * or executes its statements directly.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramBenchmark {
+
+    /**
+     * Constant registering the location of the benchmarked program on the class path.
+     */
+    public final static String PROGRAM = "/asteroids/resources/programs/program.txt";
+
+    /**
+     * Constant registering the source of the executed program.
+     */
+    private final static String EXECUTED_PROGRAM =
+            "while(1 < 2) {\n" +
+            "  x := getx self;\n" +
+            "  y := gety self;\n" +
+            "  r := getradius self;\n" +
+            "  nearestAsteroid := asteroid;\n" +
+            "\n" +
+            "  if (! (nearestAsteroid == null)) {\n" +
+            "    ax := getx nearestAsteroid;\n" +
+            "    ay := gety nearestAsteroid;\n" +
+            "    ar := getradius nearestAsteroid;\n" +
+            "    distance := sqrt((((x + (-ax)) * (x + (-ax))) +\n" +
+            "      ((y + (-ay)) * (y + (-ay)))));\n" +
+            "    print distance;\n" +
+            "  }\n" +
+            "\n" +
+            "  turn 0.2;\n" +
+            "  fire;\n" +
+            "}\n";
+
+    /**
+     * Whether the program is compiled to bytecode.
+     */
+    @Param({"true", "false"})
+    public boolean compiled;
+
+    private Program program;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        program = ProgramParser.parseProgramFromString(EXECUTED_PROGRAM, new ProgramFactory(compiled));
+        if (program == null)
+            throw new IOException("Program could not be parsed.");
+
+        World world = new World(5000, 5000);
+        Ship ship = new Ship(2500, 2500, 0, 0, 0, 50, 1E10);
+        for (int i = 0; i < 5; i++)
+            ship.reload(new Bullet(2500, 2500, 0, 0, 5));
+        world.addEntity(ship);
+        for (int i = 0; i < 20; i++)
+            world.addEntity(new Asteroid(200 + 230 * i, 500, 0, 0, 30));
+        ship.setProgram(program);
+    }
+
+    @Benchmark
+    public List<Object> executeFrame(){
+        return program.execute(1 / 30.0);
+    }
+
+    @Benchmark
+    public List<Object> executeSecond(){
+        return program.execute(1.0);
+    }
+}
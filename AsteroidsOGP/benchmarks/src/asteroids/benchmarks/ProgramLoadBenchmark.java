@@ -0,0 +1,93 @@
+package asteroids.benchmarks;
+
+import asteroids.batch.BatchRunner;
+import asteroids.model.Program;
+import asteroids.model.ProgramImage;
+import asteroids.model.program.ProgramFactory;
+import asteroids.model.program.cache.ProgramCache;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to give a new ship the program in resources/programs/program.txt, by
+ * parsing the program for the ship, by reading it from a program cache in a temporary directory, and by creating
+ * a program from an image parsed once.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProgramLoadBenchmark {
+
+    /**
+     * Whether the program is compiled to bytecode.
+     */
+    @Param({"true", "false"})
+    public boolean compiled;
+
+    private URL url;
+
+    private String source;
+
+    private ProgramImage image;
+
+    private ProgramCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        url = ProgramLoadBenchmark.class.getResource(ProgramBenchmark.PROGRAM);
+        if (url == null)
+            throw new IOException("Program not found: " + ProgramBenchmark.PROGRAM);
+        source = BatchRunner.readProgramSource(ProgramBenchmark.PROGRAM.substring(1));
+        image = parse().getImage();
+        cache = new ProgramCache(Files.createTempDirectory("programs"));
+        loadFromCache();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(cache.getDirectory())) {
+            for (Path file : files.collect(Collectors.toList()))
+                Files.delete(file);
+        }
+        Files.delete(cache.getDirectory());
+    }
+
+    @Benchmark
+    public Program parse() throws IOException {
+        Program program = ProgramParser.parseTasksFromURL(url, new ProgramFactory(compiled));
+        if (program == null)
+            throw new IOException("Program could not be parsed: " + ProgramBenchmark.PROGRAM);
+        return program;
+    }
+
+    @Benchmark
+    public Program loadFromCache() throws IOException {
+        ParseOutcome<Program> outcome = cache.parse(source, new ProgramFactory(compiled));
+        if (outcome.isFail())
+            throw new IOException("Program could not be parsed: " + ProgramBenchmark.PROGRAM);
+        return outcome.getSuccessValue();
+    }
+
+    @Benchmark
+    public Program newProgramFromImage(){
+        return image.newProgram();
+    }
+}
@@ -0,0 +1,130 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to save a world to a binary snapshot and to restore it, in memory and
+ * through a file, compared with writing and reading the same state of the entities with Java serialization.
+ * The entities themselves are not serializable, so the serialization baseline writes one array of fields per
+ * entity, which is less than Java serialization of the entities would write. The sizes of both forms are reported
+ * as the secondary results snapshotBytes and serializedBytes of the benchmarks writing them.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int nbEntities;
+
+    private World world;
+
+    private ByteBuffer snapshot;
+
+    private byte[] serialized;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ClassNotFoundException {
+        world = BenchmarkWorlds.createWorld(nbEntities, "sparse", 42);
+        snapshot = WorldSnapshot.write(world);
+        serialized = serialize();
+        file = Files.createTempFile("snapshot", ".bin");
+    }
+
+    /**
+     * A class of counters reporting the size in bytes of the snapshot and of the serialized state of the world
+     * with the results of the benchmarks writing them. The counters hold the size of the last form written, which
+     * is the raw value of every iteration. JMH sums events over the iterations, so the score of a counter is the
+     * size times the number of measurement iterations.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Sizes {
+
+        public long snapshotBytes;
+
+        public long serializedBytes;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public ByteBuffer writeSnapshot(Sizes sizes){
+        ByteBuffer result = WorldSnapshot.write(world);
+        sizes.snapshotBytes = result.remaining();
+        return result;
+    }
+
+    @Benchmark
+    public World readSnapshot(){
+        return WorldSnapshot.read(snapshot.duplicate(), Collections.emptyList());
+    }
+
+    @Benchmark
+    public World saveAndRestoreSnapshot() throws IOException {
+        WorldSnapshot.save(world, file);
+        return WorldSnapshot.restore(file, Collections.emptyList());
+    }
+
+    @Benchmark
+    public byte[] writeSerialization(Sizes sizes) throws IOException {
+        byte[] result = serialize();
+        sizes.serializedBytes = result.length;
+        return result;
+    }
+
+    @Benchmark
+    public List<?> readSerialization() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return (List<?>) in.readObject();
+        }
+    }
+
+    /**
+     * Write the state of the entities of the world with Java serialization.
+     */
+    private byte[] serialize() throws IOException {
+        List<Object[]> state = new ArrayList<>();
+        for (Entity entity : world.getAllEntities()) {
+            Object[] fields = new Object[]{entity.getClass().getName(), entity.getPosition().getX(),
+                    entity.getPosition().getY(), entity.getVelocity().getX(), entity.getVelocity().getY(),
+                    entity.getRadius(), entity.getMaximumVelocity(), entity.getScore(), null};
+            if (entity instanceof Ship)
+                fields[8] = new Object[]{((Ship) entity).getHeading(), ((Ship) entity).getTotalMass(),
+                        ((Ship) entity).getThrusterState(), ((Ship) entity).getNbShotsFired()};
+            state.add(fields);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,44 @@
+package asteroids.benchmarks;
+
+import asteroids.model.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to evolve a world for one frame of 1/30 seconds.
+ * The world is created anew before every iteration, so every iteration starts from the same layout.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorldEvolveBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int nbEntities;
+
+    @Param({"sparse", "dense"})
+    public String layout;
+
+    private World world;
+
+    @Setup(Level.Iteration)
+    public void setUp(){
+        world = BenchmarkWorlds.createWorld(nbEntities, layout, 42);
+    }
+
+    @Benchmark
+    public World evolve(){
+        world.evolve(1 / 30.0, null);
+        return world;
+    }
+}
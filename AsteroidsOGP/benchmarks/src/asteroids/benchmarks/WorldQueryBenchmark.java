@@ -0,0 +1,83 @@
+package asteroids.benchmarks;
+
+import asteroids.model.Asteroid;
+import asteroids.model.Entity;
+import asteroids.model.Ship;
+import asteroids.model.Vector;
+import asteroids.model.World;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@SuppressWarnings("all")
+
+/**
+ * A benchmark measuring the time needed to look up all entities of a given type in a world, the entity at a given
+ * position, the entities within a given distance of a position and the asteroids nearest to an entity.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WorldQueryBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int nbEntities;
+
+    private World world;
+
+    /**
+     * The position of an entity of the world.
+     */
+    private Vector position;
+
+    /**
+     * An entity of the world.
+     */
+    private Entity entity;
+
+    @Setup(Level.Trial)
+    public void setUp(){
+        world = BenchmarkWorlds.createWorld(nbEntities, "sparse", 42);
+        entity = world.getAllEntities().iterator().next();
+        position = entity.getPosition();
+    }
+
+    @Benchmark
+    public Set<Entity> getAllAsteroids(){
+        return world.getAllEntitiesOfType(Asteroid.class);
+    }
+
+    @Benchmark
+    public Set<Entity> getAllShips(){
+        return world.getAllEntitiesOfType(Ship.class);
+    }
+
+    @Benchmark
+    public Entity getEntityAt(){
+        return world.getEntityAt(position);
+    }
+
+    @Benchmark
+    public List<Entity> getEntitiesInCircle(){
+        return world.getEntitiesInCircle(position, 200);
+    }
+
+    @Benchmark
+    public Entity getNearestAsteroid(){
+        return world.getNearestEntity(entity, Asteroid.class);
+    }
+
+    @Benchmark
+    public List<Entity> getNearestAsteroids(){
+        return world.getNearestEntities(entity, Asteroid.class, 5);
+    }
+}
@@ -1,11 +1,9 @@
 package asteroids.part2.internal;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 
 import asteroids.model.Bullet;
 import asteroids.part2.facade.IFacade;
-import asteroids.util.ModelException;
 
 public class BulletVisualization<F extends IFacade> extends Visualization<F, Bullet> {
 
@@ -15,16 +13,14 @@ public class BulletVisualization<F extends IFacade> extends Visualization<F, Bul
 
 	@Override
 	public void draw(DrawContext<F> ctx) {
-		Graphics2D g2d = ctx.getGraphics();
-		try {
-			F facade = ctx.getFacade();
-			double radius = facade.getBulletRadius(getObject());
-			double x = ctx.worldToScreenX(facade.getBulletPosition(getObject())[0]);
-			double y = ctx.worldToScreenY(facade.getBulletPosition(getObject())[1]);
-			g2d.setColor(getColor());
-			g2d.drawOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
-		} catch (ModelException e) {
-			ctx.handleError(e);
-		}
+		WorldFrame frame = ctx.getFrame();
+		int index = frame.indexOf(getObject());
+		if (index < 0)
+			return;
+		double x = ctx.worldToScreenX(frame.getX(index));
+		double y = ctx.worldToScreenY(frame.getY(index));
+		SpriteCache.draw(ctx.getGraphics(),
+				ctx.getSpriteCache().get(null, getColor(), frame.getRadius(index), Double.NaN, 0, SpriteCache.CIRCLE),
+				x, y);
 	}
 }
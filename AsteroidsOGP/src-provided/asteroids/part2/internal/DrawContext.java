@@ -10,6 +10,16 @@ public interface DrawContext<F> {
 	
 	public F getFacade();
 
+	/**
+	 * Return the frame being drawn. Visualizations draw from this frame only, never from the world.
+	 */
+	public WorldFrame getFrame();
+
+	/**
+	 * Return the cache of sprites to draw entities with.
+	 */
+	public SpriteCache getSpriteCache();
+
 	public double worldToScreenX(double x);
 
 	public double worldToScreenY(double y);
@@ -18,6 +18,19 @@ public class Explosion implements Drawable<DrawContext<?>> {
 		this.y = (int) y;
 	}
 
+	public Explosion(Explosion other) {
+		set(other);
+	}
+
+	/**
+	 * Make this explosion a copy of the given explosion.
+	 */
+	public void set(Explosion other) {
+		this.x = other.x;
+		this.y = other.y;
+		this.timeLeft = other.timeLeft;
+	}
+
 	public boolean evolve(double dt) {
 		timeLeft -= dt;
 		return timeLeft <= 0;
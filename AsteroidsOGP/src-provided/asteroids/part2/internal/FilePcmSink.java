@@ -0,0 +1,70 @@
+package asteroids.part2.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * PCM sink that writes a WAV file. The sizes in the header are filled in when the sink is closed.
+ */
+public class FilePcmSink implements PcmSink {
+
+	private static final int HEADER_SIZE = 44;
+
+	private final FileChannel channel;
+	private final AudioFormat format;
+	private long nbBytes = 0;
+
+	public FilePcmSink(Path path, AudioFormat format) throws IOException {
+		if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED || format.isBigEndian())
+			throw new IllegalArgumentException("only little-endian signed PCM can be written");
+		this.format = format;
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		channel.write(header(), 0);
+		channel.position(HEADER_SIZE);
+	}
+
+	private ByteBuffer header() {
+		int channels = format.getChannels();
+		int sampleRate = (int) format.getSampleRate();
+		int frameSize = format.getFrameSize();
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0x46464952).putInt((int) (36 + nbBytes)).putInt(0x45564157); // "RIFF" size "WAVE"
+		header.putInt(0x20746d66).putInt(16).putShort((short) 1).putShort((short) channels); // "fmt " PCM
+		header.putInt(sampleRate).putInt(sampleRate * frameSize).putShort((short) frameSize)
+				.putShort((short) format.getSampleSizeInBits());
+		header.putInt(0x61746164).putInt((int) nbBytes); // "data" size
+		header.flip();
+		return header;
+	}
+
+	@Override
+	public void write(byte[] buffer, int length) throws IOException {
+		ByteBuffer data = ByteBuffer.wrap(buffer, 0, length);
+		while (data.hasRemaining())
+			channel.write(data);
+		nbBytes += length;
+	}
+
+	@Override
+	public boolean isPaced() {
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!channel.isOpen())
+			return;
+		try {
+			channel.write(header(), 0);
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package asteroids.part2.internal;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * PCM sink that plays through a source data line of the default audio mixer.
+ */
+public class LinePcmSink implements PcmSink {
+
+	/**
+	 * The size of the line buffer in frames; writes block once this much audio is waiting to be played, which bounds
+	 * the latency of a new sound to about 90 ms.
+	 */
+	private static final int BUFFER_FRAMES = 2048;
+
+	private final SourceDataLine line;
+
+	public LinePcmSink(AudioFormat format) throws LineUnavailableException {
+		line = AudioSystem.getSourceDataLine(format);
+		line.open(format, BUFFER_FRAMES * format.getFrameSize());
+		line.start();
+	}
+
+	@Override
+	public void write(byte[] buffer, int length) {
+		line.write(buffer, 0, length);
+	}
+
+	@Override
+	public boolean isPaced() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+		line.stop();
+		line.close();
+	}
+}
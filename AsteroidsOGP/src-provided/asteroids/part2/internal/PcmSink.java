@@ -0,0 +1,22 @@
+package asteroids.part2.internal;
+
+import java.io.IOException;
+
+/**
+ * Destination of the 16-bit little-endian PCM produced by a SoundMixer.
+ */
+public interface PcmSink extends AutoCloseable {
+
+	/**
+	 * Write the first length bytes of the given buffer. The buffer is reused once this method returns.
+	 */
+	public void write(byte[] buffer, int length) throws IOException;
+
+	/**
+	 * Returns true if writes block at the playback rate, so the mixer needs no clock of its own.
+	 */
+	public boolean isPaced();
+
+	@Override
+	public void close() throws IOException;
+}
@@ -1,60 +1,70 @@
 package asteroids.part2.internal;
 
-import static java.lang.Math.sin;
-
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 
 import asteroids.model.Ship;
 import asteroids.part2.facade.IFacade;
-import asteroids.util.ModelException;
 
 public class ShipVisualization<F extends IFacade> extends Visualization<F, Ship> {
 
-	public ShipVisualization(Color color, Ship ship, Image image) {
-		super(color, ship, image);
-	}
+	/**
+	 * Renders a ship: its image (or a circle in its color), its heading and, for variant 1, the flame of its
+	 * thruster.
+	 */
+	private static final SpriteCache.Renderer SHIP = new SpriteCache.Renderer() {
 
-	@Override
-	public void draw(DrawContext<F> ctx) {
-		try {
-			Graphics2D g2d = ctx.getGraphics();
-			F facade = ctx.getFacade();
-			double radius = facade.getShipRadius(getObject());
-			double angle = -facade.getShipOrientation(getObject());
-			double x = ctx.worldToScreenX(facade.getShipPosition(getObject())[0]);
-			double y = ctx.worldToScreenY(facade.getShipPosition(getObject())[1]);
-			g2d.setColor(getColor());
-			if (getImage() == null) {
-				g2d.drawOval((int) Math.round(x - radius), (int) Math.round(y - radius),
-						(int) Math.round(2 * radius), (int) Math.round(2 * radius));
+		private final BasicStroke stroke = new BasicStroke(2);
+
+		@Override
+		public int getCanvasSize(int diameter) {
+			// the flame sticks out a third of the radius behind the ship
+			return 2 * (int) Math.ceil(diameter * 2 / 3.) + 6;
+		}
+
+		@Override
+		public void render(Graphics2D g2d, Object source, Color color, int diameter, double angle, int variant) {
+			double radius = diameter / 2.;
+			g2d.rotate(angle);
+			g2d.setColor(color);
+			if (source == null) {
+				g2d.drawOval((int) Math.round(-radius), (int) Math.round(-radius), diameter, diameter);
 			} else {
-				AffineTransform T = AffineTransform.getTranslateInstance(radius, radius);
-				T.rotate(angle);
-				T.translate(-radius, -radius);
-				T.preConcatenate(AffineTransform.getTranslateInstance(x - radius, y - radius));
-				g2d.drawImage(getImage(), T, null);
+				g2d.drawImage((Image) source, (int) Math.round(-radius), (int) Math.round(-radius), diameter, diameter,
+						null);
 			}
-			g2d.setStroke(new BasicStroke(2));
-			g2d.drawLine((int) Math.round(x), (int) Math.round(y), (int) Math.round(x + Math.cos(angle) * radius),
-					(int) Math.round(y + sin(angle) * radius));
-			if (facade.isShipThrusterActive(getObject())) {
+			g2d.setStroke(stroke);
+			g2d.drawLine(0, 0, (int) Math.round(radius), 0);
+			if (variant == 1) {
 				Path2D.Double flame = new Path2D.Double();
 				double flameAngle = Math.PI / 12;
 				flame.moveTo(radius * Math.cos(Math.PI - flameAngle), radius * Math.sin(Math.PI - flameAngle));
 				flame.lineTo(-radius - radius / 3, 0);
 				flame.lineTo(radius * Math.cos(Math.PI + flameAngle), radius * Math.sin(Math.PI + flameAngle));
-				flame.transform(AffineTransform.getRotateInstance(angle));
-				flame.transform(AffineTransform.getTranslateInstance(x, y));
 				g2d.setColor(Color.orange);
 				g2d.draw(flame);
 			}
-		} catch (ModelException e) {
-			ctx.handleError(e);
 		}
+	};
+
+	public ShipVisualization(Color color, Ship ship, Image image) {
+		super(color, ship, image);
+	}
+
+	@Override
+	public void draw(DrawContext<F> ctx) {
+		WorldFrame frame = ctx.getFrame();
+		int index = frame.indexOf(getObject());
+		if (index < 0)
+			return;
+		double x = ctx.worldToScreenX(frame.getX(index));
+		double y = ctx.worldToScreenY(frame.getY(index));
+		BufferedImage sprite = ctx.getSpriteCache().get(getImage(), getColor(), frame.getRadius(index),
+				-frame.getHeading(index), frame.isThrusterActive(index) ? 1 : 0, SHIP);
+		SpriteCache.draw(ctx.getGraphics(), sprite, x, y);
 	}
 }
@@ -0,0 +1,435 @@
+package asteroids.part2.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Sound manager that mixes its sounds in software into a single PCM sink.
+ *
+ * Every sound is decoded once into 16-bit samples at the rate of the mixer. Requests from any thread are put in a
+ * bounded lock-free queue, which the mixer thread empties before it mixes the next block, so a request never waits
+ * for more than one block. A play request starts a new voice instead of restarting the sound, so overlapping
+ * torpedoes and explosions are all heard. The number of voices is bounded: a sound that starts again within the
+ * minimum interval is ignored, a sound that already has its maximum number of voices takes over its oldest voice,
+ * and when all voices are busy the oldest voice that is not looping is stolen.
+ *
+ * The mixer runs without audio hardware when it writes to a file or null sink, in which case it keeps its own clock;
+ * tests drive it without a thread through mix().
+ */
+public class SoundMixer implements Sound, Runnable {
+
+	/**
+	 * The format of the mixed output: 22050 Hz, 16-bit signed little-endian mono.
+	 */
+	public static final AudioFormat FORMAT = new AudioFormat(22050, 16, 1, true, false);
+
+	/**
+	 * The number of frames mixed at once; about 12 ms of audio.
+	 */
+	public static final int BLOCK_FRAMES = 256;
+
+	private static final int QUEUE_CAPACITY = 1024;
+
+	private static final int PLAY = 1;
+	private static final int LOOP = 2;
+	private static final int STOP = 3;
+
+	private final Map<String, Integer> indices = new HashMap<>();
+	private final short[][] samples;
+	private final PcmSink sink;
+
+	private final int maxVoicesPerSound;
+	private final long minimumIntervalFrames;
+
+	/**
+	 * The state of every voice: the sound it plays, or -1 if it is free, its position in that sound, whether it
+	 * loops and the frame at which it started.
+	 */
+	private final int[] voiceSounds;
+	private final int[] voicePositions;
+	private final boolean[] voiceLooping;
+	private final long[] voiceStarts;
+
+	/**
+	 * The frame at which every sound last started a voice.
+	 */
+	private final long[] lastStarts;
+
+	/**
+	 * The number of frames mixed so far.
+	 */
+	private long frame = 0;
+
+	private final int[] accumulator = new int[BLOCK_FRAMES];
+	private final byte[] output = new byte[BLOCK_FRAMES * 2];
+
+	/**
+	 * The queue of requests. Producers claim a slot by advancing the tail and then fill it; the mixer empties slots
+	 * from the head. A request is encoded as its kind times 2^16 plus the index of its sound, so an empty slot is 0.
+	 */
+	private final AtomicIntegerArray queue = new AtomicIntegerArray(QUEUE_CAPACITY);
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	private final AtomicLong nbDropped = new AtomicLong();
+	private volatile long nbStarted = 0;
+	private volatile long nbStolen = 0;
+	private volatile long nbLimited = 0;
+
+	private volatile boolean closed = false;
+	private Thread thread;
+
+	/**
+	 * Create a mixer for the given sounds, decoded in the format of the mixer, writing to the given sink.
+	 *
+	 * @param minimumInterval
+	 *            The time in seconds within which a second play request for the same sound is ignored.
+	 */
+	public SoundMixer(Map<String, short[]> sounds, PcmSink sink, int nbVoices, int maxVoicesPerSound,
+			double minimumInterval) {
+		if (nbVoices <= 0 || maxVoicesPerSound <= 0 || minimumInterval < 0)
+			throw new IllegalArgumentException("invalid mixer configuration");
+		this.sink = sink;
+		this.samples = new short[sounds.size()][];
+		for (Map.Entry<String, short[]> entry : sounds.entrySet()) {
+			samples[indices.size()] = entry.getValue();
+			indices.put(entry.getKey(), indices.size());
+		}
+		this.maxVoicesPerSound = maxVoicesPerSound;
+		this.minimumIntervalFrames = Math.round(minimumInterval * FORMAT.getSampleRate());
+		this.voiceSounds = new int[nbVoices];
+		this.voicePositions = new int[nbVoices];
+		this.voiceLooping = new boolean[nbVoices];
+		this.voiceStarts = new long[nbVoices];
+		Arrays.fill(voiceSounds, -1);
+		this.lastStarts = new long[samples.length];
+		Arrays.fill(lastStarts, Long.MIN_VALUE / 2);
+	}
+
+	/**
+	 * Create a mixer with 16 voices, at most 4 voices per sound and a minimum interval of 30 ms.
+	 */
+	public SoundMixer(Map<String, short[]> sounds, PcmSink sink) {
+		this(sounds, sink, 16, 4, 0.03);
+	}
+
+	/**
+	 * Decode the sound at the given URL into 16-bit samples in the format of the mixer. Channels are averaged and
+	 * the samples are resampled by linear interpolation.
+	 */
+	public static short[] decode(URL url) throws IOException, UnsupportedAudioFileException {
+		try (AudioInputStream stream = AudioSystem.getAudioInputStream(url)) {
+			AudioFormat format = stream.getFormat();
+			AudioInputStream pcm = stream;
+			boolean signed = format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED;
+			if (!(signed || format.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED)
+					|| (format.getSampleSizeInBits() != 8 && format.getSampleSizeInBits() != 16)) {
+				format = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+				pcm = AudioSystem.getAudioInputStream(format, stream);
+				signed = true;
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int read = pcm.read(buffer); read >= 0; read = pcm.read(buffer))
+				bytes.write(buffer, 0, read);
+			byte[] data = bytes.toByteArray();
+
+			int channels = format.getChannels();
+			int sampleSize = format.getSampleSizeInBits() / 8;
+			int nbFrames = data.length / (channels * sampleSize);
+			int[] mono = new int[nbFrames];
+			for (int i = 0; i < nbFrames; i++) {
+				int sum = 0;
+				for (int c = 0; c < channels; c++) {
+					int offset = (i * channels + c) * sampleSize;
+					int value;
+					if (sampleSize == 1) {
+						value = signed ? data[offset] << 8 : ((data[offset] & 0xFF) - 128) << 8;
+					} else if (format.isBigEndian()) {
+						value = (data[offset] << 8) | (data[offset + 1] & 0xFF);
+					} else {
+						value = (data[offset + 1] << 8) | (data[offset] & 0xFF);
+					}
+					if (!signed && sampleSize == 2)
+						value = (short) (value ^ 0x8000);
+					sum += value;
+				}
+				mono[i] = sum / channels;
+			}
+			return resample(mono, format.getSampleRate(), FORMAT.getSampleRate());
+		}
+	}
+
+	private static short[] resample(int[] source, float sourceRate, float targetRate) {
+		if (source.length == 0)
+			return new short[0];
+		int length = (int) ((long) source.length * targetRate / sourceRate);
+		short[] result = new short[length];
+		double step = sourceRate / targetRate;
+		for (int i = 0; i < length; i++) {
+			double position = i * step;
+			int index = (int) position;
+			double fraction = position - index;
+			int next = Math.min(index + 1, source.length - 1);
+			result[i] = (short) Math.round(source[index] * (1 - fraction) + source[next] * fraction);
+		}
+		return result;
+	}
+
+	@Override
+	public void play(String name) {
+		request(PLAY, name);
+	}
+
+	@Override
+	public void loop(String name) {
+		request(LOOP, name);
+	}
+
+	@Override
+	public void stop(String name) {
+		request(STOP, name);
+	}
+
+	private void request(int kind, String name) {
+		Integer sound = indices.get(name);
+		if (sound == null) {
+			System.err.println("sound " + name + " not found");
+			return;
+		}
+		int request = (kind << 16) | sound;
+		while (true) {
+			long slot = tail.get();
+			if (slot - head.get() >= QUEUE_CAPACITY) {
+				nbDropped.incrementAndGet();
+				return;
+			}
+			if (tail.compareAndSet(slot, slot + 1)) {
+				queue.lazySet((int) slot & (QUEUE_CAPACITY - 1), request);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Execute the requests in the queue, up to the first slot that is claimed but not yet filled.
+	 */
+	private void executeRequests() {
+		long next = head.get();
+		while (true) {
+			int index = (int) next & (QUEUE_CAPACITY - 1);
+			int request = queue.get(index);
+			if (request == 0)
+				return;
+			queue.lazySet(index, 0);
+			head.lazySet(++next);
+			int sound = request & 0xFFFF;
+			switch (request >>> 16) {
+			case PLAY:
+				startVoice(sound, false);
+				break;
+			case LOOP:
+				stopVoices(sound);
+				startVoice(sound, true);
+				break;
+			case STOP:
+				stopVoices(sound);
+				break;
+			}
+		}
+	}
+
+	private void startVoice(int sound, boolean looping) {
+		if (samples[sound].length == 0)
+			return;
+		if (!looping && frame - lastStarts[sound] < minimumIntervalFrames) {
+			nbLimited++;
+			return;
+		}
+		int free = -1;
+		int oldest = -1;
+		int oldestOfSound = -1;
+		int nbOfSound = 0;
+		for (int voice = 0; voice < voiceSounds.length; voice++) {
+			if (voiceSounds[voice] < 0) {
+				if (free < 0)
+					free = voice;
+			} else if (!voiceLooping[voice]) {
+				if (oldest < 0 || voiceStarts[voice] < voiceStarts[oldest])
+					oldest = voice;
+				if (voiceSounds[voice] == sound) {
+					nbOfSound++;
+					if (oldestOfSound < 0 || voiceStarts[voice] < voiceStarts[oldestOfSound])
+						oldestOfSound = voice;
+				}
+			}
+		}
+		int voice;
+		if (!looping && nbOfSound >= maxVoicesPerSound) {
+			voice = oldestOfSound;
+			nbStolen++;
+		} else if (free >= 0) {
+			voice = free;
+		} else if (oldest >= 0) {
+			voice = oldest;
+			nbStolen++;
+		} else {
+			nbDropped.incrementAndGet();
+			return;
+		}
+		voiceSounds[voice] = sound;
+		voicePositions[voice] = 0;
+		voiceLooping[voice] = looping;
+		voiceStarts[voice] = frame;
+		lastStarts[sound] = frame;
+		nbStarted++;
+	}
+
+	private void stopVoices(int sound) {
+		for (int voice = 0; voice < voiceSounds.length; voice++)
+			if (voiceSounds[voice] == sound)
+				voiceSounds[voice] = -1;
+	}
+
+	/**
+	 * Execute the pending requests and mix the given number of frames into the sink. Must only be called from one
+	 * thread at a time, and not while the mixer thread runs.
+	 */
+	public void mix(int nbFrames) throws IOException {
+		while (nbFrames > 0) {
+			int length = Math.min(nbFrames, BLOCK_FRAMES);
+			mixBlock(length);
+			nbFrames -= length;
+		}
+	}
+
+	private void mixBlock(int length) throws IOException {
+		executeRequests();
+		Arrays.fill(accumulator, 0, length, 0);
+		for (int voice = 0; voice < voiceSounds.length; voice++) {
+			if (voiceSounds[voice] < 0)
+				continue;
+			short[] pcm = samples[voiceSounds[voice]];
+			int position = voicePositions[voice];
+			for (int i = 0; i < length; i++) {
+				if (position == pcm.length) {
+					if (!voiceLooping[voice]) {
+						voiceSounds[voice] = -1;
+						break;
+					}
+					position = 0;
+				}
+				accumulator[i] += pcm[position++];
+			}
+			voicePositions[voice] = position;
+		}
+		for (int i = 0; i < length; i++) {
+			int value = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, accumulator[i]));
+			output[2 * i] = (byte) value;
+			output[2 * i + 1] = (byte) (value >> 8);
+		}
+		sink.write(output, 2 * length);
+		frame += length;
+	}
+
+	@Override
+	public void run() {
+		long blockNanos = (long) (BLOCK_FRAMES * 1E9 / FORMAT.getSampleRate());
+		long next = System.nanoTime();
+		try {
+			while (!closed) {
+				mixBlock(BLOCK_FRAMES);
+				if (!sink.isPaced()) {
+					next += blockNanos;
+					long delay = next - System.nanoTime();
+					if (delay > 0)
+						LockSupport.parkNanos(delay);
+					else
+						next = System.nanoTime();
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("error writing sound: " + e.getMessage());
+		} finally {
+			closeSink();
+		}
+	}
+
+	@Override
+	public void start() {
+		thread = new Thread(this, "Sound mixer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stop mixing and close the sink.
+	 */
+	public void close() throws InterruptedException {
+		closed = true;
+		if (thread != null)
+			thread.join();
+		else
+			closeSink();
+	}
+
+	private void closeSink() {
+		try {
+			sink.close();
+		} catch (IOException e) {
+			System.err.println("error closing sound: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the number of voices playing.
+	 */
+	public int getNbActiveVoices() {
+		int result = 0;
+		for (int sound : voiceSounds)
+			if (sound >= 0)
+				result++;
+		return result;
+	}
+
+	public long getNbStarted() {
+		return nbStarted;
+	}
+
+	/**
+	 * Returns the number of voices taken over from a sound that was still playing.
+	 */
+	public long getNbStolen() {
+		return nbStolen;
+	}
+
+	/**
+	 * Returns the number of play requests ignored because the sound started within the minimum interval.
+	 */
+	public long getNbLimited() {
+		return nbLimited;
+	}
+
+	/**
+	 * Returns the number of requests dropped because the queue was full or no voice could be stolen.
+	 */
+	public long getNbDropped() {
+		return nbDropped.get();
+	}
+
+	public long getNbFramesMixed() {
+		return frame;
+	}
+}
@@ -0,0 +1,217 @@
+package asteroids.part2.internal;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A cache of sprites: images of entities pre-rendered at a given diameter and rotation, in a format compatible with
+ * the screen so that drawing them is a plain (and usually accelerated) copy.
+ * 
+ * Sprites are identified by a source (typically the image of the entity), a color, the diameter rounded to whole
+ * pixels, the heading rounded to one of ROTATION_STEPS rotations and a variant (for instance whether the thruster is
+ * on). A sprite is rendered once, the first time it is asked for, by the given renderer. The least recently used
+ * sprites are dropped once the cache holds more than a given number of pixels.
+ */
+public class SpriteCache {
+
+	/**
+	 * The number of rotations rendered for sprites that rotate.
+	 */
+	public static final int ROTATION_STEPS = 128;
+
+	/**
+	 * Renders sprites of entities, centered on a square canvas.
+	 */
+	public interface Renderer {
+
+		/**
+		 * Return the width and height of the canvas needed for a sprite of the given diameter.
+		 */
+		public int getCanvasSize(int diameter);
+
+		/**
+		 * Render the sprite of the given diameter, turned over the given angle, centered on the canvas.
+		 */
+		public void render(Graphics2D g2d, Object source, Color color, int diameter, double angle, int variant);
+	}
+
+	private static final class Key {
+
+		private final Object source;
+		private final Color color;
+		private final int diameter;
+		private final int rotation;
+		private final int variant;
+
+		private Key(Object source, Color color, int diameter, int rotation, int variant) {
+			this.source = source;
+			this.color = color;
+			this.diameter = diameter;
+			this.rotation = rotation;
+			this.variant = variant;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key))
+				return false;
+			Key key = (Key) other;
+			return source == key.source && Objects.equals(color, key.color) && diameter == key.diameter
+					&& rotation == key.rotation && variant == key.variant;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((System.identityHashCode(source) * 31 + Objects.hashCode(color)) * 31 + diameter) * 31
+					+ rotation * 4 + variant;
+		}
+	}
+
+	private final long maximumPixels;
+	private long pixels = 0;
+	private final Map<Key, BufferedImage> sprites = new LinkedHashMap<>(256, 0.75f, true);
+
+	public SpriteCache(long maximumPixels) {
+		this.maximumPixels = maximumPixels;
+	}
+
+	public SpriteCache() {
+		this(16 * 1024 * 1024);
+	}
+
+	/**
+	 * Return the sprite of the given source and color with the given radius, turned over the given angle, rendering
+	 * it with the given renderer if it is not cached.
+	 * 
+	 * @param angle
+	 *            The angle over which the sprite is turned, or NaN if the sprite does not rotate.
+	 */
+	public BufferedImage get(Object source, Color color, double radius, double angle, int variant,
+			Renderer renderer) {
+		int diameter = Math.max(1, (int) Math.round(2 * radius));
+		int rotation = 0;
+		if (!Double.isNaN(angle)) {
+			rotation = (int) Math.round(angle / (2 * Math.PI) * ROTATION_STEPS) % ROTATION_STEPS;
+			if (rotation < 0)
+				rotation += ROTATION_STEPS;
+		}
+		Key key = new Key(source, color, diameter, rotation, variant);
+		BufferedImage sprite = sprites.get(key);
+		if (sprite == null) {
+			int size = renderer.getCanvasSize(diameter);
+			sprite = createCompatibleImage(size, size, Transparency.TRANSLUCENT);
+			Graphics2D g2d = sprite.createGraphics();
+			try {
+				g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				g2d.translate(size / 2., size / 2.);
+				renderer.render(g2d, source, color, diameter,
+						Double.isNaN(angle) ? 0 : rotation * 2 * Math.PI / ROTATION_STEPS, variant);
+			} finally {
+				g2d.dispose();
+			}
+			sprites.put(key, sprite);
+			pixels += (long) size * size;
+			evict();
+		}
+		return sprite;
+	}
+
+	private void evict() {
+		Iterator<BufferedImage> iterator = sprites.values().iterator();
+		while (pixels > maximumPixels && sprites.size() > 1) {
+			BufferedImage sprite = iterator.next();
+			pixels -= (long) sprite.getWidth() * sprite.getHeight();
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Draw the given sprite centered on the given position.
+	 */
+	public static void draw(Graphics2D g2d, BufferedImage sprite, double x, double y) {
+		g2d.drawImage(sprite, (int) Math.round(x - sprite.getWidth() / 2.), (int) Math.round(y - sprite.getHeight() / 2.),
+				null);
+	}
+
+	public int getNbSprites() {
+		return sprites.size();
+	}
+
+	public long getNbPixels() {
+		return pixels;
+	}
+
+	/**
+	 * Return a new image of the given size in the format of the screen, or a plain ARGB image without a screen.
+	 */
+	public static BufferedImage createCompatibleImage(int width, int height, int transparency) {
+		if (!GraphicsEnvironment.isHeadless()) {
+			GraphicsConfiguration configuration = GraphicsEnvironment.getLocalGraphicsEnvironment()
+					.getDefaultScreenDevice().getDefaultConfiguration();
+			return configuration.createCompatibleImage(width, height, transparency);
+		}
+		return new BufferedImage(width, height,
+				transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Return a copy of the given image scaled to the given size, in the format of the screen. Unlike
+	 * Image.getScaledInstance, the copy is scaled at once and can be drawn without conversion.
+	 */
+	public static BufferedImage scale(Image image, int width, int height, int transparency) {
+		BufferedImage result = createCompatibleImage(Math.max(1, width), Math.max(1, height), transparency);
+		Graphics2D g2d = result.createGraphics();
+		try {
+			g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g2d.drawImage(image, 0, 0, result.getWidth(), result.getHeight(), null);
+		} finally {
+			g2d.dispose();
+		}
+		return result;
+	}
+
+	/**
+	 * Renders the given image scaled to the diameter and turned over the angle.
+	 */
+	public static final Renderer IMAGE = new Renderer() {
+
+		@Override
+		public int getCanvasSize(int diameter) {
+			return diameter + 2;
+		}
+
+		@Override
+		public void render(Graphics2D g2d, Object source, Color color, int diameter, double angle, int variant) {
+			g2d.rotate(angle);
+			g2d.drawImage((Image) source, -diameter / 2, -diameter / 2, diameter, diameter, null);
+		}
+	};
+
+	/**
+	 * Renders the outline of a circle of the diameter in the color.
+	 */
+	public static final Renderer CIRCLE = new Renderer() {
+
+		@Override
+		public int getCanvasSize(int diameter) {
+			return diameter + 2;
+		}
+
+		@Override
+		public void render(Graphics2D g2d, Object source, Color color, int diameter, double angle, int variant) {
+			g2d.setColor(color);
+			g2d.drawOval(-diameter / 2, -diameter / 2, diameter, diameter);
+		}
+	};
+}
@@ -0,0 +1,62 @@
+package asteroids.part2.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free triple buffer handing values from one writing thread to one reading thread.
+ * 
+ * The writer fills the back buffer and publishes it, which swaps it with the middle buffer. The reader takes the
+ * front buffer, which is swapped with the middle buffer first if a newer buffer was published. The writer never
+ * waits for the reader and never touches the front buffer, so the reader sees a buffer that is not modified while
+ * it holds it, and always the most recently published one.
+ */
+public class TripleBuffer<T> {
+
+	private static final int INDEX_MASK = 3;
+	private static final int FRESH = 4;
+
+	private final Object[] buffers = new Object[3];
+
+	/**
+	 * The index of the middle buffer, with the FRESH bit set if it was published after the reader last took it.
+	 */
+	private final AtomicInteger middle = new AtomicInteger(1);
+
+	/**
+	 * The index of the buffer owned by the writer, and of the buffer owned by the reader.
+	 */
+	private int back = 2;
+	private int front = 0;
+
+	public TripleBuffer(Supplier<T> factory) {
+		for (int i = 0; i < buffers.length; i++)
+			buffers[i] = factory.get();
+	}
+
+	/**
+	 * Return the buffer to fill. May only be called by the writing thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getBackBuffer() {
+		return (T) buffers[back];
+	}
+
+	/**
+	 * Publish the back buffer to the reader, and take the middle buffer as the new back buffer.
+	 * May only be called by the writing thread.
+	 */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+	}
+
+	/**
+	 * Return the most recently published buffer. May only be called by the reading thread.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getFrontBuffer() {
+		if ((middle.get() & FRESH) != 0)
+			front = middle.getAndSet(front) & INDEX_MASK;
+		return (T) buffers[front];
+	}
+}
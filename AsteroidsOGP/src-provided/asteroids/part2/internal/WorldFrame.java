@@ -0,0 +1,243 @@
+package asteroids.part2.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of everything a world view draws: the kind, position, velocity, radius and heading of every entity,
+ * the explosions, the scores of the players and the next collision of the player's ship.
+ * 
+ * Frames are filled by the simulation thread and handed to the Event Dispatch Thread through a triple buffer, so
+ * painting never touches the world. A frame is reused once the painter has released it; its arrays, the boxed
+ * indices of its entities and its explosions only grow, so filling a frame allocates nothing in steady state.
+ */
+public class WorldFrame {
+
+	public static final byte SHIP = 0;
+	public static final byte BULLET = 1;
+	public static final byte ASTEROID = 2;
+	public static final byte PLANETOID = 3;
+
+	private double width;
+	private double height;
+
+	private int size = 0;
+	private Object[] entities = new Object[64];
+	private byte[] kinds = new byte[64];
+	private double[] x = new double[64];
+	private double[] y = new double[64];
+	private double[] vx = new double[64];
+	private double[] vy = new double[64];
+	private double[] radii = new double[64];
+	private double[] headings = new double[64];
+	private boolean[] thrusters = new boolean[64];
+	private Object[] sources = new Object[64];
+	private Integer[] boxedIndices = new Integer[64];
+	private final Map<Object, Integer> indices = new IdentityHashMap<>();
+
+	private final List<Explosion> explosions = new ArrayList<>();
+	private int nbExplosions = 0;
+	private final double[] points = new double[2];
+
+	private int collisionShip = -1;
+	private double collisionTime = Double.POSITIVE_INFINITY;
+	private int collisionPartner = -1;
+	private int nbCrosses = 0;
+	private double[] crosses = new double[16];
+
+	/**
+	 * Empty this frame, to be filled for a world of the given size.
+	 */
+	public void clear(double width, double height) {
+		this.width = width;
+		this.height = height;
+		Arrays.fill(entities, 0, size, null);
+		Arrays.fill(sources, 0, size, null);
+		size = 0;
+		indices.clear();
+		nbExplosions = 0;
+		points[0] = points[1] = 0;
+		collisionShip = -1;
+		collisionTime = Double.POSITIVE_INFINITY;
+		collisionPartner = -1;
+		nbCrosses = 0;
+	}
+
+	/**
+	 * Add the given entity to this frame.
+	 * 
+	 * @param source
+	 *            The ship that fired the entity if it is a bullet, null otherwise.
+	 */
+	public void add(Object entity, byte kind, double x, double y, double vx, double vy, double radius, double heading,
+			boolean thruster, Object source) {
+		if (size == entities.length)
+			grow();
+		entities[size] = entity;
+		kinds[size] = kind;
+		this.x[size] = x;
+		this.y[size] = y;
+		this.vx[size] = vx;
+		this.vy[size] = vy;
+		radii[size] = radius;
+		headings[size] = heading;
+		thrusters[size] = thruster;
+		sources[size] = source;
+		if (boxedIndices[size] == null)
+			boxedIndices[size] = size;
+		indices.put(entity, boxedIndices[size]);
+		size++;
+	}
+
+	private void grow() {
+		int length = 2 * entities.length;
+		entities = Arrays.copyOf(entities, length);
+		kinds = Arrays.copyOf(kinds, length);
+		x = Arrays.copyOf(x, length);
+		y = Arrays.copyOf(y, length);
+		vx = Arrays.copyOf(vx, length);
+		vy = Arrays.copyOf(vy, length);
+		radii = Arrays.copyOf(radii, length);
+		headings = Arrays.copyOf(headings, length);
+		thrusters = Arrays.copyOf(thrusters, length);
+		sources = Arrays.copyOf(sources, length);
+		boxedIndices = Arrays.copyOf(boxedIndices, length);
+	}
+
+	/**
+	 * Add a copy of the given explosion to this frame, reusing an explosion of an earlier frame if there is one.
+	 */
+	public void addExplosion(Explosion explosion) {
+		if (nbExplosions == explosions.size())
+			explosions.add(new Explosion(explosion));
+		else
+			explosions.get(nbExplosions).set(explosion);
+		nbExplosions++;
+	}
+
+	public void setPoints(int player, double points) {
+		this.points[player] = points;
+	}
+
+	/**
+	 * Register the next collision of the given ship: the time until it collides, the entity it collides with (null
+	 * for a boundary or no collision at all), and the positions at which it would collide with the other entities.
+	 */
+	public void setCollision(Object ship, double time, Object partner, double[] crosses, int nbCrosses) {
+		Integer index = indices.get(ship);
+		collisionShip = index == null ? -1 : index;
+		collisionTime = time;
+		index = partner == null ? null : indices.get(partner);
+		collisionPartner = index == null ? -1 : index;
+		if (this.crosses.length < 2 * nbCrosses)
+			this.crosses = new double[2 * nbCrosses];
+		System.arraycopy(crosses, 0, this.crosses, 0, 2 * nbCrosses);
+		this.nbCrosses = nbCrosses;
+	}
+
+	public double getWidth() {
+		return width;
+	}
+
+	public double getHeight() {
+		return height;
+	}
+
+	public int getNbEntities() {
+		return size;
+	}
+
+	/**
+	 * Return the index of the given entity in this frame, or -1 if this frame does not hold it.
+	 */
+	public int indexOf(Object entity) {
+		Integer index = indices.get(entity);
+		return index == null ? -1 : index;
+	}
+
+	public Object getEntity(int index) {
+		return entities[index];
+	}
+
+	public byte getKind(int index) {
+		return kinds[index];
+	}
+
+	public double getX(int index) {
+		return x[index];
+	}
+
+	public double getY(int index) {
+		return y[index];
+	}
+
+	public double getVelocityX(int index) {
+		return vx[index];
+	}
+
+	public double getVelocityY(int index) {
+		return vy[index];
+	}
+
+	public double getRadius(int index) {
+		return radii[index];
+	}
+
+	public double getHeading(int index) {
+		return headings[index];
+	}
+
+	public boolean isThrusterActive(int index) {
+		return thrusters[index];
+	}
+
+	public Object getSource(int index) {
+		return sources[index];
+	}
+
+	public int getNbExplosions() {
+		return nbExplosions;
+	}
+
+	public Explosion getExplosion(int index) {
+		return explosions.get(index);
+	}
+
+	public double getPoints(int player) {
+		return points[player];
+	}
+
+	/**
+	 * Return the index of the ship whose next collision this frame holds, or -1 if it holds none.
+	 */
+	public int getCollisionShip() {
+		return collisionShip;
+	}
+
+	public double getCollisionTime() {
+		return collisionTime;
+	}
+
+	/**
+	 * Return the index of the entity the ship collides with first, or -1 if it collides with a boundary first, or
+	 * with nothing at all.
+	 */
+	public int getCollisionPartner() {
+		return collisionPartner;
+	}
+
+	public int getNbCrosses() {
+		return nbCrosses;
+	}
+
+	public double getCrossX(int index) {
+		return crosses[2 * index];
+	}
+
+	public double getCrossY(int index) {
+		return crosses[2 * index + 1];
+	}
+}
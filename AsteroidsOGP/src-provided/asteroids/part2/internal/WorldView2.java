@@ -4,23 +4,28 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Transparency;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import javax.swing.JPanel;
-import javax.swing.Timer;
 
+import asteroids.model.AsyncCollisionListener;
 import asteroids.model.Bullet;
 import asteroids.model.Ship;
 import asteroids.model.World;
@@ -30,49 +35,89 @@ import asteroids.util.ModelException;
 import asteroids.util.internal.InternalUtils;
 import asteroids.util.internal.ResourceUtils;
 
+/**
+ * A view on a world in which the player steers a ship.
+ * 
+ * The world is stepped at a fixed rate by a dedicated simulation thread, which applies the player's input, evolves
+ * the world and then captures a WorldFrame of everything that is drawn. Frames are handed to the Event Dispatch
+ * Thread through a lock-free triple buffer, and painting draws the most recent frame only; the world is never
+ * queried from the Event Dispatch Thread once the game has started, so a slow evolution no longer blocks input
+ * or painting. Key events only set flags, which the simulation thread reads at its next step.
+ *
+ * Collisions are handed to a consumer thread of an AsyncCollisionListener, which plays the sounds and queues the
+ * new explosions; the simulation thread picks those up when it updates the explosions.
+ */
 @SuppressWarnings("all")
-public class WorldView2<F extends IFacade> extends JPanel implements KeyListener, ActionListener, CollisionListener {
+public class WorldView2<F extends IFacade> extends JPanel implements KeyListener, CollisionListener {
 
-	private static final int TIMER_DELAY = 1000 / 30;
+	private static final long STEP_NANOS = 1000000000L / 60;
+	private static final double STEP_SECONDS = STEP_NANOS / 1E9;
+
+	/**
+	 * The simulation drops time rather than catching up when it lags this far behind, for instance after a long
+	 * garbage collection.
+	 */
+	private static final long MAX_LAG_NANOS = 250000000L;
 
 	private AsteroidsFrame2<F> game;
 	private F facade;
 	private World world;
 	private Ship player;
 	private Ship player2;
-	private double deltaAngle = Double.NaN;
-	private double deltaAngle2 = Double.NaN;
-	private boolean thrusterChange = false;
-	private boolean thrusterChange2 = false;
-	private boolean fire;
-	private boolean fire2;
-	private Timer timer;
-	private long timeAfterLastEvolve;
+	private volatile double deltaAngle = Double.NaN;
+	private volatile double deltaAngle2 = Double.NaN;
+	private final AtomicBoolean thrusterChange = new AtomicBoolean();
+	private final AtomicBoolean thrusterChange2 = new AtomicBoolean();
+	private final AtomicBoolean fire = new AtomicBoolean();
+	private final AtomicBoolean fire2 = new AtomicBoolean();
+	private Thread simulation;
+	private volatile boolean running = false;
 	private Image background;
-	private String msg = null;
+	private final Image shipImage = ResourceUtils.loadImage("asteroids/resources/sphere.png");
+	private final SpriteCache sprites = new SpriteCache();
+	private volatile String msg = null;
 	private Map<Object, Visualization<F, ?>> visualizations = new HashMap<>();
 	private Set<Explosion> explosions = new HashSet<>();
-
-	private boolean showCollisions = false;
+	private final ConcurrentLinkedQueue<Explosion> newExplosions = new ConcurrentLinkedQueue<>();
+	private AsyncCollisionListener collisionListener;
+
+	private final TripleBuffer<WorldFrame> frames = new TripleBuffer<>(WorldFrame::new);
+	private WorldFrame frame;
+	private double[] crosses = new double[16];
+
+	private volatile boolean showCollisions = false;
+
+	/**
+	 * The weight of the last measurement in the running averages of the frame-time overlay.
+	 */
+	private static final double SMOOTHING = 0.05;
+	private volatile boolean showFrameTime = false;
+	private volatile double stepMillis = 0;
+	private double paintMillis = 0;
+	private double frameMillis = 0;
+	private long lastPaint = 0;
+	private Rectangle viewport = new Rectangle();
+	private int nbCulled = 0;
 
 	public WorldView2(AsteroidsFrame2<F> game, World world, Ship player, Set<Ship> enemies) throws ModelException {
 		this.game = game;
 		this.facade = game.getFacade();
 		this.world = world;
 		this.player = player;
-		this.timer = new Timer(TIMER_DELAY, this);
 		setBackground(Color.BLACK);
-		background = ResourceUtils.loadImage("asteroids/resources/game-background.jpg")
-				.getScaledInstance(game.getWidth(), game.getHeight(), Image.SCALE_DEFAULT);
+		background = SpriteCache.scale(ResourceUtils.loadImage("asteroids/resources/game-background.jpg"),
+				game.getWidth(), game.getHeight(), Transparency.OPAQUE);
+		if (enemies.size() == 1){
+			player2 = enemies.iterator().next();
+		}
+		publishFrame();
+		frame = frames.getFrontBuffer();
 		if (player != null) {
 			visualizations.put(player, createPlayerVisualization(player));
 		}
 		for (Ship enemy : enemies) {
 			if (enemy != null)
 				visualizations.put(enemy, createEnemyVisualization(enemy));
-			if (enemies.size() == 1){
-				player2 = enemy;
-			}
 		}
 
 		addKeyListener(this);
@@ -87,15 +132,7 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	}
 
 	protected Visualization<F, Ship> createEnemyVisualization(Ship enemy) {
-		int size = 1;
-		try {
-			size = (int) (2 * facade.getShipRadius(enemy));
-		} catch (ModelException e) {
-			handleError(e);
-		}
-		Image image = ResourceUtils.loadImage("asteroids/resources/sphere.png").getScaledInstance(size, size,
-				Image.SCALE_DEFAULT);
-		return new ShipVisualization<>(Color.GREEN, enemy, image);
+		return new ShipVisualization<>(Color.GREEN, enemy, shipImage);
 	}
 
 	public boolean getShowCollisions() {
@@ -103,17 +140,9 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	}
 
 	protected Visualization<F, Ship> createPlayerVisualization(Ship player) {
-		int size = 1;
-		try {
-			size = (int) (2 * facade.getShipRadius(player));
-		} catch (ModelException e) {
-			handleError(e);
-		}
-		Image image = ResourceUtils.loadImage("asteroids/resources/sphere.png").getScaledInstance(size, size,
-				Image.SCALE_DEFAULT);
-		assert image != null : "No player image!";
+		assert shipImage != null : "No player image!";
 		return new CompositeVisualization<>(player, //
-				new ShipVisualization<>(Color.WHITE, player, image),
+				new ShipVisualization<>(Color.WHITE, player, shipImage),
 				createCollisionVisualization(player, () -> getShowCollisions()));
 	}
 
@@ -121,6 +150,29 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		return new CollisionVisualization<>(object, showCollisions);
 	}
 
+	/**
+	 * Return whether the entity at the given index in the frame being drawn overlaps the area being painted. Entities
+	 * that do not are counted as culled.
+	 */
+	protected boolean isVisible(int index) {
+		double x = frame.getX(index);
+		double y = getHeight() - frame.getY(index);
+		double radius = frame.getRadius(index);
+		if (x + radius < viewport.getMinX() || x - radius > viewport.getMaxX() || y + radius < viewport.getMinY()
+				|| y - radius > viewport.getMaxY()) {
+			nbCulled++;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the frame being drawn.
+	 */
+	protected WorldFrame getFrame() {
+		return frame;
+	}
+
 	@Override
 	public boolean isFocusable() {
 		return true;
@@ -146,14 +198,41 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 
 	@Override
 	protected void paintComponent(Graphics g) {
+		long start = System.nanoTime();
 		super.paintComponent(g);
 		Graphics2D g2d = (Graphics2D) g;
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		g2d.drawImage(background, 0, 0, null);
 		g2d.setColor(Color.WHITE);
+		frame = frames.getFrontBuffer();
+		Rectangle clip = g2d.getClipBounds();
+		viewport = clip != null ? clip : new Rectangle(0, 0, getWidth(), getHeight());
+		nbCulled = 0;
 		DrawContext<F> ctx = createDrawContext(g2d);
 		drawObjects(ctx);
 		drawMessage(g2d);
+		long end = System.nanoTime();
+		if (lastPaint != 0)
+			frameMillis += SMOOTHING * ((start - lastPaint) / 1E6 - frameMillis);
+		paintMillis += SMOOTHING * ((end - start) / 1E6 - paintMillis);
+		lastPaint = start;
+		if (showFrameTime)
+			drawFrameTime(g2d);
+	}
+
+	/**
+	 * Draw the average time between frames, the time needed to paint a frame and to step the world, and the number
+	 * of entities and sprites.
+	 */
+	private void drawFrameTime(Graphics2D g2d) {
+		g2d.setFont(g2d.getFont().deriveFont(12f));
+		g2d.setColor(Color.WHITE);
+		String[] lines = { String.format("%.1f FPS (frame %.2f ms)", 1000 / frameMillis, frameMillis),
+				String.format("paint %.2f ms, step %.2f ms", paintMillis, stepMillis),
+				String.format("%d entities, %d culled", frame.getNbEntities(), nbCulled),
+				String.format("%d sprites, %d kpixels", sprites.getNbSprites(), sprites.getNbPixels() / 1000) };
+		for (int i = 0; i < lines.length; i++)
+			g2d.drawString(lines[i], 10, getHeight() - 10 - 15 * (lines.length - 1 - i));
 	}
 
 	private DrawContext<F> createDrawContext(Graphics2D g2d) {
@@ -179,6 +258,16 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 				return facade;
 			}
 
+			@Override
+			public WorldFrame getFrame() {
+				return frame;
+			}
+
+			@Override
+			public SpriteCache getSpriteCache() {
+				return sprites;
+			}
+
 			@Override
 			public void handleError(ModelException e) {
 				WorldView2.this.handleError(e);
@@ -195,72 +284,55 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 			drawCenteredString(g2d, "Press ESC to exit ...", getHeight() / 3 * 2);
 			//System.out.print(gameType);
 			if(this.getGameType() == 0) {
-				drawCenteredString(g2d, "Score:  " + (int) player.getPoints(), getHeight() / 5 * 3);
+				drawCenteredString(g2d, "Score:  " + (int) frame.getPoints(0), getHeight() / 5 * 3);
 			}else if(this.getGameType() == 1){
 				g2d.setColor(Color.decode("#FFD750"));
-				drawCenteredString(g2d, "Score:  " + (int) player.getPoints(), getHeight() / 9 * 5);
+				drawCenteredString(g2d, "Score:  " + (int) frame.getPoints(0), getHeight() / 9 * 5);
 				g2d.setColor(Color.RED);
-				drawCenteredString(g2d, "Score:  " + (int) player2.getPoints(), getHeight() / 32 * 19);
+				drawCenteredString(g2d, "Score:  " + (int) frame.getPoints(1), getHeight() / 32 * 19);
 			}
 		}
 		else if(this.getGameType() == 0){
 			g2d.setFont(g2d.getFont().deriveFont(20f));
 			g2d.setColor(Color.decode("#FFD750"));
-			drawCenteredString(g2d, "Score:  " + (int) player.getPoints(), getHeight() / 30);
+			drawCenteredString(g2d, "Score:  " + (int) frame.getPoints(0), getHeight() / 30);
 		}
 		else if(this.getGameType() ==1){
 			g2d.setFont(g2d.getFont().deriveFont(20f));
 			g2d.setColor(Color.decode("#FFD750"));
-			drawString(g2d, "Player 1: " + (int) player.getPoints(), getWidth() / 9, getHeight() / 30);
+			drawString(g2d, "Player 1: " + (int) frame.getPoints(0), getWidth() / 9, getHeight() / 30);
 			g2d.setFont(g2d.getFont().deriveFont(20f));
 			g2d.setColor(Color.RED);
-			drawString(g2d, "Player 2: " + (int) player2.getPoints(), getWidth() *7/ 9, getHeight() / 30);
+			drawString(g2d, "Player 2: " + (int) frame.getPoints(1), getWidth() *7/ 9, getHeight() / 30);
 		}
 	}
 
 	protected void drawObjects(DrawContext<F> ctx) {
 		drawShips(ctx);
 		drawBullets(ctx);
-		for (Explosion explosion : explosions) {
-			explosion.draw(ctx);
+		for (int i = 0; i < frame.getNbExplosions(); i++) {
+			frame.getExplosion(i).draw(ctx);
 		}
 	}
 
 	protected void drawBullets(DrawContext<F> ctx) {
-		Set<? extends Bullet> bullets;
-		try {
-			bullets = facade.getWorldBullets(world);
-		} catch (ModelException e) {
-			handleError(e);
-			return;
-		}
-		for (Bullet bullet : bullets) {
-			getOrCreateVisualization(bullet, this::createBulletVisualization).draw(ctx);
+		for (int i = 0; i < frame.getNbEntities(); i++) {
+			if (frame.getKind(i) == WorldFrame.BULLET && isVisible(i))
+				getOrCreateVisualization((Bullet) frame.getEntity(i), this::createBulletVisualization).draw(ctx);
 		}
 	}
 
 	protected Visualization<F, Bullet> createBulletVisualization(Bullet bullet) {
-		Ship ship = null;
-		try {
-			ship = facade.getBulletSource(bullet);
-		} catch (ModelException e) {
-			handleError(e);
-		}
+		int index = frame.indexOf(bullet);
+		Object ship = index < 0 ? null : frame.getSource(index);
 		Color bulletColor = visualizations.get(ship) == null ? Color.RED : visualizations.get(ship).getColor();
 		return new BulletVisualization<>(bulletColor, bullet);
 	}
 
 	protected void drawShips(DrawContext<F> ctx) {
-		Set<? extends Ship> ships;
-		try {
-			ships = facade.getWorldShips(world);
-		} catch (ModelException e) {
-			handleError(e);
-			return;
-		}
-
-		for (Ship ship : ships) {
-			getOrCreateVisualization(ship, this::createEnemyVisualization).draw(ctx);
+		for (int i = 0; i < frame.getNbEntities(); i++) {
+			if (frame.getKind(i) == WorldFrame.SHIP)
+				getOrCreateVisualization((Ship) frame.getEntity(i), this::createEnemyVisualization).draw(ctx);
 		}
 	}
 
@@ -278,7 +350,7 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		switch (e.getKeyCode()) {
 		case KeyEvent.VK_ESCAPE:
 			System.out.println("exiting...");
-			timer.stop();
+			running = false;
 			// game.showMenu();
 			System.exit(0);
 			break;
@@ -293,11 +365,14 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		case KeyEvent.VK_C:
 			showCollisions = !showCollisions;
 			break;
+		case KeyEvent.VK_F:
+			showFrameTime = !showFrameTime;
+			break;
 		case KeyEvent.VK_SPACE:
-			fire = true;
+			fire.set(true);
 			break;
 		case KeyEvent.VK_S:
-			fire2 = true;
+			fire2.set(true);
 			break;
 		case KeyEvent.VK_Q:
 			deltaAngle2 = Math.PI / 12.0;
@@ -319,10 +394,10 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 			break;
 		case KeyEvent.VK_UP:
 		case KeyEvent.VK_KP_UP:
-			thrusterChange = true;
+			thrusterChange.set(true);
 			break;
 		case KeyEvent.VK_W:
-			thrusterChange2 = true;
+			thrusterChange2.set(true);
 			break;
 		case KeyEvent.VK_Q:
 			deltaAngle2 = Double.NaN;
@@ -333,22 +408,115 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		}
 	}
 
-	@Override
-	public void actionPerformed(ActionEvent e) {
-		long now = System.currentTimeMillis();
-		long millisSinceLastEvolve = now - timeAfterLastEvolve;
-		timeAfterLastEvolve = now;
+	/**
+	 * Step the world at a fixed rate until the game is over. Runs on the simulation thread.
+	 */
+	private void simulate() {
+		long next = System.nanoTime();
+		while (running) {
+			long start = System.nanoTime();
+			try {
+				step(STEP_SECONDS);
+			} catch (RuntimeException exc) {
+				exc.printStackTrace();
+			}
+			stepMillis += SMOOTHING * ((System.nanoTime() - start) / 1E6 - stepMillis);
+			next += STEP_NANOS;
+			long delay = next - System.nanoTime();
+			if (delay > 0)
+				LockSupport.parkNanos(delay);
+			else if (delay < -MAX_LAG_NANOS)
+				next = System.nanoTime();
+		}
+		collisionListener.close();
+	}
 
+	private void step(double dt) {
 		doActions();
 
-		evolveWorld(millisSinceLastEvolve);
+		evolveWorld(dt);
 
-		updateExplosions(millisSinceLastEvolve);
+		updateExplosions(dt);
 
 		checkGameOver();
+		publishFrame();
 		repaint();
 	}
 
+	/**
+	 * Capture the state of the world in the back frame and publish it to the Event Dispatch Thread.
+	 */
+	private void publishFrame() {
+		WorldFrame frame = frames.getBackBuffer();
+		try {
+			frame.clear(world.getWidth(), world.getHeight());
+			captureEntities(frame);
+			if (showCollisions)
+				captureCollision(frame, player);
+		} catch (ModelException exc) {
+			handleError(exc);
+		}
+		for (Explosion explosion : explosions) {
+			frame.addExplosion(explosion);
+		}
+		if (player != null)
+			frame.setPoints(0, player.getPoints());
+		if (player2 != null)
+			frame.setPoints(1, player2.getPoints());
+		frames.publish();
+	}
+
+	/**
+	 * Add the entities of the world to the given frame.
+	 */
+	protected void captureEntities(WorldFrame frame) throws ModelException {
+		for (Ship ship : facade.getWorldShips(world)) {
+			frame.add(ship, WorldFrame.SHIP, ship.getPositionX(), ship.getPositionY(), ship.getVelocityX(),
+					ship.getVelocityY(), facade.getShipRadius(ship), facade.getShipOrientation(ship),
+					facade.isShipThrusterActive(ship), null);
+		}
+		for (Bullet bullet : facade.getWorldBullets(world)) {
+			frame.add(bullet, WorldFrame.BULLET, bullet.getPositionX(), bullet.getPositionY(), bullet.getVelocityX(),
+					bullet.getVelocityY(), facade.getBulletRadius(bullet), 0, false, facade.getBulletSource(bullet));
+		}
+	}
+
+	/**
+	 * Register the next collision of the given ship in the given frame.
+	 */
+	private void captureCollision(WorldFrame frame, Ship selected) throws ModelException {
+		if (selected == null || facade.getShipWorld(selected) == null) {
+			return;
+		}
+		double min_dt = facade.getTimeCollisionBoundary(selected);
+		Object min_ship = null;
+		int nbCrosses = 0;
+		for (Object entity : facade.getEntities(world)) {
+			if (entity == selected)
+				continue;
+			try {
+				if (!(entity instanceof Ship) || !facade.overlap(selected, (Ship) entity)) {
+					double dt = facade.getTimeCollisionEntity(selected, entity);
+					if (dt < min_dt) {
+						min_dt = dt;
+						min_ship = entity;
+					}
+					double[] colPos = facade.getPositionCollisionEntity(selected, entity);
+					if (colPos != null) {
+						if (crosses.length < 2 * nbCrosses + 2)
+							crosses = Arrays.copyOf(crosses, 2 * crosses.length);
+						crosses[2 * nbCrosses] = colPos[0];
+						crosses[2 * nbCrosses + 1] = colPos[1];
+						nbCrosses++;
+					}
+				}
+			} catch (ModelException e) {
+				e.printStackTrace();
+			}
+		}
+		frame.setCollision(selected, min_dt, min_ship, crosses, nbCrosses);
+	}
+
 	private void doActions() {
 		doTurn();
 		doTurn2();
@@ -360,34 +528,31 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 
 	protected void doFire() {
 		try {
-			if (fire && isPlayerActive(player)) {
+			if (fire.getAndSet(false) && isPlayerActive(player)) {
 				facade.fireBullet(player);
 				doFireEnemy();
 				game.getSound().play("torpedo");
 			}
 		} catch (ModelException exc) {
 			handleError(exc);
-		} finally {
-			fire = false;
 		}
 	}
 
 	protected void doFire2() {
 		try {
-			if (fire2 && isPlayerActive(player2)) {
+			if (fire2.getAndSet(false) && isPlayerActive(player2)) {
 				facade.fireBullet(player2);
 				doFireEnemy();
 				game.getSound().play("torpedo");
 			}
 		} catch (ModelException exc) {
 			handleError(exc);
-		} finally {
-			fire2 = false;
 		}
 	}
 
 	protected void doFireEnemy() throws ModelException {
-		for (Ship enemy : facade.getWorldShips(world))
+		// Firing may destroy ships, so iterate over a copy of the live set of ships.
+		for (Ship enemy : new ArrayList<>(facade.getWorldShips(world)))
 			if ((enemy != player) && (Math.random() > 0.75))
 				facade.fireBullet(enemy);
 	}
@@ -403,27 +568,23 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	}
 
 	private void doThrust() {
-		if (thrusterChange) {
+		if (thrusterChange.getAndSet(false)) {
 			try {
 				boolean thrusterOn = !facade.isShipThrusterActive(player);
 				facade.setThrusterActive(player, thrusterOn);
 			} catch (ModelException exc) {
 				handleError(exc);
-			} finally {
-				thrusterChange = false;
 			}
 		}
 	}
 
 	private void doThrust2() {
-		if (thrusterChange2) {
+		if (thrusterChange2.getAndSet(false)) {
 			try {
 				boolean thrusterOn = !facade.isShipThrusterActive(player2);
 				facade.setThrusterActive(player2, thrusterOn);
 			} catch (ModelException exc) {
 				handleError(exc);
-			} finally {
-				thrusterChange2 = false;
 			}
 		}
 	}
@@ -456,19 +617,21 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 		}
 	}
 
-	private void evolveWorld(long millisSinceLastEvolve) {
+	private void evolveWorld(double dt) {
 		try {
-			millisSinceLastEvolve = Math.max(5, millisSinceLastEvolve);
-			facade.evolve(world, millisSinceLastEvolve / 1000., this);
+			facade.evolve(world, dt, collisionListener);
 		} catch (ModelException exc) {
 			handleError(exc);
 		}
 	}
 
-	private void updateExplosions(long millisSinceLastEvolve) {
+	private void updateExplosions(double dt) {
+		Explosion explosion;
+		while ((explosion = newExplosions.poll()) != null)
+			explosions.add(explosion);
 		Iterator<Explosion> iter = explosions.iterator();
 		while (iter.hasNext()) {
-			boolean done = iter.next().evolve(millisSinceLastEvolve / 1000.);
+			boolean done = iter.next().evolve(dt);
 			if (done)
 				iter.remove();
 		}
@@ -489,14 +652,17 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 	}
 
 	protected void gameOver(String string) {
-		timer.stop();
+		running = false;
 		msg = string;
 	}
 
 	public void startGame() {
 		game.getSound().loop("game-theme");
-		timeAfterLastEvolve = System.currentTimeMillis();
-		timer.start();
+		running = true;
+		collisionListener = new AsyncCollisionListener(this);
+		simulation = new Thread(this::simulate, "Simulation");
+		simulation.setDaemon(true);
+		simulation.start();
 	}
 
 	@Override
@@ -504,13 +670,16 @@ public class WorldView2<F extends IFacade> extends JPanel implements KeyListener
 
 	}
 
+	/**
+	 * Runs on the consumer thread of the collision listener.
+	 */
 	@Override
 	public void objectCollision(Object entity1, Object entity2, double x, double y) {
 		try {
 			if ((entity1 instanceof Bullet && !(entity2 instanceof Bullet))
 					|| (entity2 instanceof Bullet && !(entity1 instanceof Bullet))) {
 				game.getSound().play("explosion");
-				explosions.add(new Explosion(x, facade.getWorldSize(world)[1] - y));
+				newExplosions.add(new Explosion(x, facade.getWorldSize(world)[1] - y));
 			}
 		} catch (ModelException exc) {
 			handleError(exc);
@@ -1,16 +1,15 @@
 package asteroids.part3.internal;
 
 import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 
 import asteroids.model.Planetoid;
-import asteroids.model.World;
 import asteroids.part2.internal.DrawContext;
+import asteroids.part2.internal.SpriteCache;
 import asteroids.part2.internal.Visualization;
+import asteroids.part2.internal.WorldFrame;
 import asteroids.part3.facade.IFacade;
-import asteroids.util.ModelException;
 
 public class PlanetoidVisualization extends Visualization<IFacade, Planetoid> {
 
@@ -20,29 +19,15 @@ public class PlanetoidVisualization extends Visualization<IFacade, Planetoid> {
 
 	@Override
 	public void draw(DrawContext<IFacade> ctx) {
-		IFacade facade = ctx.getFacade();
-
-		Graphics2D g2d = ctx.getGraphics();
-
-		try {
-			World world = facade.getPlanetoidWorld(getObject());
-			if (world != null) {
-				double radius = facade.getPlanetoidRadius(getObject());
-				double[] xy = facade.getPlanetoidPosition(getObject());
-				xy[1] = facade.getWorldSize(world)[1] - xy[1];
-				double x = xy[0], y = xy[1];
-				if (getImage() == null) {
-					g2d.setColor(getColor());
-					g2d.drawOval((int) (x - radius), (int) (y - radius), (int) (2 * radius), (int) (2 * radius));
-				} else {
-					AffineTransform T = AffineTransform.getScaleInstance(2 * radius / getImage().getWidth(null),
-							2 * radius / getImage().getHeight(null));
-					T.preConcatenate(AffineTransform.getTranslateInstance(x - radius, y - radius));
-					g2d.drawImage(this.getImage(), T, null);
-				}
-			}
-		} catch (ModelException e) {
-			ctx.handleError(e);
-		}
+		WorldFrame frame = ctx.getFrame();
+		int index = frame.indexOf(getObject());
+		if (index < 0)
+			return;
+		double x = ctx.worldToScreenX(frame.getX(index));
+		double y = ctx.worldToScreenY(frame.getY(index));
+		BufferedImage sprite = getImage() == null
+				? ctx.getSpriteCache().get(null, getColor(), frame.getRadius(index), Double.NaN, 0, SpriteCache.CIRCLE)
+				: ctx.getSpriteCache().get(getImage(), null, frame.getRadius(index), Double.NaN, 0, SpriteCache.IMAGE);
+		SpriteCache.draw(ctx.getGraphics(), sprite, x, y);
 	}
 }
@@ -2,7 +2,6 @@ package asteroids.part3.internal;
 
 import java.awt.Image;
 import java.util.Collections;
-import java.util.function.Supplier;
 
 import asteroids.model.Asteroid;
 import asteroids.model.Planetoid;
@@ -10,6 +9,7 @@ import asteroids.model.Ship;
 import asteroids.model.World;
 import asteroids.part2.internal.DrawContext;
 import asteroids.part2.internal.Visualization;
+import asteroids.part2.internal.WorldFrame;
 import asteroids.part2.internal.WorldView2;
 import asteroids.part3.facade.IFacade;
 import asteroids.util.ModelException;
@@ -18,6 +18,9 @@ import asteroids.util.internal.ResourceUtils;
 @SuppressWarnings("serial")
 public class WorldView3 extends WorldView2<IFacade> {
 
+	private final Image asteroidImage = ResourceUtils.loadImage("asteroids/resources/asteroid1.png");
+	private final Image planetoidImage = ResourceUtils.loadImage("asteroids/resources/deathstar.png");
+
 	public WorldView3(AsteroidsFrame3 game, World world, Ship player, Ship other, int gameType) throws ModelException {
 		super(game, world, player, Collections.singleton(other));
 		this.setGameType(gameType);
@@ -57,56 +60,48 @@ public class WorldView3 extends WorldView2<IFacade> {
 	}
 
 	@Override
-	protected Visualization<IFacade, Ship> createCollisionVisualization(Ship object, Supplier<Boolean> showCollisions) {
-		return new CollisionVisualization3(object, showCollisions);
+	protected void captureEntities(WorldFrame frame) throws ModelException {
+		super.captureEntities(frame);
+		IFacade facade = getFacade();
+		for (Asteroid asteroid : facade.getWorldAsteroids(getWorld())) {
+			frame.add(asteroid, WorldFrame.ASTEROID, asteroid.getPositionX(), asteroid.getPositionY(),
+					asteroid.getVelocityX(), asteroid.getVelocityY(), facade.getAsteroidRadius(asteroid), 0, false, null);
+		}
+		for (Planetoid planetoid : facade.getWorldPlanetoids(getWorld())) {
+			frame.add(planetoid, WorldFrame.PLANETOID, planetoid.getPositionX(), planetoid.getPositionY(),
+					planetoid.getVelocityX(), planetoid.getVelocityY(), facade.getPlanetoidRadius(planetoid), 0, false,
+					null);
+		}
 	}
 
 	protected void drawAsteroids(DrawContext<IFacade> ctx) {
-		try {
-			for (Asteroid asteroid : getFacade().getWorldAsteroids(getWorld())) {
-				Visualization<IFacade, Asteroid> vis = getOrCreateVisualization(asteroid,
+		WorldFrame frame = getFrame();
+		for (int i = 0; i < frame.getNbEntities(); i++) {
+			if (frame.getKind(i) == WorldFrame.ASTEROID && isVisible(i)) {
+				Visualization<IFacade, Asteroid> vis = getOrCreateVisualization((Asteroid) frame.getEntity(i),
 						this::createAsteroidVisualization);
 				vis.draw(ctx);
 			}
-		} catch (ModelException e) {
-			handleError(e);
 		}
 	}
 
 	protected AsteroidVisualization createAsteroidVisualization(Asteroid asteroid) {
-		int size = 1;
-		try {
-			size = (int) (2 * getFacade().getAsteroidRadius(asteroid));
-		} catch (ModelException e) {
-			handleError(e);
-		}
-		Image image = ResourceUtils.loadImage("asteroids/resources/asteroid1.png").getScaledInstance(size, size,
-				Image.SCALE_DEFAULT);
-		return new AsteroidVisualization(asteroid, image);
+		return new AsteroidVisualization(asteroid, asteroidImage);
 	}
 	
 	protected void drawPlanetoids(DrawContext<IFacade> ctx) {
-		try {
-			for (Planetoid planetoid : getFacade().getWorldPlanetoids(getWorld())) {
-				Visualization<IFacade, Planetoid> vis = getOrCreateVisualization(planetoid,
+		WorldFrame frame = getFrame();
+		for (int i = 0; i < frame.getNbEntities(); i++) {
+			if (frame.getKind(i) == WorldFrame.PLANETOID && isVisible(i)) {
+				Visualization<IFacade, Planetoid> vis = getOrCreateVisualization((Planetoid) frame.getEntity(i),
 						this::createPlanetoidVisualization);
 				vis.draw(ctx);
 			}
-		} catch (ModelException e) {
-			handleError(e);
 		}
 	}
 	
 	protected PlanetoidVisualization createPlanetoidVisualization(Planetoid planetoid) {
-		int size = 1;
-		try {
-			size = (int) (2 * getFacade().getPlanetoidRadius(planetoid));
-		} catch (ModelException e) {
-			handleError(e);
-		}
-		Image image = ResourceUtils.loadImage("asteroids/resources/deathstar.png").getScaledInstance(size, size,
-				Image.SCALE_DEFAULT);
-		return new PlanetoidVisualization(planetoid, image);
+		return new PlanetoidVisualization(planetoid, planetoidImage);
 	}
 
 	private int gameType;
@@ -5,15 +5,24 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 
 import asteroids.model.Program;
+import asteroids.model.program.TypeCheckException;
 import asteroids.part3.programs.IProgramFactory;
 import asteroids.part3.programs.internal.generated.AsteroidsProgramLexer;
 import asteroids.part3.programs.internal.generated.AsteroidsProgramParser;
@@ -58,6 +67,13 @@ import asteroids.util.internal.ResourceUtils;
  * false and <code>parser.getErrors()</code> can be used to retrieve the list of
  * errors during parsing.
  * 
+ * Programs are parsed in two stages: with SLL prediction first, which is fast
+ * but gives up at the first syntax error, and only if that fails with full LL
+ * prediction, which reports the errors. Every thread reuses a single lexer and
+ * parser, and all parsers share the DFA cache of the generated parser, so many
+ * programs can be parsed in parallel with
+ * {@link #parseStrings(List, Supplier)}.
+ * 
  *
  * @param E
  *            The type of expressions
@@ -74,6 +90,25 @@ public class ProgramParser<E, S, F, P> {
 
 	private final List<String> errors = new ArrayList<>();
 
+	private final ANTLRErrorListener errorListener = new BaseErrorListener() {
+		@Override
+		public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+				int charPositionInLine, String msg, RecognitionException e) {
+			errors.add(msg + " (" + line + ", " + charPositionInLine + ")");
+		}
+	};
+
+	/**
+	 * The lexer and parser of a thread, reused for every program it parses.
+	 */
+	private static final class Recognizers {
+		private final AsteroidsProgramLexer lexer = new AsteroidsProgramLexer(null);
+		private final AsteroidsProgramParser parser = new AsteroidsProgramParser(null);
+		private boolean inUse;
+	}
+
+	private static final ThreadLocal<Recognizers> recognizers = ThreadLocal.withInitial(Recognizers::new);
+
 	protected ProgramParser(IProgramFactory<E, S, F, P> factory) {
 		this.factory = factory;
 	}
@@ -132,18 +167,16 @@ public class ProgramParser<E, S, F, P> {
 	protected ParseOutcome<P> parse(CharStream input) {
 		reset();
 
-		AsteroidsProgramLexer lexer = new AsteroidsProgramLexer(input);
-		AsteroidsProgramParser parser = new AsteroidsProgramParser(new CommonTokenStream(lexer));
-		parser.addErrorListener(new BaseErrorListener() {
-			@Override
-			public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-					int charPositionInLine, String msg, RecognitionException e) {
-				errors.add(msg + " (" + line + ", " + charPositionInLine + ")");
-			}
-		});
+		Recognizers recognizers = ProgramParser.recognizers.get();
+		if (recognizers.inUse) {
+			// The factory is parsing another program while this one is parsed.
+			recognizers = new Recognizers();
+		}
+		recognizers.inUse = true;
+		recognizers.lexer.setInputStream(input);
 		ParserVisitor<E, S, F, P> visitor = new ParserVisitor<>(factory);
 		try {
-			visitor.visitProgram(parser.program());
+			visitor.visitProgram(parseProgram(recognizers.parser, new CommonTokenStream(recognizers.lexer)));
 			if (errors.isEmpty()) {
 			  assert visitor.getMain() != null;
 				P program = factory.createProgram(visitor.getFunctions(),visitor.getMain());
@@ -152,13 +185,44 @@ public class ProgramParser<E, S, F, P> {
 				}
 				errors.add("Factory did not return a Program object");
 			}
+		} catch (TypeCheckException e) {
+			errors.addAll(e.getErrors());
 		} catch (Exception e) {
 			e.printStackTrace();
 			errors.add(e.toString());
+		} finally {
+			// Do not keep the program alive until the next parse.
+			recognizers.parser.setTokenStream(null);
+			recognizers.lexer.setInputStream(null);
+			recognizers.inUse = false;
 		}
 		return ParseOutcome.failure(errors);
 	}
 
+	/**
+	 * Parse the given tokens with SLL prediction, and only if that fails,
+	 * parse them again with full LL prediction, reporting the syntax errors.
+	 * SLL prediction succeeds for nearly every valid program, so the second
+	 * stage is hardly ever run for programs without errors.
+	 */
+	private AsteroidsProgramParser.ProgramContext parseProgram(AsteroidsProgramParser parser,
+			CommonTokenStream tokens) {
+		parser.setTokenStream(tokens);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		try {
+			return parser.program();
+		} catch (ParseCancellationException e) {
+			parser.reset();
+			parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+			parser.addErrorListener(errorListener);
+			parser.setErrorHandler(new DefaultErrorStrategy());
+			parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+			return parser.program();
+		}
+	}
+
 	protected void reset() {
 		this.errors.clear();
 	}
@@ -177,6 +241,22 @@ public class ProgramParser<E, S, F, P> {
 		return new ProgramParser<>(factory);
 	}
 
+	/**
+	 * Parse the given program texts in parallel, with a new factory from the
+	 * given supplier for every text.
+	 * 
+	 * @param texts
+	 *            The texts to parse
+	 * @param factories
+	 *            The supplier of the factories to use
+	 * @return The outcomes of parsing the texts, in the order of the texts.
+	 */
+	public static <P> List<ParseOutcome<P>> parseStrings(List<String> texts,
+			Supplier<? extends IProgramFactory<?, ?, ?, P>> factories) {
+		return texts.parallelStream().map(text -> create(factories.get()).parseString(text))
+				.collect(Collectors.toList());
+	}
+
 	/**
 	 * Parse program text using the given factory.
 	 * 
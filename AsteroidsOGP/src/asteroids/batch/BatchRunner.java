@@ -0,0 +1,442 @@
+package asteroids.batch;
+
+import asteroids.facade.Facade;
+import asteroids.model.*;
+import asteroids.model.program.cache.ProgramCache;
+import asteroids.part3.programs.IProgramFactory;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.util.ModelException;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of runners playing matches between programmed ships without a graphical user interface.
+ * A runner builds its worlds through the facade, loads the ship programs with the program parser and evolves
+ * the world with a fixed time step as fast as possible, instead of at the pace of a timer.
+ * After every step the program of every ship runs for the same time step. The runner runs the programs itself
+ * instead of loading them on the ships, so a program failing at run time is attributed to its ship and only
+ * stops that program, not the whole match.
+ * A match ends when its duration has passed or when at most one of its ships is left.
+ *
+ * The runner never touches AWT or Swing, so it can play large tournaments on a machine without a display.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class BatchRunner {
+
+    /**
+     * Constants registering the layout of the worlds in which the matches are played.
+     */
+    public final static double WORLD_WIDTH = 1000;
+    public final static double WORLD_HEIGHT = 800;
+    private final static double SHIP_RADIUS = 40;
+    private final static double SHIP_MASS = 5E15;
+    private final static double SHIP_THRUST_FORCE = 0.6E20;
+    private final static int NB_BULLETS_PER_SHIP = 49;
+
+    /**
+     * Initializes a new batch runner.
+     *
+     * @param   timeStep
+     *          The fixed amount of time the world evolves in a single step.
+     * @param   duration
+     *          The maximal simulated time of a match.
+     * @param   nbAsteroids
+     *          The number of asteroids the runner tries to place in every world.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the time step or the duration is not strictly positive or the number of asteroids is negative.
+     *          | !(timeStep > 0) || !(duration > 0) || nbAsteroids < 0
+     */
+    public BatchRunner(double timeStep, double duration, int nbAsteroids) throws IllegalArgumentException {
+        if (!(timeStep > 0) || Double.isInfinite(timeStep))
+            throw new IllegalArgumentException("Invalid time step!");
+        if (!(duration > 0) || Double.isInfinite(duration))
+            throw new IllegalArgumentException("Invalid duration!");
+        if (nbAsteroids < 0)
+            throw new IllegalArgumentException("Invalid number of asteroids!");
+        this.timeStep = timeStep;
+        this.duration = duration;
+        this.nbAsteroids = nbAsteroids;
+    }
+
+    private final Facade facade = new Facade();
+    private final double timeStep;
+    private final double duration;
+    private final int nbAsteroids;
+
+    @Basic @Immutable
+    public double getTimeStep(){
+        return this.timeStep;
+    }
+
+    @Basic @Immutable
+    public double getDuration(){
+        return this.duration;
+    }
+
+    @Basic @Immutable
+    public int getNbAsteroids(){
+        return this.nbAsteroids;
+    }
+
+    /**
+     * Returns the source of the program with the given name, read from the class path or from the file system.
+     *
+     * @throws  IOException
+     *          Thrown if no program with the given name can be read.
+     */
+    public static String readProgramSource(String fileName) throws IOException {
+        InputStream stream = BatchRunner.class.getResourceAsStream("/" + fileName);
+        if (stream == null)
+            return new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1)
+                bytes.write(buffer, 0, read);
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Map registering the images of the programs parsed by this runner, with their source as a key. The images are
+     * shared by all ships running the same source, in all matches and on all threads.
+     */
+    private final Map<String, ProgramImage> images = new ConcurrentHashMap<>();
+
+    /**
+     * Variable registering the cache through which this runner parses its programs, or null.
+     */
+    private volatile ProgramCache programCache = null;
+
+    @Basic
+    public ProgramCache getProgramCache(){
+        return this.programCache;
+    }
+
+    /**
+     * Set the cache through which this runner parses its programs, so that a program parsed in an earlier run is
+     * not parsed again.
+     *
+     * @param   programCache
+     *          The cache, or null to always parse the programs.
+     */
+    public void setProgramCache(ProgramCache programCache){
+        this.programCache = programCache;
+    }
+
+    /**
+     * Return a new program executing the given program source. The source is only parsed the first time it is used;
+     * later programs share the image of the first one.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the source is not a valid program.
+     */
+    public Program parseProgram(String source) throws IllegalArgumentException {
+        ProgramImage image = images.get(source);
+        if (image == null) {
+            image = parseProgramImage(source);
+            ProgramImage existing = images.putIfAbsent(source, image);
+            if (existing != null)
+                image = existing;
+        }
+        return image.newProgram();
+    }
+
+    /**
+     * Parse the given program source into a new program image.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the source is not a valid program.
+     */
+    private ProgramImage parseProgramImage(String source) throws IllegalArgumentException {
+        try {
+            IProgramFactory<?, ?, ?, ? extends Program> programFactory = facade.createProgramFactory();
+            ProgramCache cache = programCache;
+            ParseOutcome<? extends Program> parseOutcome = cache != null ? cache.parse(source, programFactory)
+                    : ProgramParser.create(programFactory).parseString(source);
+            if (!parseOutcome.isSuccess())
+                throw new IllegalArgumentException("Invalid program: " + parseOutcome.getFailValue());
+            return parseOutcome.getSuccessValue().getImage();
+        }
+        catch (ModelException e){
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Play a match between ships controlled by the given programs.
+     * The ships are placed on a circle around the center of the world, facing the center. The asteroids and planetoids
+     * are placed at random, using a generator seeded with the given seed. The random generator of the world is
+     * seeded with the same seed, so a match only depends on its programs and its seed.
+     *
+     * @param   names
+     *          The names of the programs, used in the results.
+     * @param   sources
+     *          The sources of the programs. Every ship gets a fresh program, sharing the image of its source.
+     * @param   seed
+     *          The seed of the random generator placing the asteroids and planetoids.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if there are no programs, if the number of names differs from the number of sources or if
+     *          one of the sources is not a valid program.
+     */
+    public MatchResult runMatch(List<String> names, List<String> sources, long seed) throws IllegalArgumentException {
+        if (sources == null || sources.isEmpty())
+            throw new IllegalArgumentException("No programs!");
+        if (names == null || names.size() != sources.size())
+            throw new IllegalArgumentException("Every program needs a name!");
+        int nbShips = sources.size();
+        Random random = new Random(seed);
+
+        World world;
+        Ship[] ships = new Ship[nbShips];
+        Program[] programs = new Program[nbShips];
+        try {
+            world = facade.createWorld(WORLD_WIDTH, WORLD_HEIGHT);
+            world.setSeed(seed);
+            double circleRadius = Math.min(WORLD_WIDTH, WORLD_HEIGHT) / 2 - 2 * SHIP_RADIUS;
+            for (int i = 0; i < nbShips; i++) {
+                double angle = 2 * Math.PI * i / nbShips;
+                double x = WORLD_WIDTH / 2 + circleRadius * Math.cos(angle);
+                double y = WORLD_HEIGHT / 2 + circleRadius * Math.sin(angle);
+                double heading = (angle + Math.PI) % (2 * Math.PI);
+                ships[i] = facade.createShip(x, y, 0, 0, SHIP_RADIUS, heading, SHIP_MASS);
+                ships[i].setThrustForce(SHIP_THRUST_FORCE);
+                facade.addShipToWorld(world, ships[i]);
+                for (int k = 0; k < NB_BULLETS_PER_SHIP; k++)
+                    facade.loadBulletOnShip(ships[i], facade.createBullet(x, y, 0, 0, random.nextDouble() + 2));
+                programs[i] = parseProgram(sources.get(i));
+                programs[i].setShip(ships[i]);
+            }
+        }
+        catch (ModelException e){
+            throw new IllegalArgumentException(e);
+        }
+        for (int i = 0; i < nbAsteroids; i++) {
+            try {
+                Asteroid asteroid = facade.createAsteroid(random.nextDouble() * WORLD_WIDTH,
+                        random.nextDouble() * WORLD_HEIGHT, random.nextDouble() * 100 - 50,
+                        random.nextDouble() * 100 - 50, 10 + random.nextDouble() * 20);
+                facade.addAsteroidToWorld(world, asteroid);
+            }
+            catch (ModelException e){
+                // The asteroid does not fit in the world, so it is left out.
+            }
+        }
+        try {
+            Planetoid planetoid = facade.createPlanetoid(random.nextDouble() * WORLD_WIDTH,
+                    random.nextDouble() * WORLD_HEIGHT, random.nextDouble() * 20 - 10,
+                    random.nextDouble() * 20 - 10, 15 + random.nextDouble() * 15, 100);
+            facade.addPlanetoidToWorld(world, planetoid);
+        }
+        catch (ModelException e){
+            // The planetoid does not fit in the world, so it is left out.
+        }
+
+        return play(world, names, ships, programs);
+    }
+
+    /**
+     * Play a series of matches between ships controlled by the given programs on the given number of threads.
+     * Every match is played by a single thread; the matches are spread over the threads of a fork-join pool.
+     * The match at index i of the result is played with the seed firstSeed + i.
+     *
+     * @param   nbMatches
+     *          The number of matches to play.
+     * @param   parallelism
+     *          The number of threads playing the matches.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the number of matches is negative or the parallelism is not strictly positive, or if the
+     *          programs cannot be played as documented for runMatch.
+     *          | nbMatches < 0 || parallelism <= 0
+     *
+     * @see implementation
+     */
+    public List<MatchResult> runMatches(List<String> names, List<String> sources, long firstSeed, int nbMatches,
+                                        int parallelism) throws IllegalArgumentException {
+        if (nbMatches < 0)
+            throw new IllegalArgumentException("Invalid number of matches!");
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Invalid parallelism!");
+        ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+        try {
+            List<ForkJoinTask<MatchResult>> matches = new ArrayList<>();
+            for (int match = 0; match < nbMatches; match++) {
+                long seed = firstSeed + match;
+                matches.add(forkJoinPool.submit(() -> runMatch(names, sources, seed)));
+            }
+            List<MatchResult> results = new ArrayList<>();
+            for (ForkJoinTask<MatchResult> match : matches)
+                results.add(match.join());
+            return results;
+        }
+        finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    /**
+     * Evolve the given world with the fixed time step of this runner until the match between the given ships ends.
+     * After every step, the program of every ship that is still alive runs for the time step.
+     */
+    private MatchResult play(World world, List<String> names, Ship[] ships, Program[] programs){
+        int nbShips = ships.length;
+        double[] survivalTimes = new double[nbShips];
+        boolean[] alive = new boolean[nbShips];
+        String[] programFailures = new String[nbShips];
+        int nbAlive = nbShips;
+        for (int i = 0; i < nbShips; i++)
+            alive[i] = true;
+        int minimumAlive = nbShips > 1 ? 1 : 0;
+
+        double time = 0;
+        long nbSteps = 0;
+        long start = System.nanoTime();
+        while (time < duration && nbAlive > minimumAlive) {
+            double step = Math.min(timeStep, duration - time);
+            try {
+                facade.evolve(world, step, null);
+            }
+            catch (ModelException e){
+                throw new RuntimeException(e);
+            }
+            for (int i = 0; i < nbShips; i++) {
+                if (alive[i] && programFailures[i] == null && !ships[i].checkTermination()) {
+                    try {
+                        programs[i].execute(step);
+                    }
+                    catch (RuntimeException e){
+                        programFailures[i] = e.toString();
+                    }
+                }
+            }
+            time += step;
+            nbSteps++;
+            for (int i = 0; i < nbShips; i++) {
+                if (alive[i] && ships[i].checkTermination()) {
+                    alive[i] = false;
+                    survivalTimes[i] = time;
+                    nbAlive--;
+                }
+            }
+        }
+        long wallClockNanos = System.nanoTime() - start;
+
+        List<ShipResult> shipResults = new ArrayList<>();
+        for (int i = 0; i < nbShips; i++) {
+            shipResults.add(new ShipResult(names.get(i), ships[i].getPoints(), alive[i] ? time : survivalTimes[i],
+                    ships[i].getNbShotsFired(), alive[i], programFailures[i]));
+        }
+        return new MatchResult(shipResults, time, wallClockNanos, nbSteps);
+    }
+
+    /**
+     * Play a series of matches between the given programs and write the statistics of every ship to the standard
+     * output, followed by the number of simulated seconds per wall-clock second.
+     *
+     * Usage: BatchRunner [-dt seconds] [-duration seconds] [-matches n] [-seed n] [-asteroids n] [-threads n]
+     * [-out file] [-cache directory] [-verbose] program...
+     * The matches are played on as many threads as there are processors, unless -threads is given.
+     * The programs are read from the class path or from the file system. Unless -verbose is given, the output of
+     * the print statements of the programs is discarded. With -cache, parsed programs are kept in the given
+     * directory and reused by later runs.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        double timeStep = 0.03;
+        double duration = 60;
+        int nbMatches = 1;
+        long seed = 0;
+        int nbAsteroids = 4;
+        String outputFile = null;
+        String cacheDirectory = null;
+        boolean verbose = false;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-dt": timeStep = Double.parseDouble(args[++i]); break;
+                case "-duration": duration = Double.parseDouble(args[++i]); break;
+                case "-matches": nbMatches = Integer.parseInt(args[++i]); break;
+                case "-seed": seed = Long.parseLong(args[++i]); break;
+                case "-asteroids": nbAsteroids = Integer.parseInt(args[++i]); break;
+                case "-threads": parallelism = Integer.parseInt(args[++i]); break;
+                case "-out": outputFile = args[++i]; break;
+                case "-cache": cacheDirectory = args[++i]; break;
+                case "-verbose": verbose = true; break;
+                default: names.add(args[i]);
+            }
+        }
+        if (names.isEmpty()) {
+            System.err.println("Usage: BatchRunner [-dt seconds] [-duration seconds] [-matches n] [-seed n] "
+                    + "[-asteroids n] [-threads n] [-out file] [-cache directory] [-verbose] program...");
+            System.exit(1);
+        }
+        List<String> sources = new ArrayList<>();
+        for (String name : names)
+            sources.add(readProgramSource(name));
+
+        PrintStream standardOutput = System.out;
+        PrintStream report = outputFile == null ? standardOutput
+                : new PrintStream(new FileOutputStream(outputFile), true, "UTF-8");
+        if (!verbose)
+            System.setOut(new PrintStream(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+                @Override
+                public void write(byte[] b, int off, int len) {
+                }
+            }));
+
+        BatchRunner runner = new BatchRunner(timeStep, duration, nbAsteroids);
+        if (cacheDirectory != null)
+            runner.setProgramCache(new ProgramCache(Paths.get(cacheDirectory)));
+        double totalSimulatedTime = 0;
+        try {
+            long start = System.nanoTime();
+            List<MatchResult> results = runner.runMatches(names, sources, seed, nbMatches, parallelism);
+            long totalWallClockNanos = System.nanoTime() - start;
+
+            report.println("match\tprogram\tpoints\tsurvival\tshots\tsurvived\tfailure");
+            for (int match = 0; match < results.size(); match++) {
+                for (ShipResult shipResult : results.get(match).getShipResults())
+                    report.println(match + "\t" + shipResult);
+                totalSimulatedTime += results.get(match).getSimulatedTime();
+            }
+            MatchResult total = new MatchResult(new ArrayList<>(), totalSimulatedTime, totalWallClockNanos, 0);
+            report.printf("simulated %.1f s in %.3f s on %d threads: %.1f simulated seconds per wall-clock second%n",
+                    total.getSimulatedTime(), total.getWallClockTime(), parallelism,
+                    total.getSimulatedSecondsPerWallSecond());
+        }
+        finally {
+            System.setOut(standardOutput);
+            if (report != standardOutput)
+                report.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package asteroids.batch;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of summaries of a match played by the batch runner.
+ * Besides the results of the ships, a match result registers how long the match lasted in simulated time
+ * and how long it took to simulate it in wall-clock time.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class MatchResult {
+
+    /**
+     * Initializes a new match result.
+     *
+     * @param   shipResults
+     *          The results of the ships that played the match.
+     * @param   simulatedTime
+     *          The simulated time the match lasted, in seconds.
+     * @param   wallClockNanos
+     *          The wall-clock time it took to simulate the match, in nanoseconds.
+     * @param   nbSteps
+     *          The number of steps the world evolved.
+     */
+    public MatchResult(List<ShipResult> shipResults, double simulatedTime, long wallClockNanos, long nbSteps){
+        this.shipResults = Collections.unmodifiableList(new ArrayList<>(shipResults));
+        this.simulatedTime = simulatedTime;
+        this.wallClockNanos = wallClockNanos;
+        this.nbSteps = nbSteps;
+    }
+
+    private final List<ShipResult> shipResults;
+    private final double simulatedTime;
+    private final long wallClockNanos;
+    private final long nbSteps;
+
+    @Basic @Immutable
+    public List<ShipResult> getShipResults(){
+        return this.shipResults;
+    }
+
+    @Basic @Immutable
+    public double getSimulatedTime(){
+        return this.simulatedTime;
+    }
+
+    @Basic @Immutable
+    public long getWallClockNanos(){
+        return this.wallClockNanos;
+    }
+
+    @Basic @Immutable
+    public long getNbSteps(){
+        return this.nbSteps;
+    }
+
+    /**
+     * Returns the wall-clock time it took to simulate the match, in seconds.
+     *
+     * @see implementation
+     */
+    public double getWallClockTime(){
+        return wallClockNanos / 1e9;
+    }
+
+    /**
+     * Returns the number of simulated seconds per wall-clock second, or infinity if no wall-clock time passed.
+     *
+     * @see implementation
+     */
+    public double getSimulatedSecondsPerWallSecond(){
+        if (wallClockNanos <= 0)
+            return Double.POSITIVE_INFINITY;
+        return simulatedTime / getWallClockTime();
+    }
+}
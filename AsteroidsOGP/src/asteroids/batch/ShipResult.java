@@ -0,0 +1,90 @@
+package asteroids.batch;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of summaries of how a single ship did in a match played by the batch runner.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class ShipResult {
+
+    /**
+     * Initializes a new ship result.
+     *
+     * @param   name
+     *          The name of the program that controlled the ship.
+     * @param   points
+     *          The points the ship scored.
+     * @param   survivalTime
+     *          The simulated time the ship stayed alive.
+     * @param   nbShotsFired
+     *          The number of bullets the ship fired.
+     * @param   survived
+     *          Whether the ship was still alive at the end of the match.
+     * @param   programFailure
+     *          The message of the error that stopped the program of the ship, or null.
+     */
+    public ShipResult(String name, double points, double survivalTime, int nbShotsFired, boolean survived,
+                      String programFailure){
+        this.name = name;
+        this.points = points;
+        this.survivalTime = survivalTime;
+        this.nbShotsFired = nbShotsFired;
+        this.survived = survived;
+        this.programFailure = programFailure;
+    }
+
+    private final String name;
+    private final double points;
+    private final double survivalTime;
+    private final int nbShotsFired;
+    private final boolean survived;
+    private final String programFailure;
+
+    @Basic @Immutable
+    public String getName(){
+        return this.name;
+    }
+
+    @Basic @Immutable
+    public double getPoints(){
+        return this.points;
+    }
+
+    @Basic @Immutable
+    public double getSurvivalTime(){
+        return this.survivalTime;
+    }
+
+    @Basic @Immutable
+    public int getNbShotsFired(){
+        return this.nbShotsFired;
+    }
+
+    @Basic @Immutable
+    public boolean hasSurvived(){
+        return this.survived;
+    }
+
+    @Basic @Immutable
+    public String getProgramFailure(){
+        return this.programFailure;
+    }
+
+    /**
+     * Returns a tab separated line with the statistics of this result.
+     *
+     * @see implementation
+     */
+    @Override
+    public String toString(){
+        return name + "\t" + points + "\t" + survivalTime + "\t" + nbShotsFired + "\t" + survived
+                + (programFailure == null ? "" : "\t" + programFailure);
+    }
+}
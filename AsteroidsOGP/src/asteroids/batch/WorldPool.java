@@ -0,0 +1,192 @@
+package asteroids.batch;
+
+import asteroids.model.World;
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of pools evolving many independent worlds at once on a fork-join pool.
+ * Every world is evolved by a single task at a time, and every world reports its collisions to its own
+ * collision listener, so a world and its listener never need to be thread safe.
+ * The worlds are split over the workers of the pool, which steal work from each other when some worlds take
+ * longer to evolve than others.
+ *
+ * Worlds share no mutable state: every world has its own random generator, seeded with setSeed if its
+ * random choices should be reproducible.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class WorldPool implements AutoCloseable {
+
+    /**
+     * Initializes a new world pool using the given number of threads.
+     *
+     * @param   parallelism
+     *          The number of threads evolving the worlds.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the parallelism is not strictly positive.
+     *          | parallelism <= 0
+     */
+    public WorldPool(int parallelism) throws IllegalArgumentException {
+        if (parallelism <= 0)
+            throw new IllegalArgumentException("Invalid parallelism!");
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Initializes a new world pool using a thread for every available processor.
+     *
+     * @effect  ...
+     *          | this(Runtime.getRuntime().availableProcessors())
+     */
+    public WorldPool(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Variable registering the fork-join pool evolving the worlds.
+     */
+    private final ForkJoinPool forkJoinPool;
+
+    /**
+     * Lists registering the worlds of this pool and, at the same index, their collision listeners.
+     */
+    private final List<World> worlds = new ArrayList<>();
+    private final List<CollisionListener> collisionListeners = new ArrayList<>();
+
+    /**
+     * Returns the number of threads evolving the worlds of this pool.
+     */
+    public int getParallelism(){
+        return forkJoinPool.getParallelism();
+    }
+
+    /**
+     * Returns the number of worlds in this pool.
+     */
+    public int getNbWorlds(){
+        return worlds.size();
+    }
+
+    /**
+     * Returns the world at the given index of this pool.
+     */
+    @Basic
+    public World getWorld(int index){
+        return worlds.get(index);
+    }
+
+    /**
+     * Add the given world to this pool.
+     *
+     * @param   world
+     *          The world to add.
+     * @param   collisionListener
+     *          The listener notified of the collisions in the given world, or null.
+     *
+     * @return  The index of the world in this pool.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world is null, terminated or already in this pool.
+     *          | world == null || world.checkTermination() || contains(world)
+     */
+    public int addWorld(World world, CollisionListener collisionListener) throws IllegalArgumentException {
+        if (world == null || world.checkTermination())
+            throw new IllegalArgumentException("Not an existing world!");
+        if (worlds.contains(world))
+            throw new IllegalArgumentException("World already in this pool!");
+        worlds.add(world);
+        collisionListeners.add(collisionListener);
+        return worlds.size() - 1;
+    }
+
+    /**
+     * Evolve every world in this pool for the given time difference.
+     *
+     * @effect  ...
+     *          | evolve(timeDifference, 1)
+     */
+    public void evolve(double timeDifference) throws IllegalArgumentException {
+        evolve(timeDifference, 1);
+    }
+
+    /**
+     * Evolve every world in this pool for the given number of steps of the given time difference.
+     * A single task evolves a world for all steps, so the threads only synchronise once per call.
+     * The method returns when all worlds have been evolved.
+     *
+     * @param   timeDifference
+     *          The amount of seconds every world evolves in a single step.
+     * @param   nbSteps
+     *          The number of steps.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the time difference is negative or NaN, or if the number of steps is negative.
+     *          | timeDifference < 0 || Double.isNaN(timeDifference) || nbSteps < 0
+     */
+    public void evolve(double timeDifference, int nbSteps) throws IllegalArgumentException {
+        if (timeDifference < 0 || Double.isNaN(timeDifference))
+            throw new IllegalArgumentException();
+        if (nbSteps < 0)
+            throw new IllegalArgumentException("Invalid number of steps!");
+        if (forkJoinPool.isShutdown())
+            throw new IllegalStateException("Pool closed!");
+        if (worlds.isEmpty() || nbSteps == 0)
+            return;
+        forkJoinPool.invoke(new EvolveTask(0, worlds.size(), timeDifference, nbSteps));
+    }
+
+    /**
+     * Shut down the threads of this pool. The worlds of the pool are not terminated.
+     */
+    @Override
+    public void close(){
+        forkJoinPool.shutdown();
+    }
+
+    /**
+     * A class of tasks evolving a range of the worlds of the pool. A task evolving more than one world splits
+     * itself in two halves.
+     */
+    private class EvolveTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+
+        private EvolveTask(int from, int to, double timeDifference, int nbSteps){
+            this.from = from;
+            this.to = to;
+            this.timeDifference = timeDifference;
+            this.nbSteps = nbSteps;
+        }
+
+        private final int from;
+        private final int to;
+        private final double timeDifference;
+        private final int nbSteps;
+
+        @Override
+        protected void compute(){
+            if (to - from == 1) {
+                World world = worlds.get(from);
+                CollisionListener collisionListener = collisionListeners.get(from);
+                for (int step = 0; step < nbSteps; step++)
+                    world.evolve(timeDifference, collisionListener);
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EvolveTask(from, middle, timeDifference, nbSteps),
+                        new EvolveTask(middle, to, timeDifference, nbSteps));
+            }
+        }
+    }
+}
@@ -4,8 +4,11 @@ import asteroids.model.*;
 import asteroids.model.program.ProgramFactory;
 import asteroids.part2.CollisionListener;
 import asteroids.part3.programs.IProgramFactory;
+import asteroids.replay.MatchRecorder;
+import asteroids.replay.Recording;
 import asteroids.util.ModelException;
 
+import java.nio.DoubleBuffer;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -129,7 +132,9 @@ public class Facade implements asteroids.part3.facade.IFacade  {
      * of the parameter active.
      */
     public void setThrusterActive(Ship ship, boolean active) throws ModelException{
-        if(active){
+        if(isRecorded(ship)){
+            recorder.setThrusterActive(ship, active);
+        }else if(active){
             ship.thrustOn();
         }else{
             ship.thrustOff();
@@ -459,7 +464,10 @@ public class Facade implements asteroids.part3.facade.IFacade  {
      * The given ship fires a bullet.
      */
     public void fireBullet(Ship ship) throws ModelException{
-        ship.fire();
+        if (isRecorded(ship))
+            recorder.fireBullet(ship);
+        else
+            ship.fire();
     }
 
     /************
@@ -529,7 +537,10 @@ public class Facade implements asteroids.part3.facade.IFacade  {
      */
     public void evolve(World world, double dt, CollisionListener collisionListener) throws ModelException{
         try {
-            world.evolve(dt, collisionListener);
+            if (recorder != null && recorder.getWorld() == world)
+                recorder.evolve(dt, collisionListener);
+            else
+                world.evolve(dt, collisionListener);
         }
         catch(IllegalArgumentException e){
             throw new ModelException(e);
@@ -561,7 +572,10 @@ public class Facade implements asteroids.part3.facade.IFacade  {
      *          The angle by which the ship's heading will be changed.
      */
     public void turn(Ship ship, double angle){
-        ship.turn(angle);
+        if (isRecorded(ship))
+            recorder.turn(ship, angle);
+        else
+            ship.turn(angle);
     }
 
     /**
@@ -869,4 +883,110 @@ public class Facade implements asteroids.part3.facade.IFacade  {
     public IProgramFactory<?, ?, ?, ? extends Program> createProgramFactory() throws ModelException{
         return new ProgramFactory();
     }
+
+    /**************
+     * BULK EXPORTS
+     *************/
+
+    /**
+     * Return the export epoch of the given world, which is raised whenever an entity of the world is added, removed,
+     * moved, turned or changed.
+     */
+    public long getWorldEpoch(World world) throws ModelException{
+        try {
+            return world.getExportEpoch();
+        }catch (NullPointerException e){
+            throw new ModelException(e);
+        }
+    }
+
+    /**
+     * Write the identifier, kind, position, velocity, radius and heading of every entity of the given world into
+     * the given array from the given offset on, as described by EntityExport, and return the number of entities.
+     */
+    public int exportEntities(World world, double[] target, int offset) throws ModelException{
+        try {
+            return EntityExport.export(world, target, offset);
+        }catch (IllegalArgumentException e){
+            throw new ModelException(e);
+        }
+    }
+
+    /**
+     * Write the identifier, kind, position, velocity, radius and heading of every entity of the given world into
+     * the given buffer, as described by EntityExport, and return the number of entities.
+     */
+    public int exportEntities(World world, DoubleBuffer target) throws ModelException{
+        try {
+            return EntityExport.export(world, target);
+        }catch (IllegalArgumentException e){
+            throw new ModelException(e);
+        }
+    }
+
+    /**
+     * Write the entities of the given world that changed after the given epoch, and the entities removed after it,
+     * into the given array from the given offset on, as described by EntityExport. Returns the number of entities
+     * written, or -1 if a full export is needed.
+     */
+    public int exportEntitiesChangedSince(World world, long epoch, double[] target, int offset)
+            throws ModelException{
+        try {
+            return EntityExport.exportChangedSince(world, epoch, target, offset);
+        }catch (IllegalArgumentException e){
+            throw new ModelException(e);
+        }
+    }
+
+    /**
+     * Write the entities of the given world that changed after the given epoch, and the entities removed after it,
+     * into the given buffer, as described by EntityExport. Returns the number of entities written, or -1 if a full
+     * export is needed.
+     */
+    public int exportEntitiesChangedSince(World world, long epoch, DoubleBuffer target) throws ModelException{
+        try {
+            return EntityExport.exportChangedSince(world, epoch, target);
+        }catch (IllegalArgumentException e){
+            throw new ModelException(e);
+        }
+    }
+
+    /***********
+     * RECORDING
+     **********/
+
+    /**
+     * Variable registering the recorder of the world whose inputs are recorded, or null if no world is recorded.
+     */
+    private MatchRecorder recorder = null;
+
+    /**
+     * Start recording the inputs applied through this facade to the given world, seeding its random generator
+     * with the given seed. A recording that was started before is discarded.
+     */
+    public void startRecording(World world, long seed) throws ModelException{
+        try {
+            recorder = new MatchRecorder(world, seed);
+        }catch (IllegalArgumentException e){
+            throw new ModelException(e);
+        }
+    }
+
+    /**
+     * Stop recording, and return the recording of the inputs applied since recording started.
+     */
+    public Recording stopRecording() throws ModelException{
+        if (recorder == null)
+            throw new ModelException("No world is being recorded!");
+        Recording recording = recorder.getRecording();
+        recorder = null;
+        return recording;
+    }
+
+    /**
+     * Return whether the inputs applied to the given ship are recorded.
+     */
+    private boolean isRecorded(Ship ship){
+        return recorder != null && ship != null && ship.getWorld() == recorder.getWorld();
+    }
 }
@@ -0,0 +1,234 @@
+package asteroids.model;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of collision listeners that hand the collisions they are notified of to another listener on a consumer
+ * thread of their own, so that the thread evolving a world does not wait for the work of that listener, such as
+ * playing sounds or starting explosions.
+ *
+ * The collisions are passed through a ring of preallocated arrays with one producer, the thread evolving the world,
+ * and one consumer. The producer only waits when the ring is full; the consumer parks while the ring is empty.
+ * The collisions are delivered in the order in which they were notified.
+ *
+ * @invar   The number of collisions waiting to be delivered never exceeds the capacity of this listener.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class AsyncCollisionListener implements CollisionListener, AutoCloseable {
+
+    /**
+     * The time the consumer parks before looking at an empty ring again, in nanoseconds.
+     */
+    private final static long PARK_NANOS = 100_000;
+
+    /**
+     * Initializes a new asynchronous listener delivering to the given listener, with the given capacity.
+     *
+     * @param   listener
+     *          The listener to which the collisions are delivered.
+     * @param   capacity
+     *          The number of collisions that can wait to be delivered, rounded up to a power of two.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the listener is null or the capacity is not strictly positive.
+     *          | listener == null || capacity <= 0
+     */
+    public AsyncCollisionListener(CollisionListener listener, int capacity) throws IllegalArgumentException {
+        if (listener == null)
+            throw new IllegalArgumentException("Invalid listener!");
+        if (capacity <= 0 || capacity > 1 << 30)
+            throw new IllegalArgumentException("Invalid capacity!");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        this.listener = listener;
+        this.mask = size - 1;
+        this.kinds = new byte[size];
+        this.firsts = new Object[size];
+        this.seconds = new Object[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.consumer = new Thread(this::consume, "Collision listener");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Initializes a new asynchronous listener delivering to the given listener, for 1024 collisions.
+     *
+     * @see implementation
+     */
+    public AsyncCollisionListener(CollisionListener listener) throws IllegalArgumentException {
+        this(listener, 1024);
+    }
+
+    /**
+     * Variable registering the listener to which the collisions are delivered.
+     */
+    private final CollisionListener listener;
+
+    @Basic @Immutable
+    public CollisionListener getListener(){
+        return this.listener;
+    }
+
+    /**
+     * Arrays registering the collisions waiting to be delivered. The collision with sequence number n is kept at
+     * index n & mask.
+     */
+    private final int mask;
+    private final byte[] kinds;
+    private final Object[] firsts;
+    private final Object[] seconds;
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * Variables registering the sequence number of the next collision to be delivered and of the next collision to
+     * be notified. Only the consumer advances the head, and only the producer advances the tail.
+     */
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Variable registering the thread delivering the collisions.
+     */
+    private final Thread consumer;
+
+    /**
+     * Variable registering whether this listener is closed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Variable registering the number of collisions whose delivery failed with an exception.
+     */
+    private volatile long nbFailures = 0;
+
+    @Override
+    public void objectCollision(Object entity1, Object entity2, double x, double y){
+        offer(CollisionEvents.OBJECT, entity1, entity2, x, y);
+    }
+
+    @Override
+    public void boundaryCollision(Object entity, double x, double y){
+        offer(CollisionEvents.BOUNDARY, entity, null, x, y);
+    }
+
+    /**
+     * Add a collision to the ring, waiting while the ring is full.
+     *
+     * @throws  IllegalStateException
+     *          Thrown if this listener is closed.
+     *          | isClosed()
+     */
+    private void offer(byte kind, Object first, Object second, double x, double y) throws IllegalStateException {
+        if (closed)
+            throw new IllegalStateException("The collision listener is closed!");
+        long sequence = tail.get();
+        while (sequence - head.get() > mask) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(PARK_NANOS);
+            if (closed)
+                throw new IllegalStateException("The collision listener is closed!");
+        }
+        int index = (int) sequence & mask;
+        kinds[index] = kind;
+        firsts[index] = first;
+        seconds[index] = second;
+        xs[index] = x;
+        ys[index] = y;
+        tail.lazySet(sequence + 1);
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Deliver the collisions in the ring until this listener is closed and the ring is empty.
+     */
+    private void consume(){
+        long sequence = head.get();
+        while (true) {
+            long available = tail.get();
+            if (sequence == available) {
+                if (closed)
+                    return;
+                LockSupport.parkNanos(this, PARK_NANOS);
+                continue;
+            }
+            while (sequence < available) {
+                int index = (int) sequence & mask;
+                try {
+                    if (kinds[index] == CollisionEvents.OBJECT)
+                        listener.objectCollision(firsts[index], seconds[index], xs[index], ys[index]);
+                    else
+                        listener.boundaryCollision(firsts[index], xs[index], ys[index]);
+                }
+                catch (RuntimeException e) {
+                    nbFailures++;
+                }
+                firsts[index] = null;
+                seconds[index] = null;
+                head.lazySet(++sequence);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of collisions delivered so far.
+     */
+    public long getNbDelivered(){
+        return head.get();
+    }
+
+    /**
+     * Returns the number of collisions whose delivery failed because the listener threw an exception.
+     */
+    public long getNbFailures(){
+        return this.nbFailures;
+    }
+
+    @Basic
+    public boolean isClosed(){
+        return this.closed;
+    }
+
+    /**
+     * Wait until all collisions notified so far have been delivered.
+     *
+     * @throws  InterruptedException
+     *          Thrown if the current thread is interrupted while waiting.
+     */
+    public void awaitDelivery() throws InterruptedException {
+        long target = tail.get();
+        while (head.get() < target) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            if (!consumer.isAlive())
+                return;
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+    /**
+     * Close this listener. The collisions notified so far are still delivered, after which the consumer thread ends.
+     *
+     * @post    ...
+     *          | new.isClosed()
+     */
+    @Override
+    public void close(){
+        closed = true;
+        LockSupport.unpark(consumer);
+    }
+}
@@ -113,7 +113,7 @@ public class Bullet extends Entity {
     /**
      * Variable registering the minimum radius of bullets.
      */
-    private static double minimumRadius = 1;
+    private final static double minimumRadius = 1;
 
     /**
      * Return the minimum radius of all bullets.
@@ -176,6 +176,13 @@ public class Bullet extends Entity {
         this.nbOfBounces += 1;
     }
 
+    /**
+     * Set the number of bounces, when the bullet is restored from a snapshot.
+     */
+    void setNbOfBounces(int nbOfBounces){
+        this.nbOfBounces = nbOfBounces;
+    }
+
     /**
      * Variable registering the bullets source ship.
      */
@@ -1,7 +1,10 @@
 package asteroids.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @SuppressWarnings("all")
 
@@ -52,8 +55,8 @@ public class Collision {
      * @param currentEntity The possibly colliding entity
      */
     protected void resolveBoundaryCollision(Entity currentEntity){
-        if ((currentEntity.apparentlyCollidesWithLeft() && currentEntity.getVelocity().getX() < 0) ||
-                (currentEntity.apparentlyCollidesWithRight() && currentEntity.getVelocity().getX() > 0)) {
+        if ((currentEntity.apparentlyCollidesWithLeft() && currentEntity.getVelocityX() < 0) ||
+                (currentEntity.apparentlyCollidesWithRight() && currentEntity.getVelocityX() > 0)) {
             currentEntity.negateVelocityX();
             if (currentEntity instanceof Bullet) {
                 ((Bullet) currentEntity).riseNbOfBounces();
@@ -63,8 +66,8 @@ public class Collision {
             }
         }
 
-        if ((currentEntity.apparentlyCollidesWithBottom() && currentEntity.getVelocity().getY() < 0) ||
-                (currentEntity.apparentlyCollidesWithTop() && currentEntity.getVelocity().getY() > 0)) {
+        if ((currentEntity.apparentlyCollidesWithBottom() && currentEntity.getVelocityY() < 0) ||
+                (currentEntity.apparentlyCollidesWithTop() && currentEntity.getVelocityY() > 0)) {
             currentEntity.negateVelocityY();
             if (currentEntity instanceof Bullet) {
                 ((Bullet) currentEntity).riseNbOfBounces();
@@ -124,12 +127,12 @@ public class Collision {
 
             shipPair.add(ship1);
             shipPair.add(ship2);
-            Vector velocity1 = new Vector(entity1.getVelocity().getX() +
+            Vector velocity1 = new Vector(entity1.getVelocityX() +
                     Jx(shipPair)/ship1.getTotalMass(),
-                    entity1.getVelocity().getY() + Jy(shipPair)/ship1.getTotalMass());
-            Vector velocity2 = new Vector(entity2.getVelocity().getX() -
+                    entity1.getVelocityY() + Jy(shipPair)/ship1.getTotalMass());
+            Vector velocity2 = new Vector(entity2.getVelocityX() -
                     Jx(shipPair)/ship2.getTotalMass(),
-                    entity2.getVelocity().getY() - Jy(shipPair)/ship2.getTotalMass());
+                    entity2.getVelocityY() - Jy(shipPair)/ship2.getTotalMass());
 
             entity1.setVelocity(velocity1);
             entity2.setVelocity(velocity2);
@@ -144,12 +147,12 @@ public class Collision {
             planetPair.add(planet1);
             planetPair.add(planet2);
 
-            Vector velocity1 = new Vector(entity1.getVelocity().getX() +
+            Vector velocity1 = new Vector(entity1.getVelocityX() +
                     Jx(planetPair)/planet1.getMassOfEntity(),
-                    entity1.getVelocity().getY() + Jy(planetPair)/planet1.getMassOfEntity());
-            Vector velocity2 = new Vector(entity2.getVelocity().getX() -
+                    entity1.getVelocityY() + Jy(planetPair)/planet1.getMassOfEntity());
+            Vector velocity2 = new Vector(entity2.getVelocityX() -
                     Jx(planetPair)/planet2.getMassOfEntity(),
-                    entity2.getVelocity().getY() - Jy(planetPair)/planet2.getMassOfEntity());
+                    entity2.getVelocityY() - Jy(planetPair)/planet2.getMassOfEntity());
             entity1.setVelocity(velocity1);
             entity2.setVelocity(velocity2);
         }
@@ -200,31 +203,174 @@ public class Collision {
 
     /**
      * Return the time to the first collision between two entities.
+     *
+     * @return  result == getTimeToFirstEntityCollision(Double.POSITIVE_INFINITY)
      */
     public double getTimeToFirstEntityCollision(){
+        return getTimeToFirstEntityCollision(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Return the time to the first collision between two entities, if that collision happens within the given horizon.
+     * Only pairs of entities whose swept bounding boxes overlap within the horizon are examined. These candidates
+     * are looked up in the spatial grid of the world.
+     *
+     * @param   horizon
+     *          The amount of time in which collisions are searched for.
+     *
+     * @return  The time to the first collision between two entities if it is not greater than the horizon,
+     *          positive infinity otherwise.
+     *          | if (getTimeToFirstEntityCollision() <= horizon)
+     *          |   then result == getTimeToFirstEntityCollision()
+     *          | else result == Double.POSITIVE_INFINITY
+     */
+    public double getTimeToFirstEntityCollision(double horizon){
         double timeToFirstCollision = Double.POSITIVE_INFINITY;
         List<Entity> allEntities = new ArrayList<>();
         allEntities.addAll(getWorld().getAllEntities());
+
+        if (Double.isInfinite(horizon) || Double.isNaN(horizon)){
+            for (int i = 0; i < allEntities.size(); i++){
+                for (int k = i+1; k < allEntities.size(); k++){
+                    double newTime = allEntities.get(i).getTimeToCollision(allEntities.get(k));
+                    if (newTime < timeToFirstCollision) {
+                        timeToFirstCollision = newTime;
+                        firstEntityPairToCollide.clear();
+                        firstEntityPairToCollide.add(allEntities.get(i));
+                        firstEntityPairToCollide.add(allEntities.get(k));
+                    }
+                }
+            }
+            return timeToFirstCollision;
+        }
+
+        double maximumSpeed = 0;
+        double maximumRadius = 0;
+        Map<Entity, Integer> indexOfEntity = new HashMap<>();
         for (int i = 0; i < allEntities.size(); i++){
-            for (int k = i+1; k < allEntities.size(); k++){
-                double newTime = allEntities.get(i).getTimeToCollision(allEntities.get(k));
+            Entity entity = allEntities.get(i);
+            maximumSpeed = Math.max(maximumSpeed, entity.getSpeed());
+            maximumRadius = Math.max(maximumRadius, entity.getRadius());
+            indexOfEntity.put(entity, i);
+        }
+
+        List<Entity> candidates = new ArrayList<>();
+        for (int i = 0; i < allEntities.size(); i++){
+            Entity entity = allEntities.get(i);
+            candidates.clear();
+            collectCollisionCandidates(entity, horizon, maximumSpeed, maximumRadius, candidates);
+
+            for (Entity other : candidates){
+                Integer k = indexOfEntity.get(other);
+                if (k == null || k <= i)
+                    continue;
+                double newTime = entity.getTimeToCollision(other);
                 if (newTime < timeToFirstCollision) {
                     timeToFirstCollision = newTime;
                     firstEntityPairToCollide.clear();
-                    firstEntityPairToCollide.add(allEntities.get(i));
-                    firstEntityPairToCollide.add(allEntities.get(k));
+                    firstEntityPairToCollide.add(entity);
+                    firstEntityPairToCollide.add(other);
                 }
             }
         }
 
+        if (timeToFirstCollision > horizon){
+            firstEntityPairToCollide.clear();
+            return Double.POSITIVE_INFINITY;
+        }
         return timeToFirstCollision;
     }
 
+    /**
+     * Add the entities of the world whose swept bounding box overlaps with the one of the given entity during the
+     * given horizon to the given collection. Every entity that collides with the given entity within the horizon
+     * is added, the given entity itself is not. The grid may still hold entities at the position where they were
+     * last moved, so the window is enlarged by the distance they can have travelled since, and the candidates are
+     * brought up to date before their swept bounding box is computed.
+     *
+     * @param   entity
+     *          The entity for which candidates are searched.
+     * @param   horizon
+     *          The amount of time in which collisions are searched for.
+     * @param   maximumSpeed
+     *          An upper bound on the speed of the entities in the world.
+     * @param   maximumRadius
+     *          An upper bound on the radius of the entities in the world.
+     * @param   result
+     *          The collection to which the candidates are added.
+     *
+     * @see implementation
+     */
+    void collectCollisionCandidates(Entity entity, double horizon, double maximumSpeed, double maximumRadius,
+                                    Collection<Entity> result){
+        getWorld().bringUpToDate(entity);
+        double reach = getSweptReach(entity, horizon) + maximumRadius * (1 + SWEPT_MARGIN)
+                + maximumSpeed * (horizon + getWorld().getMaximumLag());
+        List<Entity> candidates = new ArrayList<>();
+        getWorld().getSpatialGrid().collectCandidates(entity.getPositionX() - reach,
+                entity.getPositionY() - reach, entity.getPositionX() + reach,
+                entity.getPositionY() + reach, candidates);
+        for (Entity other : candidates){
+            getWorld().bringUpToDate(other);
+            if (other != entity && other.getWorld() == getWorld() && sweptBoundsOverlap(entity, other, horizon))
+                result.add(other);
+        }
+    }
+
+    /**
+     * Constant registering the fraction of its radius by which the swept bounding box of an entity is enlarged,
+     * so rounding errors on the time to a collision never discard a colliding pair.
+     */
+    private final static double SWEPT_MARGIN = 0.01;
+
+    /**
+     * Return the distance over which an entity reaches from its centre along either axis during the given horizon.
+     *
+     * @see implementation
+     */
+    private static double getSweptReach(Entity entity, double horizon){
+        return entity.getRadius() * (1 + SWEPT_MARGIN) + entity.getSpeed() * horizon;
+    }
+
+    /**
+     * Returns true if and only if the bounding boxes swept by the two entities during the given horizon overlap.
+     *
+     * @see implementation
+     */
+    private static boolean sweptBoundsOverlap(Entity entity1, Entity entity2, double horizon){
+        double margin1 = entity1.getRadius() * (1 + SWEPT_MARGIN);
+        double margin2 = entity2.getRadius() * (1 + SWEPT_MARGIN);
+
+        double x1 = entity1.getPositionX();
+        double endX1 = x1 + entity1.getVelocityX() * horizon;
+        double x2 = entity2.getPositionX();
+        double endX2 = x2 + entity2.getVelocityX() * horizon;
+        if (Math.max(x1, endX1) + margin1 < Math.min(x2, endX2) - margin2
+                || Math.max(x2, endX2) + margin2 < Math.min(x1, endX1) - margin1)
+            return false;
+
+        double y1 = entity1.getPositionY();
+        double endY1 = y1 + entity1.getVelocityY() * horizon;
+        double y2 = entity2.getPositionY();
+        double endY2 = y2 + entity2.getVelocityY() * horizon;
+        return !(Math.max(y1, endY1) + margin1 < Math.min(y2, endY2) - margin2
+                || Math.max(y2, endY2) + margin2 < Math.min(y1, endY1) - margin1);
+    }
+
     /**
      * Return the time to the first collision between an entity and a boundary of the world.
      * @see implementation
      */
     public double getTimeToFirstBoundaryCollision() {
+        EntityStore entityStore = getWorld().getEntityStore();
+        if (entityStore != null) {
+            int first = entityStore.getIndexOfFirstBoundaryCollision(getWorld().getWidth(), getWorld().getHeight());
+            if (first < 0)
+                return Double.POSITIVE_INFINITY;
+            firstEntityToCollideBoundary = entityStore.getEntity(first);
+            return entityStore.getTimeToBoundaryCollision(first, getWorld().getWidth(), getWorld().getHeight());
+        }
+
         double timeToFirstCollision = Double.POSITIVE_INFINITY;
         List<Entity> allEntities = new ArrayList<>();
         allEntities.addAll(getWorld().getAllEntities());
@@ -243,8 +389,25 @@ public class Collision {
      * @return  result == (Math.min(getTimeToFirstBoundaryCollision,getTimeToFirstEntityCollision))
      */
     public double getTimeToFirstCollision() {
+        return getTimeToFirstCollision(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Return the time to the first collision happening in this world, if that collision happens within the
+     * given horizon. Collisions between entities are only searched for up to the first boundary collision.
+     *
+     * @param   horizon
+     *          The amount of time in which collisions are searched for.
+     *
+     * @return  The time to the first collision if it is not greater than the horizon,
+     *          a time greater than the horizon otherwise.
+     *          | if (getTimeToFirstCollision() <= horizon)
+     *          |   then result == getTimeToFirstCollision()
+     *          | else result > horizon
+     */
+    public double getTimeToFirstCollision(double horizon) {
         double time = getTimeToFirstBoundaryCollision();
-        double entityTime = getTimeToFirstEntityCollision();
+        double entityTime = getTimeToFirstEntityCollision(Math.min(horizon, time));
         if (entityTime < time)
             time = entityTime;
 
@@ -258,8 +421,8 @@ public class Collision {
      */
     public Vector getFirstCollisionPosition(){
 
-        double timeToFirstEntityCollision = getTimeToFirstEntityCollision();
         double timeToFirstBoundaryCollision = getTimeToFirstBoundaryCollision();
+        double timeToFirstEntityCollision = getTimeToFirstEntityCollision(timeToFirstBoundaryCollision);
 
         if (timeToFirstBoundaryCollision == Double.POSITIVE_INFINITY
                 && timeToFirstEntityCollision == Double.POSITIVE_INFINITY){
@@ -0,0 +1,23 @@
+package asteroids.model;
+
+import asteroids.part2.CollisionListener;
+
+@SuppressWarnings("all")
+
+/**
+ * An interface of collision listeners that receive the collisions of an evolution as a batch, with the identifiers of
+ * the entities involved and the time of every collision. A world hands the collisions to such a listener as a whole
+ * instead of calling objectCollision() and boundaryCollision() for every collision.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public interface CollisionBatchListener extends CollisionListener {
+
+    /**
+     * Invoked with the collisions that happened while a world evolved. The buffer is cleared and reused once this
+     * method returns, so the listener must copy whatever it keeps.
+     */
+    public void collisionsOccurred(CollisionEvents events);
+}
@@ -0,0 +1,194 @@
+package asteroids.model;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.Arrays;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of buffers of the collisions resolved while a world evolves. Every collision is kept as a record of
+ * primitive fields: its kind, the identifiers of the entities involved, the position of the collision and the
+ * time since the start of the evolution at which it happened, together with the entities themselves so that it can
+ * be delivered to a collision listener.
+ *
+ * The fields are kept in arrays allocated when the buffer is created, so recording a collision allocates nothing.
+ * A world records its collisions in such a buffer and delivers them to its collision listener at the end of every
+ * evolution, or earlier whenever the buffer is full.
+ *
+ * @invar   The number of collisions in a buffer never exceeds its capacity.
+ *          | 0 <= size() && size() <= getCapacity()
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class CollisionEvents {
+
+    /**
+     * The kinds of collisions.
+     */
+    public final static byte OBJECT = 0;
+    public final static byte BOUNDARY = 1;
+
+    /**
+     * Initializes a new buffer for the given number of collisions.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the capacity is not strictly positive.
+     *          | capacity <= 0
+     */
+    public CollisionEvents(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Invalid capacity!");
+        this.kinds = new byte[capacity];
+        this.firstIdentifiers = new long[capacity];
+        this.secondIdentifiers = new long[capacity];
+        this.firsts = new Entity[capacity];
+        this.seconds = new Entity[capacity];
+        this.xs = new double[capacity];
+        this.ys = new double[capacity];
+        this.times = new double[capacity];
+    }
+
+    private final byte[] kinds;
+    private final long[] firstIdentifiers;
+    private final long[] secondIdentifiers;
+    private final Entity[] firsts;
+    private final Entity[] seconds;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] times;
+    private int size = 0;
+
+    /**
+     * Returns the number of collisions this buffer can hold.
+     */
+    public int getCapacity(){
+        return kinds.length;
+    }
+
+    /**
+     * Returns the number of collisions in this buffer.
+     */
+    @Basic
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Returns true if and only if this buffer cannot hold more collisions.
+     *
+     * @see implementation
+     */
+    public boolean isFull(){
+        return size == kinds.length;
+    }
+
+    /**
+     * Add a collision to this buffer.
+     *
+     * @param   second
+     *          The second entity of a collision between entities, or null for a collision with a boundary.
+     *
+     * @throws  IllegalStateException
+     *          Thrown if this buffer is full.
+     *          | isFull()
+     */
+    void append(byte kind, Entity first, Entity second, double x, double y, double time)
+            throws IllegalStateException {
+        if (isFull())
+            throw new IllegalStateException("The collision buffer is full!");
+        kinds[size] = kind;
+        firsts[size] = first;
+        seconds[size] = second;
+        firstIdentifiers[size] = first.getIdentifier();
+        secondIdentifiers[size] = second == null ? -1 : second.getIdentifier();
+        xs[size] = x;
+        ys[size] = y;
+        times[size] = time;
+        size++;
+    }
+
+    public byte getKind(int index){
+        checkIndex(index);
+        return kinds[index];
+    }
+
+    public Entity getFirst(int index){
+        checkIndex(index);
+        return firsts[index];
+    }
+
+    /**
+     * Returns the second entity of the collision at the given index, or null if it is a collision with a boundary.
+     */
+    public Entity getSecond(int index){
+        checkIndex(index);
+        return seconds[index];
+    }
+
+    public long getFirstIdentifier(int index){
+        checkIndex(index);
+        return firstIdentifiers[index];
+    }
+
+    /**
+     * Returns the identifier of the second entity of the collision at the given index, or -1 if it is a collision
+     * with a boundary.
+     */
+    public long getSecondIdentifier(int index){
+        checkIndex(index);
+        return secondIdentifiers[index];
+    }
+
+    public double getX(int index){
+        checkIndex(index);
+        return xs[index];
+    }
+
+    public double getY(int index){
+        checkIndex(index);
+        return ys[index];
+    }
+
+    /**
+     * Returns the time since the start of the evolution at which the collision at the given index happened.
+     */
+    public double getTime(int index){
+        checkIndex(index);
+        return times[index];
+    }
+
+    private void checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("No collision at index " + index + "!");
+    }
+
+    /**
+     * Deliver the collisions in this buffer to the given listener, in the order in which they were added.
+     *
+     * @see implementation
+     */
+    public void deliverTo(CollisionListener listener){
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == OBJECT)
+                listener.objectCollision(firsts[i], seconds[i], xs[i], ys[i]);
+            else
+                listener.boundaryCollision(firsts[i], xs[i], ys[i]);
+        }
+    }
+
+    /**
+     * Remove all collisions from this buffer.
+     *
+     * @post    ...
+     *          | new.size() == 0
+     */
+    public void clear(){
+        Arrays.fill(firsts, 0, size, null);
+        Arrays.fill(seconds, 0, size, null);
+        size = 0;
+    }
+}
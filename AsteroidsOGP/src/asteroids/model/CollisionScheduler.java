@@ -0,0 +1,313 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of schedulers predicting the collisions that happen in a world while that world evolves.
+ * The predicted collisions are kept in a priority queue, ordered by the moment at which they happen.
+ * Each prediction remembers the versions of the entities involved, so predictions made before the velocity,
+ * the radius or the world of one of these entities changed are recognised as outdated and dropped.
+ * Only the collisions of the entities that changed are predicted again.
+ *
+ * @invar   The current time of the scheduler lies between zero and its duration.
+ *          | 0 <= getCurrentTime() && getCurrentTime() <= getDuration()
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class CollisionScheduler {
+
+    /**
+     * Initializer for a new collision scheduler, predicting the collisions in the given world during the given
+     * amount of time.
+     *
+     * @param   world
+     *          The world of which the collisions are predicted.
+     * @param   duration
+     *          The amount of time during which collisions are predicted.
+     *
+     * @post    ...
+     *          | new.getCurrentTime() == 0
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world is null or the duration is negative or NaN.
+     *          | world == null || !(duration >= 0)
+     */
+    public CollisionScheduler(World world, double duration) throws IllegalArgumentException {
+        if (world == null)
+            throw new IllegalArgumentException("Not an existing world!");
+        if (!(duration >= 0))
+            throw new IllegalArgumentException("Not a valid duration!");
+        this.world = world;
+        this.duration = duration;
+        this.collision = new Collision(world);
+        for (Entity entity : world.getAllEntities())
+            markChanged(entity);
+    }
+
+    /**
+     * Variable registering the world of which the collisions are predicted.
+     */
+    private final World world;
+
+    /**
+     * Returns the world of which the collisions are predicted.
+     */
+    @Basic @Immutable
+    public World getWorld(){
+        return this.world;
+    }
+
+    /**
+     * Variable registering the amount of time during which collisions are predicted.
+     */
+    private final double duration;
+
+    /**
+     * Returns the amount of time during which collisions are predicted.
+     */
+    @Basic @Immutable
+    public double getDuration(){
+        return this.duration;
+    }
+
+    /**
+     * Variable registering the time that has passed since the scheduler started.
+     */
+    private double currentTime = 0;
+
+    /**
+     * Returns the time that has passed since the scheduler started.
+     */
+    @Basic
+    public double getCurrentTime(){
+        return this.currentTime;
+    }
+
+    /**
+     * Variable registering the collision used to look up the entities near a given entity.
+     */
+    private final Collision collision;
+
+    /**
+     * Queue registering all predicted collisions, the first collision at its head.
+     */
+    private final PriorityQueue<CollisionEvent> events = new PriorityQueue<>();
+
+    /**
+     * Set registering the entities of which the collisions have to be predicted again.
+     */
+    private final Set<Entity> changedEntities = new LinkedHashSet<>();
+
+    /**
+     * Set registering the entities of which a collision has been handled at the current time.
+     * Collisions of these entities predicted to happen at the current time have already been resolved.
+     */
+    private final Set<Entity> handledEntities = new HashSet<>();
+
+    /**
+     * Variable registering an upper bound on the speed of the entities in the world.
+     */
+    private double maximumSpeed = 0;
+
+    /**
+     * Variable registering an upper bound on the radius of the entities in the world.
+     */
+    private double maximumRadius = 0;
+
+    /**
+     * Report that the velocity, the radius or the world of the given entity has changed,
+     * so its collisions have to be predicted again.
+     *
+     * @param   entity
+     *          The entity that changed.
+     *
+     * @see implementation
+     */
+    public void markChanged(Entity entity){
+        changedEntities.add(entity);
+        maximumSpeed = Math.max(maximumSpeed, entity.getSpeed());
+        maximumRadius = Math.max(maximumRadius, entity.getRadius());
+    }
+
+    /**
+     * Returns the time until the next predicted collision, or positive infinity if no collision is predicted
+     * before the end of the duration of this scheduler.
+     *
+     * @see implementation
+     */
+    public double getTimeToNextEvent(){
+        predictChangedEntities();
+        CollisionEvent nextEvent = peekValidEvent();
+        if (nextEvent == null)
+            return Double.POSITIVE_INFINITY;
+        return Math.max(0, nextEvent.getTime() - getCurrentTime());
+    }
+
+    /**
+     * Set the current time of this scheduler to the moment of the next predicted collision.
+     * The entities of the world should have been moved up to that moment.
+     *
+     * @throws  IllegalStateException
+     *          Thrown if no collision is predicted.
+     *          | getTimeToNextEvent() == Double.POSITIVE_INFINITY
+     */
+    public void advanceToNextEvent() throws IllegalStateException {
+        predictChangedEntities();
+        CollisionEvent nextEvent = peekValidEvent();
+        if (nextEvent == null)
+            throw new IllegalStateException("No collision predicted.");
+        if (nextEvent.getTime() > getCurrentTime()) {
+            this.currentTime = nextEvent.getTime();
+            handledEntities.clear();
+        }
+    }
+
+    /**
+     * Remove all collisions predicted to happen at the current time and return the entities involved in them.
+     *
+     * @see implementation
+     */
+    public Set<Entity> pollCurrentEvents(){
+        Set<Entity> involvedEntities = new LinkedHashSet<>();
+        CollisionEvent event = peekValidEvent();
+        while (event != null && event.getTime() <= getCurrentTime()) {
+            events.poll();
+            involvedEntities.add(event.getEntity1());
+            if (event.getEntity2() != null)
+                involvedEntities.add(event.getEntity2());
+            event = peekValidEvent();
+        }
+        handledEntities.addAll(involvedEntities);
+        return involvedEntities;
+    }
+
+    /**
+     * Add all entities of the world that may appear to collide with the given entity to the given collection.
+     *
+     * @param   entity
+     *          The entity of which the neighbours are searched.
+     * @param   result
+     *          The collection to which the neighbours are added.
+     *
+     * @see implementation
+     */
+    public void collectNeighbours(Entity entity, Collection<Entity> result){
+        collision.collectCollisionCandidates(entity, 0, maximumSpeed, maximumRadius, result);
+    }
+
+    /**
+     * Remove outdated predictions from the head of the queue and return the first valid prediction,
+     * or null if there is none.
+     */
+    private CollisionEvent peekValidEvent(){
+        while (!events.isEmpty() && !events.peek().isValid(getWorld()))
+            events.poll();
+        return events.peek();
+    }
+
+    /**
+     * Predict the collisions of all entities that changed since their collisions were last predicted.
+     * Collisions that happen after the end of the duration of this scheduler are not predicted.
+     */
+    private void predictChangedEntities(){
+        if (changedEntities.isEmpty())
+            return;
+        double horizon = getDuration() - getCurrentTime();
+        Set<Entity> predictedEntities = new HashSet<>();
+        List<Entity> candidates = new ArrayList<>();
+
+        for (Entity entity : changedEntities) {
+            if (entity.getWorld() != getWorld())
+                continue;
+            predictedEntities.add(entity);
+
+            schedule(entity, null, entity.getTimeToCollisionWithBoundary(), horizon);
+
+            candidates.clear();
+            collision.collectCollisionCandidates(entity, horizon, maximumSpeed, maximumRadius, candidates);
+            for (Entity other : candidates) {
+                if (!predictedEntities.contains(other))
+                    schedule(entity, other, entity.getTimeToCollision(other), horizon);
+            }
+        }
+        changedEntities.clear();
+    }
+
+    /**
+     * Add a collision of the given entities, happening after the given time, to the queue.
+     * Nothing happens if the collision happens after the horizon, or if it happens at the current time
+     * and a collision of the entities has already been handled at the current time.
+     */
+    private void schedule(Entity entity1, Entity entity2, double time, double horizon){
+        if (!(time <= horizon))
+            return;
+        if (time == 0 && handledEntities.contains(entity1) && (entity2 == null || handledEntities.contains(entity2)))
+            return;
+        events.add(new CollisionEvent(getCurrentTime() + time, entity1, entity2));
+    }
+
+    /**
+     * A class of predicted collisions between two entities or between an entity and a boundary.
+     */
+    private static class CollisionEvent implements Comparable<CollisionEvent> {
+
+        /**
+         * Initializer for a new predicted collision.
+         *
+         * @param   time
+         *          The moment at which the collision happens.
+         * @param   entity1
+         *          The first entity involved in the collision.
+         * @param   entity2
+         *          The second entity involved in the collision, or null for a collision with a boundary.
+         */
+        private CollisionEvent(double time, Entity entity1, Entity entity2){
+            this.time = time;
+            this.entity1 = entity1;
+            this.entity2 = entity2;
+            this.version1 = entity1.getVersion();
+            this.version2 = (entity2 == null) ? 0 : entity2.getVersion();
+        }
+
+        private final double time;
+        private final Entity entity1;
+        private final Entity entity2;
+        private final int version1;
+        private final int version2;
+
+        private double getTime(){
+            return this.time;
+        }
+
+        private Entity getEntity1(){
+            return this.entity1;
+        }
+
+        private Entity getEntity2(){
+            return this.entity2;
+        }
+
+        /**
+         * Returns true if and only if the entities of this collision are still in the given world
+         * and did not change since the collision was predicted.
+         *
+         * @see implementation
+         */
+        private boolean isValid(World world){
+            return entity1.getWorld() == world && entity1.getVersion() == version1
+                    && (entity2 == null || (entity2.getWorld() == world && entity2.getVersion() == version2));
+        }
+
+        @Override
+        public int compareTo(CollisionEvent other){
+            return Double.compare(this.getTime(), other.getTime());
+        }
+    }
+}
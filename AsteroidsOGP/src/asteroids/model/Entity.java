@@ -4,6 +4,8 @@ import be.kuleuven.cs.som.annotate.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings("all")
 
@@ -91,7 +93,7 @@ public abstract class Entity {
         this.setMaximumVelocity(speedOfLight);
 
         if(Double.isNaN(velocityX) || Double.isNaN(velocityY)) {
-            double angle = Math.random() * Math.PI * 2;
+            double angle = ThreadLocalRandom.current().nextDouble() * Math.PI * 2;
             Vector newVelocity = new Vector(this.getMaximumVelocity() * Math.cos(angle),
                     getMaximumVelocity() * Math.sin(angle));
             this.setVelocity(newVelocity);
@@ -129,6 +131,46 @@ public abstract class Entity {
         this.setVelocity(new Vector());
     }
 
+    // Identifier:
+    /**
+     * Variable registering the number of entities created so far, used to give every entity its own identifier.
+     */
+    private static final AtomicLong nbCreatedEntities = new AtomicLong();
+
+    /**
+     * Variable registering the identifier of the entity, which no other entity shares.
+     */
+    private final long identifier = nbCreatedEntities.incrementAndGet();
+
+    /**
+     * Returns the identifier of the entity, which no other entity shares.
+     */
+    @Basic @Immutable
+    public long getIdentifier(){
+        return this.identifier;
+    }
+
+    /**
+     * Variable registering the export epoch of the world of the entity at which the entity last moved, turned or
+     * changed.
+     */
+    private long changeEpoch = 0;
+
+    /**
+     * Returns the export epoch of the world of the entity at which the entity last moved, turned or changed.
+     */
+    @Basic
+    long getChangeEpoch(){
+        return this.changeEpoch;
+    }
+
+    /**
+     * Set the export epoch at which the entity last moved, turned or changed to the given epoch.
+     */
+    void setChangeEpoch(long epoch){
+        this.changeEpoch = epoch;
+    }
+
     //Position:
     /**
      * Variable registering the position of the entity as a vector.
@@ -147,7 +189,13 @@ public abstract class Entity {
 
     @Model
     protected void setPosition(Vector newPosition){
-        this.position = newPosition;
+        catchUp();
+        if (entityStore != null)
+            entityStore.setPosition(storeIndex, newPosition.getX(), newPosition.getY());
+        else
+            this.position = newPosition;
+        if (getWorld() != null)
+            getWorld().reportMovedEntity(this);
     }
 
     /**
@@ -173,9 +221,119 @@ public abstract class Entity {
      */
     @Basic
     public Vector getPosition(){
+        if (entityStore != null)
+            return new Vector(entityStore.getX(storeIndex), entityStore.getY(storeIndex));
         return position;
     }
 
+    /**
+     * Returns the x coordinate of the position of the entity, without creating a vector.
+     *
+     * @return  result == getPosition().getX()
+     */
+    public double getPositionX(){
+        return (entityStore != null) ? entityStore.getX(storeIndex) : position.getX();
+    }
+
+    /**
+     * Returns the y coordinate of the position of the entity.
+     *
+     * @return  result == getPosition().getY()
+     */
+    public double getPositionY(){
+        return (entityStore != null) ? entityStore.getY(storeIndex) : position.getY();
+    }
+
+    /**
+     * Returns the velocity of the entity along the x axis.
+     *
+     * @return  result == getVelocity().getX()
+     */
+    public double getVelocityX(){
+        return (entityStore != null) ? entityStore.getVelocityX(storeIndex) : velocity.getX();
+    }
+
+    /**
+     * Returns the velocity of the entity along the y axis.
+     *
+     * @return  result == getVelocity().getY()
+     */
+    public double getVelocityY(){
+        return (entityStore != null) ? entityStore.getVelocityY(storeIndex) : velocity.getY();
+    }
+
+    /**
+     * Returns the speed of the entity.
+     *
+     * @return  result == getVelocity().vectorLength()
+     */
+    double getSpeed(){
+        double velocityX = getVelocityX();
+        double velocityY = getVelocityY();
+        return Math.sqrt(velocityX * velocityX + velocityY * velocityY);
+    }
+
+    // The entity store of the entity.
+    /**
+     * Variable registering the entity store in which the position and velocity of the entity are kept,
+     * or null if the entity keeps them itself.
+     */
+    private EntityStore entityStore = null;
+
+    /**
+     * Variable registering the index of the entity in its entity store.
+     */
+    private int storeIndex = -1;
+
+    /**
+     * Returns the entity store in which the position and velocity of the entity are kept.
+     */
+    @Basic
+    EntityStore getEntityStore(){
+        return this.entityStore;
+    }
+
+    /**
+     * Returns the index of the entity in its entity store.
+     */
+    @Basic
+    int getStoreIndex(){
+        return this.storeIndex;
+    }
+
+    /**
+     * Set the index of the entity in its entity store to the given index.
+     */
+    void setStoreIndex(int index){
+        this.storeIndex = index;
+    }
+
+    /**
+     * Keep the position and velocity of the entity in the given store, at the given index.
+     *
+     * @post    ...
+     *          | new.getEntityStore() == store && new.getStoreIndex() == index
+     */
+    void attachToStore(EntityStore store, int index){
+        this.entityStore = store;
+        this.storeIndex = index;
+    }
+
+    /**
+     * Let the entity keep its position and velocity itself again, starting from the given position and velocity.
+     *
+     * @post    ...
+     *          | new.getEntityStore() == null
+     * @post    ...
+     *          | new.getPosition().equals(position) && new.getVelocity().equals(velocity)
+     */
+    void detachFromStore(Vector position, Vector velocity){
+        this.entityStore = null;
+        this.storeIndex = -1;
+        this.position = position;
+        this.velocity = velocity;
+    }
+
     // The world of the entity.
     /**
      * Variable registering the current world of the entity, initialized at null.
@@ -201,6 +359,94 @@ public abstract class Entity {
      */
     protected void setWorld(World newWorld) {
         this.world = newWorld;
+        raiseVersion();
+    }
+
+    /**
+     * Variable registering the step of its world up to which this entity has moved.
+     */
+    private long movedStep = 0;
+
+    /**
+     * Variable registering the time of its world up to which this entity has moved.
+     */
+    private double movedTime = 0;
+
+    /**
+     * Returns the step of its world up to which this entity has moved.
+     */
+    @Basic
+    long getMovedStep(){
+        return this.movedStep;
+    }
+
+    /**
+     * Returns the time of its world up to which this entity has moved.
+     */
+    @Basic
+    double getMovedTime(){
+        return this.movedTime;
+    }
+
+    /**
+     * Register that this entity has moved up to the given step and time of its world.
+     *
+     * @post    ...
+     *          | new.getMovedStep() == step && new.getMovedTime() == time
+     */
+    void setMovedUntil(long step, double time){
+        this.movedStep = step;
+        this.movedTime = time;
+    }
+
+    /**
+     * Move this entity up to the current time of its world, so a change of its state applies from that moment on.
+     *
+     * @see implementation
+     */
+    private void catchUp(){
+        if (getWorld() != null)
+            getWorld().bringUpToDate(this);
+    }
+
+    /**
+     * Variable registering the number of times the velocity, the radius or the world of this entity has changed.
+     */
+    private int version = 0;
+
+    /**
+     * Returns the version of this entity. Predictions of collisions made for an older version are outdated.
+     */
+    @Basic
+    int getVersion(){
+        return this.version;
+    }
+
+    /**
+     * Copy the radius and the mass of this entity to its entity store, if it has one.
+     *
+     * @see implementation
+     */
+    @Model
+    protected void refreshStoredState(){
+        if (entityStore != null)
+            entityStore.refresh(storeIndex);
+    }
+
+    /**
+     * Raise the version of this entity and report the change to the world of this entity.
+     *
+     * @post    ...
+     *          | new.getVersion() == this.getVersion() + 1
+     *
+     * @see implementation
+     */
+    @Model
+    private void raiseVersion(){
+        this.version++;
+        refreshStoredState();
+        if (getWorld() != null)
+            getWorld().reportChangedEntity(this);
     }
 
     //Move
@@ -220,12 +466,27 @@ public abstract class Entity {
     public void move(double timeDifference) throws IllegalArgumentException{
 
         if(isValidTimeDifference(timeDifference)){
-            setPosition(this.getPosition().sum(getVelocity().resizeVector(timeDifference)));
+            if (entityStore != null)
+                entityStore.move(storeIndex, timeDifference);
+            else
+                setPosition(this.getPosition().sum(getVelocity().resizeVector(timeDifference)));
+            moved(timeDifference);
         }else{
             throw new IllegalArgumentException();
         }
     }
 
+    /**
+     * Update the state of the entity after its position has changed by its velocity times the given time difference.
+     * Entities of which the state depends on the distance they travelled override this method.
+     *
+     * @param   timeDifference
+     *          The amount of time the entity has moved.
+     */
+    @Model
+    protected void moved(double timeDifference){
+    }
+
     /**
      * @return True if and only if the given time difference is nonnegative.
      *         | result == timeDifference >= 0
@@ -306,8 +567,14 @@ public abstract class Entity {
      */
     @Model
     protected void setVelocity(Vector velocity){
-        this.velocity = (velocity.vectorLengthSquared() > this.getMaximumVelocity()*this.getMaximumVelocity())
+        catchUp();
+        Vector newVelocity = (velocity.vectorLengthSquared() > this.getMaximumVelocity()*this.getMaximumVelocity())
                 ? velocity.normalize().resizeVector(maximumVelocity) :  velocity;
+        if (entityStore != null)
+            entityStore.setVelocity(storeIndex, newVelocity.getX(), newVelocity.getY());
+        else
+            this.velocity = newVelocity;
+        raiseVersion();
     }
 
     /**
@@ -315,6 +582,8 @@ public abstract class Entity {
      */
     @Basic
     public Vector getVelocity(){
+        if (entityStore != null)
+            return new Vector(entityStore.getVelocityX(storeIndex), entityStore.getVelocityY(storeIndex));
         return this.velocity;
     }
 
@@ -327,7 +596,7 @@ public abstract class Entity {
      * @see implementation
      */
     public void negateVelocityX() {
-        setVelocity(new Vector(-this.getVelocity().getX(), this.getVelocity().getY()));
+        setVelocity(new Vector(-this.getVelocityX(), this.getVelocityY()));
     }
 
     /**
@@ -339,7 +608,7 @@ public abstract class Entity {
      * @see implementation
      */
     public void negateVelocityY() {
-        setVelocity(new Vector(this.getVelocity().getX(), -this.getVelocity().getY()));
+        setVelocity(new Vector(this.getVelocityX(), -this.getVelocityY()));
     }
 
     //radius:
@@ -369,7 +638,9 @@ public abstract class Entity {
         if (!isValidRadius(newRadius)) {
             throw new IllegalArgumentException("Not a valid radius!");
         }
+        catchUp();
         this.radius = newRadius;
+        raiseVersion();
     }
 
     /**
@@ -422,8 +693,8 @@ public abstract class Entity {
                 return 0;
             }
             else {
-                double xDifference = (this.getPosition().getX() - other.getPosition().getX());
-                double yDifference = (this.getPosition().getY() - other.getPosition().getY());
+                double xDifference = (this.getPositionX() - other.getPositionX());
+                double yDifference = (this.getPositionY() - other.getPositionY());
                 double sumRadii = this.getRadius() + other.getRadius();
                 return Math.sqrt(xDifference * xDifference + yDifference * yDifference) - sumRadii;
             }
@@ -464,13 +735,15 @@ public abstract class Entity {
      *          | other == null
      */
     public boolean willCollide(Entity other) throws NullPointerException{
-
-        Vector deltaV = this.deltaV(other);
-        Vector deltaR = this.deltaR(other);
-        double sigma = this.sigma(other);
-        double d = d(deltaV, deltaR, sigma);
-
-        return  !(deltaV.scalarProduct(deltaR) >= 0 || d <= 0 || this.overlap(other)) && this.getWorld() == other.getWorld();
+        double deltaVX = this.deltaVX(other);
+        double deltaVY = this.deltaVY(other);
+        double deltaRX = this.deltaRX(other);
+        double deltaRY = this.deltaRY(other);
+        double deltaVDeltaR = Vector.scalarProduct(deltaVX, deltaVY, deltaRX, deltaRY);
+        double d = d(deltaVDeltaR, Vector.scalarProduct(deltaVX, deltaVY, deltaVX, deltaVY),
+                Vector.scalarProduct(deltaRX, deltaRY, deltaRX, deltaRY), this.sigma(other));
+
+        return  !(deltaVDeltaR >= 0 || d <= 0 || this.overlap(other)) && this.getWorld() == other.getWorld();
     }
 
     /**
@@ -564,10 +837,10 @@ public abstract class Entity {
             return distances;
         }
 
-        double top = getWorld().getHeight() - getPosition().getY();
-        double bot = getPosition().getY();
-        double left = getPosition().getX();
-        double right = getWorld().getWidth() - getPosition().getX();
+        double top = getWorld().getHeight() - getPositionY();
+        double bot = getPositionY();
+        double left = getPositionX();
+        double right = getWorld().getWidth() - getPositionX();
         List<Double> distances = new ArrayList<>();
         distances.add(left);
         distances.add(right);
@@ -596,11 +869,15 @@ public abstract class Entity {
      *        disturbed by collisions with other entities or by accelerating.
      */
     public double getTimeToCollision(Entity other) throws NullPointerException{
-        Vector deltaV = this.deltaV(other);
-        Vector deltaR = this.deltaR(other);
-        double sigma = this.sigma(other);
-        double d = this.d(deltaV, deltaR, sigma);
-        double timeToCollision = -(deltaV.scalarProduct(deltaR) + Math.sqrt(d)) / deltaV.scalarProduct(deltaV);
+        double deltaVX = this.deltaVX(other);
+        double deltaVY = this.deltaVY(other);
+        double deltaRX = this.deltaRX(other);
+        double deltaRY = this.deltaRY(other);
+        double deltaVDeltaR = Vector.scalarProduct(deltaVX, deltaVY, deltaRX, deltaRY);
+        double deltaVDeltaV = Vector.scalarProduct(deltaVX, deltaVY, deltaVX, deltaVY);
+        double d = this.d(deltaVDeltaR, deltaVDeltaV, Vector.scalarProduct(deltaRX, deltaRY, deltaRX, deltaRY),
+                this.sigma(other));
+        double timeToCollision = -(deltaVDeltaR + Math.sqrt(d)) / deltaVDeltaV;
 
         if (this.willCollide(other)) {
             if (timeToCollision < 0 ){
@@ -628,23 +905,25 @@ public abstract class Entity {
         double time = Double.POSITIVE_INFINITY;
         if (this.world == null)
             return time;
-        if (getVelocity().getX() > 0) {
-            double timeToCollisionX = (this.world.getWidth() - getRadius() - getPosition().getX()) / getVelocity().getX();
+        if (entityStore != null)
+            return entityStore.getTimeToBoundaryCollision(storeIndex, world.getWidth(), world.getHeight());
+        if (getVelocityX() > 0) {
+            double timeToCollisionX = (this.world.getWidth() - getRadius() - getPositionX()) / getVelocityX();
             if (timeToCollisionX < time)
                 time = timeToCollisionX;
         }
-        else if (getVelocity().getX() < 0) {
-            double timeToCollisionX = Math.abs((getPosition().getX() - getRadius()) / getVelocity().getX());
+        else if (getVelocityX() < 0) {
+            double timeToCollisionX = Math.abs((getPositionX() - getRadius()) / getVelocityX());
             if (timeToCollisionX < time)
                 time = timeToCollisionX;
         }
-        if (getVelocity().getY() > 0) {
-            double timeToCollisionY = (world.getHeight() - getRadius() - getPosition().getY()) / getVelocity().getY();
+        if (getVelocityY() > 0) {
+            double timeToCollisionY = (world.getHeight() - getRadius() - getPositionY()) / getVelocityY();
             if (timeToCollisionY < time)
                 time = timeToCollisionY;
         }
-        else if (getVelocity().getY() < 0){
-            double timeToCollisionY = Math.abs((getPosition().getY() - getRadius()) / getVelocity().getY());
+        else if (getVelocityY() < 0){
+            double timeToCollisionY = Math.abs((getPositionY() - getRadius()) / getVelocityY());
             if (timeToCollisionY < time)
                 time = timeToCollisionY;
         }
@@ -665,29 +944,29 @@ public abstract class Entity {
         String boundary = "X";
         if (this.world == null)
             return boundary;
-        if (getVelocity().getX() > 0) {
-            double timeToCollisionX = (this.world.getWidth() - getRadius() - getPosition().getX()) / getVelocity().getX();
+        if (getVelocityX() > 0) {
+            double timeToCollisionX = (this.world.getWidth() - getRadius() - getPositionX()) / getVelocityX();
             if (timeToCollisionX < time) {
                 time = timeToCollisionX;
                 boundary = "R";
             }
 
         }
-        else if (getVelocity().getX() < 0) {
-            double timeToCollisionX = Math.abs((getPosition().getX() - getRadius()) / getVelocity().getX());
+        else if (getVelocityX() < 0) {
+            double timeToCollisionX = Math.abs((getPositionX() - getRadius()) / getVelocityX());
             if (timeToCollisionX < time) {
                 time = timeToCollisionX;
                 boundary = "L";
             }
         }
-        if (getVelocity().getY() > 0) {
-            double timeToCollisionY = (world.getHeight() - getRadius() - getPosition().getY()) / getVelocity().getY();
+        if (getVelocityY() > 0) {
+            double timeToCollisionY = (world.getHeight() - getRadius() - getPositionY()) / getVelocityY();
             if (timeToCollisionY < time) {
                 boundary = "T";
             }
         }
-        else if (getVelocity().getY() < 0){
-            double timeToCollisionY = Math.abs((getPosition().getY() - getRadius()) / getVelocity().getY());
+        else if (getVelocityY() < 0){
+            double timeToCollisionY = Math.abs((getPositionY() - getRadius()) / getVelocityY());
             if (timeToCollisionY < time) {
                 boundary = "B";
             }
@@ -746,18 +1025,16 @@ public abstract class Entity {
         } else {
             double deltaT = getTimeToCollision(other);
 
-            double newThisCoordX = this.getPosition().getX() + deltaT * this.getVelocity().getX();
-            double newThisCoordY = this.getPosition().getY() + deltaT * this.getVelocity().getY();
-            Vector newPositionThis = new Vector(newThisCoordX, newThisCoordY);
+            double newThisCoordX = this.getPositionX() + deltaT * this.getVelocityX();
+            double newThisCoordY = this.getPositionY() + deltaT * this.getVelocityY();
 
-            double newOtherCoordX = other.getPosition().getX() + deltaT * other.getVelocity().getX();
-            double newOtherCoordY = other.getPosition().getY() + deltaT * other.getVelocity().getY();
-            Vector newPositionOther = new Vector(newOtherCoordX, newOtherCoordY);
+            double newOtherCoordX = other.getPositionX() + deltaT * other.getVelocityX();
+            double newOtherCoordY = other.getPositionY() + deltaT * other.getVelocityY();
 
-            Vector pointingVector = newPositionOther.sum(newPositionThis.resizeVector(-1)).normalize();
-            Vector hullPosition = newPositionThis.sum(pointingVector.resizeVector(this.getRadius()));
+            MutableVector pointingVector = new MutableVector(newOtherCoordX, newOtherCoordY)
+                    .subtract(newThisCoordX, newThisCoordY).normalize().scale(this.getRadius());
 
-            return hullPosition;
+            return new Vector(newThisCoordX + pointingVector.getX(), newThisCoordY + pointingVector.getY());
         }
     }
 
@@ -768,6 +1045,33 @@ public abstract class Entity {
         return other.getVelocity().sum(this.getVelocity().resizeVector(-1));
     }
 
+    /**
+     * Store the vectorial difference of the velocity vectors of two entities in the given vector.
+     *
+     * @return  result == deltaV.set(this.deltaV(other))
+     */
+    public MutableVector deltaV(Entity other, MutableVector deltaV){
+        return deltaV.set(deltaVX(other), deltaVY(other));
+    }
+
+    /**
+     * Returns the x component of the vectorial difference of the velocity vectors of two entities.
+     *
+     * @return  result == deltaV(other).getX()
+     */
+    public double deltaVX(Entity other){
+        return other.getVelocityX() - this.getVelocityX();
+    }
+
+    /**
+     * Returns the y component of the vectorial difference of the velocity vectors of two entities.
+     *
+     * @return  result == deltaV(other).getY()
+     */
+    public double deltaVY(Entity other){
+        return other.getVelocityY() - this.getVelocityY();
+    }
+
     /**
      * Returns the vectorial difference of the centers of the two entities.
      */
@@ -775,6 +1079,33 @@ public abstract class Entity {
         return other.getPosition().sum(this.getPosition().resizeVector(-1));
     }
 
+    /**
+     * Store the vectorial difference of the centers of the two entities in the given vector.
+     *
+     * @return  result == deltaR.set(this.deltaR(other))
+     */
+    public MutableVector deltaR(Entity other, MutableVector deltaR){
+        return deltaR.set(deltaRX(other), deltaRY(other));
+    }
+
+    /**
+     * Returns the x component of the vectorial difference of the centers of the two entities.
+     *
+     * @return  result == deltaR(other).getX()
+     */
+    public double deltaRX(Entity other){
+        return other.getPositionX() - this.getPositionX();
+    }
+
+    /**
+     * Returns the y component of the vectorial difference of the centers of the two entities.
+     *
+     * @return  result == deltaR(other).getY()
+     */
+    public double deltaRY(Entity other){
+        return other.getPositionY() - this.getPositionY();
+    }
+
     /**
      * Returns the sum of the radii of the entities.
      */
@@ -785,9 +1116,8 @@ public abstract class Entity {
     /**
      * Returns the constant d, which was defined in the assignment.
      */
-    private double d(Vector deltaV, Vector deltaR, double sigma){
-        return deltaV.scalarProduct(deltaR) * deltaV.scalarProduct(deltaR)
-                - deltaV.scalarProduct(deltaV) * (deltaR.scalarProduct(deltaR) - sigma * sigma);
+    private double d(double deltaVDeltaR, double deltaVDeltaV, double deltaRDeltaR, double sigma){
+        return deltaVDeltaR * deltaVDeltaR - deltaVDeltaV * (deltaRDeltaR - sigma * sigma);
     }
 
     /**
@@ -801,8 +1131,8 @@ public abstract class Entity {
     public boolean fliesApartFrom(Entity other){
         Vector pointingVector = other.getPosition().sum(this.getPosition().negate());
 
-        double thisVelocityLength = this.getVelocity().vectorLength();
-        double otherVelocityLength = other.getVelocity().vectorLength();
+        double thisVelocityLength = this.getSpeed();
+        double otherVelocityLength = other.getSpeed();
 
         double angleBetweenThis = this.getVelocity().angleBetween(pointingVector);
         double angleBetweenOther = other.getVelocity().angleBetween(pointingVector);
@@ -910,10 +1240,10 @@ public abstract class Entity {
         if (world == null){
             return true;
         }
-        return !(getPosition().getX() + 0.99*this.getRadius() > world.getWidth()
-                || getPosition().getX() - 0.99*this.getRadius() < 0
-                || getPosition().getY() + 0.99*this.getRadius() > world.getHeight()
-                || getPosition().getY() - 0.99*this.getRadius() < 0);
+        return !(getPositionX() + 0.99*this.getRadius() > world.getWidth()
+                || getPositionX() - 0.99*this.getRadius() < 0
+                || getPositionY() + 0.99*this.getRadius() > world.getHeight()
+                || getPositionY() - 0.99*this.getRadius() < 0);
     }
 
     /**
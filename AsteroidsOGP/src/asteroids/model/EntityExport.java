@@ -0,0 +1,186 @@
+package asteroids.model;
+
+import java.nio.DoubleBuffer;
+
+@SuppressWarnings("all")
+
+/**
+ * A class exporting the state of all entities of a world in one pass, into arrays or buffers provided by the caller,
+ * so renderers and external players do not allocate a vector or an array for every coordinate they read.
+ *
+ * Every entity is exported as a record of STRIDE doubles: its identifier, its kind, its position, its velocity, its
+ * radius and its heading (0 for entities other than ships). Identifiers are exact as doubles for the first 2^53
+ * entities. Entities are exported in the order in which they were added to the world.
+ *
+ * Exports of the entities that changed since an export epoch of the world hold a record for every entity that was
+ * added, moved, turned or otherwise changed after that epoch, followed by a record of kind REMOVED for every entity
+ * removed after that epoch, of which all fields but the identifier are NaN. A world remembers its last 1024 removals; if
+ * removals after the epoch were forgotten, the export fails and a full export is needed.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public final class EntityExport {
+
+    private EntityExport(){
+    }
+
+    /**
+     * The number of doubles per entity, and the position of every field in the record of an entity.
+     */
+    public final static int STRIDE = 8;
+    public final static int IDENTIFIER = 0;
+    public final static int KIND = 1;
+    public final static int X = 2;
+    public final static int Y = 3;
+    public final static int VELOCITY_X = 4;
+    public final static int VELOCITY_Y = 5;
+    public final static int RADIUS = 6;
+    public final static int HEADING = 7;
+
+    /**
+     * The kinds of entities.
+     */
+    public final static int REMOVED = -1;
+    public final static int SHIP = 0;
+    public final static int BULLET = 1;
+    public final static int ASTEROID = 2;
+    public final static int PLANETOID = 3;
+
+    /**
+     * Returns the kind of the given entity.
+     *
+     * @see implementation
+     */
+    public static int getKind(Entity entity){
+        if (entity instanceof Ship)
+            return SHIP;
+        if (entity instanceof Bullet)
+            return BULLET;
+        if (entity instanceof Asteroid)
+            return ASTEROID;
+        return PLANETOID;
+    }
+
+    /**
+     * Write the records of all entities of the given world into the given array, starting at the given offset.
+     *
+     * @return  The number of records written.
+     *          | result == world.getAllEntities().size()
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world or the array is null, or if the array cannot hold the records from the offset on.
+     */
+    public static int export(World world, double[] target, int offset) throws IllegalArgumentException {
+        if (target == null || offset < 0 || offset > target.length)
+            throw new IllegalArgumentException("Invalid target array!");
+        return export(world, DoubleBuffer.wrap(target, offset, target.length - offset));
+    }
+
+    /**
+     * Write the records of all entities of the given world into the given buffer, from its position on, and advance
+     * its position past the records.
+     *
+     * @return  The number of records written.
+     *          | result == world.getAllEntities().size()
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world or the buffer is null, or if the remaining part of the buffer cannot hold the
+     *          records. Nothing is written then.
+     */
+    public static int export(World world, DoubleBuffer target) throws IllegalArgumentException {
+        checkArguments(world, target);
+        int count = world.getAllEntitiesOfType(Entity.class).size();
+        checkCapacity(target, count);
+        int position = target.position();
+        for (Entity entity : world.getAllEntitiesOfType(Entity.class)) {
+            write(entity, target, position);
+            position += STRIDE;
+        }
+        target.position(position);
+        return count;
+    }
+
+    /**
+     * Write the records of the entities of the given world that changed after the given export epoch, and of the
+     * entities removed after that epoch, into the given array, starting at the given offset.
+     *
+     * @return  The number of records written, or -1 if the world no longer remembers all removals after the epoch.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world or the array is null, or if the array cannot hold the records from the offset on.
+     */
+    public static int exportChangedSince(World world, long epoch, double[] target, int offset)
+            throws IllegalArgumentException {
+        if (target == null || offset < 0 || offset > target.length)
+            throw new IllegalArgumentException("Invalid target array!");
+        return exportChangedSince(world, epoch, DoubleBuffer.wrap(target, offset, target.length - offset));
+    }
+
+    /**
+     * Write the records of the entities of the given world that changed after the given export epoch, and of the
+     * entities removed after that epoch, into the given buffer, from its position on, and advance its position past
+     * the records.
+     *
+     * @return  The number of records written, or -1 if the world no longer remembers all removals after the epoch.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world or the buffer is null, or if the remaining part of the buffer cannot hold the
+     *          records. Nothing is written then.
+     */
+    public static int exportChangedSince(World world, long epoch, DoubleBuffer target)
+            throws IllegalArgumentException {
+        checkArguments(world, target);
+        long[] removed = world.getRemovedSince(epoch);
+        if (removed == null)
+            return -1;
+        int count = removed.length;
+        for (Entity entity : world.getAllEntitiesOfType(Entity.class))
+            if (entity.getChangeEpoch() > epoch)
+                count++;
+        checkCapacity(target, count);
+        int position = target.position();
+        for (Entity entity : world.getAllEntitiesOfType(Entity.class)) {
+            if (entity.getChangeEpoch() > epoch) {
+                write(entity, target, position);
+                position += STRIDE;
+            }
+        }
+        for (long identifier : removed) {
+            target.put(position + IDENTIFIER, identifier);
+            target.put(position + KIND, REMOVED);
+            for (int field = X; field < STRIDE; field++)
+                target.put(position + field, Double.NaN);
+            position += STRIDE;
+        }
+        target.position(position);
+        return count;
+    }
+
+    private static void checkArguments(World world, DoubleBuffer target) throws IllegalArgumentException {
+        if (world == null)
+            throw new IllegalArgumentException("Not an existing world!");
+        if (target == null)
+            throw new IllegalArgumentException("Invalid target buffer!");
+    }
+
+    private static void checkCapacity(DoubleBuffer target, int count) throws IllegalArgumentException {
+        if ((long) count * STRIDE > target.remaining())
+            throw new IllegalArgumentException("The target cannot hold " + count + " entities!");
+    }
+
+    /**
+     * Write the record of the given entity into the given buffer, at the given index.
+     */
+    private static void write(Entity entity, DoubleBuffer target, int index){
+        target.put(index + IDENTIFIER, entity.getIdentifier());
+        target.put(index + KIND, getKind(entity));
+        target.put(index + X, entity.getPositionX());
+        target.put(index + Y, entity.getPositionY());
+        target.put(index + VELOCITY_X, entity.getVelocityX());
+        target.put(index + VELOCITY_Y, entity.getVelocityY());
+        target.put(index + RADIUS, entity.getRadius());
+        target.put(index + HEADING, entity instanceof Ship ? ((Ship) entity).getHeading() : 0);
+    }
+}
@@ -0,0 +1,351 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.Arrays;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of stores keeping the state of the entities of a world in packed columns of primitive values.
+ * The position, velocity, radius and mass of the entity at a given index are kept at that index of the
+ * corresponding column, together with a tag identifying the type of the entity.
+ * The entities in the store are thin handles: their position and velocity are read from and written to the store.
+ * The store offers kernels moving all entities and computing the times to the boundaries of a world
+ * that work on the columns without creating any objects.
+ *
+ * @invar   The entities in the store are registered at their own index.
+ *          | for each index in 0..size()-1:
+ *          |   getEntity(index).getStoreIndex() == index
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class EntityStore {
+
+    /**
+     * Constants registering the type tags of the different kinds of entities.
+     */
+    public final static int TYPE_SHIP = 0;
+    public final static int TYPE_BULLET = 1;
+    public final static int TYPE_ASTEROID = 2;
+    public final static int TYPE_PLANETOID = 3;
+    public final static int TYPE_OTHER = 4;
+
+    /**
+     * Constant registering the number of entities a new store can hold before its columns grow.
+     */
+    private final static int INITIAL_CAPACITY = 16;
+
+    /**
+     * Initializer for a new, empty entity store.
+     *
+     * @post    ...
+     *          | new.size() == 0
+     */
+    public EntityStore(){
+        this.entities = new Entity[INITIAL_CAPACITY];
+        this.x = new double[INITIAL_CAPACITY];
+        this.y = new double[INITIAL_CAPACITY];
+        this.velocityX = new double[INITIAL_CAPACITY];
+        this.velocityY = new double[INITIAL_CAPACITY];
+        this.radius = new double[INITIAL_CAPACITY];
+        this.mass = new double[INITIAL_CAPACITY];
+        this.type = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Columns registering the state of the entities in this store.
+     */
+    private Entity[] entities;
+    private double[] x;
+    private double[] y;
+    private double[] velocityX;
+    private double[] velocityY;
+    private double[] radius;
+    private double[] mass;
+    private int[] type;
+
+    /**
+     * Variable registering the number of entities in this store.
+     */
+    private int size = 0;
+
+    /**
+     * Returns the number of entities in this store.
+     */
+    @Basic
+    public int size(){
+        return this.size;
+    }
+
+    /**
+     * Returns the type tag of the given entity.
+     *
+     * @see implementation
+     */
+    public static int getTypeTag(Entity entity){
+        if (entity instanceof Ship)
+            return TYPE_SHIP;
+        if (entity instanceof Bullet)
+            return TYPE_BULLET;
+        if (entity instanceof Asteroid)
+            return TYPE_ASTEROID;
+        if (entity instanceof Planetoid)
+            return TYPE_PLANETOID;
+        return TYPE_OTHER;
+    }
+
+    /**
+     * Returns the mass of the given entity as kept in a store.
+     * For a ship, this is the total mass of the ship and the bullets it carries.
+     *
+     * @see implementation
+     */
+    private static double getStoredMass(Entity entity){
+        if (entity instanceof Ship)
+            return ((Ship) entity).getTotalMass();
+        return entity.getMassOfEntity();
+    }
+
+    /**
+     * Copy the state of the given entity to the end of the columns of this store and turn the entity into
+     * a handle into this store.
+     *
+     * @param   entity
+     *          The entity to add.
+     *
+     * @post    ...
+     *          | new.getEntity(this.size()) == entity
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the entity is null or already kept in a store.
+     *          | entity == null || entity.getEntityStore() != null
+     */
+    public void add(Entity entity) throws IllegalArgumentException {
+        if (entity == null)
+            throw new IllegalArgumentException("Not an existing entity!");
+        if (entity.getEntityStore() != null)
+            throw new IllegalArgumentException("Entity already in a store.");
+        if (size == entities.length)
+            grow();
+
+        int index = size++;
+        Vector position = entity.getPosition();
+        Vector velocity = entity.getVelocity();
+        entities[index] = entity;
+        x[index] = position.getX();
+        y[index] = position.getY();
+        velocityX[index] = velocity.getX();
+        velocityY[index] = velocity.getY();
+        radius[index] = entity.getRadius();
+        mass[index] = getStoredMass(entity);
+        type[index] = getTypeTag(entity);
+        entity.attachToStore(this, index);
+    }
+
+    /**
+     * Remove the given entity from this store. The entity keeps its position and velocity, but no longer reads
+     * them from this store. The last entity of the store takes the place of the removed entity.
+     *
+     * @param   entity
+     *          The entity to remove.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the entity is not kept in this store.
+     *          | entity == null || entity.getEntityStore() != this
+     */
+    public void remove(Entity entity) throws IllegalArgumentException {
+        if (entity == null || entity.getEntityStore() != this)
+            throw new IllegalArgumentException("Entity not in this store!");
+        int index = entity.getStoreIndex();
+        entity.detachFromStore(new Vector(x[index], y[index]), new Vector(velocityX[index], velocityY[index]));
+
+        int last = --size;
+        if (index != last) {
+            entities[index] = entities[last];
+            x[index] = x[last];
+            y[index] = y[last];
+            velocityX[index] = velocityX[last];
+            velocityY[index] = velocityY[last];
+            radius[index] = radius[last];
+            mass[index] = mass[last];
+            type[index] = type[last];
+            entities[index].setStoreIndex(index);
+        }
+        entities[last] = null;
+    }
+
+    /**
+     * Double the capacity of the columns of this store.
+     */
+    private void grow(){
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        velocityX = Arrays.copyOf(velocityX, capacity);
+        velocityY = Arrays.copyOf(velocityY, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        type = Arrays.copyOf(type, capacity);
+    }
+
+    /**
+     * Returns the entity at the given index of this store.
+     */
+    @Basic
+    public Entity getEntity(int index){
+        return entities[index];
+    }
+
+    @Basic
+    public double getX(int index){
+        return x[index];
+    }
+
+    @Basic
+    public double getY(int index){
+        return y[index];
+    }
+
+    @Basic
+    public double getVelocityX(int index){
+        return velocityX[index];
+    }
+
+    @Basic
+    public double getVelocityY(int index){
+        return velocityY[index];
+    }
+
+    @Basic
+    public double getRadius(int index){
+        return radius[index];
+    }
+
+    @Basic
+    public double getMass(int index){
+        return mass[index];
+    }
+
+    @Basic
+    public int getType(int index){
+        return type[index];
+    }
+
+    /**
+     * Set the position of the entity at the given index.
+     */
+    void setPosition(int index, double newX, double newY){
+        x[index] = newX;
+        y[index] = newY;
+    }
+
+    /**
+     * Set the velocity of the entity at the given index.
+     */
+    void setVelocity(int index, double newVelocityX, double newVelocityY){
+        velocityX[index] = newVelocityX;
+        velocityY[index] = newVelocityY;
+    }
+
+    /**
+     * Copy the radius and the mass of the entity at the given index to the columns of this store.
+     */
+    void refresh(int index){
+        radius[index] = entities[index].getRadius();
+        mass[index] = getStoredMass(entities[index]);
+    }
+
+    /**
+     * Move the entity at the given index for the given time difference.
+     *
+     * @see implementation
+     */
+    void move(int index, double timeDifference){
+        x[index] += velocityX[index] * timeDifference;
+        y[index] += velocityY[index] * timeDifference;
+    }
+
+    /**
+     * Move all entities in this store for the given time difference.
+     *
+     * @param   timeDifference
+     *          The amount of time the entities move.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the time difference is negative or NaN.
+     *          | !(timeDifference >= 0)
+     */
+    public void moveAll(double timeDifference) throws IllegalArgumentException {
+        if (!(timeDifference >= 0))
+            throw new IllegalArgumentException();
+        for (int index = 0; index < size; index++) {
+            x[index] += velocityX[index] * timeDifference;
+            y[index] += velocityY[index] * timeDifference;
+        }
+    }
+
+    /**
+     * Returns the time before the entity at the given index collides with one of the boundaries of a world
+     * with the given width and height.
+     *
+     * @see implementation
+     */
+    public double getTimeToBoundaryCollision(int index, double width, double height){
+        double time = Double.POSITIVE_INFINITY;
+        double vx = velocityX[index];
+        double vy = velocityY[index];
+        if (vx > 0)
+            time = Math.min(time, (width - radius[index] - x[index]) / vx);
+        else if (vx < 0)
+            time = Math.min(time, Math.abs((x[index] - radius[index]) / vx));
+        if (vy > 0)
+            time = Math.min(time, (height - radius[index] - y[index]) / vy);
+        else if (vy < 0)
+            time = Math.min(time, Math.abs((y[index] - radius[index]) / vy));
+        if (time < 0)
+            time = 0;
+        return time;
+    }
+
+    /**
+     * Store the time before each entity collides with one of the boundaries of a world with the given width
+     * and height at the index of that entity in the given array.
+     *
+     * @param   result
+     *          The array in which the times are stored.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the array cannot hold a time for each entity.
+     *          | result == null || result.length < size()
+     */
+    public void getTimesToBoundaryCollision(double width, double height, double[] result)
+            throws IllegalArgumentException {
+        if (result == null || result.length < size)
+            throw new IllegalArgumentException("Array too small!");
+        for (int index = 0; index < size; index++)
+            result[index] = getTimeToBoundaryCollision(index, width, height);
+    }
+
+    /**
+     * Returns the index of the entity that collides first with one of the boundaries of a world with the given
+     * width and height, or -1 if no entity collides with a boundary.
+     *
+     * @see implementation
+     */
+    public int getIndexOfFirstBoundaryCollision(double width, double height){
+        int first = -1;
+        double timeToFirstCollision = Double.POSITIVE_INFINITY;
+        for (int index = 0; index < size; index++) {
+            double time = getTimeToBoundaryCollision(index, width, height);
+            if (time < timeToFirstCollision) {
+                timeToFirstCollision = time;
+                first = index;
+            }
+        }
+        return first;
+    }
+}
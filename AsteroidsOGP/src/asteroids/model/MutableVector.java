@@ -0,0 +1,177 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of two dimensional vectors of which the components can change.
+ * Mutable vectors are meant to be reused as scratch space in calculations that are executed very often,
+ * such as the collision tests between all pairs of entities, so these calculations do not create new objects.
+ * The methods changing a mutable vector return that same vector, so calls can be chained.
+ *
+ * @author  Wim Kunnen and Maarten Doclo.
+ *
+ * @version 1.0
+ */
+public class MutableVector {
+
+    /**
+     * Initializes a new mutable vector.
+     *
+     * @param   x
+     *          The x component of the vector.
+     *
+     * @param   y
+     *          The y component of the vector.
+     */
+    public MutableVector(double x, double y){
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Default initializer for the MutableVector class.
+     *
+     * @effect
+     *        | this(0,0)
+     */
+    public MutableVector(){
+        this(0, 0);
+    }
+
+    /**
+     * Variable registering the x component of this vector.
+     */
+    private double x;
+
+    /**
+     * Variable registering the y component of this vector.
+     */
+    private double y;
+
+    /**
+     * Returns the x component of the vector.
+     */
+    @Basic
+    public double getX(){
+        return this.x;
+    }
+
+    /**
+     * Returns the y component of the vector.
+     */
+    @Basic
+    public double getY(){
+        return this.y;
+    }
+
+    /**
+     * Set the components of this vector to the given values.
+     *
+     * @post    ...
+     *          | new.getX() == x && new.getY() == y
+     */
+    public MutableVector set(double x, double y){
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Set the components of this vector to the components of the given vector.
+     *
+     * @effect  ...
+     *          | set(other.getX(), other.getY())
+     */
+    public MutableVector set(Vector other){
+        return set(other.getX(), other.getY());
+    }
+
+    /**
+     * Add the given components to the components of this vector.
+     *
+     * @effect  ...
+     *          | set(this.getX() + x, this.getY() + y)
+     */
+    public MutableVector add(double x, double y){
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    /**
+     * Subtract the given components from the components of this vector.
+     *
+     * @effect  ...
+     *          | set(this.getX() - x, this.getY() - y)
+     */
+    public MutableVector subtract(double x, double y){
+        this.x -= x;
+        this.y -= y;
+        return this;
+    }
+
+    /**
+     * Multiply the components of this vector with the given factor.
+     *
+     * @effect  ...
+     *          | set(this.getX() * factor, this.getY() * factor)
+     */
+    public MutableVector scale(double factor){
+        this.x *= factor;
+        this.y *= factor;
+        return this;
+    }
+
+    /**
+     * Give this vector length one, keeping its direction. Nothing happens if the length of this vector is zero.
+     *
+     * @see implementation
+     */
+    public MutableVector normalize(){
+        double lengthSquared = vectorLengthSquared();
+        if (lengthSquared > 0) {
+            double length = Math.sqrt(lengthSquared);
+            this.x /= length;
+            this.y /= length;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the scalar product of this vector and the given components.
+     *
+     * @see implementation
+     */
+    public double scalarProduct(double x, double y){
+        return Vector.scalarProduct(this.x, this.y, x, y);
+    }
+
+    /**
+     * Returns the square of the length of the vector.
+     *
+     * @see implementation
+     */
+    public double vectorLengthSquared(){
+        return Vector.scalarProduct(this.x, this.y, this.x, this.y);
+    }
+
+    /**
+     * Returns the length of the vector.
+     *
+     * @see implementation
+     */
+    public double vectorLength(){
+        return Math.sqrt(vectorLengthSquared());
+    }
+
+    /**
+     * Returns an immutable vector with the same components as this vector.
+     *
+     * @return  result.equals(new Vector(getX(), getY()))
+     */
+    public Vector toVector(){
+        return new Vector(this.x, this.y);
+    }
+}
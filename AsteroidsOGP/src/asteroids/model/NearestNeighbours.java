@@ -0,0 +1,88 @@
+package asteroids.model;
+
+import java.util.Collection;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of accumulators keeping the k entities nearest to a point among the entities offered to them.
+ * The entities are kept sorted on their distance, so the distance of the k-th entity bounds the distance of
+ * entities that may still improve the result.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+class NearestNeighbours {
+
+    /**
+     * Initializes a new accumulator for the given number of entities.
+     *
+     * @param   k
+     *          The number of entities to keep.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if k is not strictly positive.
+     *          | k <= 0
+     */
+    NearestNeighbours(int k) throws IllegalArgumentException {
+        if (k <= 0)
+            throw new IllegalArgumentException("Invalid number of neighbours!");
+        this.entities = new Entity[k];
+        this.distances = new double[k];
+    }
+
+    /**
+     * Arrays registering the entities kept so far and their distances, nearest first.
+     */
+    private final Entity[] entities;
+    private final double[] distances;
+    private int size = 0;
+
+    /**
+     * Returns true if and only if this accumulator holds k entities.
+     */
+    boolean isFull(){
+        return size == entities.length;
+    }
+
+    /**
+     * Returns the distance an entity must not exceed to be kept, which is infinite while this accumulator
+     * is not full.
+     */
+    double getBound(){
+        return isFull() ? distances[size - 1] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Offer the given entity at the given distance. The entity is kept if it is nearer than the k-th entity.
+     * Entities at the same distance keep the order in which they were offered.
+     */
+    void offer(Entity entity, double distance){
+        if (isFull() && !(distance < distances[size - 1]))
+            return;
+        int index = isFull() ? size - 1 : size++;
+        while (index > 0 && distances[index - 1] > distance) {
+            entities[index] = entities[index - 1];
+            distances[index] = distances[index - 1];
+            index--;
+        }
+        entities[index] = entity;
+        distances[index] = distance;
+    }
+
+    /**
+     * Returns the nearest entity kept, or null if no entity has been kept.
+     */
+    Entity getNearest(){
+        return size == 0 ? null : entities[0];
+    }
+
+    /**
+     * Add the entities kept, nearest first, to the given collection.
+     */
+    void addTo(Collection<? super Entity> result){
+        for (int i = 0; i < size; i++)
+            result.add(entities[i]);
+    }
+}
@@ -1,5 +1,8 @@
 package asteroids.model;
 
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
 @SuppressWarnings("all")
 /**
  * A class of planetoids for the Asteroid project.
@@ -172,8 +175,9 @@ public class Planetoid extends MinorPlanet {
         World thisWorld = getWorld();
 
         if (this.getRadius() >= 30){
-            double positionAngle = Math.random() * 2 * Math.PI;
-            double velocityAngle = Math.random() * 2 * Math.PI;
+            Random random = thisWorld != null ? thisWorld.getRandom() : ThreadLocalRandom.current();
+            double positionAngle = random.nextDouble() * 2 * Math.PI;
+            double velocityAngle = random.nextDouble() * 2 * Math.PI;
 
             Vector velocityA = new Vector(this.getVelocity().vectorLength() * 1.5 * Math.cos(velocityAngle),
                     this.getVelocity().vectorLength() * 1.5 * Math.sin(velocityAngle));
@@ -241,30 +245,23 @@ public class Planetoid extends MinorPlanet {
     }
 
     /**
-     * Changes the position of the entity by the velocity * time difference.
+     * Update the distance travelled and the radius of this planetoid after it has moved.
      *
      * @param   timeDifference
-     *          The difference in time between two frames.
+     *          The amount of time the planetoid has moved.
      *
-     * @post    The new position is equal to the sum of the old position and the velocity times the time difference.
-     *          | new.getPosition == this.getPosition + this.getVelocity * timeDifference
+     * @post    The distance travelled is increased by the velocity times the time difference.
+     *          | new.getDistanceTravelled() == this.getDistanceTravelled() + this.getVelocity().vectorLength() * timeDifference
      *
-     * @throws  IllegalArgumentException
-     *          The given time difference is smaller than zero.
-     *          | !isValidTimeDifference
+     * @effect  ...
+     *          | decrementRadius(timeDifference)
      */
     @Override
-    public void move(double timeDifference) throws IllegalArgumentException{
-
-        if(isValidTimeDifference(timeDifference)){
-            setPosition(this.getPosition().sum(getVelocity().resizeVector(timeDifference)));
-            double distanceTravelled = timeDifference * this.getVelocity().vectorLength();
-            this.travel(distanceTravelled);
-            this.decrementRadius(timeDifference);
-            this.setDistanceTravelled(this.getDistanceTravelled() + distanceTravelled);
-        }else{
-            throw new IllegalArgumentException();
-        }
+    protected void moved(double timeDifference){
+        double distanceTravelled = timeDifference * this.getVelocity().vectorLength();
+        this.travel(distanceTravelled);
+        this.decrementRadius(timeDifference);
+        this.setDistanceTravelled(this.getDistanceTravelled() + distanceTravelled);
     }
 }
 
@@ -1,12 +1,16 @@
 package asteroids.model;
 
+import asteroids.model.program.ActivationRecord;
 import asteroids.model.program.FunctionDefinition;
+import asteroids.model.program.bytecode.VirtualMachine;
 import asteroids.model.program.expressions.FunctionInvocation;
 import asteroids.model.program.statements.Statement;
 import asteroids.model.program.statements.While;
 import asteroids.model.program.types.Type;
 import asteroids.part3.programs.internal.generated.AsteroidsProgramParser;
 import asteroids.util.ModelException;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
 import be.kuleuven.cs.som.annotate.Raw;
 
 import java.util.*;
@@ -22,35 +26,133 @@ import java.util.*;
 public class Program {
 
     public Program(List<FunctionDefinition> functions, Statement body) {
-        setFunctions(functions);
-        this.executionStack = new ArrayDeque<>();
-        scheduleStatement(body);
-        setFunctionMap();
+        this(new ProgramImage(functions, body));
+    }
+
+    /**
+     * Initializes a new program with the given functions and main statement.
+     *
+     * @param   functions
+     *          The function definitions of the program.
+     * @param   body
+     *          The main statement of the program.
+     * @param   globalNames
+     *          The names of the global variables of the program, by slot, as resolved by the variable resolver.
+     * @param   compile
+     *          Whether the program should be compiled to bytecode. A program that is not compiled, or that
+     *          cannot be compiled, executes its statements directly.
+     *
+     * @see implementation
+     */
+    public Program(List<FunctionDefinition> functions, Statement body, String[] globalNames, boolean compile) {
+        this(new ProgramImage(functions, body, globalNames, compile));
+    }
+
+    /**
+     * Initializes a new program with the given functions and main statement.
+     *
+     * @param   verified
+     *          Whether the program is well typed, as checked by the type checker.
+     *
+     * @see implementation
+     */
+    public Program(List<FunctionDefinition> functions, Statement body, String[] globalNames, boolean compile,
+                   boolean verified) {
+        this(new ProgramImage(functions, body, globalNames, compile, verified));
+    }
+
+    /**
+     * Initializes a new program executing the given image from its start. The image is shared, not copied, so
+     * creating a program only allocates the state of its execution.
+     *
+     * @param   image
+     *          The image of the new program.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the image is null.
+     *          | image == null
+     */
+    public Program(ProgramImage image) throws IllegalArgumentException {
+        if (image == null)
+            throw new IllegalArgumentException("Invalid program image!");
+        this.image = image;
+        this.verified = image.isVerified();
+        if (image.isCompiled()) {
+            this.virtualMachine = new VirtualMachine(image.getBytecode(), verified);
+            this.globals = null;
+        }
+        else {
+            this.virtualMachine = null;
+            this.globals = new Type<?>[image.getNbGlobals()];
+            scheduleStatement(image.getBody());
+        }
     }
 
-    private List<FunctionDefinition> functions;
+    /**
+     * Variable registering the image of this program, holding its code.
+     */
+    private final ProgramImage image;
+
+    @Basic @Immutable
+    public ProgramImage getImage(){
+        return this.image;
+    }
 
-    private Map<String,FunctionDefinition> functionMap = new HashMap<>();
+    /**
+     * Variable registering whether this program is well typed, in which case it does not check the types of the
+     * values it assigns.
+     */
+    private final boolean verified;
 
-    public Map<String, FunctionDefinition> getFunctionMap() {
-        return functionMap;
+    @Basic @Immutable
+    public boolean isVerified(){
+        return this.verified;
     }
 
-    private void setFunctionMap(){
-        for (FunctionDefinition functionDefinition : functions){
-            this.functionMap.put(functionDefinition.getName(),functionDefinition);
-        }
+    /**
+     * Variable registering the virtual machine executing the compiled program, or null if the program
+     * executes its statements directly.
+     */
+    private final VirtualMachine virtualMachine;
+
+    /**
+     * Check whether this program is executed as bytecode.
+     */
+    public boolean isCompiled(){
+        return virtualMachine != null;
     }
-    public FunctionDefinition getFunctionDefinition(String functionName){
-        return getFunctionMap().get(functionName);
+
+    List<Statement> getStatements(){
+        return image.getStatements();
+    }
+
+    /**
+     * Returns a hash of the structure of this program, which is the same for all programs created from the same
+     * source.
+     *
+     * @see implementation
+     */
+    int getStructureHash(){
+        return image.getStructureHash();
     }
 
-    public void setFunctions(List<FunctionDefinition> functions) {
-        this.functions = functions;
+    /**
+     * Return the virtual machine executing this program, or null if the program executes its statements directly.
+     */
+    VirtualMachine getVirtualMachine(){
+        return virtualMachine;
+    }
+
+    public Map<String, FunctionDefinition> getFunctionMap() {
+        return image.getFunctionMap();
+    }
+
+    public FunctionDefinition getFunctionDefinition(String functionName){
+        return image.getFunctionDefinition(functionName);
     }
 
     public List<FunctionDefinition> getFunctions() {
-        return functions;
+        return image.getFunctions();
     }
 
     private Ship ship;
@@ -78,7 +180,7 @@ public class Program {
         return this.executionStack;
     }
 
-    private Deque<Statement> executionStack;
+    private Deque<Statement> executionStack = new ArrayDeque<>();
 
     public void setExecutionStack(List<Statement> body) {
         this.executionStack = new ArrayDeque<Statement>(body);
@@ -104,12 +206,20 @@ public class Program {
         this.onHold = false;
     }
 
+    boolean isOnHold(){
+        return this.onHold;
+    }
+
     public boolean executed = false;
 
     public boolean isExecuted() {
         return executed;
     }
 
+    void setExecuted(boolean executed){
+        this.executed = executed;
+    }
+
 
 
 
@@ -129,8 +239,16 @@ public class Program {
 
     public List<Object> execute(double timeDifference){
 
+        if (virtualMachine != null) {
+            if (virtualMachine.execute(this, timeDifference))
+                executed = true;
+            return executed ? this.getPrinted() : null;
+        }
+
         double time = timeDifference + getTimeLeft();
         setTotalTime(time);
+        depth = 0;
+        parameterTop = 0;
 
         while (getExecutionStack().size() > 0){
 
@@ -155,54 +273,133 @@ public class Program {
         return null;
     }
 
-    private Map<String, Type<?>> globals = new HashMap<>();
-
-    public Map<String, Type<?>> getGlobals() {
-        return globals;
-    }
+    /**
+     * The values of the global variables of this program, by slot, or null if the program is compiled, in which
+     * case its virtual machine holds them.
+     */
+    private final Type<?>[] globals;
 
-    public Type<?> getVariableValue(String name) throws RuntimeException{
-        Type<?> current = globals.get(name);
+    public Type<?> getVariableValue(int slot) throws RuntimeException{
+        Type<?> current = slot < 0 ? null : globals[slot];
         if(current == null)
             throw new RuntimeException();
 
         return current;
     }
-    public void setVariableValue(String name, Type<?> value) throws RuntimeException{
-        Type<?> current = globals.get(name);
-        if(current != null && current.getClass() != value.getClass())
-            throw new RuntimeException();
+    public void setVariableValue(int slot, Type<?> value) throws RuntimeException{
+        if (!verified) {
+            Type<?> current = globals[slot];
+            if(current != null && current.getClass() != value.getClass())
+                throw new RuntimeException();
+        }
 
-        globals.put(name, value);
+        globals[slot] = value;
     }
 
+    /**
+     * Returns the number of global variables of this program.
+     */
+    int getNbGlobals(){
+        return image.getNbGlobals();
+    }
 
+    /**
+     * Returns the value of the global variable with the given slot, or null if the variable has no value.
+     */
+    Type<?> getGlobalValue(int slot){
+        return virtualMachine != null ? virtualMachine.getGlobalValue(slot) : globals[slot];
+    }
 
-    public FunctionInvocation getCurrentFunctionInvocation() {
-        return currentFunctionInvocations.peekFirst();
+    /**
+     * Set the value of the global variable with the given slot, without checking its type.
+     */
+    void restoreGlobalValue(int slot, Type<?> value){
+        if (virtualMachine != null)
+            virtualMachine.setGlobalValue(slot, value);
+        else
+            globals[slot] = value;
     }
-    public void setCurrentFunctionInvocation(FunctionInvocation invocation){
-        this.currentFunctionInvocations.addFirst(invocation);
-        this.allFunctionInvocationsEver.addFirst(invocation);
+
+
+
+    /**
+     * The largest number of nested function invocations.
+     */
+    private final static int MAX_DEPTH = 1024;
+
+    /**
+     * The activation records of this program. The records below the depth belong to the function invocations
+     * in progress, innermost last; the other records are kept for later invocations.
+     */
+    private ActivationRecord[] activationRecords = new ActivationRecord[0];
+    private int depth = 0;
+
+    /**
+     * The parameters of the function invocations in progress.
+     */
+    private Type<?>[] parameterStack = new Type<?>[0];
+    private int parameterTop = 0;
+
+    public ActivationRecord getCurrentActivationRecord() {
+        return depth == 0 ? null : activationRecords[depth - 1];
     }
-    public void stopCurrentFunctionInvocation(){
-        currentFunctionInvocations.removeFirst();
+
+    /**
+     * Push the given value on the parameter stack, as a parameter of the next function invocation.
+     */
+    public void pushParameter(Type<?> value){
+        if (parameterTop == parameterStack.length)
+            parameterStack = Arrays.copyOf(parameterStack, Math.max(4, 2 * parameterTop));
+        parameterStack[parameterTop++] = value;
     }
 
-    private Deque<FunctionInvocation> currentFunctionInvocations = new ArrayDeque<>();
+    public Type<?> getParameterStackValue(int index){
+        return parameterStack[index];
+    }
 
-    public Deque<FunctionInvocation> getCurrentFunctionInvocations() {
-        return currentFunctionInvocations;
+    /**
+     * Start the given function invocation, of which the given number of parameters are on top
+     * of the parameter stack.
+     *
+     * @return  The activation record of the invocation, reused from an earlier invocation if possible.
+     *
+     * @throws  RuntimeException
+     *          Thrown if too many function invocations are in progress.
+     */
+    public ActivationRecord pushActivationRecord(FunctionInvocation invocation, int nbParameters, int nbLocals)
+            throws RuntimeException{
+        if (depth == MAX_DEPTH)
+            throw new RuntimeException();
+        if (depth == activationRecords.length) {
+            activationRecords = Arrays.copyOf(activationRecords, Math.max(4, 2 * depth));
+            for (int i = depth; i < activationRecords.length; i++)
+                activationRecords[i] = new ActivationRecord(this);
+        }
+        ActivationRecord record = activationRecords[depth++];
+        record.activate(invocation, parameterTop - nbParameters, nbParameters, nbLocals);
+        return record;
     }
-    private Deque<FunctionInvocation> allFunctionInvocationsEver = new ArrayDeque<FunctionInvocation>();
 
-    public Deque<FunctionInvocation> getAllFunctionInvocationsEver() {
-        return allFunctionInvocationsEver;
+    /**
+     * Finish the current function invocation, removing its parameters from the parameter stack.
+     */
+    public void popActivationRecord(){
+        ActivationRecord record = activationRecords[--depth];
+        for (int i = record.getParameterBase(); i < parameterTop; i++)
+            parameterStack[i] = null;
+        parameterTop = record.getParameterBase();
+        record.deactivate();
     }
 
+    /**
+     * Returns the number of function invocations in progress.
+     */
+    public int getDepth(){
+        return depth;
+    }
 
     public boolean functionInvocationBusy(){
-        return (getCurrentFunctionInvocation() != null);
+        return depth > 0;
     }
 
 
@@ -219,4 +416,11 @@ public class Program {
 
     private Deque<While> currentWhiles = new ArrayDeque<>();
 
+    /**
+     * Returns the loops in progress, innermost first.
+     */
+    Deque<While> getCurrentWhiles(){
+        return currentWhiles;
+    }
+
 }
@@ -0,0 +1,229 @@
+package asteroids.model;
+
+import asteroids.model.program.Executable;
+import asteroids.model.program.FunctionDefinition;
+import asteroids.model.program.VariableResolver;
+import asteroids.model.program.bytecode.Bytecode;
+import asteroids.model.program.bytecode.BytecodeCompiler;
+import asteroids.model.program.statements.Statement;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of program images, holding the code of a parsed program: its functions, its main statement, the slots of
+ * its global variables and, if it could be compiled, its bytecode. A program image is never changed after it has
+ * been created, so it can be shared by the programs of any number of ships, on any number of threads; every ship
+ * gets a program of its own, holding only the state of its execution.
+ *
+ * The variables of the statements of an image are resolved to slots before the image is created, and the statements
+ * are not changed afterwards, so they are safely published by the final fields of the image.
+ *
+ * @invar   The function map of an image holds every function of the image under its name.
+ *          | for each function in getFunctions(): getFunctionDefinition(function.getName()) == function
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class ProgramImage {
+
+    /**
+     * Initializes a new image with the given functions and main statement, resolving their variables to slots and
+     * compiling them to bytecode.
+     *
+     * @see implementation
+     */
+    public ProgramImage(List<FunctionDefinition> functions, Statement body) {
+        this(functions, body, VariableResolver.resolve(functions, body), true);
+    }
+
+    /**
+     * Initializes a new image with the given functions and main statement.
+     *
+     * @param   functions
+     *          The function definitions of the program.
+     * @param   body
+     *          The main statement of the program.
+     * @param   globalNames
+     *          The names of the global variables of the program, by slot, as resolved by the variable resolver.
+     * @param   compile
+     *          Whether the program should be compiled to bytecode. A program that is not compiled, or that
+     *          cannot be compiled, executes its statements directly.
+     */
+    public ProgramImage(List<FunctionDefinition> functions, Statement body, String[] globalNames, boolean compile) {
+        this(functions, body, globalNames, compile, false);
+    }
+
+    /**
+     * Initializes a new image with the given functions and main statement.
+     *
+     * @param   functions
+     *          The function definitions of the program.
+     * @param   body
+     *          The main statement of the program.
+     * @param   globalNames
+     *          The names of the global variables of the program, by slot, as resolved by the variable resolver.
+     * @param   compile
+     *          Whether the program should be compiled to bytecode. A program that is not compiled, or that
+     *          cannot be compiled, executes its statements directly.
+     * @param   verified
+     *          Whether the program is well typed, as checked by the type checker. The programs of a verified
+     *          image do not check the types of the values they assign.
+     */
+    public ProgramImage(List<FunctionDefinition> functions, Statement body, String[] globalNames, boolean compile,
+                        boolean verified) {
+        this.verified = verified;
+        this.functions = functions == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(functions));
+        this.body = body;
+        this.globalNames = globalNames.clone();
+        Map<String, FunctionDefinition> functionMap = new HashMap<>();
+        for (FunctionDefinition function : this.functions)
+            functionMap.put(function.getName(), function);
+        this.functionMap = Collections.unmodifiableMap(functionMap);
+
+        List<Statement> statements = new ArrayList<>();
+        collectStatements(body, statements);
+        for (FunctionDefinition function : this.functions)
+            collectStatements(function.getBody(), statements);
+        this.statements = Collections.unmodifiableList(statements);
+
+        int hash = globalNames.length;
+        for (Statement statement : statements)
+            hash = 31 * hash + statement.getClass().getName().hashCode();
+        for (FunctionDefinition function : this.functions)
+            hash = 31 * hash + function.getName().hashCode();
+        this.structureHash = hash;
+
+        Bytecode bytecode = null;
+        if (compile) {
+            try {
+                bytecode = BytecodeCompiler.compile(functions, body, globalNames);
+            }
+            catch (IllegalArgumentException e){
+                bytecode = null;
+            }
+        }
+        this.bytecode = bytecode;
+    }
+
+    /**
+     * Variable registering whether this image is well typed.
+     */
+    private final boolean verified;
+
+    @Basic @Immutable
+    public boolean isVerified(){
+        return this.verified;
+    }
+
+    /**
+     * Variable registering the function definitions of this image.
+     */
+    private final List<FunctionDefinition> functions;
+
+    @Basic @Immutable
+    public List<FunctionDefinition> getFunctions(){
+        return this.functions;
+    }
+
+    /**
+     * Variable registering the function definitions of this image by name.
+     */
+    private final Map<String, FunctionDefinition> functionMap;
+
+    @Basic @Immutable
+    public Map<String, FunctionDefinition> getFunctionMap(){
+        return this.functionMap;
+    }
+
+    /**
+     * Return the function of this image with the given name, or null if there is no such function.
+     *
+     * @see implementation
+     */
+    public FunctionDefinition getFunctionDefinition(String functionName){
+        return functionMap.get(functionName);
+    }
+
+    /**
+     * Variable registering the main statement of this image.
+     */
+    private final Statement body;
+
+    @Basic @Immutable
+    public Statement getBody(){
+        return this.body;
+    }
+
+    /**
+     * Variable registering the names of the global variables of this image, by slot.
+     */
+    private final String[] globalNames;
+
+    @Immutable
+    public int getNbGlobals(){
+        return globalNames.length;
+    }
+
+    /**
+     * Variable registering the bytecode of this image, or null if its programs execute their statements directly.
+     */
+    private final Bytecode bytecode;
+
+    @Basic @Immutable
+    public Bytecode getBytecode(){
+        return this.bytecode;
+    }
+
+    /**
+     * Check whether the programs of this image are executed as bytecode.
+     *
+     * @see implementation
+     */
+    public boolean isCompiled(){
+        return bytecode != null;
+    }
+
+    /**
+     * The statements of this image, in a fixed order: the statements of the main program followed by those of
+     * its functions, every statement before the statements it contains. The order identifies the statements of
+     * the execution stack in a snapshot.
+     */
+    private final List<Statement> statements;
+
+    List<Statement> getStatements(){
+        return statements;
+    }
+
+    private static void collectStatements(Executable executable, List<Statement> result){
+        if (executable instanceof Statement)
+            result.add((Statement) executable);
+        if (executable != null)
+            for (Executable subExecutable : VariableResolver.getSubExecutables(executable))
+                collectStatements(subExecutable, result);
+    }
+
+    /**
+     * A hash of the structure of this image, which is the same for all images created from the same source.
+     */
+    private final int structureHash;
+
+    int getStructureHash(){
+        return structureHash;
+    }
+
+    /**
+     * Returns a new program executing this image from its start.
+     *
+     * @return  A program of which the image is this image.
+     *          | result.getImage() == this
+     */
+    public Program newProgram(){
+        return new Program(this);
+    }
+}
@@ -0,0 +1,120 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of caches remembering the results of the queries ship programs issue on a world, such as the asteroid
+ * closest to a ship. A result is remembered for a kind of query and the entity that issued it, and stays valid
+ * as long as the epoch of the world does not change. The world raises its epoch whenever an entity is added,
+ * removed, moved or changed, and whenever collisions are resolved, so a result is never used after the state
+ * it was computed from has changed.
+ *
+ * @invar   Every remembered result was computed at the epoch of this cache.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class QueryCache {
+
+    /**
+     * Initializes a new query cache for the given world.
+     *
+     * @param   world
+     *          The world on which the queries are issued.
+     */
+    QueryCache(World world){
+        this.world = world;
+        this.epoch = world.getEpoch();
+    }
+
+    /**
+     * Variable registering the world on which the queries are issued.
+     */
+    private final World world;
+
+    /**
+     * Variable registering the epoch of the world at which the remembered results were computed.
+     */
+    private long epoch;
+
+    /**
+     * Map registering the remembered results of every kind of query, with the entity that issued the query as a key.
+     */
+    private final Map<Object, Map<Entity, Entity>> results = new HashMap<>();
+
+    /**
+     * Return the result of the given kind of query issued by the given entity. The remembered result is returned
+     * if the world has not changed since it was computed; otherwise the result is computed by applying the given
+     * evaluation to the world and the entity, and remembered.
+     *
+     * @param   query
+     *          The kind of query, for instance the class of the expression issuing it.
+     * @param   issuer
+     *          The entity issuing the query.
+     * @param   evaluation
+     *          The function computing the result of the query.
+     *
+     * @return  The result of applying the evaluation to the world and the issuer.
+     *          | result == evaluation.apply(world, issuer)
+     *
+     * @see implementation
+     */
+    public Entity get(Object query, Entity issuer, BiFunction<World, Entity, Entity> evaluation){
+        if (epoch != world.getEpoch()) {
+            for (Map<Entity, Entity> resultsOfQuery : results.values())
+                resultsOfQuery.clear();
+            epoch = world.getEpoch();
+        }
+        Map<Entity, Entity> resultsOfQuery = results.get(query);
+        if (resultsOfQuery == null) {
+            resultsOfQuery = new IdentityHashMap<>();
+            results.put(query, resultsOfQuery);
+        }
+        Entity result = resultsOfQuery.get(issuer);
+        if (result != null || resultsOfQuery.containsKey(issuer)) {
+            hits++;
+            return result;
+        }
+        misses++;
+        result = evaluation.apply(world, issuer);
+        if (epoch == world.getEpoch()) // The evaluation itself may change the world.
+            resultsOfQuery.put(issuer, result);
+        return result;
+    }
+
+    /**
+     * Variables registering the number of queries answered from this cache, and the number of queries that had
+     * to be evaluated.
+     */
+    private long hits = 0;
+    private long misses = 0;
+
+    @Basic
+    public long getHits(){
+        return this.hits;
+    }
+
+    @Basic
+    public long getMisses(){
+        return this.misses;
+    }
+
+    /**
+     * Set the number of hits and misses of this cache back to zero.
+     *
+     * @post    ...
+     *          | new.getHits() == 0 && new.getMisses() == 0
+     */
+    public void resetStatistics(){
+        this.hits = 0;
+        this.misses = 0;
+    }
+}
@@ -157,7 +157,7 @@ public class Ship extends Entity{
     /**
      * Variable registering the minimum radius of the ship
      */
-    private static double minimumRadius = 10;
+    private final static double minimumRadius = 10;
 
     /**
      * Returns the minimum radius of the ship.
@@ -196,6 +196,8 @@ public class Ship extends Entity{
     protected void setHeading(double angle) {
         assert isValidAngle(angle);
         this.heading = angle;
+        if (getWorld() != null)
+            getWorld().reportTurnedEntity(this);
     }
 
     /**
@@ -239,7 +241,7 @@ public class Ship extends Entity{
      *
      * @return  result == mass
      */
-    private double getMass(){
+    double getMass(){
         return this.mass;
     }
 
@@ -257,6 +259,14 @@ public class Ship extends Entity{
         return this.totalMass;
     }
 
+    /**
+     * Set the total mass of the ship, when the ship is restored from a snapshot.
+     */
+    void setTotalMass(double totalMass){
+        this.totalMass = totalMass;
+        refreshStoredState();
+    }
+
     //Thruster
     /**
      * Variable registering the state of the ship's thruster.
@@ -363,9 +373,10 @@ public class Ship extends Entity{
 
     //Bullets
     /**
-     * Set registering all bullets that are loaded on a ship.
+     * Set registering all bullets that are loaded on a ship, in the order in which they were loaded, so the same
+     * bullet is fired every time the same inputs are applied to a ship.
      */
-    private HashSet<Bullet> bullets = new HashSet<>();
+    private HashSet<Bullet> bullets = new LinkedHashSet<>();
 
     /**
      * Returns a set containing all bullets on a ship.
@@ -373,11 +384,19 @@ public class Ship extends Entity{
      * @return  result == bullets
      */
     public HashSet<Bullet> getBullets(){
-        HashSet<Bullet> bullets = new HashSet<>();
+        HashSet<Bullet> bullets = new LinkedHashSet<>();
         bullets.addAll(this.bullets);
         return bullets;
     }
 
+    /**
+     * Put the given bullet on this ship, when the ship is restored from a snapshot. The total mass of the ship
+     * is restored separately.
+     */
+    void loadBullet(Bullet bullet){
+        this.bullets.add(bullet);
+    }
+
     /**
      * Removes the given bullet from this ship.
      *
@@ -460,8 +479,9 @@ public class Ship extends Entity{
             if (bullet.hasBeenOutOfShip() && bullet.getSource() == this) {
                 this.bullets.add(bullet);
                 this.totalMass = this.totalMass + bullet.getMassOfEntity();
+                refreshStoredState();
                 bullet.setPosition(this.getPosition());
-                bullet.setVelocity(this.velocity);
+                bullet.setVelocity(this.getVelocity());
                 bullet.switchBeenOutOfShip(false);
                 if (bullet.getWorld() != null) {
                     bullet.getWorld().removeEntity(bullet);
@@ -537,12 +557,17 @@ public class Ship extends Entity{
      *
      * @post    The ships velocity is equal to 250 km/s in the direction the ship is heading.
      *          | bullet.getVelocity.vectorLength == 250
+     *
+     * @post    The number of bullets fired by the ship is increased by one.
+     *          | new.getNbShotsFired() == this.getNbShotsFired() + 1
      */
     public void fire() {
         if(this.getWorld() != null && this.getBullets().size() > 0) {
             Bullet bullet = this.getRandomBulletOnShip();
             this.bullets.remove(bullet);
             this.totalMass -= bullet.getMassOfEntity();
+            refreshStoredState();
+            this.nbShotsFired++;
 
             bullet.switchBeenOutOfShip(false);
 
@@ -578,6 +603,26 @@ public class Ship extends Entity{
 
     }
 
+    /**
+     * Variable registering the number of bullets this ship has fired.
+     */
+    private int nbShotsFired = 0;
+
+    /**
+     * Returns the number of bullets this ship has fired.
+     */
+    @Basic
+    public int getNbShotsFired(){
+        return this.nbShotsFired;
+    }
+
+    /**
+     * Set the number of bullets this ship has fired, when the ship is restored from a snapshot.
+     */
+    void setNbShotsFired(int nbShotsFired){
+        this.nbShotsFired = nbShotsFired;
+    }
+
     /**
      * A method which teleports the ship to a valid location in its world. The location is chosen at random.
      * If the ship would overlap with another entity when placed at the new location, the ship is terminated.
@@ -589,8 +634,10 @@ public class Ship extends Entity{
         thisWorld.removeEntity(this);
         double xRange = thisWorld.getWidth() - 2 * getRadius();
         double yRange = thisWorld.getHeight() - 2 * getRadius();
-        Vector newPos = new Vector(getRadius() + Math.random() * xRange, getRadius() + Math.random() * yRange);
+        Random random = thisWorld.getRandom();
+        Vector newPos = new Vector(getRadius() + random.nextDouble() * xRange, getRadius() + random.nextDouble() * yRange);
         setPosition(newPos);
+        thisWorld.bringAllUpToDate(); // The new location is checked against the current positions of all entities.
         if (this.noOverlapsInNewWorld(thisWorld)){
             thisWorld.addEntity(this);
         }
@@ -633,7 +680,6 @@ public class Ship extends Entity{
         if(getProgram() == null){
             return new ArrayList<>();
         }
-        System.out.println("executing");
         List<Object> printedList = getProgram().execute(dt);
         if (getProgram().isExecuted()){
             List<Object> printedObjectList = new ArrayList<>(printedList);
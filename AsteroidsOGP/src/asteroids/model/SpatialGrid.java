@@ -0,0 +1,558 @@
+package asteroids.model;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of uniform grids indexing the entities of a world on the position of their centres.
+ * The plane is divided in square cells of a fixed size and every entity is registered in the cell
+ * that contains its centre. Only occupied cells are stored.
+ *
+ * @invar   Each entity in the grid is registered in exactly one cell.
+ *          | for each entity in cellOfEntity.keySet():
+ *          |   cells.get(cellOfEntity.get(entity)).contains(entity)
+ *
+ * @invar   The cell size is strictly positive and finite.
+ *          | isValidCellSize(getCellSize())
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class SpatialGrid {
+
+    /**
+     * Initializer for a new spatial grid.
+     *
+     * @param   cellSize
+     *          The length of the sides of the cells of the new grid.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the given cell size is not valid.
+     *          | !isValidCellSize(cellSize)
+     */
+    public SpatialGrid(double cellSize) throws IllegalArgumentException {
+        if (!isValidCellSize(cellSize))
+            throw new IllegalArgumentException("Not a valid cell size!");
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Returns true if and only if the given cell size is strictly positive and finite.
+     *
+     * @see implementation
+     */
+    public static boolean isValidCellSize(double cellSize){
+        return cellSize > 0 && !Double.isInfinite(cellSize);
+    }
+
+    /**
+     * Variable registering the length of the sides of the cells of this grid.
+     */
+    private final double cellSize;
+
+    /**
+     * Returns the length of the sides of the cells of this grid.
+     */
+    @Basic @Immutable
+    public double getCellSize(){
+        return this.cellSize;
+    }
+
+    /**
+     * Map registering the entities of every occupied cell, with the key of the cell as a key.
+     */
+    private final Map<Long, List<Entity>> cells = new HashMap<>();
+
+    /**
+     * Map registering the key of the cell in which each entity is registered.
+     */
+    private final Map<Entity, Long> cellOfEntity = new HashMap<>();
+
+    /**
+     * Returns the number of entities in this grid.
+     *
+     * @see implementation
+     */
+    public int size(){
+        return cellOfEntity.size();
+    }
+
+    /**
+     * Returns true if and only if the given entity is registered in this grid.
+     *
+     * @see implementation
+     */
+    public boolean contains(Entity entity){
+        return cellOfEntity.containsKey(entity);
+    }
+
+    /**
+     * Register the given entity in the cell that contains its centre.
+     *
+     * @param   entity
+     *          The entity to register.
+     *
+     * @post    ...
+     *          | new.contains(entity)
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the entity is null or already registered in this grid.
+     *          | entity == null || contains(entity)
+     */
+    public void add(Entity entity) throws IllegalArgumentException {
+        if (entity == null)
+            throw new IllegalArgumentException("Not an existing entity!");
+        if (contains(entity))
+            throw new IllegalArgumentException("Entity already in this grid.");
+        long key = getCellKey(entity.getPositionX(), entity.getPositionY());
+        cellOfEntity.put(entity, key);
+        addToCell(key, entity);
+        registerRadius(entity);
+    }
+
+    /**
+     * Remove the given entity from this grid. Nothing happens if the entity is not registered.
+     *
+     * @post    ...
+     *          | !new.contains(entity)
+     *
+     * @see implementation
+     */
+    public void remove(Entity entity){
+        Long key = cellOfEntity.remove(entity);
+        if (key != null)
+            removeFromCell(key, entity);
+    }
+
+    /**
+     * Move the given entity to the cell that contains its current centre.
+     * Nothing happens if the entity is not registered in this grid.
+     *
+     * @see implementation
+     */
+    public void update(Entity entity){
+        Long oldKey = cellOfEntity.get(entity);
+        if (oldKey == null)
+            return;
+        registerRadius(entity);
+        long newKey = getCellKey(entity.getPositionX(), entity.getPositionY());
+        if (newKey != oldKey) {
+            removeFromCell(oldKey, entity);
+            cellOfEntity.put(entity, newKey);
+            addToCell(newKey, entity);
+        }
+    }
+
+    /**
+     * Remove all entities from this grid.
+     *
+     * @post    ...
+     *          | new.size() == 0
+     */
+    public void clear(){
+        cells.clear();
+        cellOfEntity.clear();
+        maximumRadius = 0;
+    }
+
+    /**
+     * Variable registering an upper bound on the radius of the entities in this grid. The bound is raised whenever
+     * an entity with a larger radius is added or updated, and only lowered when the grid is cleared.
+     */
+    private double maximumRadius = 0;
+
+    /**
+     * Returns an upper bound on the radius of the entities in this grid.
+     */
+    @Basic
+    public double getMaximumRadius(){
+        return this.maximumRadius;
+    }
+
+    private void registerRadius(Entity entity){
+        if (entity.getRadius() > maximumRadius)
+            maximumRadius = entity.getRadius();
+    }
+
+    /**
+     * Add all entities whose centre lies in a cell that overlaps with the given rectangle to the given collection.
+     * The result is a superset of the entities whose centre lies in the rectangle.
+     *
+     * @param   minX
+     *          The lower bound of the rectangle along the x-axis.
+     * @param   minY
+     *          The lower bound of the rectangle along the y-axis.
+     * @param   maxX
+     *          The upper bound of the rectangle along the x-axis.
+     * @param   maxY
+     *          The upper bound of the rectangle along the y-axis.
+     * @param   result
+     *          The collection to which the candidates are added.
+     *
+     * @see implementation
+     */
+    public void collectCandidates(double minX, double minY, double maxX, double maxY, Collection<Entity> result){
+        int minCellX = getCellCoordinate(minX);
+        int minCellY = getCellCoordinate(minY);
+        int maxCellX = getCellCoordinate(maxX);
+        int maxCellY = getCellCoordinate(maxY);
+        double nbCellsInRectangle = ((double) maxCellX - minCellX + 1) * ((double) maxCellY - minCellY + 1);
+
+        if (nbCellsInRectangle > cells.size()) { // Cheaper to visit the occupied cells.
+            for (Map.Entry<Long, List<Entity>> cell : cells.entrySet()) {
+                int cellX = (int) (cell.getKey() >> 32);
+                int cellY = (int) (long) cell.getKey();
+                if (minCellX <= cellX && cellX <= maxCellX && minCellY <= cellY && cellY <= maxCellY)
+                    result.addAll(cell.getValue());
+            }
+        }
+        else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                    List<Entity> cell = cells.get(getCellKey(cellX, cellY));
+                    if (cell != null)
+                        result.addAll(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an entity whose centre lies exactly at the given point, or null if there is no such entity.
+     *
+     * @param   x
+     *          The x-coordinate of the point.
+     * @param   y
+     *          The y-coordinate of the point.
+     *
+     * @see implementation
+     */
+    public Entity getEntityAt(double x, double y){
+        if (Double.isNaN(x) || Double.isNaN(y) || Double.isInfinite(x) || Double.isInfinite(y))
+            return null;
+        List<Entity> cell = cells.get(getCellKey(x, y));
+        if (cell == null)
+            return null;
+        for (Entity entity : cell) {
+            if (entity.getPositionX() == x && entity.getPositionY() == y)
+                return entity;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the entity whose centre lies closest to the given point, if that distance is at most the given
+     * tolerance, or null otherwise.
+     *
+     * @param   x
+     *          The x-coordinate of the point.
+     * @param   y
+     *          The y-coordinate of the point.
+     * @param   tolerance
+     *          The largest distance between the point and the centre of the returned entity.
+     *
+     * @see implementation
+     */
+    public Entity getEntityNear(double x, double y, double tolerance){
+        if (!(tolerance >= 0) || Double.isNaN(x) || Double.isNaN(y))
+            return null;
+        Entity closest = null;
+        double closestDistanceSquared = tolerance * tolerance;
+        int minCellX = getCellCoordinate(x - tolerance);
+        int minCellY = getCellCoordinate(y - tolerance);
+        int maxCellX = getCellCoordinate(x + tolerance);
+        int maxCellY = getCellCoordinate(y + tolerance);
+        if (((double) maxCellX - minCellX + 1) * ((double) maxCellY - minCellY + 1) > cells.size()) {
+            for (Map.Entry<Long, List<Entity>> cell : cells.entrySet()) {
+                int cellX = (int) (cell.getKey() >> 32);
+                int cellY = (int) (long) cell.getKey();
+                if (minCellX <= cellX && cellX <= maxCellX && minCellY <= cellY && cellY <= maxCellY) {
+                    for (Entity entity : cell.getValue()) {
+                        double distanceSquared = getDistanceSquared(entity, x, y);
+                        if (distanceSquared <= closestDistanceSquared) {
+                            closest = entity;
+                            closestDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+            }
+        }
+        else {
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+                for (int cellY = minCellY; cellY <= maxCellY; cellY++) {
+                    List<Entity> cell = cells.get(getCellKey(cellX, cellY));
+                    if (cell == null)
+                        continue;
+                    for (Entity entity : cell) {
+                        double distanceSquared = getDistanceSquared(entity, x, y);
+                        if (distanceSquared <= closestDistanceSquared) {
+                            closest = entity;
+                            closestDistanceSquared = distanceSquared;
+                        }
+                    }
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Add all entities whose centre lies in the given rectangle, bounds included, to the given collection.
+     *
+     * @param   minX
+     *          The lower bound of the rectangle along the x-axis.
+     * @param   minY
+     *          The lower bound of the rectangle along the y-axis.
+     * @param   maxX
+     *          The upper bound of the rectangle along the x-axis.
+     * @param   maxY
+     *          The upper bound of the rectangle along the y-axis.
+     * @param   result
+     *          The collection to which the entities are added.
+     *
+     * @see implementation
+     */
+    public void collectInRectangle(double minX, double minY, double maxX, double maxY, Collection<Entity> result){
+        if (!(minX <= maxX && minY <= maxY))
+            return;
+        List<Entity> candidates = new ArrayList<>();
+        collectCandidates(minX, minY, maxX, maxY, candidates);
+        for (Entity entity : candidates) {
+            double x = entity.getPositionX();
+            double y = entity.getPositionY();
+            if (minX <= x && x <= maxX && minY <= y && y <= maxY)
+                result.add(entity);
+        }
+    }
+
+    /**
+     * Add all entities whose centre lies in the given circle, boundary included, to the given collection.
+     *
+     * @param   x
+     *          The x-coordinate of the centre of the circle.
+     * @param   y
+     *          The y-coordinate of the centre of the circle.
+     * @param   radius
+     *          The radius of the circle.
+     * @param   result
+     *          The collection to which the entities are added.
+     *
+     * @see implementation
+     */
+    public void collectInCircle(double x, double y, double radius, Collection<Entity> result){
+        if (!(radius >= 0))
+            return;
+        List<Entity> candidates = new ArrayList<>();
+        collectCandidates(x - radius, y - radius, x + radius, y + radius, candidates);
+        double radiusSquared = radius * radius;
+        for (Entity entity : candidates) {
+            if (getDistanceSquared(entity, x, y) <= radiusSquared)
+                result.add(entity);
+        }
+    }
+
+    /**
+     * Add the k entities of the given kind nearest to the given point to the given collection, nearest first.
+     * If the distance is measured to the boundary, the radius of an entity is subtracted from the distance between
+     * the point and its centre, as in Entity.getDistanceBetween.
+     *
+     * The cells are visited in rings of increasing distance around the cell containing the point. Every entity
+     * in the ring at distance r lies at least (r - 1) * getCellSize() - getMaximumRadius() away from the point, so
+     * the search stops as soon as that bound exceeds the distance of the k-th entity found. Once a ring holds more
+     * cells than there are occupied cells, the remaining occupied cells are visited directly, skipping every cell
+     * that lies too far away.
+     *
+     * @param   x
+     *          The x-coordinate of the point.
+     * @param   y
+     *          The y-coordinate of the point.
+     * @param   kind
+     *          The class of the entities to consider, or null to consider all entities.
+     * @param   excluded
+     *          An entity that is not considered, or null.
+     * @param   toBoundary
+     *          True if the distance is measured to the boundary of the entities, false if it is measured to
+     *          their centre.
+     * @param   k
+     *          The number of entities to find.
+     * @param   result
+     *          The collection to which the entities are added.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if k is not strictly positive.
+     *          | k <= 0
+     */
+    public void collectNearest(double x, double y, Class<?> kind, Entity excluded, boolean toBoundary, int k,
+                               Collection<Entity> result) throws IllegalArgumentException {
+        NearestNeighbours nearest = new NearestNeighbours(k);
+        findNearest(x, y, kind, excluded, toBoundary, nearest);
+        nearest.addTo(result);
+    }
+
+    /**
+     * Returns the entity of the given kind nearest to the given point, or null if there is no such entity.
+     *
+     * @see implementation
+     */
+    public Entity getNearest(double x, double y, Class<?> kind, Entity excluded, boolean toBoundary){
+        NearestNeighbours nearest = new NearestNeighbours(1);
+        findNearest(x, y, kind, excluded, toBoundary, nearest);
+        return nearest.getNearest();
+    }
+
+    /**
+     * Offer the entities of the given kind nearest to the given point to the given accumulator.
+     *
+     * @see collectNearest
+     */
+    void findNearest(double x, double y, Class<?> kind, Entity excluded, boolean toBoundary,
+                     NearestNeighbours nearest){
+        if (Double.isNaN(x) || Double.isNaN(y) || cells.isEmpty())
+            return;
+        int centreX = getCellCoordinate(x);
+        int centreY = getCellCoordinate(y);
+        double slack = toBoundary ? maximumRadius : 0;
+
+        for (long ring = 0; ; ring++) {
+            double lowerBound = ring == 0 ? Double.NEGATIVE_INFINITY : (ring - 1) * getCellSize() - slack;
+            if (nearest.isFull() && lowerBound >= nearest.getBound())
+                return;
+
+            if ((ring == 0 ? 1 : 8 * ring) > cells.size()) { // Cheaper to visit the remaining occupied cells.
+                for (Map.Entry<Long, List<Entity>> cell : cells.entrySet()) {
+                    int cellX = (int) (cell.getKey() >> 32);
+                    int cellY = (int) (long) cell.getKey();
+                    long ringOfCell = Math.max(Math.abs((long) cellX - centreX), Math.abs((long) cellY - centreY));
+                    if (ringOfCell < ring)
+                        continue;
+                    if (nearest.isFull() && getDistanceToCell(x, y, cellX, cellY) - slack >= nearest.getBound())
+                        continue;
+                    offerAll(cell.getValue(), x, y, kind, excluded, toBoundary, nearest);
+                }
+                return;
+            }
+
+            for (long dx = -ring; dx <= ring; dx++) {
+                offerCell(centreX + dx, centreY - ring, x, y, kind, excluded, toBoundary, nearest);
+                if (ring != 0)
+                    offerCell(centreX + dx, centreY + ring, x, y, kind, excluded, toBoundary, nearest);
+            }
+            for (long dy = -ring + 1; dy <= ring - 1; dy++) {
+                offerCell(centreX - ring, centreY + dy, x, y, kind, excluded, toBoundary, nearest);
+                offerCell(centreX + ring, centreY + dy, x, y, kind, excluded, toBoundary, nearest);
+            }
+        }
+    }
+
+    /**
+     * Offer the entities of the cell with the given coordinates to the given accumulator. Nothing happens if
+     * the coordinates lie beyond the range of integers.
+     */
+    private void offerCell(long cellX, long cellY, double x, double y, Class<?> kind, Entity excluded,
+                           boolean toBoundary, NearestNeighbours nearest){
+        if (cellX < Integer.MIN_VALUE || cellX > Integer.MAX_VALUE || cellY < Integer.MIN_VALUE
+                || cellY > Integer.MAX_VALUE)
+            return;
+        List<Entity> cell = cells.get(getCellKey((int) cellX, (int) cellY));
+        if (cell != null)
+            offerAll(cell, x, y, kind, excluded, toBoundary, nearest);
+    }
+
+    /**
+     * Offer the given entities of the given kind, except the excluded entity, to the given accumulator.
+     */
+    static void offerAll(Collection<? extends Entity> entities, double x, double y, Class<?> kind,
+                         Entity excluded, boolean toBoundary, NearestNeighbours nearest){
+        for (Entity entity : entities) {
+            if (entity == excluded || (kind != null && !kind.isInstance(entity)))
+                continue;
+            double distance = Math.sqrt(getDistanceSquared(entity, x, y));
+            if (toBoundary)
+                distance -= entity.getRadius();
+            nearest.offer(entity, distance);
+        }
+    }
+
+    /**
+     * Returns the distance between the given point and the cell with the given coordinates.
+     * The outermost cells are unbounded, because they contain all positions beyond the range of integers.
+     *
+     * @see implementation
+     */
+    private double getDistanceToCell(double x, double y, int cellX, int cellY){
+        double minX = cellX == Integer.MIN_VALUE ? Double.NEGATIVE_INFINITY : cellX * getCellSize();
+        double maxX = cellX == Integer.MAX_VALUE ? Double.POSITIVE_INFINITY : (cellX + 1.0) * getCellSize();
+        double minY = cellY == Integer.MIN_VALUE ? Double.NEGATIVE_INFINITY : cellY * getCellSize();
+        double maxY = cellY == Integer.MAX_VALUE ? Double.POSITIVE_INFINITY : (cellY + 1.0) * getCellSize();
+        double dx = Math.max(0, Math.max(minX - x, x - maxX));
+        double dy = Math.max(0, Math.max(minY - y, y - maxY));
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns the square of the distance between the centre of the given entity and the given point.
+     *
+     * @see implementation
+     */
+    private static double getDistanceSquared(Entity entity, double x, double y){
+        double dx = entity.getPositionX() - x;
+        double dy = entity.getPositionY() - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the coordinate of the cell containing the given value along one axis.
+     * Coordinates beyond the range of integers are clamped, which merges the outermost cells.
+     *
+     * @see implementation
+     */
+    private int getCellCoordinate(double value){
+        double coordinate = Math.floor(value / getCellSize());
+        if (coordinate >= Integer.MAX_VALUE || Double.isNaN(coordinate))
+            return Integer.MAX_VALUE;
+        if (coordinate <= Integer.MIN_VALUE)
+            return Integer.MIN_VALUE;
+        return (int) coordinate;
+    }
+
+    /**
+     * Returns the key of the cell containing the given point.
+     *
+     * @see implementation
+     */
+    private long getCellKey(double x, double y){
+        return getCellKey(getCellCoordinate(x), getCellCoordinate(y));
+    }
+
+    /**
+     * Returns the key of the cell with the given coordinates.
+     *
+     * @see implementation
+     */
+    private static long getCellKey(int cellX, int cellY){
+        return ((long) cellX << 32) | (cellY & 0xFFFFFFFFL);
+    }
+
+    private void addToCell(long key, Entity entity){
+        List<Entity> cell = cells.get(key);
+        if (cell == null) {
+            cell = new ArrayList<>(4);
+            cells.put(key, cell);
+        }
+        cell.add(entity);
+    }
+
+    private void removeFromCell(long key, Entity entity){
+        List<Entity> cell = cells.get(key);
+        if (cell == null)
+            return;
+        cell.remove(entity);
+        if (cell.isEmpty())
+            cells.remove(key);
+    }
+}
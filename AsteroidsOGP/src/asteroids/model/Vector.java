@@ -86,6 +86,15 @@ public class Vector {
         return this.getX() * other.getX() + this.getY() * other.getY();
     }
 
+    /**
+     * Returns the scalar product of the vectors with the given components.
+     *
+     * @return  result == new Vector(x1, y1).scalarProduct(new Vector(x2, y2))
+     */
+    public static double scalarProduct(double x1, double y1, double x2, double y2){
+        return x1 * x2 + y1 * y2;
+    }
+
     /**
      * Returns the square of the length of the vector.
      *
@@ -125,8 +134,11 @@ public class Vector {
      * |     return this
      */
     public Vector normalize() {
-        if(this.vectorLengthSquared() > 0)
-            return new Vector(this.getX() / this.vectorLength(), this.getY() / this.vectorLength());
+        double lengthSquared = this.vectorLengthSquared();
+        if(lengthSquared > 0) {
+            double length = Math.sqrt(lengthSquared);
+            return new Vector(this.getX() / length, this.getY() / length);
+        }
         else
             return this;
     }
@@ -33,6 +33,28 @@ public class World {
      * @see implementation
      */
     public World(double width, double height){
+        this(width, height, false);
+    }
+
+    /**
+     * Initializer for a World that keeps the position and velocity of its entities in an entity store,
+     * if so requested.
+     *
+     * @param   width
+     *          The new width of the newly created world.
+     *
+     * @param   height
+     *          The new width of the newly created world.
+     *
+     * @param   useEntityStore
+     *          Whether or not the state of the entities of the new world is kept in an entity store.
+     *
+     * @post    ...
+     *          | new.hasEntityStore() == useEntityStore
+     *
+     * @see implementation
+     */
+    public World(double width, double height, boolean useEntityStore){
         if (width < getLowerBound())
             this.width = getLowerBound();
         else if (width > getUpperBound() || Double.isNaN(width))
@@ -47,6 +69,7 @@ public class World {
         else
             this.height = height;
         this.worldSize = new double[]{this.getWidth(), this.getHeight()};
+        this.entityStore = useEntityStore ? new EntityStore() : null;
     }
 
     /**
@@ -121,7 +144,8 @@ public class World {
     }
 
     /**
-     * A HashSet containing all entities that are currently present in this world.
+     * A HashSet containing all entities that are currently present in this world, in the order in which they
+     * were added, so a world evolves in the same way every time the same inputs are applied to it.
      *
      * @invar   Each entity in the HashSet is part of this world.
      *          | for each entity in allEntities:
@@ -135,28 +159,114 @@ public class World {
      * @invar   The referenced set is effective.
      *          | allEntities != null
      */
-    private HashSet<Entity> allEntities = new HashSet<>();
+    private HashSet<Entity> allEntities = new LinkedHashSet<>();
 
     /**
-     * Variable registering all entities in the world as a HashMap, with the entity's position as a key.
+     * Constant registering the length of the sides of the cells of the spatial grid of a world.
+     */
+    private final static double SPATIAL_CELL_SIZE = 100;
+
+    /**
+     * Variable registering the uniform grid in which all entities of this world are indexed on their position.
+     * The grid is updated whenever an entity of this world moves, and answers the point and range queries
+     * on this world.
      *
-     * @invar   Each entity in the HashMap is part of this world.
-     *          | for each entity in entityPositionMap:
-     *          |    entity.getWorld == this
+     * @invar   The grid contains exactly the entities of this world.
+     *          | for each entity in allEntities:
+     *          |   spatialGrid.contains(entity)
+     */
+    private final SpatialGrid spatialGrid = new SpatialGrid(SPATIAL_CELL_SIZE);
+
+    /**
+     * Return the spatial grid indexing the entities of this world.
+     */
+    @Basic
+    SpatialGrid getSpatialGrid(){
+        return this.spatialGrid;
+    }
+
+    /**
+     * Variable registering the epoch of this world. The epoch is raised whenever an entity is added to or removed
+     * from this world, whenever an entity of this world moves or changes, and whenever collisions are resolved,
+     * so results computed from the state of this world are valid as long as the epoch stays the same.
+     */
+    private long epoch = 0;
+
+    /**
+     * Return the epoch of this world.
+     */
+    @Basic
+    public long getEpoch(){
+        return this.epoch;
+    }
+
+    /**
+     * Raise the epoch of this world.
      *
-     * @invar   The position of each entity in the world is also present in the HashMap as its key.
-     *          | for each entity in entityPositionMap:
-     *          |   entityPositionMap.containsKey(entity)
+     * @post    ...
+     *          | new.getEpoch() == this.getEpoch() + 1
+     */
+    private void advanceEpoch(){
+        this.epoch++;
+        this.exportEpoch++;
+    }
+
+    /**
+     * Variable registering the export epoch of this world. The export epoch is raised whenever the epoch of this
+     * world is raised, and also whenever a ship of this world turns. A heading changes no query result, so turning
+     * leaves the epoch alone, but it does change the state exported by EntityExport.
+     */
+    private long exportEpoch = 0;
+
+    /**
+     * Return the export epoch of this world.
+     */
+    @Basic
+    public long getExportEpoch(){
+        return this.exportEpoch;
+    }
+
+    /**
+     * Variable registering the cache remembering the results of the queries issued on this world by ship programs.
+     */
+    private final QueryCache queryCache = new QueryCache(this);
+
+    /**
+     * Return the cache remembering the results of the queries issued on this world by ship programs.
+     */
+    @Basic
+    public QueryCache getQueryCache(){
+        return this.queryCache;
+    }
+
+    /**
+     * Variable registering the entity store in which the position and velocity of the entities of this world
+     * are kept, or null if the entities keep them themselves.
      *
-     * @invar   Each entity in the referenced set are effective and not yet terminated.
-     *          |for each entity in entityPositionMap:
-     *          |   ( (entity != null) &&
-     *          |     (! entity.checkTermination()) )
+     * @invar   The store contains exactly the entities of this world.
+     *          | if (entityStore != null) then
+     *          |   for each entity in allEntities:
+     *          |     entity.getEntityStore() == entityStore
+     */
+    private final EntityStore entityStore;
+
+    /**
+     * Return the entity store of this world.
+     */
+    @Basic
+    EntityStore getEntityStore(){
+        return this.entityStore;
+    }
+
+    /**
+     * Returns true if and only if the position and velocity of the entities of this world are kept in an
+     * entity store.
      *
-     * @invar   The referenced set is effective.
-     *          | allEntities != null
+     * @see implementation
      */
-    public HashMap<Vector, Entity> entityPositionMap = new HashMap<>();
+    public boolean hasEntityStore(){
+        return this.entityStore != null;
+    }
 
     /**
      * Variable registering the lower bound of the values of width and height.
@@ -174,7 +284,7 @@ public class World {
     /**
      * Variable registering the upper bound of the values of width and height.
      */
-    private static double upperBound = Double.MAX_VALUE;
+    private final static double upperBound = Double.MAX_VALUE;
 
     /**
      * Return the upper bound of the size of worlds.
@@ -184,73 +294,161 @@ public class World {
         return upperBound;
     }
 
+    /**
+     * Variable registering the random generator of this world.
+     * Every world has its own generator, so worlds evolving in different threads share no state and a world
+     * with a given seed always makes the same random choices. The state of the generator can be saved and restored.
+     */
+    private final WorldRandom random = new WorldRandom();
+
+    /**
+     * Return the random generator used for the random choices made in this world, such as the location a ship
+     * is teleported to and the directions in which the children of a planetoid fly off.
+     */
+    @Basic
+    public Random getRandom(){
+        return this.random;
+    }
+
+    /**
+     * Set the seed of the random generator of this world.
+     *
+     * @param   seed
+     *          The new seed.
+     *
+     * @effect  ...
+     *          | getRandom().setSeed(seed)
+     */
+    public void setSeed(long seed){
+        this.random.setSeed(seed);
+    }
+
+    /**
+     * Return the state of the random generator of this world.
+     */
+    long getRandomState(){
+        return this.random.getState();
+    }
+
+    /**
+     * Set the state of the random generator of this world to a state returned by getRandomState.
+     */
+    void setRandomState(long state){
+        this.random.setState(state);
+    }
+
     /**
      * Return a set with all entities in this world.
      * @see implementation
      */
     public Set<Entity> getAllEntities() {
-        Set<Entity> entitiesSet = new HashSet<>(this.allEntities);
+        Set<Entity> entitiesSet = new LinkedHashSet<>(this.allEntities);
         return entitiesSet;
     }
     /**
-     * Return a set of all ships in this world.
+     * Sets registering the entities of each kind in this world, kept up to date by addEntity and removeEntity,
+     * and read-only views on them.
+     *
+     * @invar   Each set contains exactly the entities of its kind in this world.
+     *          | for each entity in allEntities:
+     *          |   ships.contains(entity) == (entity instanceof Ship) && ...
+     */
+    private final Set<Ship> ships = new LinkedHashSet<>();
+    private final Set<Bullet> bullets = new LinkedHashSet<>();
+    private final Set<Asteroid> asteroids = new LinkedHashSet<>();
+    private final Set<Planetoid> planetoids = new LinkedHashSet<>();
+    private final Set<Ship> shipsView = Collections.unmodifiableSet(ships);
+    private final Set<Bullet> bulletsView = Collections.unmodifiableSet(bullets);
+    private final Set<Asteroid> asteroidsView = Collections.unmodifiableSet(asteroids);
+    private final Set<Planetoid> planetoidsView = Collections.unmodifiableSet(planetoids);
+    private final Set<Entity> allEntitiesView = Collections.unmodifiableSet(allEntities);
+
+    /**
+     * Return a read-only view on the ships in this world. The view reflects later changes to this world,
+     * so it must be copied before ships are added to or removed from this world while iterating over it.
      * @see implementation
      */
     public Set<Ship> getAllShips() {
-        HashSet<Ship> shipSet = new HashSet<>();
-        for (Entity entity : this.getAllEntitiesOfType(Ship.class)){
-            shipSet.add((Ship)entity);
-        }
-        return shipSet;
+        return shipsView;
     }
+
     /**
-     * Return a set of all bullets in this world.
+     * Return a read-only view on the bullets in this world.
      * @see implementation
      */
     public Set<Bullet> getAllBullets() {
-        HashSet<Bullet> bulletSet = new HashSet<>();
-        for (Entity entity : this.getAllEntitiesOfType(Bullet.class)){
-            bulletSet.add((Bullet)entity);
-        }
-        return bulletSet;
+        return bulletsView;
     }
 
     /**
-     * Return a set of all asteroids in this world.
+     * Return a read-only view on the asteroids in this world.
      * @see implementation
      */
     public Set<Asteroid> getAllAsteroids() {
-        Set<Entity> allEntitiesOfType =  this.getAllEntitiesOfType(Asteroid.class);
-        Set<Asteroid> allAsteroids = new HashSet<>();
-        for (Entity entity : allEntitiesOfType)
-            allAsteroids.add((Asteroid)entity);
-        return allAsteroids;
+        return asteroidsView;
     }
 
     /**
-     * Return a set of all planetoids in this world.
+     * Return a read-only view on the planetoids in this world.
      * @see implementation
      */
     public Set<Planetoid> getAllPlanetoids(){
-        Set<Entity> allEntitiesOfType =  this.getAllEntitiesOfType(Planetoid.class);
-        Set<Planetoid> allAsteroids = new HashSet<>();
-        for (Entity entity : allEntitiesOfType)
-            allAsteroids.add((Planetoid)entity);
-        return allAsteroids;
+        return planetoidsView;
     }
 
     /**
-     * Return a set of all entities from a given subclass of Entity in this world.
+     * Return a read-only set of all entities from a given subclass of Entity in this world.
+     * For Entity, Ship, Bullet, Asteroid and Planetoid the set is a view on the registry of that kind;
+     * for other classes it is a new set. The views are read-only, so handing them out as sets of entities is safe.
      * @see implementation
      */
+    @SuppressWarnings("unchecked")
     public Set<Entity> getAllEntitiesOfType(Class c){
+        if (c == Entity.class)
+            return allEntitiesView;
+        if (c == Ship.class)
+            return (Set) shipsView;
+        if (c == Bullet.class)
+            return (Set) bulletsView;
+        if (c == Asteroid.class)
+            return (Set) asteroidsView;
+        if (c == Planetoid.class)
+            return (Set) planetoidsView;
         HashSet<Entity> allEntitiesFrom = new HashSet<>();
-        for (Entity entity : getAllEntities()){
+        for (Entity entity : allEntities){
             if(c.isInstance(entity)){
                 allEntitiesFrom.add(entity);
             }
         }
-        return allEntitiesFrom;
+        return Collections.unmodifiableSet(allEntitiesFrom);
+    }
+
+    /**
+     * Add the given entity to the registry of its kind.
+     */
+    private void register(Entity entity){
+        if (entity instanceof Ship)
+            ships.add((Ship) entity);
+        else if (entity instanceof Bullet)
+            bullets.add((Bullet) entity);
+        else if (entity instanceof Asteroid)
+            asteroids.add((Asteroid) entity);
+        else if (entity instanceof Planetoid)
+            planetoids.add((Planetoid) entity);
+    }
+
+    /**
+     * Remove the given entity from the registry of its kind.
+     */
+    private void unregister(Entity entity){
+        if (entity instanceof Ship)
+            ships.remove(entity);
+        else if (entity instanceof Bullet)
+            bullets.remove(entity);
+        else if (entity instanceof Asteroid)
+            asteroids.remove(entity);
+        else if (entity instanceof Planetoid)
+            planetoids.remove(entity);
     }
 
     /**
@@ -290,10 +488,9 @@ public class World {
         if (entity.getWorld() != null){
             entity.getWorld().removeEntity(entity);
         }
+        bringAllUpToDate(); // The new entity is checked against the current positions of all entities.
         if (entity.noOverlapsInNewWorld(this) && entity.fitsInBoundaries(this)) {
-            entity.setWorld(this);
-            entityPositionMap.put(entity.getPosition(),entity);
-            allEntities.add(entity);
+            insertEntity(entity);
         }
         else{
             if(entity instanceof Bullet && !((Bullet) entity).hasBeenOutOfShip()){
@@ -305,6 +502,35 @@ public class World {
 
     }
 
+    /**
+     * Add the given entity, restored from a snapshot, to this world without checking whether it fits in this world
+     * or overlaps with other entities, since it was part of a valid world when the snapshot was taken.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the entity is null or already in a world.
+     *          | entity == null || entity.getWorld() != null
+     */
+    void restoreEntity(Entity entity) throws IllegalArgumentException {
+        if (entity == null || entity.getWorld() != null)
+            throw new IllegalArgumentException("Entity can't be restored in this world.");
+        insertEntity(entity);
+    }
+
+    /**
+     * Put the given entity in this world and in the registries, the grid and the store of this world.
+     */
+    private void insertEntity(Entity entity){
+        advanceEpoch();
+        entity.setMovedUntil(step, time);
+        entity.setWorld(this);
+        entity.setChangeEpoch(exportEpoch);
+        allEntities.add(entity);
+        register(entity);
+        spatialGrid.add(entity);
+        if (entityStore != null)
+            entityStore.add(entity);
+    }
+
     /**
      * Remove an entity from this world.
      *
@@ -323,7 +549,7 @@ public class World {
      *
      * @throws  IllegalArgumentException
      *          Thrown if the entity is not in this world.
-     *          | !entityPositionMap.containsValue(entity) || (getAllEntities().contains(entity))
+     *          | !getAllEntities().contains(entity)
      *
      * @see implementation
      */
@@ -331,17 +557,15 @@ public class World {
         if (entity == null)
             throw new IllegalArgumentException("Not an existing entity!");
         else{
-            if (entityPositionMap.containsValue(entity)){
-                Vector keyPosition = entity.getPosition();
-                entityPositionMap.remove(keyPosition);
-            }
-
-            else{
-                throw new IllegalArgumentException("Entity not in this world!");
-            }
-
-            if (getAllEntities().contains(entity)){
+            if (allEntities.contains(entity)){
+                bringUpToDate(entity);
+                advanceEpoch();
+                logRemoval(entity);
                 allEntities.remove(entity);
+                unregister(entity);
+                spatialGrid.remove(entity);
+                if (entityStore != null)
+                    entityStore.remove(entity);
             }
             else{
                 throw new IllegalArgumentException("Entity not in this world!");
@@ -350,6 +574,56 @@ public class World {
         }
     }
 
+    /**
+     * The number of removals remembered by a world.
+     */
+    private final static int REMOVAL_LOG_SIZE = 1024;
+
+    /**
+     * Arrays registering the identifiers of the last removed entities and the export epochs at which they were
+     * removed, used as a ring buffer.
+     */
+    private final long[] removedIdentifiers = new long[REMOVAL_LOG_SIZE];
+    private final long[] removalEpochs = new long[REMOVAL_LOG_SIZE];
+    private long nbRemovals = 0;
+
+    /**
+     * Variable registering the export epoch of the most recent removal that is no longer remembered, or -1 if all
+     * removals are remembered.
+     */
+    private long lastForgottenRemoval = -1;
+
+    /**
+     * Remember that the given entity is removed at the current export epoch.
+     */
+    private void logRemoval(Entity entity){
+        int slot = (int) (nbRemovals % REMOVAL_LOG_SIZE);
+        if (nbRemovals >= REMOVAL_LOG_SIZE)
+            lastForgottenRemoval = removalEpochs[slot];
+        removedIdentifiers[slot] = entity.getIdentifier();
+        removalEpochs[slot] = exportEpoch;
+        nbRemovals++;
+    }
+
+    /**
+     * Return the identifiers of the entities removed from this world after the given export epoch, oldest first, or
+     * null if this world no longer remembers all of them.
+     *
+     * @see implementation
+     */
+    long[] getRemovedSince(long epoch){
+        if (epoch < lastForgottenRemoval)
+            return null;
+        int count = 0;
+        while (count < Math.min(nbRemovals, REMOVAL_LOG_SIZE)
+                && removalEpochs[(int) ((nbRemovals - 1 - count) % REMOVAL_LOG_SIZE)] > epoch)
+            count++;
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++)
+            result[i] = removedIdentifiers[(int) ((nbRemovals - count + i) % REMOVAL_LOG_SIZE)];
+        return result;
+    }
+
 
     /**
      * Get the entity at a given position
@@ -357,26 +631,183 @@ public class World {
      * @param position
      *        The vector position at which an entity might be located.
      *
+     * @return  An entity whose position equals the given position, or null if there is no such entity.
+     *          | result == null || result.getPosition().equals(position)
+     *
      * @see implementation
      */
     public Entity getEntityAt(Vector position){
-        return entityPositionMap.get(position); // returns null if no such key (total programming)
+        return spatialGrid.getEntityAt(position.getX(), position.getY()); // returns null if no such entity (total programming)
     }
 
     /**
-     * Updates the map that holds the positions of all entities as keys.
+     * Get the entity whose position lies closest to the given position, within the given tolerance.
+     *
+     * @param   position
+     *          The position to look around.
+     * @param   tolerance
+     *          The largest distance between the given position and the position of the returned entity.
+     *
+     * @return  The closest entity at a distance of at most the tolerance, or null if there is no such entity.
+     *          | result == null || distance(result.getPosition(), position) <= tolerance
+     *
      * @see implementation
      */
-    public void updatePositionMap() {
-        entityPositionMap.clear();
-        Set<Entity> allEntities = getAllEntities();
-        for (Entity entity : allEntities){
-            entityPositionMap.put(entity.getPosition(),entity);
+    public Entity getEntityNear(Vector position, double tolerance){
+        return spatialGrid.getEntityNear(position.getX(), position.getY(), tolerance);
+    }
+
+    /**
+     * Return the entities of this world whose position lies in the given rectangle, bounds included.
+     *
+     * @see implementation
+     */
+    public List<Entity> getEntitiesInRectangle(double minX, double minY, double maxX, double maxY){
+        List<Entity> result = new ArrayList<>();
+        spatialGrid.collectInRectangle(minX, minY, maxX, maxY, result);
+        return result;
+    }
+
+    /**
+     * Return the entities of this world whose position lies in the circle with the given centre and radius,
+     * boundary included.
+     *
+     * @see implementation
+     */
+    public List<Entity> getEntitiesInCircle(Vector centre, double radius){
+        List<Entity> result = new ArrayList<>();
+        spatialGrid.collectInCircle(centre.getX(), centre.getY(), radius, result);
+        return result;
+    }
+
+    /**
+     * Constant registering the number of entities of a kind below which nearest-entity queries scan the registry
+     * of that kind instead of searching the spatial grid.
+     */
+    private final static int NEAREST_SCAN_THRESHOLD = 32;
+
+    /**
+     * Return the entity of the given kind in this world that lies closest to the given entity, or null if there is
+     * no such entity. The distance is measured as in Entity.getDistanceBetween, and the given entity itself is
+     * never returned.
+     *
+     * @param   entity
+     *          The entity to look around.
+     * @param   kind
+     *          The class of the entities to consider.
+     *
+     * @return  An entity of the given kind, different from the given entity, such that no other entity of that
+     *          kind lies closer to the given entity.
+     *          | result == null || (kind.isInstance(result) && result != entity &&
+     *          |   for each other in getAllEntitiesOfType(kind):
+     *          |     other == entity || other.getDistanceBetween(entity) >= result.getDistanceBetween(entity))
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the entity or the kind is null.
+     *          | entity == null || kind == null
+     */
+    public Entity getNearestEntity(Entity entity, Class<? extends Entity> kind) throws IllegalArgumentException {
+        NearestNeighbours nearest = new NearestNeighbours(1);
+        findNearestEntities(entity, kind, nearest);
+        return nearest.getNearest();
+    }
+
+    /**
+     * Return the k entities of the given kind in this world that lie closest to the given entity, nearest first.
+     * The distance is measured as in Entity.getDistanceBetween, and the given entity itself is never returned.
+     *
+     * @param   entity
+     *          The entity to look around.
+     * @param   kind
+     *          The class of the entities to consider.
+     * @param   k
+     *          The largest number of entities to return.
+     *
+     * @return  At most k entities of the given kind, different from the given entity, sorted on their distance
+     *          to the given entity. No other entity of that kind lies closer than the last of them.
+     *          | result.size() == min(k, number of other entities of the given kind)
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the entity or the kind is null, or if k is not strictly positive.
+     *          | entity == null || kind == null || k <= 0
+     */
+    public List<Entity> getNearestEntities(Entity entity, Class<? extends Entity> kind, int k)
+            throws IllegalArgumentException {
+        NearestNeighbours nearest = new NearestNeighbours(k);
+        findNearestEntities(entity, kind, nearest);
+        List<Entity> result = new ArrayList<>(k);
+        nearest.addTo(result);
+        return result;
+    }
+
+    /**
+     * Offer the entities of the given kind that lie closest to the given entity to the given accumulator.
+     * Kinds with few entities in this world are scanned from their registry, others are searched in the
+     * spatial grid.
+     *
+     * @see implementation
+     */
+    private void findNearestEntities(Entity entity, Class<? extends Entity> kind, NearestNeighbours nearest)
+            throws IllegalArgumentException {
+        if (entity == null || kind == null)
+            throw new IllegalArgumentException("Not an existing entity or kind!");
+        double x = entity.getPositionX();
+        double y = entity.getPositionY();
+
+        Collection<? extends Entity> registry = null;
+        Collection<? extends Entity> otherRegistry = null;
+        if (kind == Ship.class)
+            registry = ships;
+        else if (kind == Bullet.class)
+            registry = bullets;
+        else if (kind == Asteroid.class)
+            registry = asteroids;
+        else if (kind == Planetoid.class)
+            registry = planetoids;
+        else if (kind == MinorPlanet.class) {
+            registry = asteroids;
+            otherRegistry = planetoids;
         }
+
+        if (registry != null) {
+            int nbCandidates = registry.size() + (otherRegistry == null ? 0 : otherRegistry.size());
+            if (nbCandidates < NEAREST_SCAN_THRESHOLD) {
+                SpatialGrid.offerAll(registry, x, y, null, entity, true, nearest);
+                if (otherRegistry != null)
+                    SpatialGrid.offerAll(otherRegistry, x, y, null, entity, true, nearest);
+                return;
+            }
+        }
+        spatialGrid.findNearest(x, y, kind, entity, true, nearest);
+    }
+
+    /**
+     * Report that the position of the given entity of this world has changed, so the spatial grid of this world
+     * is updated and its epoch is raised.
+     *
+     * @see implementation
+     */
+    void reportMovedEntity(Entity entity){
+        advanceEpoch();
+        entity.setChangeEpoch(exportEpoch);
+        spatialGrid.update(entity);
+    }
+
+    /**
+     * Report that the heading of the given ship of this world has changed. Only the export epoch of this world
+     * is raised.
+     *
+     * @see implementation
+     */
+    void reportTurnedEntity(Entity entity){
+        this.exportEpoch++;
+        entity.setChangeEpoch(exportEpoch);
     }
 
     /**
      * Evolve this world for a given time difference.
+     * The collisions in this world are predicted by a collision scheduler. The world moves from one predicted
+     * collision to the next, resolving the collisions and executing the programs of its ships at each of them.
      *
      * @throws  IllegalArgumentException
      *          Thrown if the timeDifference is invalid
@@ -386,106 +817,296 @@ public class World {
      *        The amount of seconds the world should evolve.
      */
     public void evolve (double timeDifference, CollisionListener collisionListener) throws IllegalArgumentException {
-        if (timeDifference >= 0 || !(Double.isNaN(timeDifference))) {
-            Collision collision = new Collision(this);
-            if (timeDifference <= collision.getTimeToFirstCollision()) { //No collision in the given time.
-                moveAllEntities(timeDifference);
+        if (timeDifference < 0 || Double.isNaN(timeDifference))
+            throw new IllegalArgumentException();
+
+        this.evolutionStep = this.step;
+        this.time = 0;
+        this.upToDateTime = 0;
+        Collision collision = new Collision(this);
+        CollisionScheduler scheduler = new CollisionScheduler(this, timeDifference);
+        this.collisionScheduler = scheduler;
+        try {
+            double timeLeft = timeDifference;
+            while (true) {
+                double timeToNextCollision = scheduler.getTimeToNextEvent();
+                if (timeLeft <= timeToNextCollision) { //No collision in the time left.
+                    moveAllEntities(timeLeft);
+                    break;
+                }
+                moveAllEntities(timeToNextCollision);
+                scheduler.advanceToNextEvent();
 
-            } else {
-                double timeToFirstCollision = collision.getTimeToFirstCollision();
-                evolve(timeToFirstCollision, collisionListener);
+                resolveCollisions(scheduler.pollCurrentEvents(), scheduler, collision, collisionListener,
+                        timeDifference - timeLeft + timeToNextCollision);
+                // Programs may add or remove entities, so they are executed for a copy of the ships.
+                programShips.clear();
+                programShips.addAll(ships);
+                boolean programsLoaded = false;
+                for (Ship ship : programShips)
+                    programsLoaded |= ship.getProgram() != null;
+                if (programsLoaded) // Programs may look at any entity.
+                    bringAllUpToDate();
+                for (Ship ship : programShips)
+                    ship.executeProgram(timeLeft);
+                programShips.clear();
 
-                List<Entity> allEntities = new ArrayList<>();
-                allEntities.addAll(getAllEntities());
+                timeLeft -= timeToNextCollision;
+            }
+            bringAllUpToDate();
+            if (collisionListener != null)
+                deliverCollisions(collisionListener);
+        }
+        finally {
+            bringAllUpToDate();
+            this.collisionScheduler = null;
+            collisionEvents.clear();
+        }
+    }
 
-                for (int i = 0; i < allEntities.size(); i++) {
+    /**
+     * The number of collisions buffered by a world before they are delivered to its collision listener.
+     */
+    private final static int COLLISION_BUFFER_SIZE = 256;
 
-                    Entity currentEntity = allEntities.get(i);
-                    if(currentEntity instanceof Ship){
-                        ((Ship) currentEntity).executeProgram(timeDifference);
-                    }
+    /**
+     * Variable registering the collisions resolved during the evolution in progress that are not yet delivered to
+     * the collision listener. Collisions are delivered at the end of the evolution, so the cost of the listener does
+     * not slow down the resolution of collisions.
+     */
+    private final CollisionEvents collisionEvents = new CollisionEvents(COLLISION_BUFFER_SIZE);
 
-                    for (int k = i + 1; k < allEntities.size(); k++) { //Entity collision resolve
-                        Entity otherEntity = allEntities.get(k);
-                        if (currentEntity.apparentlyCollidesWithEntity(otherEntity) && !currentEntity.fliesApartFrom(otherEntity)) {
-                            collision.resolveEntityCollision(currentEntity, otherEntity);
-
-                            if (((currentEntity instanceof Ship && otherEntity instanceof Bullet
-                                    && ((Bullet) otherEntity).getSource() != currentEntity)||
-                                    (currentEntity instanceof Bullet && otherEntity instanceof Ship
-                                            && ((Bullet) currentEntity).getSource() != otherEntity)
-                                    || (currentEntity instanceof Bullet && otherEntity instanceof  Bullet)
-                                    ||(currentEntity instanceof MinorPlanet && otherEntity instanceof Bullet) ||
-                                    (currentEntity instanceof Bullet && otherEntity instanceof MinorPlanet))
-
-                                    && collisionListener != null)
-                            {
-                                Vector collisionPosition = currentEntity.getCollisionPosition(otherEntity);
-                                collisionListener.objectCollision(currentEntity, otherEntity, collisionPosition.getX(), collisionPosition.getY());
-                            }
-                        }
-                    }
+    /**
+     * Add a collision to the collisions to deliver to the given listener, delivering the buffered collisions first
+     * if the buffer is full.
+     *
+     * @see implementation
+     */
+    private void reportCollision(CollisionListener collisionListener, byte kind, Entity first, Entity second,
+                                 Vector position, double time){
+        if (collisionEvents.isFull()) {
+            bringAllUpToDate(); // The listener may look at any entity.
+            deliverCollisions(collisionListener);
+        }
+        collisionEvents.append(kind, first, second, position.getX(), position.getY(), time);
+    }
 
-                    if (currentEntity.apparentlyCollidesWithBoundary()) { //Boundary collision resolve
-                        collision.resolveBoundaryCollision(currentEntity);
-
-                        if (( currentEntity instanceof Bullet && ((Bullet) currentEntity).getNbOfBounces() < 3) && collisionListener != null) {
-                            Vector collisionPosition = currentEntity.getCollisionPositionWithBoundary();
-                            collisionListener.boundaryCollision(currentEntity, collisionPosition.getX(), collisionPosition.getY());
-                        }
-                        else if (currentEntity instanceof Ship && collisionListener != null){
-                            Vector collisionPosition = currentEntity.getCollisionPositionWithBoundary();
-                            collisionListener.boundaryCollision(currentEntity, collisionPosition.getX(), collisionPosition.getY());
-                        }
-                        else if (currentEntity instanceof MinorPlanet && collisionListener != null){
-                            Vector collisionPosition = currentEntity.getCollisionPositionWithBoundary();
-                            collisionListener.boundaryCollision(currentEntity, collisionPosition.getX(), collisionPosition.getY());
-                        }
+    /**
+     * Deliver the buffered collisions to the given listener, as a batch if it accepts batches.
+     *
+     * @see implementation
+     */
+    private void deliverCollisions(CollisionListener collisionListener){
+        if (collisionEvents.size() == 0)
+            return;
+        if (collisionListener instanceof CollisionBatchListener)
+            ((CollisionBatchListener) collisionListener).collisionsOccurred(collisionEvents);
+        else
+            collisionEvents.deliverTo(collisionListener);
+        collisionEvents.clear();
+    }
+
+    /**
+     * List used by evolve to hold the ships of which the programs are executed.
+     */
+    private final List<Ship> programShips = new ArrayList<>();
+
+    /**
+     * Variable registering the collision scheduler of the evolution in progress, or null if this world is not evolving.
+     */
+    private CollisionScheduler collisionScheduler = null;
+
+    /**
+     * Report that the velocity, the radius or the world of the given entity has changed.
+     *
+     * @param   entity
+     *          The entity that changed.
+     *
+     * @see implementation
+     */
+    void reportChangedEntity(Entity entity){
+        advanceEpoch();
+        entity.setChangeEpoch(exportEpoch);
+        if (collisionScheduler != null)
+            collisionScheduler.markChanged(entity);
+    }
+
+    /**
+     * Resolve all collisions of the given entities that happen at this moment, with other entities and with the
+     * boundaries of this world.
+     *
+     * @param   involvedEntities
+     *          The entities involved in the collisions predicted to happen at this moment.
+     * @param   scheduler
+     *          The scheduler predicting the collisions in this world.
+     * @param   collision
+     *          The collision resolving the collisions.
+     * @param   collisionListener
+     *          The listener notified of the collisions, or null.
+     * @param   time
+     *          The time since the start of the evolution at which the collisions happen.
+     */
+    private void resolveCollisions(Set<Entity> involvedEntities, CollisionScheduler scheduler, Collision collision,
+                                   CollisionListener collisionListener, double time){
+        advanceEpoch();
+        Set<Entity> resolvedEntities = new HashSet<>();
+        List<Entity> neighbours = new ArrayList<>();
+
+        for (Entity currentEntity : involvedEntities) {
+            if (currentEntity.getWorld() != this)
+                continue;
+            bringUpToDate(currentEntity);
+            resolvedEntities.add(currentEntity);
+
+            neighbours.clear();
+            scheduler.collectNeighbours(currentEntity, neighbours);
+            for (Entity otherEntity : neighbours) { //Entity collision resolve
+                if (resolvedEntities.contains(otherEntity) || currentEntity.getWorld() != this
+                        || otherEntity.getWorld() != this)
+                    continue;
+                if (currentEntity.apparentlyCollidesWithEntity(otherEntity) && !currentEntity.fliesApartFrom(otherEntity)) {
+                    collision.resolveEntityCollision(currentEntity, otherEntity);
+
+                    if (((currentEntity instanceof Ship && otherEntity instanceof Bullet
+                            && ((Bullet) otherEntity).getSource() != currentEntity)||
+                            (currentEntity instanceof Bullet && otherEntity instanceof Ship
+                                    && ((Bullet) currentEntity).getSource() != otherEntity)
+                            || (currentEntity instanceof Bullet && otherEntity instanceof  Bullet)
+                            ||(currentEntity instanceof MinorPlanet && otherEntity instanceof Bullet) ||
+                            (currentEntity instanceof Bullet && otherEntity instanceof MinorPlanet))
+
+                            && collisionListener != null)
+                    {
+                        reportCollision(collisionListener, CollisionEvents.OBJECT, currentEntity, otherEntity,
+                                currentEntity.getCollisionPosition(otherEntity), time);
                     }
                 }
-                evolve(timeDifference - timeToFirstCollision, collisionListener);
+            }
+
+            if (currentEntity.apparentlyCollidesWithBoundary()) { //Boundary collision resolve
+                collision.resolveBoundaryCollision(currentEntity);
+
+                if (( currentEntity instanceof Bullet && ((Bullet) currentEntity).getNbOfBounces() < 3) && collisionListener != null) {
+                    reportCollision(collisionListener, CollisionEvents.BOUNDARY, currentEntity, null,
+                            currentEntity.getCollisionPositionWithBoundary(), time);
+                }
+                else if (currentEntity instanceof Ship && collisionListener != null){
+                    reportCollision(collisionListener, CollisionEvents.BOUNDARY, currentEntity, null,
+                            currentEntity.getCollisionPositionWithBoundary(), time);
+                }
+                else if (currentEntity instanceof MinorPlanet && collisionListener != null){
+                    reportCollision(collisionListener, CollisionEvents.BOUNDARY, currentEntity, null,
+                            currentEntity.getCollisionPositionWithBoundary(), time);
+                }
             }
         }
-        else{
-            throw new IllegalArgumentException();
-        }
     }
 
     /**
-     * Move all entities in this world for a given timeDifference.
+     * Variable registering the number of steps by which the entities of this world have been moved since the world
+     * was created. Every collision handled by evolve ends a step.
+     */
+    private long step = 0;
+
+    /**
+     * Variable registering the step of this world at which the last evolution started.
+     */
+    private long evolutionStep = 0;
+
+    /**
+     * Variable registering the time by which the entities of this world have been moved since the last evolution
+     * started. Entities that have not moved during that evolution are at time zero, so the position of an entity
+     * does not depend on how long this world has existed.
+     */
+    private double time = 0;
+
+    /**
+     * Variables registering the step and the time of this world at which all its entities were last brought up to date.
+     */
+    private long upToDateStep = 0;
+    private double upToDateTime = 0;
+
+    /**
+     * Returns an upper bound on the time over which an entity of this world has not been moved yet.
+     * It is zero, except while this world evolves.
+     *
+     * @return  ...
+     *          | for each entity in getAllEntities():
+     *          |   result >= time - entity.getMovedTime()
+     */
+    double getMaximumLag(){
+        return this.time - this.upToDateTime;
+    }
+
+    /**
+     * List used by moveAllEntities to hold the entities it moves.
+     */
+    private final List<Entity> movingEntities = new ArrayList<>();
+
+    /**
+     * Move the entities in this world for a given timeDifference.
+     * Ships and planetoids are moved at once, because the thrust of a ship and the shrinking of a planetoid
+     * change their state while they move. Other entities move in a straight line until their velocity changes,
+     * so they are only moved when evolve, a change of their state or a query of this world touches them.
+     * A collision then costs time in the number of entities near it and of ships and planetoids, not in the number of
+     * entities of this world.
      *
      * @param timeDifference How much time the entities need to move for.
      */
     private void moveAllEntities(double timeDifference){
-        List<Entity> allEntities = new ArrayList<Entity>();
-        allEntities.addAll(getAllEntities());
-
-        Iterator<Entity> iteratorAllEntities = new Iterator<Entity>() {
-            private List<Entity> list = allEntities;
-
-            @Override
-            public boolean hasNext() {
-                return list.size() != 0;
-            }
+        advanceEpoch();
+        this.step++;
+        this.time += timeDifference;
+        List<Entity> eagerEntities = movingEntities;
+        eagerEntities.clear();
+        eagerEntities.addAll(ships);
+        eagerEntities.addAll(planetoids);
+        for (int i = 0; i < eagerEntities.size(); i++)
+            bringUpToDate(eagerEntities.get(i));
+        eagerEntities.clear();
+    }
 
-            @Override
-            public Entity next() {
-                Entity nextEntity = list.get(0);
-                list.remove(0);
-                return nextEntity;
-            }
-        };
+    /**
+     * Move the given entity of this world up to the current step and time of this world.
+     * Nothing happens if the entity is not in this world or already up to date.
+     *
+     * @param   entity
+     *          The entity to move.
+     *
+     * @see implementation
+     */
+    void bringUpToDate(Entity entity){
+        if (entity.getWorld() != this || entity.getMovedStep() == this.step)
+            return;
+        double movedTime = (entity.getMovedStep() <= this.evolutionStep) ? 0 : entity.getMovedTime();
+        double timeDifference = this.time - movedTime;
+        entity.setMovedUntil(this.step, this.time);
 
-        while (iteratorAllEntities.hasNext()) {
-            Entity entity = iteratorAllEntities.next();
+        boolean moving = timeDifference > 0 && (entity.getVelocityX() != 0 || entity.getVelocityY() != 0);
+        if (moving) { // Stationary entities keep their position, so they are not reported as moved.
             entity.move(timeDifference);
-            updatePositionMap();
-            if (entity instanceof Ship)
-                if (((Ship) entity).getThrusterState())
-                    ((Ship) entity).thrust(timeDifference);
-            if (entity instanceof Bullet && !((Bullet) entity).hasBeenOutOfShip())
-                ((Bullet) entity).switchBeenOutOfShip(true);
+            entity.setChangeEpoch(exportEpoch);
         }
+        spatialGrid.update(entity);
+        if (entity instanceof Ship)
+            if (((Ship) entity).getThrusterState())
+                ((Ship) entity).thrust(timeDifference);
+        if (entity instanceof Bullet && !((Bullet) entity).hasBeenOutOfShip())
+            ((Bullet) entity).switchBeenOutOfShip(true);
+    }
+
+    /**
+     * Move all entities of this world up to the current step and time of this world.
+     *
+     * @see implementation
+     */
+    void bringAllUpToDate(){
+        if (this.upToDateStep == this.step)
+            return;
+        for (Entity entity : new ArrayList<>(allEntities))
+            bringUpToDate(entity);
+        this.upToDateTime = this.time;
+        this.upToDateStep = this.step;
     }
 
     /**
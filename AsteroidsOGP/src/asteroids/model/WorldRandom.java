@@ -0,0 +1,55 @@
+package asteroids.model;
+
+import java.util.Random;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of random generators of which the state can be saved and restored.
+ * The generator produces the same numbers as java.util.Random with the same seed, using the same linear
+ * congruential formula, but keeps its state in a field that can be read and set.
+ * The state does not include the second Gaussian number cached by nextGaussian().
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+class WorldRandom extends Random {
+
+    private final static long serialVersionUID = 1L;
+    private final static long MULTIPLIER = 0x5DEECE66DL;
+    private final static long ADDEND = 0xBL;
+    private final static long MASK = (1L << 48) - 1;
+
+    /**
+     * Variable registering the state of this generator. It is set by setSeed, which the initializer
+     * of Random invokes.
+     */
+    private long state;
+
+    @Override
+    public synchronized void setSeed(long seed){
+        super.setSeed(seed);
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected int next(int bits){
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    /**
+     * Returns the state of this generator.
+     */
+    long getState(){
+        return this.state;
+    }
+
+    /**
+     * Set the state of this generator to a state returned by getState.
+     */
+    void setState(long state){
+        this.state = state & MASK;
+    }
+}
@@ -0,0 +1,558 @@
+package asteroids.model;
+
+import asteroids.model.program.bytecode.VirtualMachine;
+import asteroids.model.program.statements.Statement;
+import asteroids.model.program.statements.While;
+import asteroids.model.program.types.BooleanType;
+import asteroids.model.program.types.DoubleType;
+import asteroids.model.program.types.EntityType;
+import asteroids.model.program.types.Type;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of binary snapshots of worlds, from which a world can be restored in the state it had when the snapshot
+ * was taken.
+ *
+ * A snapshot starts with a magic number and a format version, followed by the size, the score and the state of the
+ * random generator of the world, one record per entity and one record per ship program. Entities refer to each
+ * other by their index in the snapshot: the entities of the world come first, in the order in which they were
+ * added to the world, followed by the bullets carried by the ships. A restored world therefore evolves exactly
+ * like the saved world.
+ * A record holds the kinematics, radius, density, maximum velocity and score of an entity, and for ships their
+ * heading, masses, thruster, thrust force, shots fired and points, for bullets their bounces, source and the ship
+ * carrying them, and for planetoids their travelled distance.
+ *
+ * A program record holds the time left, the global variables and the printed values of the program, and either
+ * the address of the next instruction of its virtual machine, or its execution stack and the loops in progress
+ * as indices into the statements of the program. Programs themselves are not part of a snapshot: restoring
+ * a world with ship programs takes fresh programs created from the same sources, which are checked against
+ * a hash of the structure of the saved programs.
+ *
+ * Version 1 of the format did not save the state of the random generator, and saved the ships first; snapshots
+ * of version 1 can still be restored.
+ *
+ * Every entity and every value is written once, so a snapshot is restored in time linear in its size.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class WorldSnapshot {
+
+    /**
+     * The number identifying snapshots, and the version of the format written by this class.
+     */
+    public final static int MAGIC = 0x41535453;
+    public final static int VERSION = 2;
+
+    /**
+     * The kinds of entities.
+     */
+    private final static byte SHIP = 0;
+    private final static byte BULLET = 1;
+    private final static byte ASTEROID = 2;
+    private final static byte PLANETOID = 3;
+
+    /**
+     * The tags of values.
+     */
+    private final static byte NONE = 0;
+    private final static byte DOUBLE = 1;
+    private final static byte BOOLEAN = 2;
+    private final static byte ENTITY = 3;
+
+    /**
+     * Write a snapshot of the given world to the file at the given path, replacing the file if it exists.
+     *
+     * @param   world
+     *          The world to save.
+     * @param   path
+     *          The path of the file.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world is null or terminated.
+     *          | world == null || world.checkTermination()
+     *
+     * @throws  IOException
+     *          Thrown if the file cannot be written.
+     */
+    public static void save(World world, Path path) throws IllegalArgumentException, IOException {
+        ByteBuffer buffer = write(world);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Restore the world saved in the file at the given path, mapping the file in memory.
+     *
+     * @param   path
+     *          The path of the file.
+     * @param   programs
+     *          Fresh programs for the ships that had a program when the snapshot was taken, in the order
+     *          in which these ships occurred in getAllShips() of the saved world.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the file is not a valid snapshot, or if the programs do not match the saved programs.
+     *
+     * @throws  IOException
+     *          Thrown if the file cannot be read.
+     *
+     * @see read
+     */
+    public static World restore(Path path, List<Program> programs) throws IllegalArgumentException, IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), programs);
+        }
+    }
+
+    /**
+     * Write a snapshot of the given world to a new buffer.
+     *
+     * @param   world
+     *          The world to save.
+     *
+     * @return  A buffer holding the snapshot, positioned at its start.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world is null or terminated.
+     *          | world == null || world.checkTermination()
+     */
+    public static ByteBuffer write(World world) throws IllegalArgumentException {
+        if (world == null || world.checkTermination())
+            throw new IllegalArgumentException("Not an existing world!");
+
+        List<Entity> entities = new ArrayList<>();
+        Map<Entity, Ship> carriers = new IdentityHashMap<>();
+        entities.addAll(world.getAllEntitiesOfType(Entity.class));
+        for (Ship ship : world.getAllShips()) {
+            for (Bullet bullet : ship.getBullets()) {
+                entities.add(bullet);
+                carriers.put(bullet, ship);
+            }
+        }
+        Map<Entity, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < entities.size(); i++)
+            indices.put(entities.get(i), i);
+
+        Output out = new Output(64 + 128 * entities.size());
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putDouble(world.getWidth());
+        out.putDouble(world.getHeight());
+        out.putBoolean(world.hasEntityStore());
+        out.putDouble(world.getScore());
+        out.putLong(world.getRandomState());
+
+        out.putInt(entities.size());
+        for (Entity entity : entities)
+            writeEntity(out, entity, indices, carriers.get(entity));
+
+        List<Ship> shipsWithProgram = new ArrayList<>();
+        for (Ship ship : world.getAllShips())
+            if (ship.getProgram() != null)
+                shipsWithProgram.add(ship);
+        out.putInt(shipsWithProgram.size());
+        for (Ship ship : shipsWithProgram) {
+            out.putInt(indices.get(ship));
+            writeProgram(out, ship.getProgram(), indices);
+        }
+        return out.finish();
+    }
+
+    /**
+     * Restore the world saved in the given buffer, reading from the current position of the buffer.
+     *
+     * @param   buffer
+     *          The buffer holding the snapshot.
+     * @param   programs
+     *          Fresh programs for the ships that had a program when the snapshot was taken, in the order
+     *          in which these ships occurred in getAllShips() of the saved world.
+     *
+     * @return  A new world holding new entities in the state of the saved entities, in which the ships occur
+     *          in the same order as in the saved world.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the buffer does not hold a valid snapshot of a supported version, if fewer programs are
+     *          given than were saved, or if a given program has not been created from the same source as the
+     *          saved program or has already been executed.
+     */
+    public static World read(ByteBuffer buffer, List<Program> programs) throws IllegalArgumentException {
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a snapshot!");
+            int version = buffer.getInt();
+            if (version != 1 && version != VERSION)
+                throw new IllegalArgumentException("Unsupported snapshot version " + version + "!");
+            double width = buffer.getDouble();
+            double height = buffer.getDouble();
+            World world = new World(width, height, buffer.get() != 0);
+            world.addScore(buffer.getDouble());
+            if (version >= 2)
+                world.setRandomState(buffer.getLong());
+
+            int nbEntities = readCount(buffer, 1);
+            Entity[] entities = new Entity[nbEntities];
+            int[] sources = new int[nbEntities];
+            int[] carriers = new int[nbEntities];
+            boolean[] inWorld = new boolean[nbEntities];
+            for (int i = 0; i < nbEntities; i++) {
+                inWorld[i] = buffer.get() != 0;
+                entities[i] = readEntity(buffer, sources, carriers, i);
+            }
+
+            for (int i = 0; i < nbEntities; i++) {
+                if (entities[i] instanceof Bullet) {
+                    Bullet bullet = (Bullet) entities[i];
+                    bullet.setSource(sources[i] < 0 ? null : (Ship) getEntity(entities, sources[i]));
+                    if (carriers[i] >= 0)
+                        ((Ship) getEntity(entities, carriers[i])).loadBullet(bullet);
+                }
+                if (inWorld[i])
+                    world.restoreEntity(entities[i]);
+            }
+
+            int nbPrograms = readCount(buffer, 5);
+            if (programs == null || programs.size() < nbPrograms)
+                throw new IllegalArgumentException("Missing programs!");
+            for (int i = 0; i < nbPrograms; i++) {
+                Entity ship = getEntity(entities, buffer.getInt());
+                if (!(ship instanceof Ship))
+                    throw new IllegalArgumentException("Program of an entity that is not a ship!");
+                Program program = programs.get(i);
+                readProgram(buffer, program, entities);
+                ((Ship) ship).setProgram(program);
+            }
+            return world;
+        }
+        catch (BufferUnderflowException | ClassCastException e) {
+            throw new IllegalArgumentException("Truncated or corrupt snapshot!", e);
+        }
+    }
+
+    private static void writeEntity(Output out, Entity entity, Map<Entity, Integer> indices, Ship carrier){
+        out.putBoolean(entity.getWorld() != null);
+        if (entity instanceof Ship)
+            out.putByte(SHIP);
+        else if (entity instanceof Bullet)
+            out.putByte(BULLET);
+        else if (entity instanceof Asteroid)
+            out.putByte(ASTEROID);
+        else if (entity instanceof Planetoid)
+            out.putByte(PLANETOID);
+        else
+            throw new IllegalArgumentException("Unknown kind of entity!");
+        out.putDouble(entity.getPositionX());
+        out.putDouble(entity.getPositionY());
+        out.putDouble(entity.getVelocityX());
+        out.putDouble(entity.getVelocityY());
+        out.putDouble(entity.getRadius());
+        out.putDouble(entity.getDensity());
+        out.putDouble(entity.getMaximumVelocity());
+        out.putDouble(entity.getScore());
+
+        if (entity instanceof Ship) {
+            Ship ship = (Ship) entity;
+            out.putDouble(ship.getHeading());
+            out.putDouble(ship.getMass());
+            out.putDouble(ship.getTotalMass());
+            out.putDouble(ship.getThrustForce());
+            out.putDouble(ship.getPoints());
+            out.putBoolean(ship.getThrusterState());
+            out.putInt(ship.getNbShotsFired());
+        }
+        else if (entity instanceof Bullet) {
+            Bullet bullet = (Bullet) entity;
+            out.putInt(bullet.getNbOfBounces());
+            out.putBoolean(bullet.hasBeenOutOfShip());
+            out.putInt(getIndex(indices, bullet.getSource()));
+            out.putInt(getIndex(indices, carrier));
+        }
+        else if (entity instanceof Planetoid) {
+            out.putDouble(((Planetoid) entity).getDistanceTravelled());
+        }
+    }
+
+    private static Entity readEntity(ByteBuffer buffer, int[] sources, int[] carriers, int index)
+            throws IllegalArgumentException {
+        byte kind = buffer.get();
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        double velocityX = buffer.getDouble();
+        double velocityY = buffer.getDouble();
+        double radius = buffer.getDouble();
+        double density = buffer.getDouble();
+        double maximumVelocity = buffer.getDouble();
+        double score = buffer.getDouble();
+
+        Entity entity;
+        sources[index] = -1;
+        carriers[index] = -1;
+        switch (kind) {
+            case SHIP: {
+                double heading = buffer.getDouble();
+                double mass = buffer.getDouble();
+                double totalMass = buffer.getDouble();
+                double thrustForce = buffer.getDouble();
+                double points = buffer.getDouble();
+                boolean thruster = buffer.get() != 0;
+                int nbShotsFired = buffer.getInt();
+                Ship ship = new Ship(x, y, 0, 0, heading, radius, mass);
+                ship.setDensity(density);
+                ship.setMass(mass);
+                ship.setTotalMass(totalMass);
+                ship.setThrustForce(thrustForce);
+                ship.addPoints(points);
+                if (thruster)
+                    ship.thrustOn();
+                ship.setNbShotsFired(nbShotsFired);
+                entity = ship;
+                break;
+            }
+            case BULLET: {
+                Bullet bullet = new Bullet(x, y, 0, 0, radius);
+                bullet.setNbOfBounces(buffer.getInt());
+                bullet.switchBeenOutOfShip(buffer.get() != 0);
+                sources[index] = buffer.getInt();
+                carriers[index] = buffer.getInt();
+                entity = bullet;
+                break;
+            }
+            case ASTEROID:
+                entity = new Asteroid(x, y, 0, 0, radius);
+                break;
+            case PLANETOID: {
+                Planetoid planetoid = new Planetoid(x, y, 0, 0, radius, 0);
+                planetoid.setDistanceTravelled(buffer.getDouble());
+                entity = planetoid;
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown kind of entity " + kind + "!");
+        }
+        entity.setDensity(density);
+        entity.setMaximumVelocity(maximumVelocity);
+        entity.setVelocity(new Vector(velocityX, velocityY));
+        entity.setScore(score);
+        return entity;
+    }
+
+    private static void writeProgram(Output out, Program program, Map<Entity, Integer> indices){
+        VirtualMachine virtualMachine = program.getVirtualMachine();
+        out.putInt(program.getStructureHash());
+        out.putBoolean(virtualMachine != null);
+        out.putDouble(program.getTimeLeft());
+        out.putDouble(program.getTotalTime());
+        out.putBoolean(program.isOnHold());
+        out.putBoolean(program.isExecuted());
+
+        out.putInt(program.getNbGlobals());
+        for (int slot = 0; slot < program.getNbGlobals(); slot++)
+            writeValue(out, program.getGlobalValue(slot), indices);
+        List<Object> printed = program.getPrinted();
+        out.putInt(printed.size());
+        for (Object value : printed)
+            writeValue(out, value, indices);
+
+        if (virtualMachine != null) {
+            out.putInt(virtualMachine.getProgramCounter());
+            out.putBoolean(virtualMachine.isHalted());
+        }
+        else {
+            Map<Statement, Integer> statementIndices = new IdentityHashMap<>();
+            List<Statement> statements = program.getStatements();
+            for (int i = 0; i < statements.size(); i++)
+                statementIndices.put(statements.get(i), i);
+            out.putInt(program.getExecutionStack().size());
+            for (Statement statement : program.getExecutionStack())
+                out.putInt(statementIndices.get(statement));
+            out.putInt(program.getCurrentWhiles().size());
+            for (While loop : program.getCurrentWhiles())
+                out.putInt(statementIndices.get(loop));
+        }
+    }
+
+    private static void readProgram(ByteBuffer buffer, Program program, Entity[] entities)
+            throws IllegalArgumentException {
+        if (program == null || program.getShip() != null || program.getTotalTime() != 0)
+            throw new IllegalArgumentException("Not a fresh program!");
+        if (buffer.getInt() != program.getStructureHash())
+            throw new IllegalArgumentException("Program does not match the saved program!");
+        VirtualMachine virtualMachine = program.getVirtualMachine();
+        if ((buffer.get() != 0) != (virtualMachine != null))
+            throw new IllegalArgumentException("Program is not executed in the same way as the saved program!");
+        program.setTimeLeft(buffer.getDouble());
+        program.setTotalTime(buffer.getDouble());
+        if (buffer.get() != 0)
+            program.hold();
+        program.setExecuted(buffer.get() != 0);
+
+        int nbGlobals = buffer.getInt();
+        if (nbGlobals != program.getNbGlobals())
+            throw new IllegalArgumentException("Program does not match the saved program!");
+        for (int slot = 0; slot < nbGlobals; slot++)
+            program.restoreGlobalValue(slot, (Type<?>) readValue(buffer, entities, true));
+        int nbPrinted = readCount(buffer, 1);
+        for (int i = 0; i < nbPrinted; i++)
+            program.getPrinted().add(readValue(buffer, entities, false));
+
+        if (virtualMachine != null) {
+            int pc = buffer.getInt();
+            virtualMachine.restoreProgramCounter(pc, buffer.get() != 0);
+        }
+        else {
+            List<Statement> statements = program.getStatements();
+            int nbScheduled = readCount(buffer, 4);
+            Statement[] scheduled = new Statement[nbScheduled];
+            for (int i = 0; i < nbScheduled; i++)
+                scheduled[i] = getStatement(statements, buffer.getInt());
+            program.getExecutionStack().clear();
+            for (int i = nbScheduled - 1; i >= 0; i--)
+                program.scheduleStatement(scheduled[i]);
+            int nbLoops = readCount(buffer, 4);
+            for (int i = 0; i < nbLoops; i++)
+                program.getCurrentWhiles().addLast((While) getStatement(statements, buffer.getInt()));
+        }
+    }
+
+    /**
+     * Write the given value, which is a value of a program variable or a printed value.
+     */
+    private static void writeValue(Output out, Object value, Map<Entity, Integer> indices){
+        if (value instanceof Type)
+            value = ((Type<?>) value).getType();
+        else if (value == null) {
+            out.putByte(NONE);
+            return;
+        }
+        if (value instanceof Double) {
+            out.putByte(DOUBLE);
+            out.putDouble((Double) value);
+        }
+        else if (value instanceof Boolean) {
+            out.putByte(BOOLEAN);
+            out.putBoolean((Boolean) value);
+        }
+        else {
+            // Entities that are no longer in the world or on a ship are restored as null references.
+            out.putByte(ENTITY);
+            out.putInt(value instanceof Entity ? getIndex(indices, (Entity) value) : -1);
+        }
+    }
+
+    /**
+     * Read a value, as a program value or as a printed value.
+     */
+    private static Object readValue(ByteBuffer buffer, Entity[] entities, boolean asType)
+            throws IllegalArgumentException {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NONE:
+                return null;
+            case DOUBLE: {
+                double value = buffer.getDouble();
+                return asType ? new DoubleType(value) : (Object) value;
+            }
+            case BOOLEAN: {
+                boolean value = buffer.get() != 0;
+                return asType ? new BooleanType(value) : (Object) value;
+            }
+            case ENTITY: {
+                int index = buffer.getInt();
+                Entity entity = index < 0 ? null : getEntity(entities, index);
+                return asType ? new EntityType(entity) : entity;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value tag " + tag + "!");
+        }
+    }
+
+    private static int getIndex(Map<Entity, Integer> indices, Entity entity){
+        Integer index = entity == null ? null : indices.get(entity);
+        return index == null ? -1 : index;
+    }
+
+    private static Entity getEntity(Entity[] entities, int index) throws IllegalArgumentException {
+        if (index < 0 || index >= entities.length)
+            throw new IllegalArgumentException("Invalid entity index " + index + "!");
+        return entities[index];
+    }
+
+    private static Statement getStatement(List<Statement> statements, int index) throws IllegalArgumentException {
+        if (index < 0 || index >= statements.size())
+            throw new IllegalArgumentException("Invalid statement index " + index + "!");
+        return statements.get(index);
+    }
+
+    /**
+     * Read a number of elements that each take at least the given number of bytes, checking that the buffer
+     * can hold them, so a corrupt count does not cause a huge allocation.
+     */
+    private static int readCount(ByteBuffer buffer, int minimumSize) throws IllegalArgumentException {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minimumSize > buffer.remaining())
+            throw new IllegalArgumentException("Truncated or corrupt snapshot!");
+        return count;
+    }
+
+    /**
+     * A class of growing buffers to which a snapshot is written.
+     */
+    private static class Output {
+
+        private ByteBuffer buffer;
+
+        private Output(int initialCapacity){
+            buffer = ByteBuffer.allocate(initialCapacity);
+        }
+
+        private void ensureRemaining(int size){
+            if (buffer.remaining() < size) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + size));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        private void putByte(byte value){
+            ensureRemaining(1);
+            buffer.put(value);
+        }
+
+        private void putBoolean(boolean value){
+            putByte(value ? (byte) 1 : (byte) 0);
+        }
+
+        private void putInt(int value){
+            ensureRemaining(4);
+            buffer.putInt(value);
+        }
+
+        private void putLong(long value){
+            ensureRemaining(8);
+            buffer.putLong(value);
+        }
+
+        private void putDouble(double value){
+            ensureRemaining(8);
+            buffer.putDouble(value);
+        }
+
+        private ByteBuffer finish(){
+            buffer.flip();
+            return buffer;
+        }
+    }
+}
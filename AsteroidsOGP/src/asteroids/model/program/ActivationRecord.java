@@ -0,0 +1,171 @@
+package asteroids.model.program;
+
+import asteroids.model.Program;
+import asteroids.model.program.expressions.FunctionInvocation;
+import asteroids.model.program.statements.Statement;
+import asteroids.model.program.types.Type;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of activation records, holding the state of a single invocation of a function: its parameters, its local
+ * variables, its return value and the statements it still has to execute.
+ *
+ * Activation records are owned by a program, which keeps them in a stack and reuses them for later invocations,
+ * so invoking a function does not create new objects once the program has reached its deepest nesting.
+ * The parameters of an invocation stay on the parameter stack of the program while the invocation is active.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class ActivationRecord {
+
+    /**
+     * Initializes a new activation record for the given program.
+     *
+     * @param   program
+     *          The program owning the new activation record.
+     */
+    public ActivationRecord(Program program){
+        this.program = program;
+    }
+
+    /**
+     * Variable registering the program owning this activation record.
+     */
+    private final Program program;
+
+    /**
+     * Variable registering the function invocation this activation record is used for, or null.
+     */
+    private FunctionInvocation invocation;
+
+    @Basic
+    public FunctionInvocation getInvocation(){
+        return invocation;
+    }
+
+    /**
+     * Variables registering the position of the parameters of the invocation on the parameter stack of the program,
+     * and their number.
+     */
+    private int parameterBase;
+    private int nbParameters;
+
+    @Basic
+    public int getParameterBase(){
+        return parameterBase;
+    }
+
+    @Basic
+    public int getNbParameters(){
+        return nbParameters;
+    }
+
+    /**
+     * Prepare this activation record for an invocation of a function.
+     *
+     * @param   invocation
+     *          The function invocation.
+     * @param   parameterBase
+     *          The position of the first parameter on the parameter stack of the program.
+     * @param   nbParameters
+     *          The number of parameters.
+     * @param   nbLocals
+     *          The number of local variable slots of the invoked function.
+     */
+    public void activate(FunctionInvocation invocation, int parameterBase, int nbParameters, int nbLocals){
+        this.invocation = invocation;
+        this.parameterBase = parameterBase;
+        this.nbParameters = nbParameters;
+        if (locals.length < nbLocals)
+            locals = new Type<?>[Math.max(nbLocals, 2 * locals.length)];
+        else
+            Arrays.fill(locals, 0, nbLocals, null);
+        this.toReturn = null;
+        this.executionStack.clear();
+    }
+
+    /**
+     * Release the references held by this activation record, after the invocation has finished.
+     */
+    public void deactivate(){
+        this.invocation = null;
+        this.toReturn = null;
+        Arrays.fill(locals, null);
+        this.executionStack.clear();
+    }
+
+    /**
+     * Returns the parameter with the given index, or null if there is no such parameter.
+     */
+    public Type<?> getParameterValue(int index){
+        if (index < 0 || index >= nbParameters)
+            return null;
+        return program.getParameterStackValue(parameterBase + index);
+    }
+
+    /**
+     * Array registering the local variables of the invocation, by slot.
+     */
+    private Type<?>[] locals = new Type<?>[4];
+
+    public boolean hasLocalVariableValue(int slot){
+        return slot >= 0 && locals[slot] != null;
+    }
+
+    public Type<?> getLocalVariableValue(int slot) throws RuntimeException{
+        Type<?> current = slot < 0 ? null : locals[slot];
+        if(current == null)
+            throw new RuntimeException();
+
+        return current;
+    }
+
+    public void setLocalVariableValue(int slot, Type<?> value) throws RuntimeException{
+        if (!program.isVerified()) {
+            Type<?> current = locals[slot];
+            if(current != null && current.getClass() != value.getClass())
+                throw new RuntimeException();
+        }
+
+        locals[slot] = value;
+    }
+
+    /**
+     * Variable registering the return value of the invocation, or null if it has not returned a value yet.
+     */
+    private Type<?> toReturn = null;
+
+    @Basic
+    public Type<?> getToReturn() {
+        return toReturn;
+    }
+
+    public void setToReturn(Type<?> toReturn) {
+        this.toReturn = toReturn;
+    }
+
+    /**
+     * The statements the invocation still has to execute.
+     */
+    private final Deque<Statement> executionStack = new ArrayDeque<>();
+
+    @Basic
+    public Deque<Statement> getExecutionStack(){
+        return this.executionStack;
+    }
+
+    @Raw
+    public void scheduleStatement(Statement statement){
+        if(statement != null)
+            executionStack.push(statement);
+    }
+}
@@ -35,4 +35,17 @@ public class FunctionDefinition {
         this.body = newBody;
     }
 
+    /**
+     * The number of local variable slots of this function.
+     */
+    private int nbLocals = 0;
+
+    public int getNbLocals() {
+        return nbLocals;
+    }
+
+    public void setNbLocals(int nbLocals) {
+        this.nbLocals = nbLocals;
+    }
+
 }
@@ -13,7 +13,9 @@ import asteroids.util.ModelException;
 
 import javax.swing.plaf.nimbus.State;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 /**
@@ -23,7 +25,46 @@ import java.util.function.Function;
 public class ProgramFactory implements IProgramFactory<Expression, Statement, FunctionDefinition, Program>{
 
     public ProgramFactory(){
+        this(true);
+    }
+
+    /**
+     * Initializes a new program factory.
+     *
+     * @param   compileToBytecode
+     *          Whether the programs created by this factory are compiled to bytecode.
+     */
+    public ProgramFactory(boolean compileToBytecode){
+        this(compileToBytecode, false);
+    }
+
+    /**
+     * Initializes a new program factory.
+     *
+     * @param   compileToBytecode
+     *          Whether the programs created by this factory are compiled to bytecode.
+     * @param   rejectIllTyped
+     *          Whether this factory refuses to create programs that are not well typed. Other factories create
+     *          them anyway, and they fail when a value of the wrong type is used. A factory rejecting such
+     *          programs keeps the source locations of the program it is building, so it builds one program at a time.
+     */
+    public ProgramFactory(boolean compileToBytecode, boolean rejectIllTyped){
+        this.compileToBytecode = compileToBytecode;
+        this.locations = rejectIllTyped ? new IdentityHashMap<>() : null;
+    }
+
+    private final boolean compileToBytecode;
 
+    /**
+     * The source locations of the statements, expressions and functions created for the next program, or null if
+     * this factory creates programs that are not well typed.
+     */
+    private final Map<Object, SourceLocation> locations;
+
+    private <T> T locate(T executable, SourceLocation location){
+        if (locations != null && location != null)
+            locations.put(executable, location);
+        return executable;
     }
 
     /**
@@ -34,10 +75,24 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * @param main
      *            The main statement of the program. Most likely this is a
      *            sequence statement.
-     * @return A new program.
-     */
-    public Program createProgram(List<FunctionDefinition> functions, Statement main){
-        return new Program(functions,main);
+     * @return A new program, of which the variables and parameters have been
+     *            resolved to slots and the types have been checked.
+     * @throws TypeCheckException
+     *            The program is not well typed and this factory rejects such programs.
+     */
+    public Program createProgram(List<FunctionDefinition> functions, Statement main) throws TypeCheckException{
+        String[] globalNames = VariableResolver.resolve(functions, main);
+        List<String> errors;
+        try {
+            errors = TypeChecker.check(functions, main, globalNames.length, locations);
+        }
+        finally {
+            if (locations != null)
+                locations.clear();
+        }
+        if (locations != null && !errors.isEmpty())
+            throw new TypeCheckException(errors);
+        return new Program(functions, main, globalNames, compileToBytecode, errors.isEmpty());
     }
 
     /**
@@ -50,7 +105,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            The body of the function.
      */
     public FunctionDefinition createFunctionDefinition(String functionName, Statement body, SourceLocation sourceLocation){
-        return new FunctionDefinition(functionName, body);
+        return locate(new FunctionDefinition(functionName, body), sourceLocation);
     }
 
     /**
@@ -62,7 +117,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            An expression that evaluates to the assigned value
      */
     public Statement createAssignmentStatement (String variableName, Expression value, SourceLocation sourceLocation){
-        return new Assignment(variableName, value);
+        return locate(new Assignment(variableName, value), sourceLocation);
 
     }
 
@@ -76,14 +131,14 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            statement).
      */
     public Statement createWhileStatement(Expression condition, Statement body, SourceLocation sourceLocation){
-        return new While(condition, body);
+        return locate(new While(condition, body), sourceLocation);
     }
 
     /**
      * Create a statement that represents a break statement.
      */
     public Statement createBreakStatement(SourceLocation sourceLocation){
-        return new Break();
+        return locate(new Break(), sourceLocation);
     }
 
     /**
@@ -93,7 +148,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            An expression that evaluates to the value to be returned
      */
     public Statement createReturnStatement(Expression value, SourceLocation sourceLocation){
-        return new Return(value);
+        return locate(new Return(value), sourceLocation);
     }
 
     /**
@@ -110,7 +165,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            specified.
      */
     public Statement createIfStatement(Expression condition, Statement ifBody, Statement elseBody, SourceLocation sourceLocation){
-        return new If(condition, ifBody, elseBody);
+        return locate(new If(condition, ifBody, elseBody), sourceLocation);
     }
 
     /**
@@ -121,7 +176,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            The expression to evaluate and print
      */
     public Statement createPrintStatement(Expression value, SourceLocation sourceLocation){
-        return new Print(value);
+        return locate(new Print(value), sourceLocation);
     }
 
     /**
@@ -131,7 +186,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            The statements that must be executed in the given order.
      */
     public Statement createSequenceStatement(List<Statement> statements, SourceLocation sourceLocation){
-        return new Sequence(statements);
+        return locate(new Sequence(statements), sourceLocation);
     }
 
     /**
@@ -142,7 +197,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            The name of the variable to read.
      */
     public Expression createReadVariableExpression(String variableName, SourceLocation sourceLocation){
-        return new ReadVariable(variableName);
+        return locate(new ReadVariable(variableName), sourceLocation);
     }
 
 
@@ -154,7 +209,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            The name of the parameter to read.
      */
     public Expression createReadParameterExpression(String parameterName, SourceLocation sourceLocation){
-        return new ReadParameter(parameterName);
+        return locate(new ReadParameter(parameterName), sourceLocation);
     }
 
     /**
@@ -167,7 +222,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      *            A list of expressions that act as actual arguments.
      */
     public Expression createFunctionCallExpression(String functionName, List<Expression> actualArgs, SourceLocation sourceLocation){
-        return new FunctionInvocation(actualArgs, functionName);
+        return locate(new FunctionInvocation(actualArgs, functionName), sourceLocation);
     }
 
     /**
@@ -177,7 +232,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * @param expression
      */
     public Expression createChangeSignExpression(Expression expression, SourceLocation sourceLocation){
-        return new ChangeSign(expression);
+        return locate(new ChangeSign(expression), sourceLocation);
     }
 
     /**
@@ -187,21 +242,21 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * @param expression
      */
     public Expression createNotExpression(Expression expression, SourceLocation sourceLocation){
-        return new BooleanNegation(expression);
+        return locate(new BooleanNegation(expression), sourceLocation);
     }
 
     /**
      * Creates an expression that represents a literal double value.
      */
     public Expression createDoubleLiteralExpression(double value, SourceLocation location){
-        return new DoubleLiteral(value);
+        return locate(new DoubleLiteral(value), location);
     }
 
     /**
      * Creates an expression that represents the null value.
      */
     public Expression createNullExpression(SourceLocation location){
-        return new EntityNullLiteral();
+        return locate(new EntityNullLiteral(), location);
     }
 
     /**
@@ -209,7 +264,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * ship that executes the program.
      */
     public Expression createSelfExpression(SourceLocation location){
-        return new EntitySelfLiteral();
+        return locate(new EntitySelfLiteral(), location);
     }
 
     /**
@@ -217,14 +272,14 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * ship that is executing the program.
      */
     public Expression createShipExpression(SourceLocation location){
-        return new ClosestShip();
+        return locate(new ClosestShip(), location);
     }
     /**
      * Creates an expression that evaluates to the asteroid that is closest to
      * the ship that is executing the program.
      */
     public Expression createAsteroidExpression(SourceLocation location){
-        return new ClosestAsteroid();
+        return locate(new ClosestAsteroid(), location);
     }
 
     /**
@@ -232,7 +287,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the ship that is executing the program.
      */
     public Expression createPlanetoidExpression(SourceLocation location){
-        return new ClosestPlanetoid();
+        return locate(new ClosestPlanetoid(), location);
     }
 
     /**
@@ -240,7 +295,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * ship that executes the program.
      */
     public Expression createBulletExpression(SourceLocation location){
-        return new BulletOfShip();
+        return locate(new BulletOfShip(), location);
     }
 
     /**
@@ -248,7 +303,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * to the ship that is executing the program.
      */
     public Expression createPlanetExpression(SourceLocation location){
-        return new ClosestPlanet();
+        return locate(new ClosestPlanet(), location);
     }
 
     /**
@@ -256,7 +311,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * of the ship that is executing the program.
      */
     public Expression createAnyExpression(SourceLocation location){
-        return new AnyEntity();
+        return locate(new AnyEntity(), location);
     }
 
     /**
@@ -264,7 +319,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the entity to which the given expression evaluates.
      */
     public Expression createGetXExpression(Expression e, SourceLocation location){
-        return new GetPositionX(e);
+        return locate(new GetPositionX(e), location);
     }
 
     /**
@@ -272,7 +327,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the entity to which the given expression evaluates.
      */
     public Expression createGetYExpression(Expression e, SourceLocation location){
-        return new GetPositionY(e);
+        return locate(new GetPositionY(e), location);
     }
 
     /**
@@ -280,7 +335,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the entity to which the given expression evaluates.
      */
     public Expression createGetVXExpression(Expression e, SourceLocation location){
-        return new GetVelocityX(e);
+        return locate(new GetVelocityX(e), location);
     }
 
     /**
@@ -288,7 +343,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the entity to which the given expression evaluates.
      */
     public Expression createGetVYExpression(Expression e, SourceLocation location){
-        return new GetVelocityY(e);
+        return locate(new GetVelocityY(e), location);
     }
 
     /**
@@ -296,7 +351,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the given expression evaluates.
      */
     public Expression createGetRadiusExpression(Expression e, SourceLocation location){
-        return new GetRadius(e);
+        return locate(new GetRadius(e), location);
     }
 
     /**
@@ -305,7 +360,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * evaluating the second expression.
      */
     public Expression createLessThanExpression(Expression e1, Expression e2, SourceLocation location){
-        return new LesserThan((Expression< DoubleType>) e1, (Expression< DoubleType>)e2);
+        return locate(new LesserThan((Expression< DoubleType>) e1, (Expression< DoubleType>)e2), location);
     }
 
     /**
@@ -314,7 +369,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * evaluating the second expression.
      */
     public Expression createEqualityExpression(Expression e1, Expression e2, SourceLocation location){
-        return new Equality((Expression< DoubleType>)e1,(Expression< DoubleType>)e2);
+        return locate(new Equality((Expression< DoubleType>)e1,(Expression< DoubleType>)e2), location);
     }
 
     /**
@@ -322,7 +377,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * obtained by evaluating the first and second given expressions.
      */
     public Expression createAdditionExpression(Expression e1, Expression e2, SourceLocation location){
-        return new Addition((Expression< DoubleType>)e1, (Expression< DoubleType>)e2);
+        return locate(new Addition((Expression< DoubleType>)e1, (Expression< DoubleType>)e2), location);
     }
 
     /**
@@ -330,7 +385,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * obtained by evaluating the first and second given expressions.
      */
     public Expression createMultiplicationExpression(Expression e1, Expression e2, SourceLocation location){
-        return new Multiplication((Expression< DoubleType>)e1, (Expression< DoubleType>)e2);
+        return locate(new Multiplication((Expression< DoubleType>)e1, (Expression< DoubleType>)e2), location);
     }
 
     /**
@@ -338,7 +393,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * obtained by evaluating the given expression.
      */
     public Expression createSqrtExpression(Expression e, SourceLocation location){
-        return new SquareRoot((Expression< DoubleType>)e);
+        return locate(new SquareRoot((Expression< DoubleType>)e), location);
     }
 
     /**
@@ -346,7 +401,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * ship executing the program.
      */
     public Expression createGetDirectionExpression(SourceLocation location){
-        return new GetHeading();
+        return locate(new GetHeading(), location);
     }
 
     /**
@@ -354,7 +409,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * program on.
      */
     public Statement createThrustOnStatement(SourceLocation location){
-        return new Thrust_On();
+        return locate(new Thrust_On(), location);
     }
 
     /**
@@ -362,7 +417,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * program off.
      */
     public Statement createThrustOffStatement(SourceLocation location){
-        return new Thrust_Off();
+        return locate(new Thrust_Off(), location);
     }
 
     /**
@@ -370,7 +425,7 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * the program.
      */
     public Statement createFireStatement(SourceLocation location){
-        return new Fire();
+        return locate(new Fire(), location);
     }
 
     /**
@@ -378,13 +433,13 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
      * turn by the given amount.
      */
     public Statement createTurnStatement(Expression angle, SourceLocation location){
-        return new Turn((Expression< DoubleType>)angle);
+        return locate(new Turn((Expression< DoubleType>)angle), location);
     }
 
     /**
      * Returns a statement that does nothing.
      */
     public Statement createSkipStatement(SourceLocation location){
-        return new Skip();
+        return locate(new Skip(), location);
     }
 }
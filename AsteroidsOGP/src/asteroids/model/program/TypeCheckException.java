@@ -0,0 +1,40 @@
+package asteroids.model.program;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of exceptions signalling that a program is not well typed.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class TypeCheckException extends IllegalArgumentException {
+
+    private final static long serialVersionUID = 1L;
+
+    /**
+     * Initializes a new exception with the given type errors.
+     *
+     * @param   errors
+     *          The type errors of the program, as reported by the type checker.
+     */
+    public TypeCheckException(List<String> errors){
+        super("Program is not well typed: " + errors);
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    private final List<String> errors;
+
+    @Basic @Immutable
+    public List<String> getErrors(){
+        return this.errors;
+    }
+}
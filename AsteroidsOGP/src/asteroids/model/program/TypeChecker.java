@@ -0,0 +1,318 @@
+package asteroids.model.program;
+
+import asteroids.model.program.expressions.*;
+import asteroids.model.program.expressions.entityexpressions.*;
+import asteroids.model.program.expressions.operations.*;
+import asteroids.model.program.statements.Assignment;
+import asteroids.model.program.statements.If;
+import asteroids.model.program.statements.Return;
+import asteroids.model.program.statements.Statement;
+import asteroids.model.program.statements.While;
+import asteroids.model.program.statements.actions.Turn;
+import asteroids.part3.programs.SourceLocation;
+
+import java.util.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class checking the types of a program before it is executed, after its variables have been resolved to slots.
+ *
+ * Every global variable, every local variable of a function, every parameter of a function and the result of
+ * every function gets a single static type: a double, a boolean or an entity. The types are inferred from the
+ * values assigned to the variables, the arguments of the invocations of the functions and the values they return,
+ * until none of them changes anymore. A program is well typed if none of them gets values of two types, if every
+ * operation, condition and angle gets values of the type it needs, if no function is assigned to in the main
+ * program, if every invoked function is defined and if every variable read is assigned somewhere.
+ *
+ * A program that is well typed never fails on the type of a value, so its assignments need not check the type of
+ * the values they assign.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class TypeChecker {
+
+    /**
+     * The static types of values. NONE is the type of an expression that never has a value, ANY the type of an
+     * expression that can have values of different types.
+     */
+    private enum StaticType {
+        NONE, DOUBLE, BOOLEAN, ENTITY, ANY;
+
+        StaticType join(StaticType other){
+            if (this == NONE || this == other)
+                return other;
+            if (other == NONE)
+                return this;
+            return ANY;
+        }
+
+        boolean isConcrete(){
+            return this != NONE && this != ANY;
+        }
+
+        @Override
+        public String toString(){
+            switch (this) {
+                case DOUBLE: return "a double";
+                case BOOLEAN: return "a boolean";
+                case ENTITY: return "an entity";
+                default: return "a value";
+            }
+        }
+    }
+
+    /**
+     * A class of variables, parameters and function results, registering their static type and, while the errors
+     * are reported, the type of the first value they get.
+     */
+    private static class Slot {
+        private StaticType type = StaticType.NONE;
+        private StaticType first = StaticType.NONE;
+    }
+
+    /**
+     * A class registering the slots of a function.
+     */
+    private static class FunctionSlots {
+        private FunctionSlots(int nbLocals){
+            this.locals = new Slot[nbLocals];
+            for (int i = 0; i < nbLocals; i++)
+                locals[i] = new Slot();
+        }
+
+        private final Slot[] locals;
+        private final List<Slot> parameters = new ArrayList<>();
+        private final Slot result = new Slot();
+
+        private Slot getParameter(int index){
+            while (parameters.size() <= index)
+                parameters.add(new Slot());
+            return parameters.get(index);
+        }
+    }
+
+    /**
+     * Check the types of the program with the given functions and main statement.
+     *
+     * @param   functions
+     *          The function definitions of the program.
+     * @param   main
+     *          The main statement of the program.
+     * @param   nbGlobals
+     *          The number of global variables of the program, as resolved by the variable resolver.
+     * @param   locations
+     *          The source locations of the statements, expressions and functions of the program, or null if they
+     *          are not known.
+     *
+     * @return  The type errors of the program, every error followed by its source location if it is known, or an
+     *          empty list if the program is well typed.
+     */
+    public static List<String> check(List<FunctionDefinition> functions, Statement main, int nbGlobals,
+                                     Map<?, SourceLocation> locations){
+        TypeChecker checker = new TypeChecker(functions, nbGlobals, locations);
+        do {
+            checker.changed = false;
+            checker.checkProgram(main);
+        } while (checker.changed);
+        checker.reporting = true;
+        checker.checkProgram(main);
+        return checker.errors;
+    }
+
+    private TypeChecker(List<FunctionDefinition> functions, int nbGlobals, Map<?, SourceLocation> locations){
+        this.functions = functions == null ? Collections.emptyList() : functions;
+        for (FunctionDefinition function : this.functions) {
+            functionMap.put(function.getName(), function);
+            functionSlots.put(function, new FunctionSlots(function.getNbLocals()));
+        }
+        this.globals = new Slot[nbGlobals];
+        for (int i = 0; i < nbGlobals; i++)
+            globals[i] = new Slot();
+        this.locations = locations;
+    }
+
+    private final List<FunctionDefinition> functions;
+    private final Map<String, FunctionDefinition> functionMap = new HashMap<>();
+    private final Map<FunctionDefinition, FunctionSlots> functionSlots = new IdentityHashMap<>();
+    private final Slot[] globals;
+    private final Map<?, SourceLocation> locations;
+
+    /**
+     * Variable registering whether a slot got a new type during the current pass.
+     */
+    private boolean changed;
+
+    /**
+     * Variable registering whether the types are final, so the errors are reported.
+     */
+    private boolean reporting;
+
+    private final List<String> errors = new ArrayList<>();
+
+    private void checkProgram(Statement main){
+        check(main, null);
+        for (FunctionDefinition function : functions)
+            check(function.getBody(), function);
+    }
+
+    /**
+     * Check the given executable and the executables it contains, in the given function or in the main program if
+     * the function is null.
+     */
+    private void check(Executable executable, FunctionDefinition function){
+        if (executable == null)
+            return;
+        for (Executable subExecutable : VariableResolver.getSubExecutables(executable))
+            check(subExecutable, function);
+
+        if (executable instanceof Assignment) {
+            Assignment assignment = (Assignment) executable;
+            if (function == null && functionMap.containsKey(assignment.getVariableName()))
+                report(assignment, "Variable " + assignment.getVariableName() + " is the name of a function");
+            if (assignment.getSlot() >= 0) {
+                Slot slot = function == null ? globals[assignment.getSlot()]
+                        : functionSlots.get(function).locals[assignment.getSlot()];
+                assign(slot, typeOf(assignment.getFirstArgument(), function), assignment,
+                        "Variable " + assignment.getVariableName());
+            }
+        }
+        else if (executable instanceof Return) {
+            if (function != null)
+                assign(functionSlots.get(function).result, typeOf(((Return) executable).getValue(), function),
+                        executable, "Function " + function.getName() + " returns");
+        }
+        else if (executable instanceof If)
+            expect(((If) executable).getFirstArgument(), StaticType.BOOLEAN, function);
+        else if (executable instanceof While)
+            expect(((While) executable).getFirstArgument(), StaticType.BOOLEAN, function);
+        else if (executable instanceof Turn)
+            expect(((Turn) executable).getAngle(), StaticType.DOUBLE, function);
+        else if (executable instanceof FunctionInvocation) {
+            FunctionInvocation invocation = (FunctionInvocation) executable;
+            FunctionDefinition callee = functionMap.get(invocation.getFunctionName());
+            if (callee == null)
+                report(invocation, "Function " + invocation.getFunctionName() + " is not defined");
+            else {
+                List<? extends Executable> arguments = invocation.getArgumentsAsExpressions();
+                for (int i = 0; i < arguments.size(); i++)
+                    assign(functionSlots.get(callee).getParameter(i), typeOf(arguments.get(i), function),
+                            arguments.get(i), "Parameter $" + (i + 1) + " of function " + callee.getName());
+            }
+        }
+        else if (executable instanceof ReadVariable) {
+            ReadVariable variable = (ReadVariable) executable;
+            int localSlot = function == null ? -1 : variable.getLocalSlot();
+            if (localSlot < 0 && variable.getGlobalSlot() < 0)
+                report(variable, "Variable " + variable.getVariableName() + " is never assigned");
+            else if (localSlot >= 0 && variable.getGlobalSlot() >= 0) {
+                StaticType local = functionSlots.get(function).locals[localSlot].type;
+                StaticType global = globals[variable.getGlobalSlot()].type;
+                if (local.isConcrete() && global.isConcrete() && local != global)
+                    report(variable, "Variable " + variable.getVariableName() + " is " + local
+                            + " in function " + function.getName() + ", but " + global + " in the main program");
+            }
+        }
+        else if (executable instanceof Addition || executable instanceof Multiplication
+                || executable instanceof Subtraction || executable instanceof LesserThan
+                || executable instanceof LesserOrEqual || executable instanceof GreaterThan
+                || executable instanceof GreaterOrEqual) {
+            TwoArgumentExecutable<?, ?> operation = (TwoArgumentExecutable<?, ?>) executable;
+            expect(operation.getFirstArgument(), StaticType.DOUBLE, function);
+            expect(operation.getSecondArgument(), StaticType.DOUBLE, function);
+        }
+        else if (executable instanceof ChangeSign || executable instanceof SquareRoot
+                || executable instanceof Parentesis || executable instanceof ConstantDouble)
+            expect(((OneArgumentExecutable<?>) executable).getFirstArgument(), StaticType.DOUBLE, function);
+        else if (executable instanceof BooleanNegation)
+            expect(((BooleanNegation) executable).getFirstArgument(), StaticType.BOOLEAN, function);
+        else if (executable instanceof GetPositionX || executable instanceof GetPositionY
+                || executable instanceof GetVelocityX || executable instanceof GetVelocityY
+                || executable instanceof GetRadius)
+            expect(((OneArgumentExecutable<?>) executable).getFirstArgument(), StaticType.ENTITY, function);
+    }
+
+    /**
+     * Returns the static type of the given expression in the given function, or in the main program if the
+     * function is null.
+     */
+    private StaticType typeOf(Executable expression, FunctionDefinition function){
+        if (expression instanceof DoubleLiteral || expression instanceof Addition
+                || expression instanceof Multiplication || expression instanceof Subtraction
+                || expression instanceof ChangeSign || expression instanceof SquareRoot
+                || expression instanceof Parentesis || expression instanceof ConstantDouble
+                || expression instanceof GetPositionX || expression instanceof GetPositionY
+                || expression instanceof GetVelocityX || expression instanceof GetVelocityY
+                || expression instanceof GetRadius || expression instanceof GetHeading)
+            return StaticType.DOUBLE;
+        if (expression instanceof BooleanLiteral || expression instanceof BooleanNegation
+                || expression instanceof LesserThan || expression instanceof LesserOrEqual
+                || expression instanceof GreaterThan || expression instanceof GreaterOrEqual
+                || expression instanceof Equality || expression instanceof Inequality)
+            return StaticType.BOOLEAN;
+        if (expression instanceof EntityNullLiteral || expression instanceof EntitySelfLiteral
+                || expression instanceof EntityLiteral || expression instanceof ClosestShip
+                || expression instanceof ClosestAsteroid || expression instanceof ClosestPlanetoid
+                || expression instanceof ClosestPlanet || expression instanceof BulletOfShip
+                || expression instanceof AnyEntity)
+            return StaticType.ENTITY;
+        if (expression instanceof ReadVariable) {
+            ReadVariable variable = (ReadVariable) expression;
+            StaticType type = StaticType.NONE;
+            if (function != null && variable.getLocalSlot() >= 0)
+                type = functionSlots.get(function).locals[variable.getLocalSlot()].type;
+            if (variable.getGlobalSlot() >= 0)
+                type = type.join(globals[variable.getGlobalSlot()].type);
+            return type;
+        }
+        if (expression instanceof ReadParameter) {
+            int index = ((ReadParameter) expression).getIndex();
+            if (function == null || index < 0)
+                return StaticType.NONE;
+            return functionSlots.get(function).getParameter(index).type;
+        }
+        if (expression instanceof FunctionInvocation) {
+            FunctionDefinition callee = functionMap.get(((FunctionInvocation) expression).getFunctionName());
+            return callee == null ? StaticType.NONE : functionSlots.get(callee).result.type;
+        }
+        return StaticType.ANY;
+    }
+
+    /**
+     * Give the given slot a value of the given type at the given executable, reporting the executable if the slot
+     * got a value of another type before.
+     */
+    private void assign(Slot slot, StaticType type, Executable executable, String description){
+        StaticType joined = slot.type.join(type);
+        if (joined != slot.type) {
+            slot.type = joined;
+            changed = true;
+        }
+        if (reporting && type.isConcrete()) {
+            if (slot.first == StaticType.NONE)
+                slot.first = type;
+            else if (slot.first != type)
+                report(executable, description + " is " + type + ", but was " + slot.first + " before");
+        }
+    }
+
+    /**
+     * Report the given expression if its values are of a type other than the given type. Expressions without a
+     * value or with values of different types are not reported, since their cause is reported elsewhere.
+     */
+    private void expect(Executable expression, StaticType expected, FunctionDefinition function){
+        StaticType type = typeOf(expression, function);
+        if (type.isConcrete() && type != expected)
+            report(expression, "Expected " + expected + ", but found " + type);
+    }
+
+    private void report(Executable executable, String message){
+        if (!reporting)
+            return;
+        SourceLocation location = locations == null ? null : locations.get(executable);
+        errors.add(location == null ? message : message + " (" + location.getLine() + ", "
+                + location.getColumn() + ")");
+    }
+}
@@ -0,0 +1,126 @@
+package asteroids.model.program;
+
+import asteroids.model.program.expressions.Expression;
+import asteroids.model.program.expressions.ReadParameter;
+import asteroids.model.program.expressions.ReadVariable;
+import asteroids.model.program.statements.Assignment;
+import asteroids.model.program.statements.Return;
+import asteroids.model.program.statements.Statement;
+import asteroids.model.program.statements.actions.Turn;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@SuppressWarnings("all")
+
+/**
+ * A class resolving the variables and parameters of a program to slots, before the program is executed.
+ *
+ * Every variable assigned in the main program gets a global slot, and every variable assigned in the body of a
+ * function gets a local slot of that function. Assignments store the slot of the variable they assign, variables
+ * read in a function store both their local and their global slot, and parameters $n store their index n - 1.
+ * A slot of -1 means that no such variable is ever assigned.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class VariableResolver {
+
+    /**
+     * Resolve the variables and parameters of the program with the given functions and main statement.
+     *
+     * @param   functions
+     *          The function definitions of the program.
+     * @param   main
+     *          The main statement of the program.
+     *
+     * @return  The names of the global variables of the program, by slot.
+     */
+    public static String[] resolve(List<FunctionDefinition> functions, Statement main){
+        Map<String, Integer> globalSlots = new LinkedHashMap<>();
+        collectAssignedVariables(main, globalSlots);
+        resolve(main, globalSlots, null);
+        if (functions != null) {
+            for (FunctionDefinition function : functions) {
+                Map<String, Integer> localSlots = new HashMap<>();
+                collectAssignedVariables(function.getBody(), localSlots);
+                function.setNbLocals(localSlots.size());
+                resolve(function.getBody(), globalSlots, localSlots);
+            }
+        }
+        return globalSlots.keySet().toArray(new String[0]);
+    }
+
+    /**
+     * Returns the index of the parameter with the given name, or -1 if the name is not of the form $n.
+     */
+    public static int getParameterIndex(String name){
+        if (name == null || !name.startsWith("$"))
+            return -1;
+        try {
+            int index = Integer.parseInt(name.substring(1)) - 1;
+            return index >= 0 ? index : -1;
+        }
+        catch (NumberFormatException e){
+            return -1;
+        }
+    }
+
+    /**
+     * Give every variable assigned in the given statement, but not in the functions it invokes, a slot
+     * in the given map.
+     */
+    private static void collectAssignedVariables(Executable executable, Map<String, Integer> slots){
+        if (executable instanceof Assignment) {
+            String name = ((Assignment) executable).getVariableName();
+            if (!slots.containsKey(name))
+                slots.put(name, slots.size());
+        }
+        else if (executable instanceof Statement) {
+            for (Executable subExecutable : getSubExecutables(executable))
+                if (subExecutable instanceof Statement)
+                    collectAssignedVariables(subExecutable, slots);
+        }
+    }
+
+    /**
+     * Store the slots of the variables and parameters used in the given executable. The local slots are null
+     * for the main program.
+     */
+    private static void resolve(Executable executable, Map<String, Integer> globalSlots,
+                                Map<String, Integer> localSlots){
+        if (executable instanceof Assignment) {
+            Assignment assignment = (Assignment) executable;
+            Map<String, Integer> slots = localSlots == null ? globalSlots : localSlots;
+            assignment.setSlot(slots.get(assignment.getVariableName()));
+        }
+        else if (executable instanceof ReadVariable) {
+            ReadVariable variable = (ReadVariable) executable;
+            Integer globalSlot = globalSlots.get(variable.getVariableName());
+            Integer localSlot = localSlots == null ? null : localSlots.get(variable.getVariableName());
+            variable.setSlots(localSlot == null ? -1 : localSlot, globalSlot == null ? -1 : globalSlot);
+        }
+        else if (executable instanceof ReadParameter) {
+            ReadParameter parameter = (ReadParameter) executable;
+            parameter.setIndex(localSlots == null ? -1 : getParameterIndex(parameter.getParameterName()));
+        }
+        for (Executable subExecutable : getSubExecutables(executable))
+            resolve(subExecutable, globalSlots, localSlots);
+    }
+
+    /**
+     * Returns the statements and expressions directly contained in the given executable.
+     */
+    public static Executable[] getSubExecutables(Executable executable){
+        if (executable instanceof Executable.ArgumentExecutable)
+            return ((Executable.ArgumentExecutable) executable).getSubExecutables();
+        if (executable instanceof Return)
+            return new Executable[]{((Return) executable).getValue()};
+        if (executable instanceof Turn)
+            return new Executable[]{((Turn) executable).getAngle()};
+        return new Executable[0];
+    }
+}
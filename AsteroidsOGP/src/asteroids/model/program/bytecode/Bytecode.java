@@ -0,0 +1,123 @@
+package asteroids.model.program.bytecode;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of compiled programs, executed by a virtual machine.
+ * The code of the main program starts at address zero; the code of every function starts at its entry address.
+ * Numbers used by the code are kept in a pool of constants, other objects in a pool of references.
+ * Every global variable of the program has a slot, and so has every local variable of a function.
+ *
+ * Compiled programs are never changed after compilation.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class Bytecode {
+
+    /**
+     * Initializes a new compiled program.
+     *
+     * @param   code
+     *          The instructions of the program.
+     * @param   constants
+     *          The pool of numbers used by the instructions.
+     * @param   references
+     *          The pool of other objects used by the instructions.
+     * @param   functionEntries
+     *          The entry address of every function.
+     * @param   functionNbLocals
+     *          The number of local variable slots of every function.
+     * @param   globalNames
+     *          The name of the global variable in every global slot.
+     */
+    Bytecode(int[] code, double[] constants, Object[] references, int[] functionEntries, int[] functionNbLocals,
+             String[] globalNames){
+        this.code = code;
+        this.constants = constants;
+        this.references = references;
+        this.functionEntries = functionEntries;
+        this.functionNbLocals = functionNbLocals;
+        this.globalNames = globalNames;
+        int maxNbLocals = 0;
+        for (int nbLocals : functionNbLocals)
+            maxNbLocals = Math.max(maxNbLocals, nbLocals);
+        this.maxNbLocals = maxNbLocals;
+    }
+
+    private final int[] code;
+    private final double[] constants;
+    private final Object[] references;
+    private final int[] functionEntries;
+    private final int[] functionNbLocals;
+    private final String[] globalNames;
+    private final int maxNbLocals;
+
+    /**
+     * Returns the instruction or operand at the given address.
+     */
+    @Basic @Immutable
+    public int getCode(int address){
+        return code[address];
+    }
+
+    /**
+     * Returns the number of instructions and operands of this program.
+     */
+    public int getCodeLength(){
+        return code.length;
+    }
+
+    /**
+     * Returns the instructions and operands of this program. The array must not be changed.
+     */
+    int[] getCodeArray(){
+        return code;
+    }
+
+    @Basic @Immutable
+    public double getConstant(int index){
+        return constants[index];
+    }
+
+    @Basic @Immutable
+    public Object getReference(int index){
+        return references[index];
+    }
+
+    @Basic @Immutable
+    public int getNbFunctions(){
+        return functionEntries.length;
+    }
+
+    @Basic @Immutable
+    public int getFunctionEntry(int function){
+        return functionEntries[function];
+    }
+
+    @Basic @Immutable
+    public int getFunctionNbLocals(int function){
+        return functionNbLocals[function];
+    }
+
+    /**
+     * Returns the largest number of local variable slots of a function of this program.
+     */
+    public int getMaxNbLocals(){
+        return maxNbLocals;
+    }
+
+    @Basic @Immutable
+    public int getNbGlobals(){
+        return globalNames.length;
+    }
+
+    @Basic @Immutable
+    public String getGlobalName(int slot){
+        return globalNames[slot];
+    }
+}
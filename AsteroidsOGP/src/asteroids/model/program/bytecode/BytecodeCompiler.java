@@ -0,0 +1,384 @@
+package asteroids.model.program.bytecode;
+
+import asteroids.model.program.FunctionDefinition;
+import asteroids.model.program.expressions.*;
+import asteroids.model.program.expressions.entityexpressions.*;
+import asteroids.model.program.expressions.operations.*;
+import asteroids.model.program.statements.*;
+import asteroids.model.program.statements.actions.*;
+
+import java.util.*;
+
+import static asteroids.model.program.bytecode.Opcodes.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of compilers translating the statements and expressions built by the program factory into bytecode.
+ *
+ * The compiler uses the slots of the variables and parameters resolved by the variable resolver. A variable read in
+ * a function is looked up in its local slot first and in its global slot next, so a local variable that has not been
+ * assigned yet in the current invocation falls back to the global variable with the same name, just like the
+ * statements do.
+ *
+ * Every statement of the main program starts with a CHECK instruction, so the virtual machine only executes a
+ * statement when at least 0.2 seconds are left, just like Program.execute. Statements in functions execute
+ * without checks, and errors that the statements detect when they are executed, such as an action in a function
+ * or a break outside a loop, compile to a FAIL instruction at the same place.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class BytecodeCompiler {
+
+    /**
+     * Compile the program with the given functions and main statement.
+     *
+     * @param   functions
+     *          The function definitions of the program.
+     * @param   main
+     *          The main statement of the program.
+     * @param   globalNames
+     *          The names of the global variables of the program, by slot.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the program contains a statement that cannot be compiled.
+     */
+    public static Bytecode compile(List<FunctionDefinition> functions, Statement main, String[] globalNames)
+            throws IllegalArgumentException {
+        return new BytecodeCompiler(functions).compileProgram(main, globalNames);
+    }
+
+    /**
+     * Initializes a new compiler for a program with the given functions.
+     */
+    private BytecodeCompiler(List<FunctionDefinition> functions){
+        if (functions != null) {
+            for (FunctionDefinition function : functions) {
+                Integer index = functionIndices.get(function.getName());
+                if (index == null) {
+                    functionIndices.put(function.getName(), functionDefinitions.size());
+                    functionDefinitions.add(function);
+                }
+                else
+                    functionDefinitions.set(index, function);
+            }
+        }
+    }
+
+    /**
+     * The functions of the program being compiled, by name and by index. A later definition of a function
+     * replaces an earlier one.
+     */
+    private final Map<String, Integer> functionIndices = new HashMap<>();
+    private final List<FunctionDefinition> functionDefinitions = new ArrayList<>();
+
+    /**
+     * Whether a function is being compiled rather than the main program.
+     */
+    private boolean compilingFunction = false;
+
+    /**
+     * The code, the pool of constants and the pool of references compiled so far.
+     */
+    private int[] code = new int[64];
+    private int codeLength = 0;
+    private final List<Double> constants = new ArrayList<>();
+    private final List<Object> references = new ArrayList<>();
+
+    /**
+     * The addresses of the operands that must be patched with the exit address of the loops being compiled,
+     * innermost loop first.
+     */
+    private final Deque<List<Integer>> loopExits = new ArrayDeque<>();
+
+    /**
+     * Compile the given main statement and the functions of this compiler.
+     */
+    private Bytecode compileProgram(Statement main, String[] globalNames){
+        compileStatement(main);
+        emit(HALT);
+
+        compilingFunction = true;
+        int[] functionEntries = new int[functionDefinitions.size()];
+        int[] functionNbLocals = new int[functionDefinitions.size()];
+        for (int function = 0; function < functionDefinitions.size(); function++) {
+            functionEntries[function] = codeLength;
+            functionNbLocals[function] = functionDefinitions.get(function).getNbLocals();
+            compileStatement(functionDefinitions.get(function).getBody());
+            emit(END_FUNCTION);
+        }
+
+        double[] constantPool = new double[constants.size()];
+        for (int i = 0; i < constantPool.length; i++)
+            constantPool[i] = constants.get(i);
+        return new Bytecode(Arrays.copyOf(code, codeLength), constantPool, references.toArray(),
+                functionEntries, functionNbLocals, globalNames.clone());
+    }
+
+    /**
+     * Start a statement: in the main program, a statement only executes when enough time is left.
+     */
+    private void compileCheck(){
+        if (!compilingFunction)
+            emit(CHECK);
+    }
+
+    private void compileStatement(Statement statement){
+        if (statement == null)
+            return;
+        if (statement instanceof Sequence) {
+            Sequence sequence = (Sequence) statement;
+            if (sequence.getNbArguments() == 0)
+                compileCheck();
+            for (Statement element : sequence.getArguments())
+                compileStatement(element);
+        }
+        else if (statement instanceof Assignment) {
+            Assignment assignment = (Assignment) statement;
+            compileCheck();
+            if (compilingFunction) {
+                compileExpression(assignment.getFirstArgument());
+                emit(STORE_LOCAL, assignment.getSlot());
+            }
+            else if (functionIndices.containsKey(assignment.getVariableName()))
+                emit(FAIL);
+            else {
+                compileExpression(assignment.getFirstArgument());
+                emit(STORE_GLOBAL, assignment.getSlot());
+            }
+        }
+        else if (statement instanceof Print) {
+            if (compilingFunction)
+                emit(FAIL);
+            else {
+                compileCheck();
+                compileExpression(((Print) statement).getFirstArgument());
+                emit(PRINT);
+            }
+        }
+        else if (statement instanceof Action) {
+            if (compilingFunction)
+                emit(FAIL);
+            else {
+                compileCheck();
+                compileAction((Action) statement);
+            }
+        }
+        else if (statement instanceof If) {
+            If ifStatement = (If) statement;
+            compileCheck();
+            compileExpression(ifStatement.getFirstArgument());
+            int jumpToElse = emit(JUMP_IF_FALSE, 0);
+            compileStatement(ifStatement.getSecondArgument());
+            if (ifStatement.getThirdArgument() != null) {
+                int jumpToEnd = emit(JUMP, 0);
+                patch(jumpToElse, codeLength);
+                compileStatement(ifStatement.getThirdArgument());
+                patch(jumpToEnd, codeLength);
+            }
+            else
+                patch(jumpToElse, codeLength);
+        }
+        else if (statement instanceof While) {
+            While whileStatement = (While) statement;
+            int head = codeLength;
+            compileCheck();
+            compileExpression(whileStatement.getFirstArgument());
+            List<Integer> exits = new ArrayList<>();
+            exits.add(emit(JUMP_IF_FALSE, 0));
+            loopExits.push(exits);
+            compileStatement(whileStatement.getSecondArgument());
+            loopExits.pop();
+            emit(JUMP, head);
+            for (int exit : exits)
+                patch(exit, codeLength);
+        }
+        else if (statement instanceof Break) {
+            compileCheck();
+            if (!loopExits.isEmpty())
+                loopExits.peek().add(emit(JUMP, 0));
+            else if (compilingFunction)
+                emit(BREAK_CALLER);
+            else
+                emit(FAIL);
+        }
+        else if (statement instanceof Return) {
+            compileCheck();
+            if (compilingFunction) {
+                int jumpToEnd = emit(JUMP_IF_RETURNED, 0);
+                compileExpression(((Return) statement).getValue());
+                emit(SET_RETURN);
+                patch(jumpToEnd, codeLength);
+            }
+            else
+                emit(FAIL);
+        }
+        else
+            throw new IllegalArgumentException("Cannot compile " + statement.getClass().getSimpleName());
+    }
+
+    private void compileAction(Action action){
+        if (action instanceof Turn) {
+            compileExpression(((Turn) action).getAngle());
+            emit(TURN);
+        }
+        else if (action instanceof Fire)
+            emit(FIRE);
+        else if (action instanceof Thrust_On)
+            emit(THRUST_ON);
+        else if (action instanceof Thrust_Off)
+            emit(THRUST_OFF);
+        else if (action instanceof Skip)
+            emit(SKIP);
+        else
+            throw new IllegalArgumentException("Cannot compile " + action.getClass().getSimpleName());
+    }
+
+    private void compileExpression(Expression<?> expression){
+        if (expression instanceof DoubleLiteral) {
+            double value = ((DoubleLiteral) expression).getValue();
+            if (Double.isNaN(value))
+                emit(FAIL);
+            else {
+                emit(PUSH_DOUBLE, constants.size());
+                constants.add(value);
+            }
+        }
+        else if (expression instanceof BooleanLiteral)
+            emit(PUSH_BOOLEAN, ((BooleanLiteral) expression).getValue() ? 1 : 0);
+        else if (expression instanceof EntityLiteral)
+            emit(PUSH_ENTITY, addReference(((EntityLiteral) expression).getValue()));
+        else if (expression instanceof EntityNullLiteral)
+            emit(PUSH_NULL);
+        else if (expression instanceof EntitySelfLiteral)
+            emit(PUSH_SELF);
+        else if (expression instanceof ReadVariable)
+            compileReadVariable((ReadVariable) expression);
+        else if (expression instanceof ReadParameter)
+            compileReadParameter((ReadParameter) expression);
+        else if (expression instanceof FunctionInvocation)
+            compileFunctionInvocation((FunctionInvocation) expression);
+        else if (expression instanceof Addition)
+            compileBinary((Addition) expression, ADD);
+        else if (expression instanceof Subtraction)
+            compileBinary((Subtraction) expression, SUBTRACT);
+        else if (expression instanceof Multiplication)
+            compileBinary((Multiplication) expression, MULTIPLY);
+        else if (expression instanceof LesserThan)
+            compileBinary((LesserThan) expression, LESS);
+        else if (expression instanceof LesserOrEqual)
+            compileBinary((LesserOrEqual) expression, LESS_OR_EQUAL);
+        else if (expression instanceof GreaterThan)
+            compileBinary((GreaterThan) expression, GREATER);
+        else if (expression instanceof GreaterOrEqual)
+            compileBinary((GreaterOrEqual) expression, GREATER_OR_EQUAL);
+        else if (expression instanceof Equality)
+            compileBinary((Equality) expression, EQUAL);
+        else if (expression instanceof Inequality)
+            compileBinary((Inequality) expression, NOT_EQUAL);
+        else if (expression instanceof ChangeSign)
+            compileUnary((ChangeSign) expression, NEGATE);
+        else if (expression instanceof SquareRoot)
+            compileUnary((SquareRoot) expression, SQRT);
+        else if (expression instanceof Parentesis)
+            compileUnary((Parentesis) expression, REQUIRE_DOUBLE);
+        else if (expression instanceof ConstantDouble)
+            compileUnary((ConstantDouble) expression, REQUIRE_DOUBLE);
+        else if (expression instanceof BooleanNegation)
+            compileUnary((BooleanNegation) expression, NOT);
+        else if (expression instanceof GetPositionX)
+            compileUnary((GetPositionX) expression, GET_X);
+        else if (expression instanceof GetPositionY)
+            compileUnary((GetPositionY) expression, GET_Y);
+        else if (expression instanceof GetVelocityX)
+            compileUnary((GetVelocityX) expression, GET_VX);
+        else if (expression instanceof GetVelocityY)
+            compileUnary((GetVelocityY) expression, GET_VY);
+        else if (expression instanceof GetRadius)
+            compileUnary((GetRadius) expression, GET_RADIUS);
+        else if (expression instanceof GetHeading)
+            emit(GET_DIRECTION);
+        else
+            // Queries of the world, such as the closest asteroid, are evaluated by the expression itself.
+            emit(EVALUATE, addReference(expression));
+    }
+
+    private void compileReadVariable(ReadVariable variable){
+        if (!compilingFunction) {
+            if (variable.getGlobalSlot() < 0)
+                emit(FAIL);
+            else
+                emit(LOAD_GLOBAL, variable.getGlobalSlot());
+        }
+        else if (variable.getLocalSlot() < 0 && variable.getGlobalSlot() < 0)
+            emit(FAIL);
+        else
+            emit(LOAD_VARIABLE, variable.getLocalSlot(), variable.getGlobalSlot());
+    }
+
+    private void compileReadParameter(ReadParameter parameter){
+        if (parameter.getIndex() < 0)
+            emit(FAIL);
+        else
+            emit(LOAD_PARAMETER, parameter.getIndex());
+    }
+
+    private void compileFunctionInvocation(FunctionInvocation invocation){
+        List<?> arguments = invocation.getArgumentsAsExpressions();
+        for (Object argument : arguments)
+            compileExpression((Expression<?>) argument);
+        Integer function = functionIndices.get(invocation.getFunctionName());
+        if (function == null) {
+            emit(FAIL);
+            return;
+        }
+        // A break in the invoked function leaves the loop around this invocation in the main program.
+        // In a function, such a break is only allowed outside loops, where it leaves the loop around the invocation
+        // of that function.
+        if (!loopExits.isEmpty() && !compilingFunction)
+            loopExits.peek().add(emit(CALL, function, arguments.size(), 0) + 2);
+        else if (compilingFunction && loopExits.isEmpty())
+            emit(CALL, function, arguments.size(), INHERIT_LOOP);
+        else
+            emit(CALL, function, arguments.size(), NO_LOOP);
+    }
+
+    private void compileBinary(asteroids.model.program.TwoArgumentExecutable<?, ?> operation, int opcode){
+        compileExpression((Expression) operation.getFirstArgument());
+        compileExpression((Expression) operation.getSecondArgument());
+        emit(opcode);
+    }
+
+    private void compileUnary(asteroids.model.program.OneArgumentExecutable<?> operation, int opcode){
+        compileExpression((Expression) operation.getFirstArgument());
+        emit(opcode);
+    }
+
+    private int addReference(Object reference){
+        references.add(reference);
+        return references.size() - 1;
+    }
+
+    /**
+     * Append the given instruction and operands to the code, returning the address of the first operand,
+     * or of the instruction if it has no operands.
+     */
+    private int emit(int opcode, int... operands){
+        if (codeLength + 1 + operands.length > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, codeLength + 1 + operands.length));
+        int address = codeLength;
+        code[codeLength++] = opcode;
+        for (int operand : operands)
+            code[codeLength++] = operand;
+        return operands.length == 0 ? address : address + 1;
+    }
+
+    /**
+     * Set the operand at the given address to the given value.
+     */
+    private void patch(int address, int value){
+        code[address] = value;
+    }
+}
@@ -0,0 +1,100 @@
+package asteroids.model.program.bytecode;
+
+/**
+ * The instructions of the virtual machine executing compiled programs.
+ * An instruction is an opcode followed by its operands, all stored in the same array of integers.
+ * The comments list the operands of the instructions that have operands.
+ *
+ * @author WimKunnen and Maarten Doclo
+ */
+public final class Opcodes {
+
+    private Opcodes(){
+    }
+
+    /**
+     * Suspend the program if less than the time of an action is left, or jump to the exit of the loop
+     * that a function broke out of.
+     */
+    public final static int CHECK = 0;
+    /** Push the number at the given index of the constant pool. Operands: index. */
+    public final static int PUSH_DOUBLE = 1;
+    /** Push the given boolean. Operands: 0 or 1. */
+    public final static int PUSH_BOOLEAN = 2;
+    /** Push the entity at the given index of the reference pool. Operands: index. */
+    public final static int PUSH_ENTITY = 3;
+    /** Push the null entity. */
+    public final static int PUSH_NULL = 4;
+    /** Push the ship executing the program. */
+    public final static int PUSH_SELF = 5;
+    /** Push the value of the expression at the given index of the reference pool. Operands: index. */
+    public final static int EVALUATE = 6;
+    /** Push the value of the global variable in the given slot. Operands: slot. */
+    public final static int LOAD_GLOBAL = 7;
+    /** Pop a value into the global variable in the given slot. Operands: slot. */
+    public final static int STORE_GLOBAL = 8;
+    /**
+     * Push the local variable in the given slot or, if it has no value, the global variable in the given slot.
+     * Operands: local slot, global slot.
+     */
+    public final static int LOAD_VARIABLE = 9;
+    /** Pop a value into the local variable in the given slot. Operands: slot. */
+    public final static int STORE_LOCAL = 10;
+    /** Push the parameter with the given index. Operands: index. */
+    public final static int LOAD_PARAMETER = 11;
+    public final static int ADD = 12;
+    public final static int SUBTRACT = 13;
+    public final static int MULTIPLY = 14;
+    public final static int NEGATE = 15;
+    public final static int SQRT = 16;
+    /** Check that the value on top of the stack is a number. */
+    public final static int REQUIRE_DOUBLE = 17;
+    public final static int LESS = 18;
+    public final static int LESS_OR_EQUAL = 19;
+    public final static int GREATER = 20;
+    public final static int GREATER_OR_EQUAL = 21;
+    public final static int EQUAL = 22;
+    public final static int NOT_EQUAL = 23;
+    public final static int NOT = 24;
+    public final static int GET_X = 25;
+    public final static int GET_Y = 26;
+    public final static int GET_VX = 27;
+    public final static int GET_VY = 28;
+    public final static int GET_RADIUS = 29;
+    public final static int GET_DIRECTION = 30;
+    /** Jump to the given address. Operands: address. */
+    public final static int JUMP = 31;
+    /** Pop a boolean and jump to the given address if it is false. Operands: address. */
+    public final static int JUMP_IF_FALSE = 32;
+    public final static int PRINT = 33;
+    public final static int THRUST_ON = 34;
+    public final static int THRUST_OFF = 35;
+    public final static int FIRE = 36;
+    public final static int TURN = 37;
+    public final static int SKIP = 38;
+    /**
+     * Call the given function with the given number of arguments on top of the stack.
+     * The break target is the exit of the loop a break in the function leaves, NO_LOOP or INHERIT_LOOP.
+     * Operands: function index, number of arguments, break target.
+     */
+    public final static int CALL = 39;
+    /** Jump to the given address if the current function already has a return value. Operands: address. */
+    public final static int JUMP_IF_RETURNED = 40;
+    /** Pop the return value of the current function. */
+    public final static int SET_RETURN = 41;
+    /** Return from the current function, pushing its return value. */
+    public final static int END_FUNCTION = 42;
+    /** Break out of the loop in which the current function was called. */
+    public final static int BREAK_CALLER = 43;
+    /** Fail with a run time error. */
+    public final static int FAIL = 44;
+    /** Stop the program. */
+    public final static int HALT = 45;
+
+    /**
+     * The break targets of calls made outside any loop and of calls in a function that inherit the loop
+     * in which that function was called.
+     */
+    public final static int NO_LOOP = -1;
+    public final static int INHERIT_LOOP = -2;
+}
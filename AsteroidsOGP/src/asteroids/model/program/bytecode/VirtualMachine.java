@@ -0,0 +1,637 @@
+package asteroids.model.program.bytecode;
+
+import asteroids.model.Entity;
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.program.expressions.Expression;
+import asteroids.model.program.types.BooleanType;
+import asteroids.model.program.types.DoubleType;
+import asteroids.model.program.types.EntityType;
+import asteroids.model.program.types.Type;
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.util.Arrays;
+
+import static asteroids.model.program.bytecode.Opcodes.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of virtual machines executing a compiled program for a single ship.
+ *
+ * Values are kept in parallel arrays: a tag telling whether a slot holds nothing, a number, a boolean or an entity,
+ * a primitive number for numbers and booleans, and a reference for entities. Evaluating an expression therefore
+ * never creates objects, except when the expression is delegated to an expression of the program.
+ *
+ * The virtual machine keeps the address of the next statement of the main program between executions, and
+ * suspends the program with the same time budget as the statements: a statement of the main program only starts
+ * when at least 0.2 seconds are left, and every action uses 0.2 seconds.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class VirtualMachine {
+
+    /**
+     * Initializes a new virtual machine for the given compiled program.
+     *
+     * @param   bytecode
+     *          The compiled program to execute.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the compiled program is null.
+     *          | bytecode == null
+     */
+    public VirtualMachine(Bytecode bytecode) throws IllegalArgumentException {
+        this(bytecode, false);
+    }
+
+    /**
+     * Initializes a new virtual machine for the given compiled program.
+     *
+     * @param   bytecode
+     *          The compiled program to execute.
+     * @param   verified
+     *          Whether the program is well typed, in which case the virtual machine does not check whether a
+     *          variable keeps its type.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the compiled program is null.
+     *          | bytecode == null
+     */
+    public VirtualMachine(Bytecode bytecode, boolean verified) throws IllegalArgumentException {
+        if (bytecode == null)
+            throw new IllegalArgumentException("Not a compiled program!");
+        this.bytecode = bytecode;
+        this.verified = verified;
+        this.code = bytecode.getCodeArray();
+        int nbGlobals = bytecode.getNbGlobals();
+        this.globalTags = new int[nbGlobals];
+        this.globalNumbers = new double[nbGlobals];
+        this.globalReferences = new Entity[nbGlobals];
+    }
+
+    /**
+     * The tags of the values held by the slots of the virtual machine.
+     */
+    private final static int NONE = 0;
+    private final static int DOUBLE = 1;
+    private final static int BOOLEAN = 2;
+    private final static int ENTITY = 3;
+
+    /**
+     * The time used by an action, and the time a statement needs to start.
+     */
+    private final static double ACTION_TIME = 0.2;
+
+    /**
+     * The largest number of nested function invocations.
+     */
+    private final static int MAX_DEPTH = 1024;
+
+    private final Bytecode bytecode;
+    private final boolean verified;
+    private final int[] code;
+
+    @Basic
+    public Bytecode getBytecode(){
+        return bytecode;
+    }
+
+    /**
+     * The operand stack. Arguments of the function invocations in progress stay on the stack below the operands
+     * of the function they are passed to.
+     */
+    private int[] stackTags = new int[32];
+    private double[] stackNumbers = new double[32];
+    private Entity[] stackReferences = new Entity[32];
+    private int sp = 0;
+
+    /**
+     * The global variables, by slot.
+     */
+    private final int[] globalTags;
+    private final double[] globalNumbers;
+    private final Entity[] globalReferences;
+
+    /**
+     * The local variables of the function invocations in progress, the variables of every invocation
+     * following those of the invocation it was made from.
+     */
+    private int[] localTags = new int[16];
+    private double[] localNumbers = new double[16];
+    private Entity[] localReferences = new Entity[16];
+    private int localTop = 0;
+
+    /**
+     * The function invocations in progress.
+     */
+    private int[] frameReturnAddresses = new int[8];
+    private int[] frameParameterBases = new int[8];
+    private int[] frameNbParameters = new int[8];
+    private int[] frameLocalBases = new int[8];
+    private int[] frameBreakTargets = new int[8];
+    private int[] frameReturnTags = new int[8];
+    private double[] frameReturnNumbers = new double[8];
+    private Entity[] frameReturnReferences = new Entity[8];
+    private int fp = -1;
+
+    /**
+     * The address of the next instruction of the main program.
+     */
+    private int pc = 0;
+
+    /**
+     * The exit of the loop a function broke out of, left as soon as the statement of the main program
+     * that invoked the function is finished, or NO_LOOP.
+     */
+    private int pendingBreak = NO_LOOP;
+
+    /**
+     * Whether the main program has been executed completely.
+     */
+    private boolean halted = false;
+
+    /**
+     * Check whether the main program has been executed completely.
+     */
+    @Basic
+    public boolean isHalted(){
+        return halted;
+    }
+
+    /**
+     * Returns the address of the next instruction of the main program.
+     */
+    @Basic
+    public int getProgramCounter(){
+        return pc;
+    }
+
+    /**
+     * Continue the main program at the given address, which was returned by getProgramCounter of a virtual machine
+     * for the same compiled program.
+     *
+     * @param   pc
+     *          The address of the next instruction of the main program.
+     * @param   halted
+     *          Whether the main program has been executed completely.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the address lies outside the compiled program.
+     *          | pc < 0 || pc >= getBytecode().getCodeArray().length
+     */
+    public void restoreProgramCounter(int pc, boolean halted) throws IllegalArgumentException {
+        if (pc < 0 || pc >= code.length)
+            throw new IllegalArgumentException("Not a valid address!");
+        this.pc = pc;
+        this.halted = halted;
+    }
+
+    /**
+     * Returns the value of the global variable with the given slot, or null if the variable has no value.
+     *
+     * @see implementation
+     */
+    public Type<?> getGlobalValue(int slot){
+        switch (globalTags[slot]) {
+            case DOUBLE:
+                return new DoubleType(globalNumbers[slot]);
+            case BOOLEAN:
+                return new BooleanType(globalNumbers[slot] != 0);
+            case ENTITY:
+                return new EntityType(globalReferences[slot]);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Set the value of the global variable with the given slot. A null value removes the value of the variable.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the value is not a number, a boolean, an entity or null.
+     */
+    public void setGlobalValue(int slot, Type<?> value) throws IllegalArgumentException {
+        globalReferences[slot] = null;
+        if (value == null) {
+            globalTags[slot] = NONE;
+            globalNumbers[slot] = 0;
+        }
+        else if (value instanceof DoubleType) {
+            globalTags[slot] = DOUBLE;
+            globalNumbers[slot] = ((DoubleType) value).getType();
+        }
+        else if (value instanceof BooleanType) {
+            globalTags[slot] = BOOLEAN;
+            globalNumbers[slot] = ((BooleanType) value).getType() ? 1 : 0;
+        }
+        else if (value instanceof EntityType) {
+            globalTags[slot] = ENTITY;
+            globalNumbers[slot] = 0;
+            globalReferences[slot] = ((EntityType) value).getType();
+        }
+        else
+            throw new IllegalArgumentException("Invalid value!");
+    }
+
+    /**
+     * Execute the compiled program for the given program during the given time.
+     *
+     * @param   program
+     *          The program providing the ship, the time left and the list of printed values.
+     * @param   timeDifference
+     *          The time the program can execute.
+     *
+     * @return  True if and only if the main program has been executed completely.
+     *
+     * @throws  RuntimeException
+     *          Thrown if the program fails; the virtual machine must not be used anymore afterwards.
+     */
+    public boolean execute(Program program, double timeDifference) throws RuntimeException {
+        if (halted)
+            return true;
+        double total = timeDifference + program.getTimeLeft();
+        program.setTotalTime(total);
+        sp = 0;
+        fp = -1;
+        localTop = 0;
+        pendingBreak = NO_LOOP;
+        int[] code = this.code;
+        int pc = this.pc;
+
+        while (true) {
+            int opcode = code[pc++];
+            switch (opcode) {
+                case CHECK:
+                    if (pendingBreak != NO_LOOP) {
+                        pc = pendingBreak;
+                        pendingBreak = NO_LOOP;
+                        break;
+                    }
+                    if (total < ACTION_TIME) {
+                        program.setTotalTime(total);
+                        program.setTimeLeft(total);
+                        this.pc = pc - 1;
+                        return false;
+                    }
+                    break;
+                case PUSH_DOUBLE:
+                    pushDouble(bytecode.getConstant(code[pc++]));
+                    break;
+                case PUSH_BOOLEAN:
+                    pushBoolean(code[pc++] != 0);
+                    break;
+                case PUSH_ENTITY:
+                    pushEntity((Entity) bytecode.getReference(code[pc++]));
+                    break;
+                case PUSH_NULL:
+                    pushEntity(null);
+                    break;
+                case PUSH_SELF:
+                    pushEntity(getShip(program));
+                    break;
+                case EVALUATE:
+                    pushType(((Expression<?>) bytecode.getReference(code[pc++])).calculate(program));
+                    break;
+                case LOAD_GLOBAL: {
+                    int slot = code[pc++];
+                    if (globalTags[slot] == NONE)
+                        throw new RuntimeException("Variable " + bytecode.getGlobalName(slot) + " has no value!");
+                    push(globalTags[slot], globalNumbers[slot], globalReferences[slot]);
+                    break;
+                }
+                case STORE_GLOBAL: {
+                    int slot = code[pc++];
+                    sp--;
+                    if (!verified && globalTags[slot] != NONE && globalTags[slot] != stackTags[sp])
+                        throw new RuntimeException("Variable " + bytecode.getGlobalName(slot) + " changes type!");
+                    globalTags[slot] = stackTags[sp];
+                    globalNumbers[slot] = stackNumbers[sp];
+                    globalReferences[slot] = stackReferences[sp];
+                    break;
+                }
+                case LOAD_VARIABLE: {
+                    int local = code[pc++];
+                    int global = code[pc++];
+                    if (local >= 0 && localTags[frameLocalBases[fp] + local] != NONE) {
+                        int slot = frameLocalBases[fp] + local;
+                        push(localTags[slot], localNumbers[slot], localReferences[slot]);
+                    }
+                    else if (global >= 0 && globalTags[global] != NONE)
+                        push(globalTags[global], globalNumbers[global], globalReferences[global]);
+                    else
+                        throw new RuntimeException("Variable has no value!");
+                    break;
+                }
+                case STORE_LOCAL: {
+                    int slot = frameLocalBases[fp] + code[pc++];
+                    sp--;
+                    if (!verified && localTags[slot] != NONE && localTags[slot] != stackTags[sp])
+                        throw new RuntimeException("Variable changes type!");
+                    localTags[slot] = stackTags[sp];
+                    localNumbers[slot] = stackNumbers[sp];
+                    localReferences[slot] = stackReferences[sp];
+                    break;
+                }
+                case LOAD_PARAMETER: {
+                    int index = code[pc++];
+                    if (index >= frameNbParameters[fp])
+                        throw new RuntimeException("No parameter $" + (index + 1) + "!");
+                    int slot = frameParameterBases[fp] + index;
+                    push(stackTags[slot], stackNumbers[slot], stackReferences[slot]);
+                    break;
+                }
+                case ADD: {
+                    double right = popDouble();
+                    pushDouble(popDouble() + right);
+                    break;
+                }
+                case SUBTRACT: {
+                    double right = popDouble();
+                    pushDouble(popDouble() - right);
+                    break;
+                }
+                case MULTIPLY: {
+                    double right = popDouble();
+                    pushDouble(popDouble() * right);
+                    break;
+                }
+                case NEGATE:
+                    pushDouble(-popDouble());
+                    break;
+                case SQRT: {
+                    double value = popDouble();
+                    if (value < 0)
+                        throw new RuntimeException("Square root of a negative number!");
+                    pushDouble(Math.sqrt(value));
+                    break;
+                }
+                case REQUIRE_DOUBLE:
+                    pushDouble(popDouble());
+                    break;
+                case LESS: {
+                    double right = popDouble();
+                    pushBoolean(popDouble() < right);
+                    break;
+                }
+                case LESS_OR_EQUAL: {
+                    double right = popDouble();
+                    pushBoolean(popDouble() <= right);
+                    break;
+                }
+                case GREATER: {
+                    double right = popDouble();
+                    pushBoolean(popDouble() > right);
+                    break;
+                }
+                case GREATER_OR_EQUAL: {
+                    double right = popDouble();
+                    pushBoolean(popDouble() >= right);
+                    break;
+                }
+                case EQUAL:
+                    sp -= 2;
+                    pushBoolean(areEqual(sp, sp + 1));
+                    break;
+                case NOT_EQUAL:
+                    sp -= 2;
+                    pushBoolean(!areEqual(sp, sp + 1));
+                    break;
+                case NOT:
+                    pushBoolean(!popBoolean());
+                    break;
+                case GET_X:
+                    pushDouble(popExistingEntity().getPosition().getX());
+                    break;
+                case GET_Y:
+                    pushDouble(popExistingEntity().getPosition().getY());
+                    break;
+                case GET_VX:
+                    pushDouble(popExistingEntity().getVelocity().getX());
+                    break;
+                case GET_VY:
+                    pushDouble(popExistingEntity().getVelocity().getY());
+                    break;
+                case GET_RADIUS:
+                    pushDouble(popExistingEntity().getRadius());
+                    break;
+                case GET_DIRECTION:
+                    pushDouble(getShip(program).getHeading());
+                    break;
+                case JUMP:
+                    pc = code[pc];
+                    break;
+                case JUMP_IF_FALSE:
+                    if (popBoolean())
+                        pc++;
+                    else
+                        pc = code[pc];
+                    break;
+                case PRINT: {
+                    sp--;
+                    Object value = getObject(sp);
+                    program.getPrinted().add(value);
+                    System.out.println(value);
+                    break;
+                }
+                case THRUST_ON:
+                    getShip(program).thrustOn();
+                    total -= ACTION_TIME;
+                    break;
+                case THRUST_OFF:
+                    getShip(program).thrustOff();
+                    total -= ACTION_TIME;
+                    break;
+                case FIRE:
+                    getShip(program).fire();
+                    total -= ACTION_TIME;
+                    break;
+                case TURN: {
+                    double angle = popDouble();
+                    Ship ship = getShip(program);
+                    if (angle >= 2 * Math.PI || angle < 0)
+                        throw new RuntimeException("Invalid angle!");
+                    ship.turn(angle);
+                    total -= ACTION_TIME;
+                    break;
+                }
+                case SKIP:
+                    total -= ACTION_TIME;
+                    break;
+                case CALL: {
+                    int function = code[pc++];
+                    int nbArguments = code[pc++];
+                    int breakTarget = code[pc++];
+                    if (breakTarget == INHERIT_LOOP)
+                        breakTarget = frameBreakTargets[fp];
+                    pushFrame(pc, nbArguments, bytecode.getFunctionNbLocals(function), breakTarget);
+                    pc = bytecode.getFunctionEntry(function);
+                    break;
+                }
+                case JUMP_IF_RETURNED:
+                    if (frameReturnTags[fp] != NONE)
+                        pc = code[pc];
+                    else
+                        pc++;
+                    break;
+                case SET_RETURN:
+                    sp--;
+                    frameReturnTags[fp] = stackTags[sp];
+                    frameReturnNumbers[fp] = stackNumbers[sp];
+                    frameReturnReferences[fp] = stackReferences[sp];
+                    break;
+                case END_FUNCTION:
+                    if (frameReturnTags[fp] == NONE)
+                        throw new RuntimeException("Function without return value!");
+                    pc = frameReturnAddresses[fp];
+                    sp = frameParameterBases[fp];
+                    localTop = frameLocalBases[fp];
+                    push(frameReturnTags[fp], frameReturnNumbers[fp], frameReturnReferences[fp]);
+                    frameReturnReferences[fp] = null;
+                    fp--;
+                    break;
+                case BREAK_CALLER:
+                    if (frameBreakTargets[fp] == NO_LOOP || pendingBreak != NO_LOOP)
+                        throw new RuntimeException("Break outside a loop!");
+                    pendingBreak = frameBreakTargets[fp];
+                    break;
+                case FAIL:
+                    throw new RuntimeException("Invalid statement or expression!");
+                case HALT:
+                    halted = true;
+                    this.pc = pc - 1;
+                    return true;
+                default:
+                    throw new RuntimeException("Invalid opcode " + opcode + "!");
+            }
+        }
+    }
+
+    private static Ship getShip(Program program) throws RuntimeException {
+        Ship ship = program.getShip();
+        if (ship == null)
+            throw new RuntimeException("Program without ship!");
+        return ship;
+    }
+
+    private void push(int tag, double number, Entity reference){
+        if (sp == stackTags.length) {
+            stackTags = Arrays.copyOf(stackTags, sp * 2);
+            stackNumbers = Arrays.copyOf(stackNumbers, sp * 2);
+            stackReferences = Arrays.copyOf(stackReferences, sp * 2);
+        }
+        stackTags[sp] = tag;
+        stackNumbers[sp] = number;
+        stackReferences[sp] = reference;
+        sp++;
+    }
+
+    private void pushDouble(double value){
+        push(DOUBLE, value, null);
+    }
+
+    private void pushBoolean(boolean value){
+        push(BOOLEAN, value ? 1 : 0, null);
+    }
+
+    private void pushEntity(Entity entity){
+        push(ENTITY, 0, entity);
+    }
+
+    private void pushType(Type<?> value) throws RuntimeException {
+        if (value instanceof DoubleType)
+            pushDouble(((DoubleType) value).getType());
+        else if (value instanceof BooleanType)
+            pushBoolean(((BooleanType) value).getType());
+        else if (value instanceof EntityType)
+            pushEntity(((EntityType) value).getType());
+        else
+            throw new RuntimeException("Invalid value!");
+    }
+
+    private double popDouble() throws RuntimeException {
+        sp--;
+        if (stackTags[sp] != DOUBLE)
+            throw new RuntimeException("Not a number!");
+        return stackNumbers[sp];
+    }
+
+    private boolean popBoolean() throws RuntimeException {
+        sp--;
+        if (stackTags[sp] != BOOLEAN)
+            throw new RuntimeException("Not a boolean!");
+        return stackNumbers[sp] != 0;
+    }
+
+    private Entity popExistingEntity() throws RuntimeException {
+        sp--;
+        if (stackTags[sp] != ENTITY || stackReferences[sp] == null)
+            throw new RuntimeException("Not an entity!");
+        Entity entity = stackReferences[sp];
+        stackReferences[sp] = null;
+        return entity;
+    }
+
+    /**
+     * Returns the value on the stack at the given index as an object, as the statements print it.
+     */
+    private Object getObject(int index){
+        switch (stackTags[index]) {
+            case DOUBLE:
+                return stackNumbers[index];
+            case BOOLEAN:
+                return stackNumbers[index] != 0;
+            default:
+                Entity entity = stackReferences[index];
+                stackReferences[index] = null;
+                return entity;
+        }
+    }
+
+    /**
+     * Check whether the values on the stack at the given indices are equal, comparing numbers like Double.equals.
+     */
+    private boolean areEqual(int left, int right){
+        if (stackTags[left] != stackTags[right])
+            return false;
+        if (stackTags[left] == ENTITY)
+            return stackReferences[left] == stackReferences[right];
+        return Double.doubleToLongBits(stackNumbers[left]) == Double.doubleToLongBits(stackNumbers[right]);
+    }
+
+    private void pushFrame(int returnAddress, int nbArguments, int nbLocals, int breakTarget) throws RuntimeException {
+        if (fp + 1 == MAX_DEPTH)
+            throw new RuntimeException("Too many nested function invocations!");
+        fp++;
+        if (fp == frameReturnAddresses.length) {
+            int length = fp * 2;
+            frameReturnAddresses = Arrays.copyOf(frameReturnAddresses, length);
+            frameParameterBases = Arrays.copyOf(frameParameterBases, length);
+            frameNbParameters = Arrays.copyOf(frameNbParameters, length);
+            frameLocalBases = Arrays.copyOf(frameLocalBases, length);
+            frameBreakTargets = Arrays.copyOf(frameBreakTargets, length);
+            frameReturnTags = Arrays.copyOf(frameReturnTags, length);
+            frameReturnNumbers = Arrays.copyOf(frameReturnNumbers, length);
+            frameReturnReferences = Arrays.copyOf(frameReturnReferences, length);
+        }
+        if (localTop + nbLocals > localTags.length) {
+            int length = Math.max(localTags.length * 2, localTop + nbLocals);
+            localTags = Arrays.copyOf(localTags, length);
+            localNumbers = Arrays.copyOf(localNumbers, length);
+            localReferences = Arrays.copyOf(localReferences, length);
+        }
+        frameReturnAddresses[fp] = returnAddress;
+        frameParameterBases[fp] = sp - nbArguments;
+        frameNbParameters[fp] = nbArguments;
+        frameLocalBases[fp] = localTop;
+        frameBreakTargets[fp] = breakTarget;
+        frameReturnTags[fp] = NONE;
+        for (int slot = localTop; slot < localTop + nbLocals; slot++) {
+            localTags[slot] = NONE;
+            localReferences[slot] = null;
+        }
+        localTop += nbLocals;
+    }
+}
@@ -0,0 +1,273 @@
+package asteroids.model.program.cache;
+
+import asteroids.model.program.TypeCheckException;
+import asteroids.part3.programs.IProgramFactory;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import asteroids.part3.programs.internal.generated.AsteroidsProgramLexer;
+import asteroids.part3.programs.internal.generated.AsteroidsProgramParser;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of caches keeping parsed programs in a directory, so a program source is only parsed once, even across
+ * runs. A cached program is kept as the calls the parser made on its program factory, recorded by a program
+ * recorder; on a hit, the calls are read through a memory-mapped buffer and replayed on the factory, without
+ * running the lexer, the parser or its visitor.
+ *
+ * Every entry is kept in a file of its own, named after a SHA-256 digest of the language version and the source.
+ * The language version combines a version number, raised whenever the parser visitor or the format of the
+ * recordings changes, with the grammar of the parser, so entries written by another version of the language are
+ * never used. An entry also holds the full digest and a checksum of its recording, and is written to a temporary
+ * file that is moved into place, so a truncated, corrupted or stale entry is detected and replaced by parsing the
+ * source again.
+ *
+ * A cache can be shared by any number of threads and processes.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class ProgramCache {
+
+    /**
+     * The version of the language and the recordings, raised whenever they change.
+     */
+    public final static int LANGUAGE_VERSION = 1;
+
+    /**
+     * The layout of the header of an entry: a magic number, the version of the format, the length of the source,
+     * the number of nodes and the size of the recording, the checksum of the recording and the digest of the source.
+     */
+    private final static int MAGIC = 0x41535043;
+    private final static int FORMAT_VERSION = 1;
+    private final static int DIGEST_SIZE = 32;
+    private final static int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 8 + DIGEST_SIZE;
+
+    private final static String EXTENSION = ".prg";
+
+    /**
+     * The bytes prepended to every source before it is digested, identifying the version of the language.
+     */
+    private final static byte[] LANGUAGE;
+
+    static {
+        MessageDigest digest = newDigest();
+        digest.update(ByteBuffer.allocate(4).putInt(LANGUAGE_VERSION).array());
+        digest.update(AsteroidsProgramLexer._serializedATN.getBytes(StandardCharsets.UTF_8));
+        digest.update(AsteroidsProgramParser._serializedATN.getBytes(StandardCharsets.UTF_8));
+        LANGUAGE = digest.digest();
+    }
+
+    /**
+     * Initializes a new cache in the given directory, which is created if it does not exist.
+     *
+     * @throws  IOException
+     *          Thrown if the directory cannot be created.
+     */
+    public ProgramCache(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    private final Path directory;
+
+    @Basic @Immutable
+    public Path getDirectory(){
+        return this.directory;
+    }
+
+    /**
+     * Variables registering the number of sources found in this cache, the number of sources that had to be
+     * parsed, and the number of entries that were found but could not be used.
+     */
+    private final AtomicLong nbHits = new AtomicLong();
+    private final AtomicLong nbMisses = new AtomicLong();
+    private final AtomicLong nbRejected = new AtomicLong();
+
+    public long getNbHits(){
+        return nbHits.get();
+    }
+
+    public long getNbMisses(){
+        return nbMisses.get();
+    }
+
+    /**
+     * Returns the number of entries that were truncated, corrupted or written for another source or version.
+     */
+    public long getNbRejected(){
+        return nbRejected.get();
+    }
+
+    /**
+     * Return the program with the given source, built by the given factory. The program is built from the entry
+     * of the source in this cache if there is a valid one; otherwise the source is parsed and the entry written.
+     * Failing to write the entry does not make the parse fail.
+     *
+     * @return  The outcome of parsing the source with the given factory.
+     */
+    public <P> ParseOutcome<P> parse(String source, IProgramFactory<?, ?, ?, P> factory){
+        byte[] digest = digest(source);
+        Path path = getPath(digest);
+        P program;
+        try {
+            program = load(path, digest, source, factory);
+        }
+        catch (TypeCheckException e) {
+            nbHits.incrementAndGet();
+            return ParseOutcome.failure(e.getErrors());
+        }
+        if (program != null) {
+            nbHits.incrementAndGet();
+            return ParseOutcome.success(program);
+        }
+        nbMisses.incrementAndGet();
+        ParseOutcome<RecordedProgram> outcome = ProgramParser.create(new ProgramRecorder()).parseString(source);
+        if (outcome.isFail())
+            return ParseOutcome.failure(outcome.getFailValue());
+        RecordedProgram recording = outcome.getSuccessValue();
+        try {
+            store(path, digest, source, recording);
+        }
+        catch (IOException e) {
+            // The program is still returned; it is parsed again next time.
+        }
+        try {
+            return ParseOutcome.success(recording.replay(factory));
+        }
+        catch (TypeCheckException e) {
+            return ParseOutcome.failure(e.getErrors());
+        }
+        catch (RuntimeException e) {
+            return ParseOutcome.failure(Collections.singletonList(e.toString()));
+        }
+    }
+
+    /**
+     * Returns the digest identifying the given source in the current version of the language.
+     */
+    static byte[] digest(String source){
+        MessageDigest digest = newDigest();
+        digest.update(LANGUAGE);
+        digest.update(source.getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest(){
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the path of the entry with the given digest.
+     */
+    Path getPath(byte[] digest){
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest)
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return directory.resolve(name.append(EXTENSION).toString());
+    }
+
+    /**
+     * Build the program in the entry at the given path with the given factory, or return null if there is no valid
+     * entry for the given source at that path.
+     *
+     * @throws  TypeCheckException
+     *          Thrown if the entry is valid, but the factory rejects the program it holds.
+     */
+    private <P> P load(Path path, byte[] digest, String source, IProgramFactory<?, ?, ?, P> factory){
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                nbRejected.incrementAndGet();
+                return null;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+        catch (IOException e) {
+            nbRejected.incrementAndGet();
+            return null;
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION || buffer.getInt() != source.length())
+                throw new IllegalArgumentException("Stale entry!");
+            int nbNodes = buffer.getInt();
+            int recordingSize = buffer.getInt();
+            long checksum = buffer.getLong();
+            byte[] entryDigest = new byte[DIGEST_SIZE];
+            buffer.get(entryDigest);
+            if (!Arrays.equals(entryDigest, digest))
+                throw new IllegalArgumentException("Stale entry!");
+            if (recordingSize != buffer.remaining())
+                throw new IllegalArgumentException("Truncated entry!");
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if (crc.getValue() != checksum)
+                throw new IllegalArgumentException("Corrupted entry!");
+            return RecordedProgram.replay(nbNodes, buffer, factory);
+        }
+        catch (TypeCheckException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            nbRejected.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Write an entry for the given source and recording at the given path, replacing any existing entry.
+     */
+    private void store(Path path, byte[] digest, String source, RecordedProgram recording) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + recording.getSize());
+        buffer.position(HEADER_SIZE);
+        recording.writeTo(buffer);
+        CRC32 crc = new CRC32();
+        buffer.position(HEADER_SIZE);
+        crc.update(buffer);
+        buffer.position(0);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(source.length()).putInt(recording.getNbNodes())
+                .putInt(recording.getSize()).putLong(crc.getValue()).put(digest);
+        buffer.position(0);
+
+        Path temporary = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining())
+                    channel.write(buffer);
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package asteroids.model.program.cache;
+
+import asteroids.part3.programs.IProgramFactory;
+import asteroids.part3.programs.SourceLocation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of program factories that record the calls the parser makes instead of building a program. Every
+ * expression, statement and function is represented by the number of the call that created it; a call is recorded
+ * as its kind, its source location and its arguments, where expressions, statements and functions are referred to
+ * by their number. The recorded program can be replayed on any other program factory, which then builds the same
+ * program as if it had been used by the parser itself.
+ *
+ * A recorder records a single program.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class ProgramRecorder implements IProgramFactory<Integer, Integer, Integer, RecordedProgram> {
+
+    /**
+     * The kinds of calls, one for every method of the program factory interface.
+     */
+    final static byte PROGRAM = 0;
+    final static byte FUNCTION_DEFINITION = 1;
+    final static byte ASSIGNMENT = 2;
+    final static byte WHILE = 3;
+    final static byte BREAK = 4;
+    final static byte RETURN = 5;
+    final static byte IF = 6;
+    final static byte PRINT = 7;
+    final static byte SEQUENCE = 8;
+    final static byte READ_VARIABLE = 9;
+    final static byte READ_PARAMETER = 10;
+    final static byte FUNCTION_CALL = 11;
+    final static byte CHANGE_SIGN = 12;
+    final static byte NOT = 13;
+    final static byte DOUBLE_LITERAL = 14;
+    final static byte NULL = 15;
+    final static byte SELF = 16;
+    final static byte SHIP = 17;
+    final static byte ASTEROID = 18;
+    final static byte PLANETOID = 19;
+    final static byte BULLET = 20;
+    final static byte PLANET = 21;
+    final static byte ANY = 22;
+    final static byte GET_X = 23;
+    final static byte GET_Y = 24;
+    final static byte GET_VX = 25;
+    final static byte GET_VY = 26;
+    final static byte GET_RADIUS = 27;
+    final static byte LESS_THAN = 28;
+    final static byte EQUALITY = 29;
+    final static byte ADDITION = 30;
+    final static byte MULTIPLICATION = 31;
+    final static byte SQRT = 32;
+    final static byte GET_DIRECTION = 33;
+    final static byte THRUST_ON = 34;
+    final static byte THRUST_OFF = 35;
+    final static byte FIRE = 36;
+    final static byte TURN = 37;
+    final static byte SKIP = 38;
+
+    /**
+     * The value recorded for a reference to nothing, such as a missing else branch.
+     */
+    final static int NONE = -1;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    /**
+     * Variable registering the number of expressions, statements and functions created so far.
+     */
+    private int nbNodes = 0;
+
+    /**
+     * Record a call of the given kind at the given location, and return the number of the node it creates.
+     */
+    private Integer record(byte kind, SourceLocation location, Object... arguments){
+        try {
+            out.writeByte(kind);
+            out.writeInt(location == null ? NONE : location.getLine());
+            out.writeInt(location == null ? NONE : location.getColumn());
+            for (Object argument : arguments) {
+                if (argument == null)
+                    out.writeInt(NONE);
+                else if (argument instanceof Integer)
+                    out.writeInt((Integer) argument);
+                else if (argument instanceof Double)
+                    out.writeDouble((Double) argument);
+                else if (argument instanceof String)
+                    out.writeUTF((String) argument);
+                else {
+                    List<?> nodes = (List<?>) argument;
+                    out.writeInt(nodes.size());
+                    for (Object node : nodes)
+                        out.writeInt(node == null ? NONE : (Integer) node);
+                }
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return nbNodes++;
+    }
+
+    @Override
+    public RecordedProgram createProgram(List<Integer> functions, Integer main){
+        record(PROGRAM, null, functions, main);
+        nbNodes--;
+        return new RecordedProgram(nbNodes, bytes.toByteArray());
+    }
+
+    @Override
+    public Integer createFunctionDefinition(String functionName, Integer body, SourceLocation sourceLocation){
+        return record(FUNCTION_DEFINITION, sourceLocation, functionName, body);
+    }
+
+    @Override
+    public Integer createAssignmentStatement(String variableName, Integer value, SourceLocation sourceLocation){
+        return record(ASSIGNMENT, sourceLocation, variableName, value);
+    }
+
+    @Override
+    public Integer createWhileStatement(Integer condition, Integer body, SourceLocation sourceLocation){
+        return record(WHILE, sourceLocation, condition, body);
+    }
+
+    @Override
+    public Integer createBreakStatement(SourceLocation sourceLocation){
+        return record(BREAK, sourceLocation);
+    }
+
+    @Override
+    public Integer createReturnStatement(Integer value, SourceLocation sourceLocation){
+        return record(RETURN, sourceLocation, value);
+    }
+
+    @Override
+    public Integer createIfStatement(Integer condition, Integer ifBody, Integer elseBody,
+                                     SourceLocation sourceLocation){
+        return record(IF, sourceLocation, condition, ifBody, elseBody);
+    }
+
+    @Override
+    public Integer createPrintStatement(Integer value, SourceLocation sourceLocation){
+        return record(PRINT, sourceLocation, value);
+    }
+
+    @Override
+    public Integer createSequenceStatement(List<Integer> statements, SourceLocation sourceLocation){
+        return record(SEQUENCE, sourceLocation, statements);
+    }
+
+    @Override
+    public Integer createReadVariableExpression(String variableName, SourceLocation sourceLocation){
+        return record(READ_VARIABLE, sourceLocation, variableName);
+    }
+
+    @Override
+    public Integer createReadParameterExpression(String parameterName, SourceLocation sourceLocation){
+        return record(READ_PARAMETER, sourceLocation, parameterName);
+    }
+
+    @Override
+    public Integer createFunctionCallExpression(String functionName, List<Integer> actualArgs,
+                                               SourceLocation sourceLocation){
+        return record(FUNCTION_CALL, sourceLocation, functionName, actualArgs);
+    }
+
+    @Override
+    public Integer createChangeSignExpression(Integer expression, SourceLocation sourceLocation){
+        return record(CHANGE_SIGN, sourceLocation, expression);
+    }
+
+    @Override
+    public Integer createNotExpression(Integer expression, SourceLocation sourceLocation){
+        return record(NOT, sourceLocation, expression);
+    }
+
+    @Override
+    public Integer createDoubleLiteralExpression(double value, SourceLocation location){
+        return record(DOUBLE_LITERAL, location, value);
+    }
+
+    @Override
+    public Integer createNullExpression(SourceLocation location){
+        return record(NULL, location);
+    }
+
+    @Override
+    public Integer createSelfExpression(SourceLocation location){
+        return record(SELF, location);
+    }
+
+    @Override
+    public Integer createShipExpression(SourceLocation location){
+        return record(SHIP, location);
+    }
+
+    @Override
+    public Integer createAsteroidExpression(SourceLocation location){
+        return record(ASTEROID, location);
+    }
+
+    @Override
+    public Integer createPlanetoidExpression(SourceLocation location){
+        return record(PLANETOID, location);
+    }
+
+    @Override
+    public Integer createBulletExpression(SourceLocation location){
+        return record(BULLET, location);
+    }
+
+    @Override
+    public Integer createPlanetExpression(SourceLocation location){
+        return record(PLANET, location);
+    }
+
+    @Override
+    public Integer createAnyExpression(SourceLocation location){
+        return record(ANY, location);
+    }
+
+    @Override
+    public Integer createGetXExpression(Integer e, SourceLocation location){
+        return record(GET_X, location, e);
+    }
+
+    @Override
+    public Integer createGetYExpression(Integer e, SourceLocation location){
+        return record(GET_Y, location, e);
+    }
+
+    @Override
+    public Integer createGetVXExpression(Integer e, SourceLocation location){
+        return record(GET_VX, location, e);
+    }
+
+    @Override
+    public Integer createGetVYExpression(Integer e, SourceLocation location){
+        return record(GET_VY, location, e);
+    }
+
+    @Override
+    public Integer createGetRadiusExpression(Integer e, SourceLocation location){
+        return record(GET_RADIUS, location, e);
+    }
+
+    @Override
+    public Integer createLessThanExpression(Integer e1, Integer e2, SourceLocation location){
+        return record(LESS_THAN, location, e1, e2);
+    }
+
+    @Override
+    public Integer createEqualityExpression(Integer e1, Integer e2, SourceLocation location){
+        return record(EQUALITY, location, e1, e2);
+    }
+
+    @Override
+    public Integer createAdditionExpression(Integer e1, Integer e2, SourceLocation location){
+        return record(ADDITION, location, e1, e2);
+    }
+
+    @Override
+    public Integer createMultiplicationExpression(Integer e1, Integer e2, SourceLocation location){
+        return record(MULTIPLICATION, location, e1, e2);
+    }
+
+    @Override
+    public Integer createSqrtExpression(Integer e, SourceLocation location){
+        return record(SQRT, location, e);
+    }
+
+    @Override
+    public Integer createGetDirectionExpression(SourceLocation location){
+        return record(GET_DIRECTION, location);
+    }
+
+    @Override
+    public Integer createThrustOnStatement(SourceLocation location){
+        return record(THRUST_ON, location);
+    }
+
+    @Override
+    public Integer createThrustOffStatement(SourceLocation location){
+        return record(THRUST_OFF, location);
+    }
+
+    @Override
+    public Integer createFireStatement(SourceLocation location){
+        return record(FIRE, location);
+    }
+
+    @Override
+    public Integer createTurnStatement(Integer angle, SourceLocation location){
+        return record(TURN, location, angle);
+    }
+
+    @Override
+    public Integer createSkipStatement(SourceLocation location){
+        return record(SKIP, location);
+    }
+}
@@ -0,0 +1,256 @@
+package asteroids.model.program.cache;
+
+import asteroids.part3.programs.IProgramFactory;
+import asteroids.part3.programs.SourceLocation;
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static asteroids.model.program.cache.ProgramRecorder.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of programs recorded by a program recorder, as the sequence of calls the parser made on its factory.
+ * A recorded program is built by replaying these calls on a program factory, which is much cheaper than parsing
+ * its source again.
+ *
+ * @invar   The calls of a recorded program create its number of nodes.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class RecordedProgram {
+
+    /**
+     * Initializes a new recorded program.
+     *
+     * @param   nbNodes
+     *          The number of expressions, statements and functions the calls create.
+     * @param   calls
+     *          The recorded calls.
+     */
+    RecordedProgram(int nbNodes, byte[] calls){
+        this.nbNodes = nbNodes;
+        this.calls = calls;
+    }
+
+    private final int nbNodes;
+    private final byte[] calls;
+
+    @Basic @Immutable
+    public int getNbNodes(){
+        return this.nbNodes;
+    }
+
+    /**
+     * Returns the number of bytes of the recorded calls.
+     */
+    public int getSize(){
+        return calls.length;
+    }
+
+    /**
+     * Write the recorded calls to the given buffer.
+     */
+    void writeTo(ByteBuffer buffer){
+        buffer.put(calls);
+    }
+
+    /**
+     * Build the recorded program with the given factory.
+     *
+     * @see implementation
+     */
+    public <E, S, F, P> P replay(IProgramFactory<E, S, F, P> factory) throws IllegalArgumentException {
+        return replay(nbNodes, ByteBuffer.wrap(calls), factory);
+    }
+
+    /**
+     * Build the program recorded in the remaining bytes of the given buffer with the given factory.
+     *
+     * @param   nbNodes
+     *          The number of expressions, statements and functions the recorded calls create.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the bytes are not a valid recording: if a call is of an unknown kind, if it refers to a
+     *          node that has not been created yet, if the bytes end in the middle of a call, or if they do not end
+     *          with the call creating the program.
+     */
+    @SuppressWarnings("unchecked")
+    static <E, S, F, P> P replay(int nbNodes, ByteBuffer buffer, IProgramFactory<E, S, F, P> factory)
+            throws IllegalArgumentException {
+        if (nbNodes < 0 || nbNodes > buffer.remaining())
+            throw new IllegalArgumentException("Invalid number of nodes!");
+        Object[] nodes = new Object[nbNodes];
+        int nbCreated = 0;
+        try {
+            while (true) {
+                byte kind = buffer.get();
+                int line = buffer.getInt();
+                int column = buffer.getInt();
+                SourceLocation location = line == NONE ? null : new SourceLocation(line, column);
+                if (kind == PROGRAM) {
+                    List<F> functions = readNodes(buffer, nodes, nbCreated);
+                    S main = (S) readNode(buffer, nodes, nbCreated);
+                    if (nbCreated != nbNodes || buffer.hasRemaining())
+                        throw new IllegalArgumentException("Program is not the last call!");
+                    return factory.createProgram(functions, main);
+                }
+                if (nbCreated == nbNodes)
+                    throw new IllegalArgumentException("Too many calls!");
+                nodes[nbCreated] = create(kind, location, buffer, nodes, nbCreated, factory);
+                nbCreated++;
+            }
+        }
+        catch (BufferUnderflowException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid recording!", e);
+        }
+    }
+
+    /**
+     * Replay a single call of the given kind, which creates the node with the given number.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E, S, F, P> Object create(byte kind, SourceLocation location, ByteBuffer buffer, Object[] nodes,
+                                              int node, IProgramFactory<E, S, F, P> factory){
+        switch (kind) {
+            case FUNCTION_DEFINITION:
+                return factory.createFunctionDefinition(readString(buffer), (S) readNode(buffer, nodes, node),
+                        location);
+            case ASSIGNMENT:
+                return factory.createAssignmentStatement(readString(buffer), (E) readNode(buffer, nodes, node),
+                        location);
+            case WHILE:
+                return factory.createWhileStatement((E) readNode(buffer, nodes, node),
+                        (S) readNode(buffer, nodes, node), location);
+            case BREAK:
+                return factory.createBreakStatement(location);
+            case RETURN:
+                return factory.createReturnStatement((E) readNode(buffer, nodes, node), location);
+            case IF:
+                return factory.createIfStatement((E) readNode(buffer, nodes, node), (S) readNode(buffer, nodes, node),
+                        (S) readNode(buffer, nodes, node), location);
+            case PRINT:
+                return factory.createPrintStatement((E) readNode(buffer, nodes, node), location);
+            case SEQUENCE:
+                return factory.createSequenceStatement(readNodes(buffer, nodes, node), location);
+            case READ_VARIABLE:
+                return factory.createReadVariableExpression(readString(buffer), location);
+            case READ_PARAMETER:
+                return factory.createReadParameterExpression(readString(buffer), location);
+            case FUNCTION_CALL:
+                return factory.createFunctionCallExpression(readString(buffer), readNodes(buffer, nodes, node),
+                        location);
+            case CHANGE_SIGN:
+                return factory.createChangeSignExpression((E) readNode(buffer, nodes, node), location);
+            case NOT:
+                return factory.createNotExpression((E) readNode(buffer, nodes, node), location);
+            case DOUBLE_LITERAL:
+                return factory.createDoubleLiteralExpression(buffer.getDouble(), location);
+            case NULL:
+                return factory.createNullExpression(location);
+            case SELF:
+                return factory.createSelfExpression(location);
+            case SHIP:
+                return factory.createShipExpression(location);
+            case ASTEROID:
+                return factory.createAsteroidExpression(location);
+            case PLANETOID:
+                return factory.createPlanetoidExpression(location);
+            case BULLET:
+                return factory.createBulletExpression(location);
+            case PLANET:
+                return factory.createPlanetExpression(location);
+            case ANY:
+                return factory.createAnyExpression(location);
+            case GET_X:
+                return factory.createGetXExpression((E) readNode(buffer, nodes, node), location);
+            case GET_Y:
+                return factory.createGetYExpression((E) readNode(buffer, nodes, node), location);
+            case GET_VX:
+                return factory.createGetVXExpression((E) readNode(buffer, nodes, node), location);
+            case GET_VY:
+                return factory.createGetVYExpression((E) readNode(buffer, nodes, node), location);
+            case GET_RADIUS:
+                return factory.createGetRadiusExpression((E) readNode(buffer, nodes, node), location);
+            case LESS_THAN:
+                return factory.createLessThanExpression((E) readNode(buffer, nodes, node),
+                        (E) readNode(buffer, nodes, node), location);
+            case EQUALITY:
+                return factory.createEqualityExpression((E) readNode(buffer, nodes, node),
+                        (E) readNode(buffer, nodes, node), location);
+            case ADDITION:
+                return factory.createAdditionExpression((E) readNode(buffer, nodes, node),
+                        (E) readNode(buffer, nodes, node), location);
+            case MULTIPLICATION:
+                return factory.createMultiplicationExpression((E) readNode(buffer, nodes, node),
+                        (E) readNode(buffer, nodes, node), location);
+            case SQRT:
+                return factory.createSqrtExpression((E) readNode(buffer, nodes, node), location);
+            case GET_DIRECTION:
+                return factory.createGetDirectionExpression(location);
+            case THRUST_ON:
+                return factory.createThrustOnStatement(location);
+            case THRUST_OFF:
+                return factory.createThrustOffStatement(location);
+            case FIRE:
+                return factory.createFireStatement(location);
+            case TURN:
+                return factory.createTurnStatement((E) readNode(buffer, nodes, node), location);
+            case SKIP:
+                return factory.createSkipStatement(location);
+            default:
+                throw new IllegalArgumentException("Unknown call " + kind + "!");
+        }
+    }
+
+    /**
+     * Read a reference to a node created before the node with the given number, or to nothing.
+     */
+    private static Object readNode(ByteBuffer buffer, Object[] nodes, int node) throws IllegalArgumentException {
+        int reference = buffer.getInt();
+        if (reference == NONE)
+            return null;
+        if (reference < 0 || reference >= node)
+            throw new IllegalArgumentException("Invalid reference " + reference + "!");
+        return nodes[reference];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> readNodes(ByteBuffer buffer, Object[] nodes, int node)
+            throws IllegalArgumentException {
+        int size = buffer.getInt();
+        if (size < 0 || size > buffer.remaining() / 4)
+            throw new IllegalArgumentException("Invalid number of nodes!");
+        List<T> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            result.add((T) readNode(buffer, nodes, node));
+        return result;
+    }
+
+    /**
+     * Read a string written by DataOutputStream.writeUTF.
+     */
+    private static String readString(ByteBuffer buffer) throws IllegalArgumentException {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[2 + length];
+        bytes[0] = (byte) (length >> 8);
+        bytes[1] = (byte) length;
+        buffer.get(bytes, 2, length);
+        try {
+            return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Invalid name!", e);
+        }
+    }
+}
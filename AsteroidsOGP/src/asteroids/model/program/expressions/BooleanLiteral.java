@@ -17,6 +17,10 @@ public class BooleanLiteral implements Expression<BooleanType> {
 
     private final BooleanType type;
 
+    public boolean getValue() {
+        return type.getType();
+    }
+
     @Override
     public BooleanType calculate(Program program) {
         return this.type;
@@ -20,4 +20,8 @@ public class DoubleLiteral implements Expression<DoubleType> {
     }
 
     private final DoubleType type;
+
+    public double getValue() {
+        return type.getType();
+    }
 }
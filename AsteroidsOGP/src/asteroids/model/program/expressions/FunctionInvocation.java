@@ -1,133 +1,68 @@
 package asteroids.model.program.expressions;
 
 import asteroids.model.Program;
+import asteroids.model.program.ActivationRecord;
 import asteroids.model.program.FunctionDefinition;
 import asteroids.model.program.VariableArgumentExecutable;
 import asteroids.model.program.statements.Action;
 import asteroids.model.program.statements.Statement;
-import asteroids.model.program.types.DoubleType;
 import asteroids.model.program.types.Type;
-import be.kuleuven.cs.som.annotate.Raw;
+import be.kuleuven.cs.som.annotate.Immutable;
 
 import java.util.*;
 
 /**
  * Created by WimKunnen on 25/04/2017.
+ *
+ * Function invocations are immutable: the state of every invocation is kept in an activation record
+ * of the program executing it.
  */
 public class FunctionInvocation extends VariableArgumentExecutable implements Expression{
 
     public FunctionInvocation(List<Expression> arguments, String functionName){
         super(arguments);
-        setArguments(arguments);
-        setFunction(function);
-        setFunctionName(functionName);
-        this.executionStack = new ArrayDeque<>();
+        this.argumentsAsExpressions = Collections.unmodifiableList(new ArrayList<>(arguments));
+        this.functionName = functionName;
     }
 
-    private FunctionInvocation getCopy(){
-        return new FunctionInvocation(getArgumentsAsExpressions(),getFunctionName());
-    }
+    private final List<Expression> argumentsAsExpressions;
 
-    private List<Expression> argumentsAsExpressions;
+    @Immutable
     public List<Expression> getArgumentsAsExpressions(){
         return this.argumentsAsExpressions;
     }
-    public void setArguments(List<Expression> arguments){
-        this.argumentsAsExpressions = arguments;
-    }
 
-    private Map<String, Type> parameterMap = new HashMap<>();
-
-    public Type getParameterValue(String parameterName){
-        return parameterMap.get(parameterName);
-    }
+    private final String functionName;
 
-    private FunctionDefinition function;
-    private void setFunction(FunctionDefinition newFunction){
-        this.function = newFunction;
-    }
-
-    private String functionName;
-    private void setFunctionName(String functionName){
-        this.functionName = functionName;
-    }
-    private String getFunctionName() {
+    @Immutable
+    public String getFunctionName() {
         return functionName;
     }
 
-    private Type toReturn = null;
-
-    public Type getToReturn() {
-        return toReturn;
-    }
-
-    public void setToReturn(Type toReturn) {
-        this.toReturn = toReturn;
-    }
-
-    private Deque<Statement> executionStack;
-    public Deque<Statement> getExecutionStack(){
-        return this.executionStack;
-    }
-    public void setExecutionStack(List<Statement> body) {
-        this.executionStack = new ArrayDeque<Statement>(body);
-    }
-
-    @Raw
-    public void scheduleStatement(Statement statement){
-        if(statement != null)
-            executionStack.push(statement);
-    }
-
-    private Map<String, Type<?>> locals = new HashMap<>();
-
-    public Map<String, Type<?>> getLocals() {
-        return locals;
-    }
-
-
-    public Type<?> getLocalVariableValue(String name) throws RuntimeException{
-        Type<?> current = locals.get(name);
-        if(current == null)
-            throw new RuntimeException();
-
-        return current;
-    }
-    public void setLocalVariableValue(String name, Type<?> value) throws RuntimeException{
-        Type<?> current = locals.get(name);
-        if(current != null && current.getClass() != value.getClass())
-            throw new RuntimeException();
-
-        locals.put(name, value);
-    }
-
     @Override
     public Type calculate(Program program) throws RuntimeException{
 
-        if (program.getAllFunctionInvocationsEver().contains(this)){
-            return this.getCopy().calculate(program);
+        List<Expression> arguments = getArgumentsAsExpressions();
+        for (int i = 0; i < arguments.size(); i++){
+            program.pushParameter(arguments.get(i).calculate(program));
         }
-
-
-        int i = 1;
-        for (Expression expression : getArgumentsAsExpressions()){
-            parameterMap.put("$" + Integer.toString(i),getArgumentsAsExpressions().get(i-1).calculate(program));
-            i += 1;
-        }
-        program.setCurrentFunctionInvocation(this);
         FunctionDefinition function = program.getFunctionDefinition(getFunctionName());
+        if (function == null)
+            throw new RuntimeException();
 
-        scheduleStatement(function.getBody());
+        ActivationRecord record = program.pushActivationRecord(this, arguments.size(), function.getNbLocals());
+        record.scheduleStatement(function.getBody());
 
-        while (getExecutionStack().size() > 0){
-            Statement nextStatement = getExecutionStack().pop();
+        while (record.getExecutionStack().size() > 0){
+            Statement nextStatement = record.getExecutionStack().pop();
             if (nextStatement instanceof Action){
                 throw new RuntimeException();
             }
             nextStatement.execute(program);
         }
 
-        program.stopCurrentFunctionInvocation();
+        Type toReturn = record.getToReturn();
+        program.popActivationRecord();
 
         if (toReturn == null){
             throw new RuntimeException();
@@ -136,4 +71,3 @@ public class FunctionInvocation extends VariableArgumentExecutable implements Ex
     }
 
 }
-
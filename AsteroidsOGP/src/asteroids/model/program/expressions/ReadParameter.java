@@ -22,8 +22,21 @@ public class ReadParameter implements Expression{
         this.parameterName = parameterName;
     }
 
+    /**
+     * The index of the parameter, or -1 if it is not a parameter of a function.
+     */
+    private int index = -1;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     @Override
     public Type calculate(Program program){
-        return program.getCurrentFunctionInvocation().getParameterValue(getParameterName());
+        return program.getCurrentActivationRecord().getParameterValue(getIndex());
     }
 }
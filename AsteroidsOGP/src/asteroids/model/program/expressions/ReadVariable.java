@@ -23,17 +23,37 @@ public class ReadVariable implements Expression<Type<?>>{
         this.variableName = variableName;
     }
 
+    /**
+     * The local slot of the variable in the function reading it and its global slot, or -1 if the variable
+     * is never assigned there.
+     */
+    private int localSlot = -1;
+    private int globalSlot = -1;
+
+    public int getLocalSlot() {
+        return localSlot;
+    }
+
+    public int getGlobalSlot() {
+        return globalSlot;
+    }
+
+    public void setSlots(int localSlot, int globalSlot) {
+        this.localSlot = localSlot;
+        this.globalSlot = globalSlot;
+    }
+
     @Override
     public Type calculate(Program program){
         if (!program.functionInvocationBusy()){
-            return program.getVariableValue(getVariableName());
+            return program.getVariableValue(getGlobalSlot());
         }
         else{
-            if (program.getCurrentFunctionInvocation().getLocals().containsKey(getVariableName())) {
-                return program.getCurrentFunctionInvocation().getLocalVariableValue(getVariableName());
+            if (program.getCurrentActivationRecord().hasLocalVariableValue(getLocalSlot())) {
+                return program.getCurrentActivationRecord().getLocalVariableValue(getLocalSlot());
             }
             else{
-                return program.getVariableValue(getVariableName());
+                return program.getVariableValue(getGlobalSlot());
             }
         }
     }
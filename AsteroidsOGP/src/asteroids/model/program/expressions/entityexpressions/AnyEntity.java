@@ -20,8 +20,8 @@ public class AnyEntity implements Expression<EntityType> {
         Ship theExecutor = program.getShip();
         World alderaan = theExecutor.getWorld();
 
-        Entity anyEntity =  alderaan.getAllEntities().stream()
-                .findAny().get();
+        Entity anyEntity =  alderaan.getQueryCache().get(AnyEntity.class, null,
+                (World world, Entity executor) -> world.getAllEntitiesOfType(Entity.class).iterator().next());
         return new EntityType(anyEntity);
     }
 }
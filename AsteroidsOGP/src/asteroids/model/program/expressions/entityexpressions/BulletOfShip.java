@@ -20,11 +20,11 @@ public class BulletOfShip implements Expression<EntityType>{
         Ship theExecutor = program.getShip();
         World alderaan = theExecutor.getWorld();
 
-        Bullet bullet = (Bullet) alderaan.getAllEntities().stream()
-                .filter((Entity e)
-                        -> e instanceof Bullet && ((Bullet)e).getSource() == theExecutor && e.getWorld() == alderaan)
-                .findAny()
-                .orElse(null);
+        Bullet bullet = (Bullet) alderaan.getQueryCache().get(BulletOfShip.class, theExecutor,
+                (World world, Entity executor) -> world.getAllBullets().stream()
+                        .filter((Bullet b) -> b.getSource() == executor)
+                        .findAny()
+                        .orElse(null));
 
         return new EntityType(bullet);
     }
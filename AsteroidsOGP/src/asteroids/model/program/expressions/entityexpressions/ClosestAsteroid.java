@@ -20,13 +20,8 @@ public class ClosestAsteroid implements Expression<EntityType>{
         Ship theExecutor = program.getShip();
         World alderaan = theExecutor.getWorld();
 
-        Asteroid closestAsteroid = (Asteroid) alderaan
-                .getAllEntities()
-                .stream()
-                .filter((Entity q) -> q instanceof Asteroid)
-                .min((Entity a, Entity b)
-                        -> (int)Math.signum(a.getDistanceBetween(theExecutor) - b.getDistanceBetween(theExecutor)))
-                .orElse(null);
+        Asteroid closestAsteroid = (Asteroid) alderaan.getQueryCache().get(ClosestAsteroid.class, theExecutor,
+                (World world, Entity executor) -> world.getNearestEntity(executor, Asteroid.class));
 
         return new EntityType(closestAsteroid);
     }
@@ -20,11 +20,8 @@ public class ClosestPlanet implements Expression<EntityType>{
         Ship theExecutor = program.getShip();
         World world = theExecutor.getWorld();
 
-        MinorPlanet closestPlanet = (MinorPlanet) world.getAllEntities().stream()
-                .filter((Entity q) -> q instanceof MinorPlanet)
-                .min((Entity a, Entity b)
-                        -> (int)Math.signum(a.getDistanceBetween(theExecutor) - b.getDistanceBetween(theExecutor)))
-                .orElse(null);
+        MinorPlanet closestPlanet = (MinorPlanet) world.getQueryCache().get(ClosestPlanet.class, theExecutor,
+                (World w, Entity executor) -> w.getNearestEntity(executor, MinorPlanet.class));
 
         return new EntityType(closestPlanet);
     }
@@ -20,11 +20,8 @@ public class ClosestPlanetoid implements Expression<EntityType>{
         Ship theExecutor = program.getShip();
         World alderaan = theExecutor.getWorld();
 
-        Planetoid closestPlanetoid = (Planetoid) alderaan.getAllEntities().stream()
-                .filter((Entity q) -> q instanceof Planetoid)
-                .min((Entity a, Entity b)
-                        -> (int)Math.signum(a.getDistanceBetween(theExecutor) - b.getDistanceBetween(theExecutor)))
-                .orElse(null);
+        Planetoid closestPlanetoid = (Planetoid) alderaan.getQueryCache().get(ClosestPlanetoid.class, theExecutor,
+                (World world, Entity executor) -> world.getNearestEntity(executor, Planetoid.class));
 
         return new EntityType(closestPlanetoid);
     }
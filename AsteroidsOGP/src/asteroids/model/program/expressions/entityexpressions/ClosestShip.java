@@ -23,11 +23,8 @@ public class ClosestShip implements Expression<EntityType>{
         Ship theExecutor = program.getShip();
         World alderaan = theExecutor.getWorld();
 
-        Ship closestShip = (Ship) alderaan.getAllEntities().stream()
-                .filter((Entity q) -> q instanceof Ship && q != theExecutor)
-                .min((Entity a, Entity b)
-                        -> (int)Math.signum(a.getDistanceBetween(theExecutor) - b.getDistanceBetween(theExecutor)))
-                .orElse(null);
+        Ship closestShip = (Ship) alderaan.getQueryCache().get(ClosestShip.class, theExecutor,
+                (World world, Entity executor) -> world.getNearestEntity(executor, Ship.class));
 
         return new EntityType(closestShip);
     }
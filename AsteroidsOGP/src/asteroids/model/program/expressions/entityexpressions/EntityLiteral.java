@@ -22,4 +22,8 @@ public class EntityLiteral implements Expression<EntityType> {
     }
 
     private final EntityType type;
+
+    public Entity getValue() {
+        return type.getType();
+    }
 }
@@ -23,13 +23,13 @@ public class Assignment extends OneArgumentExecutable<Expression<? extends Type<
             throw new RuntimeException();
 
         if (!program.functionInvocationBusy()){
-            if (program.getFunctionMap().containsKey(variableName)){
+            if (!program.isVerified() && program.getFunctionMap().containsKey(variableName)){
                 throw new RuntimeException();
             }
-            program.setVariableValue(variableName, getFirstArgument().calculate(program));
+            program.setVariableValue(slot, getFirstArgument().calculate(program));
         }
         else{
-            program.getCurrentFunctionInvocation().setLocalVariableValue(variableName, getFirstArgument().calculate(program));
+            program.getCurrentActivationRecord().setLocalVariableValue(slot, getFirstArgument().calculate(program));
         }
     }
 
@@ -39,4 +39,21 @@ public class Assignment extends OneArgumentExecutable<Expression<? extends Type<
     }
 
     private String variableName;
+
+    public String getVariableName() {
+        return variableName;
+    }
+
+    /**
+     * The slot of the assigned variable: a global slot in the main program, a local slot in a function.
+     */
+    private int slot = -1;
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
 }
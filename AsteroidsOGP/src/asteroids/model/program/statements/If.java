@@ -29,9 +29,9 @@ public class If extends ThreeArgumentExecutable<Expression<BooleanType>, Stateme
         }
         else{
             if (getFirstArgument().calculate(program).getType())
-                program.getCurrentFunctionInvocation().scheduleStatement(getSecondArgument());
+                program.getCurrentActivationRecord().scheduleStatement(getSecondArgument());
             else
-                program.getCurrentFunctionInvocation().scheduleStatement(getThirdArgument());
+                program.getCurrentActivationRecord().scheduleStatement(getThirdArgument());
         }
     }
     @Override
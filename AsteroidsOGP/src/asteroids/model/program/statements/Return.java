@@ -30,11 +30,11 @@ public class Return implements Statement{
 
     @Override
     public void execute(Program program){
-        if (program.getCurrentFunctionInvocation() == null){
+        if (program.getCurrentActivationRecord() == null){
             throw new RuntimeException();
         }
-        if (program.getCurrentFunctionInvocation().getToReturn() == null){
-            program.getCurrentFunctionInvocation().setToReturn(getValue().calculate(program));
+        if (program.getCurrentActivationRecord().getToReturn() == null){
+            program.getCurrentActivationRecord().setToReturn(getValue().calculate(program));
         }
     }
 }
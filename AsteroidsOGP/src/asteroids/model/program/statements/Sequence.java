@@ -20,14 +20,14 @@ public class Sequence extends VariableArgumentExecutable<Statement>
         if (program == null)
             throw new RuntimeException();
 
-        if (program.getCurrentFunctionInvocation() == null) {
+        if (program.getCurrentActivationRecord() == null) {
             for (int i = getNbArguments() - 1; i >= 0; i--) {
                 program.scheduleStatement(getArgumentAt(i));
             }
         }
         else {
             for (int i = getNbArguments() - 1; i >= 0; i--) {
-                program.getCurrentFunctionInvocation().scheduleStatement(getArgumentAt(i));
+                program.getCurrentActivationRecord().scheduleStatement(getArgumentAt(i));
             }
         }
     }
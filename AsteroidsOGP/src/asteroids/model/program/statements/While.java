@@ -30,8 +30,8 @@ public class While extends TwoArgumentExecutable<Expression<BooleanType>, Statem
                 program.scheduleStatement(getSecondArgument());
             }
             else {
-                program.getCurrentFunctionInvocation().scheduleStatement(this);
-                program.getCurrentFunctionInvocation().scheduleStatement(getSecondArgument());
+                program.getCurrentActivationRecord().scheduleStatement(this);
+                program.getCurrentActivationRecord().scheduleStatement(getSecondArgument());
             }
         }
         else {
@@ -19,6 +19,11 @@ public class Turn implements Action {
     }
 
     Expression angle;
+
+    public Expression<?> getAngle() {
+        return angle;
+    }
+
     @Override
     public void execute(Program program) throws RuntimeException{
         if (program == null || program.getShip() == null)
@@ -0,0 +1,123 @@
+package asteroids.replay;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Value;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of inputs applied to a recorded world: switching the thruster of a ship on or off, turning a ship,
+ * firing a bullet from a ship and evolving the world.
+ * An input is stamped with the number of times the world evolved before it, and the simulated time at that moment.
+ * Ships are identified by their index in getAllShips() of the world at the moment of the input.
+ *
+ * @invar   The kind of an input is one of the kinds defined by this class.
+ *          | isValidKind(getKind())
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+@Value
+public class InputEvent {
+
+    /**
+     * The kinds of inputs.
+     */
+    public final static byte THRUST_ON = 0;
+    public final static byte THRUST_OFF = 1;
+    public final static byte TURN = 2;
+    public final static byte FIRE = 3;
+    public final static byte EVOLVE = 4;
+
+    /**
+     * Initializes a new input.
+     *
+     * @param   tick
+     *          The number of times the world evolved before the input.
+     * @param   time
+     *          The simulated time at which the input was applied.
+     * @param   kind
+     *          The kind of the input.
+     * @param   shipIndex
+     *          The index of the ship the input is applied to, or -1 if the input evolves the world.
+     * @param   value
+     *          The angle of a turn or the time difference of an evolution, and 0 for other inputs.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the kind is not valid, or if the input is applied to a ship and the index is negative.
+     *          | !isValidKind(kind) || (kind != EVOLVE && shipIndex < 0)
+     */
+    public InputEvent(int tick, double time, byte kind, int shipIndex, double value) throws IllegalArgumentException {
+        if (!isValidKind(kind))
+            throw new IllegalArgumentException("Invalid kind of input!");
+        if (kind != EVOLVE && shipIndex < 0)
+            throw new IllegalArgumentException("Invalid ship index!");
+        this.tick = tick;
+        this.time = time;
+        this.kind = kind;
+        this.shipIndex = kind == EVOLVE ? -1 : shipIndex;
+        this.value = value;
+    }
+
+    /**
+     * Returns true if and only if the given kind is one of the kinds of inputs.
+     *
+     * @see implementation
+     */
+    public static boolean isValidKind(byte kind){
+        return THRUST_ON <= kind && kind <= EVOLVE;
+    }
+
+    private final int tick;
+    private final double time;
+    private final byte kind;
+    private final int shipIndex;
+    private final double value;
+
+    @Basic @Immutable
+    public int getTick(){
+        return this.tick;
+    }
+
+    @Basic @Immutable
+    public double getTime(){
+        return this.time;
+    }
+
+    @Basic @Immutable
+    public byte getKind(){
+        return this.kind;
+    }
+
+    @Basic @Immutable
+    public int getShipIndex(){
+        return this.shipIndex;
+    }
+
+    @Basic @Immutable
+    public double getValue(){
+        return this.value;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (!(other instanceof InputEvent))
+            return false;
+        InputEvent event = (InputEvent) other;
+        return tick == event.tick && Double.compare(time, event.time) == 0 && kind == event.kind
+                && shipIndex == event.shipIndex && Double.compare(value, event.value) == 0;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * (31 * tick + kind) + shipIndex + Double.hashCode(value);
+    }
+
+    @Override
+    public String toString(){
+        return "InputEvent[tick=" + tick + ", time=" + time + ", kind=" + kind + ", ship=" + shipIndex
+                + ", value=" + value + "]";
+    }
+}
@@ -0,0 +1,235 @@
+package asteroids.replay;
+
+import asteroids.model.Ship;
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of recorders registering the inputs applied to a world, so that the match can be replayed exactly.
+ * A recorder seeds the random generator of the world and takes a snapshot of it when it is created. Every input
+ * applied through the recorder is registered and then applied to the world; every evolution of the world is an
+ * input as well, so the replayed world evolves in exactly the same steps. After every given number of evolutions
+ * the recorder registers a hash of the state of the world, against which a replay checks that it did not diverge.
+ *
+ * Inputs that bypass the recorder, such as changes made directly on the world or its entities, are not registered,
+ * and a replay of the recording diverges from the world.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class MatchRecorder {
+
+    /**
+     * Initializes a new recorder for the given world.
+     *
+     * @param   world
+     *          The world to record.
+     * @param   seed
+     *          The seed for the random generator of the world.
+     * @param   hashInterval
+     *          The number of evolutions between two hashes of the state of the world.
+     *
+     * @effect  The random generator of the world is seeded with the given seed.
+     *          | world.setSeed(seed)
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world is null or terminated, or if the hash interval is not strictly positive.
+     *          | world == null || world.checkTermination() || hashInterval <= 0
+     */
+    public MatchRecorder(World world, long seed, int hashInterval) throws IllegalArgumentException {
+        if (world == null || world.checkTermination())
+            throw new IllegalArgumentException("Not an existing world!");
+        if (hashInterval <= 0)
+            throw new IllegalArgumentException("Invalid hash interval!");
+        world.setSeed(seed);
+        this.world = world;
+        this.seed = seed;
+        this.hashInterval = hashInterval;
+        this.snapshot = WorldSnapshot.write(world);
+    }
+
+    /**
+     * Initializes a new recorder for the given world, which registers a hash after every 60 evolutions.
+     *
+     * @effect  ...
+     *          | this(world, seed, 60)
+     */
+    public MatchRecorder(World world, long seed) throws IllegalArgumentException {
+        this(world, seed, 60);
+    }
+
+    private final World world;
+    private final long seed;
+    private final int hashInterval;
+    private final ByteBuffer snapshot;
+
+    /**
+     * Variables registering the inputs applied so far, the hashes registered so far, the number of evolutions
+     * and the simulated time.
+     */
+    private final List<InputEvent> events = new ArrayList<>();
+    private long[] hashes = new long[16];
+    private int nbHashes = 0;
+    private int nbTicks = 0;
+    private double time = 0;
+
+    @Basic
+    public World getWorld(){
+        return this.world;
+    }
+
+    @Basic
+    public int getHashInterval(){
+        return this.hashInterval;
+    }
+
+    @Basic
+    public int getNbTicks(){
+        return this.nbTicks;
+    }
+
+    @Basic
+    public double getTime(){
+        return this.time;
+    }
+
+    /**
+     * Switch the thruster of the given ship on or off, and register the input.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the ship is not in the recorded world.
+     */
+    public void setThrusterActive(Ship ship, boolean active) throws IllegalArgumentException {
+        record(active ? InputEvent.THRUST_ON : InputEvent.THRUST_OFF, getShipIndex(ship), 0, null);
+    }
+
+    /**
+     * Turn the given ship over the given angle, and register the input.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the ship is not in the recorded world.
+     */
+    public void turn(Ship ship, double angle) throws IllegalArgumentException {
+        record(InputEvent.TURN, getShipIndex(ship), angle, null);
+    }
+
+    /**
+     * Fire a bullet from the given ship, and register the input.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the ship is not in the recorded world.
+     */
+    public void fireBullet(Ship ship) throws IllegalArgumentException {
+        record(InputEvent.FIRE, getShipIndex(ship), 0, null);
+    }
+
+    /**
+     * Evolve the recorded world over the given time difference, and register the input. A hash of the state
+     * of the world is registered after every getHashInterval() evolutions.
+     *
+     * @effect  ...
+     *          | getWorld().evolve(timeDifference, collisionListener)
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world cannot evolve over the given time difference.
+     */
+    public void evolve(double timeDifference, CollisionListener collisionListener) throws IllegalArgumentException {
+        record(InputEvent.EVOLVE, -1, timeDifference, collisionListener);
+        nbTicks++;
+        time += timeDifference;
+        if (nbTicks % hashInterval == 0) {
+            if (nbHashes == hashes.length)
+                hashes = Arrays.copyOf(hashes, 2 * nbHashes);
+            hashes[nbHashes++] = StateHash.of(world);
+        }
+    }
+
+    /**
+     * Apply the input of the given kind, and register it if it was applied without exception.
+     */
+    private void record(byte kind, int shipIndex, double value, CollisionListener collisionListener) {
+        InputEvent event = new InputEvent(nbTicks, time, kind, shipIndex, value);
+        apply(world, event, collisionListener);
+        events.add(event);
+    }
+
+    /**
+     * Returns the index of the given ship among the ships of the recorded world.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the ship is not in the recorded world.
+     *          | ship == null || ship.getWorld() != getWorld()
+     */
+    private int getShipIndex(Ship ship) throws IllegalArgumentException {
+        if (ship == null || ship.getWorld() != world)
+            throw new IllegalArgumentException("The ship is not in the recorded world!");
+        int index = 0;
+        for (Ship other : world.getAllShips()) {
+            if (other == ship)
+                return index;
+            index++;
+        }
+        throw new IllegalArgumentException("The ship is not in the recorded world!");
+    }
+
+    /**
+     * Returns a recording of the inputs registered so far.
+     */
+    public Recording getRecording(){
+        return new Recording(seed, snapshot, events, hashInterval, Arrays.copyOf(hashes, nbHashes),
+                StateHash.of(world), nbTicks);
+    }
+
+    /**
+     * Apply the given input to the given world.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the input is applied to a ship the world does not hold.
+     */
+    static void apply(World world, InputEvent event, CollisionListener collisionListener)
+            throws IllegalArgumentException {
+        if (event.getKind() == InputEvent.EVOLVE) {
+            world.evolve(event.getValue(), collisionListener);
+            return;
+        }
+        Ship ship = getShip(world, event.getShipIndex());
+        switch (event.getKind()) {
+            case InputEvent.THRUST_ON:
+                ship.thrustOn();
+                break;
+            case InputEvent.THRUST_OFF:
+                ship.thrustOff();
+                break;
+            case InputEvent.TURN:
+                ship.turn(event.getValue());
+                break;
+            case InputEvent.FIRE:
+                ship.fire();
+                break;
+        }
+    }
+
+    /**
+     * Returns the ship at the given index among the ships of the given world.
+     */
+    private static Ship getShip(World world, int index) throws IllegalArgumentException {
+        if (index < world.getAllShips().size()) {
+            Iterator<Ship> ships = world.getAllShips().iterator();
+            for (int i = 0; i < index; i++)
+                ships.next();
+            return ships.next();
+        }
+        throw new IllegalArgumentException("No ship at index " + index + "!");
+    }
+}
@@ -0,0 +1,244 @@
+package asteroids.replay;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of recordings of matches, from which a match can be replayed exactly.
+ * A recording registers the seed of the random generator of the world, a snapshot of the world when the recording
+ * started, the inputs applied to the world in the order in which they were applied, and the hashes of the state of
+ * the world after every given number of evolutions and at the end of the recording.
+ *
+ * A recording is written to a file as a magic number and a format version, followed by the seed, the hash interval,
+ * the snapshot, the inputs, the hashes and the number of evolutions.
+ *
+ * @invar   The hash interval is strictly positive.
+ *          | getHashInterval() > 0
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class Recording {
+
+    /**
+     * The number identifying recordings, and the version of the format written by this class.
+     */
+    public final static int MAGIC = 0x41535452;
+    public final static int VERSION = 1;
+
+    /**
+     * Initializes a new recording.
+     *
+     * @param   seed
+     *          The seed of the random generator of the world when the recording started.
+     * @param   snapshot
+     *          The snapshot of the world when the recording started, written by WorldSnapshot.
+     * @param   events
+     *          The inputs applied to the world.
+     * @param   hashInterval
+     *          The number of evolutions between two hashes of the state of the world.
+     * @param   hashes
+     *          The hashes of the state of the world after every hashInterval evolutions.
+     * @param   finalHash
+     *          The hash of the state of the world at the end of the recording.
+     * @param   nbTicks
+     *          The number of times the world evolved during the recording.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the snapshot or the inputs are null, if the hash interval is not strictly positive,
+     *          or if the number of hashes does not match the number of evolutions.
+     *          | snapshot == null || events == null || hashInterval <= 0 || hashes.length != nbTicks / hashInterval
+     */
+    public Recording(long seed, ByteBuffer snapshot, List<InputEvent> events, int hashInterval, long[] hashes,
+                     long finalHash, int nbTicks) throws IllegalArgumentException {
+        if (snapshot == null || events == null || hashes == null)
+            throw new IllegalArgumentException("Incomplete recording!");
+        if (hashInterval <= 0)
+            throw new IllegalArgumentException("Invalid hash interval!");
+        if (nbTicks < 0 || hashes.length != nbTicks / hashInterval)
+            throw new IllegalArgumentException("Hashes do not match the number of evolutions!");
+        ByteBuffer copy = ByteBuffer.allocate(snapshot.remaining());
+        copy.put(snapshot.duplicate()).flip();
+        this.seed = seed;
+        this.snapshot = copy.asReadOnlyBuffer();
+        this.events = Collections.unmodifiableList(new ArrayList<>(events));
+        this.hashInterval = hashInterval;
+        this.hashes = hashes.clone();
+        this.finalHash = finalHash;
+        this.nbTicks = nbTicks;
+    }
+
+    private final long seed;
+    private final ByteBuffer snapshot;
+    private final List<InputEvent> events;
+    private final int hashInterval;
+    private final long[] hashes;
+    private final long finalHash;
+    private final int nbTicks;
+
+    @Basic @Immutable
+    public long getSeed(){
+        return this.seed;
+    }
+
+    /**
+     * Returns the snapshot of the world when the recording started, as a new read-only buffer positioned
+     * at its start.
+     */
+    public ByteBuffer getSnapshot(){
+        return this.snapshot.duplicate();
+    }
+
+    @Basic @Immutable
+    public List<InputEvent> getEvents(){
+        return this.events;
+    }
+
+    @Basic @Immutable
+    public int getHashInterval(){
+        return this.hashInterval;
+    }
+
+    /**
+     * Returns the number of hashes taken after every hashInterval evolutions.
+     */
+    public int getNbHashes(){
+        return hashes.length;
+    }
+
+    /**
+     * Returns the hash of the state of the world after (index + 1) * getHashInterval() evolutions.
+     *
+     * @throws  IndexOutOfBoundsException
+     *          Thrown if the index is negative or not smaller than the number of hashes.
+     *          | index < 0 || index >= getNbHashes()
+     */
+    public long getHash(int index) throws IndexOutOfBoundsException {
+        return hashes[index];
+    }
+
+    @Basic @Immutable
+    public long getFinalHash(){
+        return this.finalHash;
+    }
+
+    @Basic @Immutable
+    public int getNbTicks(){
+        return this.nbTicks;
+    }
+
+    /**
+     * Returns a recording with the same inputs, but with the given hash at the given index.
+     * A recording with a wrong hash is useful to check that divergence is detected.
+     *
+     * @see implementation
+     */
+    public Recording withHash(int index, long hash) throws IndexOutOfBoundsException {
+        long[] newHashes = hashes.clone();
+        newHashes[index] = hash;
+        return new Recording(seed, snapshot, events, hashInterval, newHashes, finalHash, nbTicks);
+    }
+
+    /**
+     * Write this recording to the file at the given path, replacing the file if it exists.
+     *
+     * @throws  IOException
+     *          Thrown if the file cannot be written.
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(44 + snapshot.remaining() + 25 * events.size() + 8 * hashes.length);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(seed);
+        buffer.putInt(hashInterval);
+        buffer.putInt(snapshot.remaining());
+        buffer.put(snapshot.duplicate());
+        buffer.putInt(events.size());
+        for (InputEvent event : events) {
+            buffer.putInt(event.getTick());
+            buffer.putDouble(event.getTime());
+            buffer.put(event.getKind());
+            buffer.putInt(event.getShipIndex());
+            buffer.putDouble(event.getValue());
+        }
+        buffer.putInt(hashes.length);
+        for (long hash : hashes)
+            buffer.putLong(hash);
+        buffer.putLong(finalHash);
+        buffer.putInt(nbTicks);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Read the recording in the file at the given path, mapping the file in memory.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the file does not hold a valid recording of a supported version.
+     *
+     * @throws  IOException
+     *          Thrown if the file cannot be read.
+     */
+    public static Recording load(Path path) throws IllegalArgumentException, IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IllegalArgumentException("Not a recording!");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IllegalArgumentException("Unsupported recording version " + version + "!");
+            long seed = buffer.getLong();
+            int hashInterval = buffer.getInt();
+            int snapshotSize = readCount(buffer, 1);
+            ByteBuffer snapshot = buffer.slice();
+            snapshot.limit(snapshotSize);
+            buffer.position(buffer.position() + snapshot.limit());
+            int nbEvents = readCount(buffer, 25);
+            List<InputEvent> events = new ArrayList<>(nbEvents);
+            for (int i = 0; i < nbEvents; i++)
+                events.add(new InputEvent(buffer.getInt(), buffer.getDouble(), buffer.get(), buffer.getInt(),
+                        buffer.getDouble()));
+            long[] hashes = new long[readCount(buffer, 8)];
+            for (int i = 0; i < hashes.length; i++)
+                hashes[i] = buffer.getLong();
+            long finalHash = buffer.getLong();
+            int nbTicks = buffer.getInt();
+            return new Recording(seed, snapshot, events, hashInterval, hashes, finalHash, nbTicks);
+        }
+        catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated recording!", e);
+        }
+    }
+
+    /**
+     * Read a number of elements that each take at least the given number of bytes, checking that the buffer
+     * can hold them.
+     */
+    private static int readCount(ByteBuffer buffer, int minimumSize) throws IllegalArgumentException {
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minimumSize > buffer.remaining())
+            throw new IllegalArgumentException("Truncated or corrupt recording!");
+        return count;
+    }
+}
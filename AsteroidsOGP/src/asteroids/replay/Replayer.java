@@ -0,0 +1,223 @@
+package asteroids.replay;
+
+import asteroids.model.Program;
+import asteroids.model.World;
+import asteroids.model.WorldSnapshot;
+import be.kuleuven.cs.som.annotate.Basic;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+@SuppressWarnings("all")
+
+/**
+ * A class of replayers playing a recording back on a world restored from the snapshot in the recording.
+ * The replayed world evolves without a collision listener and as fast as it can, so a match can be replayed
+ * much faster than it was played. After every evolution for which the recording holds a hash, and at the end of the
+ * recording, the replayer compares the hash of the state of the replayed world with the recorded hash; the first
+ * evolution after which they differ is registered as the divergent tick.
+ *
+ * While replaying, the replayer takes a snapshot of the world every given number of evolutions. Seeking to an
+ * evolution restores the nearest snapshot at or before it and replays the remaining inputs, so seeking back does not
+ * replay the recording from its start.
+ *
+ * Ship programs cannot be written to a snapshot; the supplier given to a replayer provides fresh copies of the
+ * programs of the ships in the recorded world every time a snapshot is restored.
+ *
+ * @invar   The tick of a replayer lies between 0 and the number of evolutions in its recording.
+ *          | 0 <= getTick() && getTick() <= getNbTicks()
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class Replayer {
+
+    /**
+     * Initializes a new replayer for the given recording.
+     *
+     * @param   recording
+     *          The recording to play back.
+     * @param   programs
+     *          The supplier of fresh copies of the programs of the ships in the recorded world.
+     * @param   keyframeInterval
+     *          The number of evolutions between two snapshots taken while replaying.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the recording or the supplier is null, if the keyframe interval is not strictly positive,
+     *          or if the snapshot in the recording cannot be restored with the supplied programs.
+     *          | recording == null || programs == null || keyframeInterval <= 0
+     */
+    public Replayer(Recording recording, Supplier<List<Program>> programs, int keyframeInterval)
+            throws IllegalArgumentException {
+        if (recording == null || programs == null)
+            throw new IllegalArgumentException("Incomplete replayer!");
+        if (keyframeInterval <= 0)
+            throw new IllegalArgumentException("Invalid keyframe interval!");
+        this.recording = recording;
+        this.programs = programs;
+        this.keyframeInterval = keyframeInterval;
+        this.world = WorldSnapshot.read(recording.getSnapshot(), programs.get());
+        this.world.setSeed(recording.getSeed());
+        keyframes.put(0, new Keyframe(WorldSnapshot.write(world), 0, 0));
+    }
+
+    /**
+     * Initializes a new replayer for the given recording of a world without ship programs, which takes
+     * a snapshot every 100 evolutions.
+     *
+     * @effect  ...
+     *          | this(recording, () -> Collections.emptyList(), 100)
+     */
+    public Replayer(Recording recording) throws IllegalArgumentException {
+        this(recording, () -> Collections.emptyList(), 100);
+    }
+
+    private final Recording recording;
+    private final Supplier<List<Program>> programs;
+    private final int keyframeInterval;
+
+    /**
+     * Variables registering the replayed world, the index of the next input to apply, the number of evolutions
+     * replayed and the simulated time.
+     */
+    private World world;
+    private int nextEvent = 0;
+    private int tick = 0;
+    private double time = 0;
+
+    /**
+     * Variable registering the first evolution after which the replayed world differed from the recorded world,
+     * or -1 if no difference was detected.
+     */
+    private int divergentTick = -1;
+
+    /**
+     * A class of snapshots of the replayed world, with the index of the next input and the simulated time.
+     */
+    private static class Keyframe {
+
+        private Keyframe(ByteBuffer snapshot, int nextEvent, double time){
+            this.snapshot = snapshot;
+            this.nextEvent = nextEvent;
+            this.time = time;
+        }
+
+        private final ByteBuffer snapshot;
+        private final int nextEvent;
+        private final double time;
+    }
+
+    /**
+     * Map registering the snapshots taken while replaying, with the number of evolutions as a key.
+     */
+    private final TreeMap<Integer, Keyframe> keyframes = new TreeMap<>();
+
+    /**
+     * Returns the replayed world. Seeking back replaces the replayed world by a restored world.
+     */
+    @Basic
+    public World getWorld(){
+        return this.world;
+    }
+
+    @Basic
+    public int getTick(){
+        return this.tick;
+    }
+
+    @Basic
+    public double getTime(){
+        return this.time;
+    }
+
+    /**
+     * Returns the number of evolutions in the recording.
+     */
+    public int getNbTicks(){
+        return recording.getNbTicks();
+    }
+
+    /**
+     * Returns true if and only if the replayed world differed from the recorded world after an evolution.
+     *
+     * @see implementation
+     */
+    public boolean hasDiverged(){
+        return divergentTick >= 0;
+    }
+
+    @Basic
+    public int getDivergentTick(){
+        return this.divergentTick;
+    }
+
+    /**
+     * Apply the inputs of the recording up to and including the next evolution, and check the state of the replayed
+     * world against the recording if a hash was recorded after that evolution.
+     *
+     * @return  False if the end of the recording was reached, true otherwise.
+     */
+    public boolean step(){
+        if (tick >= getNbTicks())
+            return false;
+        List<InputEvent> events = recording.getEvents();
+        InputEvent event;
+        do {
+            event = events.get(nextEvent++);
+            MatchRecorder.apply(world, event, null);
+        } while (event.getKind() != InputEvent.EVOLVE);
+        tick++;
+        time += event.getValue();
+        if (tick % keyframeInterval == 0 && !keyframes.containsKey(tick))
+            keyframes.put(tick, new Keyframe(WorldSnapshot.write(world), nextEvent, time));
+        if (divergentTick < 0) {
+            if (tick % recording.getHashInterval() == 0
+                    && StateHash.of(world) != recording.getHash(tick / recording.getHashInterval() - 1))
+                divergentTick = tick;
+            else if (tick == getNbTicks() && StateHash.of(world) != recording.getFinalHash())
+                divergentTick = tick;
+        }
+        return true;
+    }
+
+    /**
+     * Replay the recording up to its end.
+     *
+     * @return  True if and only if the replayed world did not diverge from the recorded world.
+     *          | result == !hasDiverged()
+     */
+    public boolean runToEnd(){
+        while (step());
+        return !hasDiverged();
+    }
+
+    /**
+     * Replay the recording up to the given number of evolutions, restoring the nearest snapshot if the given tick
+     * lies before the current tick or beyond the next snapshot.
+     *
+     * @post    ...
+     *          | new.getTick() == tick
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the tick is negative or exceeds the number of evolutions in the recording.
+     *          | tick < 0 || tick > getNbTicks()
+     */
+    public void seek(int tick) throws IllegalArgumentException {
+        if (tick < 0 || tick > getNbTicks())
+            throw new IllegalArgumentException("Invalid tick!");
+        Map.Entry<Integer, Keyframe> keyframe = keyframes.floorEntry(tick);
+        if (tick < this.tick || keyframe.getKey() > this.tick) {
+            world = WorldSnapshot.read(keyframe.getValue().snapshot.duplicate(), programs.get());
+            this.tick = keyframe.getKey();
+            this.nextEvent = keyframe.getValue().nextEvent;
+            this.time = keyframe.getValue().time;
+        }
+        while (this.tick < tick)
+            step();
+    }
+}
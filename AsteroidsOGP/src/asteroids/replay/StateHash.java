@@ -0,0 +1,62 @@
+package asteroids.replay;
+
+import asteroids.model.*;
+
+@SuppressWarnings("all")
+
+/**
+ * A class computing hashes of the state of worlds, to detect that a replayed match diverges from the recorded match.
+ * The hash covers the score of the world and, in the order in which the entities were added to the world, the kind,
+ * position, velocity and radius of every entity, the heading, thruster, total mass and number of bullets of every
+ * ship and the number of bounces of every bullet. Numbers are hashed bit by bit, so the smallest difference is
+ * detected.
+ *
+ * @author WimKunnen and Maarten Doclo
+ *
+ * @version 1.0
+ */
+public class StateHash {
+
+    private final static long OFFSET_BASIS = 0xCBF29CE484222325L;
+    private final static long PRIME = 0x100000001B3L;
+
+    /**
+     * Returns the hash of the state of the given world.
+     *
+     * @throws  IllegalArgumentException
+     *          Thrown if the world is null.
+     *          | world == null
+     */
+    public static long of(World world) throws IllegalArgumentException {
+        if (world == null)
+            throw new IllegalArgumentException("Not an existing world!");
+        long hash = mix(OFFSET_BASIS, world.getScore());
+        for (Entity entity : world.getAllEntitiesOfType(Entity.class)) {
+            hash = mix(hash, entity.getClass().getName().hashCode());
+            hash = mix(hash, entity.getPosition().getX());
+            hash = mix(hash, entity.getPosition().getY());
+            hash = mix(hash, entity.getVelocity().getX());
+            hash = mix(hash, entity.getVelocity().getY());
+            hash = mix(hash, entity.getRadius());
+            if (entity instanceof Ship) {
+                Ship ship = (Ship) entity;
+                hash = mix(hash, ship.getHeading());
+                hash = mix(hash, ship.getThrusterState() ? 1L : 0L);
+                hash = mix(hash, ship.getTotalMass());
+                hash = mix(hash, (long) ship.getBullets().size());
+            }
+            else if (entity instanceof Bullet)
+                hash = mix(hash, (long) ((Bullet) entity).getNbOfBounces());
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, double value){
+        return mix(hash, Double.doubleToLongBits(value));
+    }
+
+    private static long mix(long hash, long value){
+        hash = (hash ^ value) * PRIME;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,106 @@
+package asteroids.tests;
+
+import asteroids.batch.BatchRunner;
+import asteroids.batch.MatchResult;
+import asteroids.batch.ShipResult;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestBatchRunner {
+
+    private static final double EPSILON = 0.0001;
+
+    private BatchRunner runner;
+
+    /**
+     * A set up method which initializes a batch runner playing matches of at most ten seconds.
+     */
+    @Before
+    public void setUp() {
+        runner = new BatchRunner(0.05, 10, 0);
+    }
+
+    /**
+     * A test suit for the initializer of the BatchRunner class.
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void invalidTimeStepTest(){
+        new BatchRunner(0, 10, 0);
+    }
+
+    /**
+     * A test suit for the runMatch() method of the BatchRunner class, in which a single ship that only turns
+     * plays the full duration of the match.
+     */
+    @Test
+    public void singleShipMatchTest(){
+        List<String> sources = Collections.singletonList("while (1 < 2) { turn 0.1; }");
+        MatchResult result = runner.runMatch(Collections.singletonList("turner"), sources, 1);
+
+        assertEquals(10, result.getSimulatedTime(), EPSILON);
+        assertEquals(200, result.getNbSteps());
+        assertTrue(result.getSimulatedSecondsPerWallSecond() > 0);
+
+        ShipResult shipResult = result.getShipResults().get(0);
+        assertEquals("turner", shipResult.getName());
+        assertTrue(shipResult.hasSurvived());
+        assertEquals(10, shipResult.getSurvivalTime(), EPSILON);
+        assertEquals(0, shipResult.getNbShotsFired());
+        assertNull(shipResult.getProgramFailure());
+    }
+
+    /**
+     * A test suit for the runMatch() method of the BatchRunner class, in which the program of one ship fails
+     * at run time without stopping the match.
+     */
+    @Test
+    public void programFailureTest(){
+        List<String> sources = Arrays.asList("while (1 < 2) { fire; }", "x := 1; while (x) { skip; }");
+        MatchResult result = runner.runMatch(Arrays.asList("shooter", "broken"), sources, 1);
+
+        assertNull(result.getShipResults().get(0).getProgramFailure());
+        assertTrue(result.getShipResults().get(0).getNbShotsFired() > 0);
+        assertNotNull(result.getShipResults().get(1).getProgramFailure());
+    }
+
+    /**
+     * A test suit for the runMatches() method of the BatchRunner class, which checks that matches played on several
+     * threads give the same results as the same matches played one after the other.
+     */
+    @Test
+    public void parallelMatchesTest(){
+        List<String> names = Arrays.asList("shooter", "turner");
+        List<String> sources = Arrays.asList("while (1 < 2) { fire; turn 0.3; }", "while (1 < 2) { turn 0.1; }");
+        List<MatchResult> results = runner.runMatches(names, sources, 5, 4, 3);
+
+        assertEquals(4, results.size());
+        for (int match = 0; match < 4; match++) {
+            MatchResult expected = runner.runMatch(names, sources, 5 + match);
+            for (int ship = 0; ship < 2; ship++) {
+                ShipResult expectedShip = expected.getShipResults().get(ship);
+                ShipResult actualShip = results.get(match).getShipResults().get(ship);
+                assertEquals(expectedShip.getPoints(), actualShip.getPoints(), EPSILON);
+                assertEquals(expectedShip.getSurvivalTime(), actualShip.getSurvivalTime(), EPSILON);
+                assertEquals(expectedShip.getNbShotsFired(), actualShip.getNbShotsFired());
+            }
+        }
+    }
+
+    /**
+     * A test suit for the runMatch() method of the BatchRunner class, which handles the case in which a program
+     * cannot be parsed.
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void invalidProgramTest(){
+        runner.runMatch(Collections.singletonList("invalid"), Collections.singletonList("fire"), 1);
+    }
+}
@@ -0,0 +1,140 @@
+package asteroids.tests;
+
+import asteroids.model.*;
+import asteroids.part2.CollisionListener;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestCollisionEvents {
+
+    private World world;
+    private Ship ship;
+
+    /**
+     * A ship bouncing between the sides of a narrow world, hitting a boundary every 0.0008 seconds, so that an
+     * evolution of one second resolves more collisions than a world buffers.
+     */
+    @Before
+    public void setUpMutableFixture(){
+        world = new World(100, 1000);
+        ship = new Ship(50, 500, 100000, 0, 0, 10, 1E10);
+        world.addEntity(ship);
+    }
+
+    /**
+     * A collision listener recording the collisions it is notified of.
+     */
+    private static class RecordingListener implements CollisionListener {
+
+        private final List<String> collisions = new ArrayList<>();
+
+        @Override
+        public void boundaryCollision(Object entity, double x, double y){
+            collisions.add("boundary " + System.identityHashCode(entity) + " " + x + " " + y);
+        }
+
+        @Override
+        public void objectCollision(Object entity1, Object entity2, double x, double y){
+            collisions.add("object " + System.identityHashCode(entity1) + " " + System.identityHashCode(entity2)
+                    + " " + x + " " + y);
+        }
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, which checks that more collisions than fit in the
+     * buffer of a world are all delivered to a listener, in order.
+     */
+    @Test
+    public void deliverTest(){
+        RecordingListener listener = new RecordingListener();
+        world.evolve(1, listener);
+        assertTrue(listener.collisions.size() > 1000);
+        double previousX = -1;
+        for (String collision : listener.collisions) {
+            String[] fields = collision.split(" ");
+            assertEquals("boundary", fields[0]);
+            double x = Double.parseDouble(fields[2]);
+            assertTrue(x != previousX);
+            assertTrue(x == 0 || x == 100);
+            previousX = x;
+        }
+    }
+
+    /**
+     * A test suit for the collisionsOccurred() method of batch listeners, which checks the identifiers and times of
+     * the collisions handed to them.
+     */
+    @Test
+    public void batchTest(){
+        List<Double> times = new ArrayList<>();
+        int[] nbBatches = {0};
+        world.evolve(1, new CollisionBatchListener() {
+            @Override
+            public void collisionsOccurred(CollisionEvents events){
+                nbBatches[0]++;
+                assertTrue(events.size() <= events.getCapacity());
+                for (int i = 0; i < events.size(); i++) {
+                    assertEquals(CollisionEvents.BOUNDARY, events.getKind(i));
+                    assertSame(ship, events.getFirst(i));
+                    assertNull(events.getSecond(i));
+                    assertEquals(ship.getIdentifier(), events.getFirstIdentifier(i));
+                    assertEquals(-1, events.getSecondIdentifier(i));
+                    times.add(events.getTime(i));
+                }
+            }
+
+            @Override
+            public void boundaryCollision(Object entity, double x, double y){
+                fail();
+            }
+
+            @Override
+            public void objectCollision(Object entity1, Object entity2, double x, double y){
+                fail();
+            }
+        });
+        assertTrue(nbBatches[0] > 1);
+        assertTrue(times.size() > 1000);
+        assertEquals(0.0004, times.get(0), 1E-9);
+        for (int i = 1; i < times.size(); i++)
+            assertEquals(0.0008, times.get(i) - times.get(i - 1), 1E-9);
+    }
+
+    /**
+     * A test suit for the AsyncCollisionListener class, which checks that it delivers the same collisions in the
+     * same order as a world delivers them directly, and that it refuses collisions once closed.
+     */
+    @Test
+    public void asyncTest() throws InterruptedException {
+        World other = new World(100, 1000);
+        other.addEntity(new Ship(50, 500, 100000, 0, 0, 10, 1E10));
+        RecordingListener direct = new RecordingListener();
+        other.evolve(1, direct);
+
+        RecordingListener delivered = new RecordingListener();
+        AsyncCollisionListener listener = new AsyncCollisionListener(delivered, 64);
+        world.evolve(1, listener);
+        listener.awaitDelivery();
+        assertEquals(direct.collisions.size(), listener.getNbDelivered());
+        assertEquals(direct.collisions.size(), delivered.collisions.size());
+        for (int i = 0; i < direct.collisions.size(); i++)
+            assertEquals(direct.collisions.get(i).split(" ", 3)[2], delivered.collisions.get(i).split(" ", 3)[2]);
+        assertEquals(0, listener.getNbFailures());
+
+        listener.close();
+        try {
+            listener.boundaryCollision(ship, 0, 0);
+            fail();
+        }
+        catch (IllegalStateException e) {
+        }
+    }
+}
@@ -192,6 +192,16 @@ public class TestEntity {
         assertFalse(ship5.noOverlapsInNewWorld(world));
     }
 
-
-
+    /**
+     * A test suit for the deltaV() and deltaR() methods of the Entity class that do not create vectors.
+     */
+    @Test
+    public void deltaWithoutVectorsTest(){
+        MutableVector deltaV = ship1.deltaV(ship2, new MutableVector());
+        MutableVector deltaR = ship1.deltaR(ship2, new MutableVector());
+        assertTrue(deltaV.toVector().equals(ship1.deltaV(ship2)));
+        assertTrue(deltaR.toVector().equals(ship1.deltaR(ship2)));
+        assertEquals(ship1.deltaV(ship2).getY(), ship1.deltaVY(ship2), EPSILON);
+        assertEquals(ship1.deltaR(ship2).getX(), ship1.deltaRX(ship2), EPSILON);
+    }
 }
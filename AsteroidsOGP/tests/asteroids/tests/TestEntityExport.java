@@ -0,0 +1,107 @@
+package asteroids.tests;
+
+import asteroids.model.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestEntityExport {
+
+    private World world;
+    private Ship ship;
+    private Bullet bullet;
+    private Asteroid asteroid;
+    private Planetoid planetoid;
+
+    @Before
+    public void setUpMutableFixture(){
+        world = new World(1000, 1000);
+        ship = new Ship(100, 100, 10, 0, 1, 20, 1E10);
+        bullet = new Bullet(500, 500, 0, -5, 3);
+        asteroid = new Asteroid(800, 200, 0, 0, 40);
+        planetoid = new Planetoid(300, 700, 0, 0, 50, 0);
+        world.addEntity(ship);
+        world.addEntity(bullet);
+        world.addEntity(asteroid);
+        world.addEntity(planetoid);
+    }
+
+    /**
+     * A test suit for the export() methods of the EntityExport class, which checks the records written into arrays
+     * and direct buffers.
+     */
+    @Test
+    public void exportTest(){
+        double[] target = new double[2 + 4 * EntityExport.STRIDE];
+        assertEquals(4, EntityExport.export(world, target, 2));
+        Entity[] entities = {ship, bullet, asteroid, planetoid};
+        int[] kinds = {EntityExport.SHIP, EntityExport.BULLET, EntityExport.ASTEROID, EntityExport.PLANETOID};
+        for (int i = 0; i < 4; i++) {
+            int record = 2 + i * EntityExport.STRIDE;
+            assertEquals(entities[i].getIdentifier(), target[record + EntityExport.IDENTIFIER], 0);
+            assertEquals(kinds[i], target[record + EntityExport.KIND], 0);
+            assertEquals(entities[i].getPosition().getX(), target[record + EntityExport.X], 0);
+            assertEquals(entities[i].getPosition().getY(), target[record + EntityExport.Y], 0);
+            assertEquals(entities[i].getVelocity().getX(), target[record + EntityExport.VELOCITY_X], 0);
+            assertEquals(entities[i].getVelocity().getY(), target[record + EntityExport.VELOCITY_Y], 0);
+            assertEquals(entities[i].getRadius(), target[record + EntityExport.RADIUS], 0);
+        }
+        assertEquals(1, target[2 + EntityExport.HEADING], 0);
+
+        DoubleBuffer buffer = ByteBuffer.allocateDirect(8 * 5 * EntityExport.STRIDE).asDoubleBuffer();
+        buffer.position(EntityExport.STRIDE);
+        assertEquals(4, EntityExport.export(world, buffer));
+        assertEquals(5 * EntityExport.STRIDE, buffer.position());
+        assertEquals(asteroid.getIdentifier(), buffer.get(3 * EntityExport.STRIDE), 0);
+
+        try {
+            EntityExport.export(world, new double[4 * EntityExport.STRIDE - 1], 0);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * A test suit for the exportChangedSince() methods of the EntityExport class, which checks that only moved,
+     * turned and removed entities are exported after an epoch.
+     */
+    @Test
+    public void exportChangedSinceTest(){
+        double[] target = new double[8 * EntityExport.STRIDE];
+        long epoch = world.getExportEpoch();
+        assertEquals(0, EntityExport.exportChangedSince(world, epoch, target, 0));
+
+        world.evolve(0.5, null);
+        assertEquals(2, EntityExport.exportChangedSince(world, epoch, target, 0));
+        assertEquals(ship.getIdentifier(), target[EntityExport.IDENTIFIER], 0);
+        assertEquals(bullet.getIdentifier(), target[EntityExport.STRIDE + EntityExport.IDENTIFIER], 0);
+
+        epoch = world.getExportEpoch();
+        ship.turn(0.5);
+        long identifier = bullet.getIdentifier();
+        world.removeEntity(bullet);
+        assertEquals(2, EntityExport.exportChangedSince(world, epoch, target, 0));
+        assertEquals(ship.getIdentifier(), target[EntityExport.IDENTIFIER], 0);
+        assertEquals(1.5, target[EntityExport.HEADING], 1E-12);
+        assertEquals(identifier, target[EntityExport.STRIDE + EntityExport.IDENTIFIER], 0);
+        assertEquals(EntityExport.REMOVED, target[EntityExport.STRIDE + EntityExport.KIND], 0);
+        assertTrue(Double.isNaN(target[EntityExport.STRIDE + EntityExport.X]));
+
+        epoch = world.getExportEpoch();
+        for (int i = 0; i < 1100; i++) {
+            Bullet other = new Bullet(500, 500, 0, 0, 3);
+            world.addEntity(other);
+            world.removeEntity(other);
+        }
+        assertEquals(-1, EntityExport.exportChangedSince(world, epoch, target, 0));
+        assertEquals(0, EntityExport.exportChangedSince(world, world.getExportEpoch(), target, 0));
+    }
+}
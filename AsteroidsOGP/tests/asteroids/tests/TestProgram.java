@@ -9,9 +9,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -27,8 +29,10 @@ import asteroids.model.Ship;
 import asteroids.model.World;
 import asteroids.part3.facade.IFacade;
 import asteroids.model.Program;
+import asteroids.model.ProgramImage;
 import asteroids.model.program.ProgramFactory;
 import asteroids.part3.programs.IProgramFactory;
+import asteroids.part3.programs.internal.ParseOutcome;
 import asteroids.part3.programs.internal.ProgramParser;
 import asteroids.util.ModelException;
 
@@ -98,4 +102,181 @@ public class TestProgram {
             score += 3;
         }
     }
+
+    @Test
+    public void testProgramCompiledToBytecode() throws ModelException {
+        String code = "def double { return 2 * $1; } a := double(3.0); print a; ";
+        Program compiled = ProgramParser.parseProgramFromString(code, new ProgramFactory());
+        Program interpreted = ProgramParser.parseProgramFromString(code, new ProgramFactory(false));
+        assertTrue(compiled.isCompiled());
+        assertFalse(interpreted.isCompiled());
+    }
+
+    @Test
+    public void testBytecodeMatchesStatements() throws ModelException {
+        String code = "def fac { if $1 < 2 { return 1.0; } return $1 * fac($1 + -1); } "
+                + "def limit { if 3 < $1 { break; } return $1; } "
+                + "i := 0; "
+                + "while i < 10 { "
+                + "  turn 0.1; "
+                + "  print fac(i); "
+                + "  i := limit(i + 1); "
+                + "  skip; "
+                + "} "
+                + "print i; "
+                + "print self == self; ";
+        Program compiled = ProgramParser.parseProgramFromString(code, new ProgramFactory(true));
+        Program interpreted = ProgramParser.parseProgramFromString(code, new ProgramFactory(false));
+        facade.loadProgramOnShip(ship1, compiled);
+        facade.loadProgramOnShip(ship2, interpreted);
+        for (int step = 0; step < 20; step++) {
+            List<Object> compiledResults = facade.executeProgram(ship1, 0.15);
+            List<Object> interpretedResults = facade.executeProgram(ship2, 0.15);
+            if (interpretedResults == null)
+                assertNull(compiledResults);
+            else
+                assertArrayEquals(interpretedResults.toArray(), compiledResults.toArray());
+            assertEquals(interpreted.getTimeLeft(), compiled.getTimeLeft(), EPSILON);
+            assertEquals(ship2.getHeading(), ship1.getHeading(), EPSILON);
+        }
+        Object[] expecteds = {1.0, 1.0, 2.0, 6.0, 4.0, true};
+        assertArrayEquals(expecteds, facade.executeProgram(ship1, 0.15).toArray());
+    }
+
+    @Test
+    public void testBreakInLoopOfFunctionBody() throws ModelException {
+        String code = "def count { i := 0; while i < 10 { if 3 < i { break; } i := i + 1; } return i; } "
+                + "print count(); ";
+        Program program = ProgramParser.parseProgramFromString(code, new ProgramFactory(true));
+        facade.loadProgramOnShip(ship1, program);
+        Object[] expecteds = {4.0};
+        assertArrayEquals(expecteds, facade.executeProgram(ship1, 0.3).toArray());
+    }
+
+    @Test
+    public void testLocalAndGlobalVariableSlots() throws ModelException {
+        String code = "def f { b := a; a := $2 + b; return a + $1; } "
+                + "a := 10.0; "
+                + "print f(1.0, 2.0); "
+                + "print a; ";
+        for (boolean compiled : new boolean[]{true, false}) {
+            Program program = ProgramParser.parseProgramFromString(code, new ProgramFactory(compiled));
+            facade.loadProgramOnShip(ship1, program);
+            Object[] expecteds = {13.0, 10.0};
+            assertArrayEquals(expecteds, facade.executeProgram(ship1, 0.3).toArray());
+        }
+    }
+
+    @Test
+    public void testRepeatedAndRecursiveFunctionInvocations() throws ModelException {
+        String code = "def sum { if $1 < 1 { return 0.0; } return $1 + sum($1 + -1); } "
+                + "i := 0; "
+                + "while i < 100 { i := i + 1; t := sum(50.0); } "
+                + "print t; ";
+        Program program = ProgramParser.parseProgramFromString(code, new ProgramFactory(false));
+        facade.loadProgramOnShip(ship1, program);
+        Object[] expecteds = {1275.0};
+        assertArrayEquals(expecteds, facade.executeProgram(ship1, 0.3).toArray());
+        assertEquals(0, program.getDepth());
+    }
+
+    @Test
+    public void testProgramsSharingAnImage() throws Exception {
+        String code = "def f { return $1 * 2; } i := 0; while i < 3 { i := i + 1; turn 0.1; print f(i); } ";
+        for (boolean compiled : new boolean[]{true, false}) {
+            ProgramImage image = ProgramParser.parseProgramFromString(code, new ProgramFactory(compiled)).getImage();
+            Program first = image.newProgram();
+            Program second = image.newProgram();
+            assertSame(image, first.getImage());
+            assertSame(image, second.getImage());
+            assertEquals(compiled, first.isCompiled());
+            facade.loadProgramOnShip(ship1, first);
+            facade.loadProgramOnShip(ship2, second);
+            assertNull(facade.executeProgram(ship1, 0.5));
+            Object[] expecteds = {2.0, 4.0, 6.0};
+            assertArrayEquals(expecteds, facade.executeProgram(ship2, 1.0).toArray());
+            assertArrayEquals(expecteds, facade.executeProgram(ship1, 0.5).toArray());
+            assertEquals(ship1.getHeading(), ship2.getHeading(), EPSILON);
+
+            Thread[] threads = new Thread[4];
+            Object[][] results = new Object[threads.length][];
+            for (int t = 0; t < threads.length; t++) {
+                int index = t;
+                threads[t] = new Thread(() -> {
+                    Ship ship = new Ship();
+                    ship.setProgram(image.newProgram());
+                    results[index] = ship.executeProgram(1.0).toArray();
+                });
+                threads[t].start();
+            }
+            for (int t = 0; t < threads.length; t++) {
+                threads[t].join();
+                assertArrayEquals(expecteds, results[t]);
+            }
+        }
+    }
+
+    @Test
+    public void testParsingProgramsInParallel() throws Exception {
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 == 3)
+                codes.add("x := " + i + "; print x + ;");
+            else
+                codes.add("def f { return $1 + " + i + "; } if " + i + " < 100 { print f(1); } else { print -1; }");
+        }
+        List<ParseOutcome<Program>> outcomes = ProgramParser.parseStrings(codes, ProgramFactory::new);
+        assertEquals(codes.size(), outcomes.size());
+        for (int i = 0; i < codes.size(); i++) {
+            ParseOutcome<Program> outcome = outcomes.get(i);
+            if (i % 10 == 3) {
+                assertTrue(outcome.isFail());
+                assertTrue(outcome.getFailValue().get(0).endsWith("(1, " + (codes.get(i).length() - 1) + ")"));
+            }
+            else {
+                Ship ship = new Ship();
+                ship.setProgram(outcome.getSuccessValue());
+                assertArrayEquals(new Object[]{i < 100 ? i + 1.0 : -1.0}, ship.executeProgram(1.0).toArray());
+            }
+        }
+        // A parser is reused after a failed parse.
+        assertNotNull(ProgramParser.parseProgramFromString("print 1;", programFactory));
+    }
+
+    @Test
+    public void testTypeChecking() throws Exception {
+        String wellTyped = "def f { if $1 < 1 { return self; } return f($1 + -1); } "
+                + "x := 2; while x < 4 { x := x + 1; } print x; print getradius(f(x)) == null;";
+        String illTyped = "def f { return $1; } \n"
+                + "x := 7.0; \n"
+                + "if f(2) { x := self; } \n"
+                + "f := g(1);";
+        for (boolean compiled : new boolean[]{true, false}) {
+            Program program = ProgramParser.parseProgramFromString(wellTyped, new ProgramFactory(compiled, true));
+            assertTrue(program.isVerified());
+            facade.loadProgramOnShip(ship1, program);
+            assertArrayEquals(new Object[]{4.0, false}, facade.executeProgram(ship1, 1.0).toArray());
+
+            ParseOutcome<Program> outcome = ProgramParser.create(new ProgramFactory(compiled, true))
+                    .parseString(illTyped);
+            assertTrue(outcome.isFail());
+            assertEquals(4, outcome.getFailValue().size());
+            assertTrue(outcome.getFailValue().contains("Expected a boolean, but found a double (3, 3)"));
+            assertTrue(outcome.getFailValue().contains("Variable x is an entity, but was a double before (3, 10)"));
+            assertTrue(outcome.getFailValue().contains("Variable f is the name of a function (4, 0)"));
+            assertTrue(outcome.getFailValue().contains("Function g is not defined (4, 5)"));
+
+            // Other factories accept the program, which fails when it is executed.
+            program = ProgramParser.parseProgramFromString(illTyped, new ProgramFactory(compiled));
+            assertFalse(program.isVerified());
+            facade.loadProgramOnShip(ship2, program);
+            try {
+                facade.executeProgram(ship2, 1.0);
+                fail();
+            }
+            catch (ModelException exc) {
+                // The condition is not a boolean.
+            }
+        }
+    }
 }
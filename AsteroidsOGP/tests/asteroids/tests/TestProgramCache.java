@@ -0,0 +1,139 @@
+package asteroids.tests;
+
+import asteroids.model.Program;
+import asteroids.model.Ship;
+import asteroids.model.program.ProgramFactory;
+import asteroids.model.program.cache.ProgramCache;
+import asteroids.part3.programs.internal.ParseOutcome;
+import asteroids.part3.programs.internal.ProgramParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestProgramCache {
+
+    private static final String CODE = "def f { if $1 < 1 { return 0.0; } return $1 + f($1 + -1); } "
+            + "i := 0; while i < 4 { i := i + 1; if !(i == 2) { print f(i); } else { print -i; } turn 0.1; } "
+            + "print self == null; print sqrt(16) * 2;";
+
+    private Path directory;
+    private ProgramCache cache;
+
+    @Before
+    public void setUpMutableFixture() throws IOException {
+        directory = Files.createTempDirectory("programs");
+        cache = new ProgramCache(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList()))
+                Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Returns the output of the given program run on a new ship.
+     */
+    private static List<Object> run(Program program){
+        Ship ship = new Ship();
+        ship.setProgram(program);
+        return ship.executeProgram(10);
+    }
+
+    private Path getEntry() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> entries = files.collect(Collectors.toList());
+            assertEquals(1, entries.size());
+            return entries.get(0);
+        }
+    }
+
+    /**
+     * A test suit for the parse() method of the ProgramCache class, which checks that a program is parsed once,
+     * written to the cache and read back, and behaves exactly like a program parsed directly.
+     */
+    @Test
+    public void hitTest(){
+        List<Object> expected = run(ProgramParser.parseProgramFromString(CODE, new ProgramFactory()));
+        assertArrayEquals(new Object[]{1.0, -2.0, 6.0, 10.0, false, Math.sqrt(32)}, expected.toArray());
+        for (boolean compiled : new boolean[]{true, false}) {
+            ParseOutcome<Program> first = cache.parse(CODE, new ProgramFactory(compiled));
+            ParseOutcome<Program> second = cache.parse(CODE, new ProgramFactory(compiled));
+            assertTrue(first.isSuccess());
+            assertTrue(second.isSuccess());
+            assertEquals(compiled, second.getSuccessValue().isCompiled());
+            assertEquals(expected, run(first.getSuccessValue()));
+            assertEquals(expected, run(second.getSuccessValue()));
+        }
+        assertEquals(1, cache.getNbMisses());
+        assertEquals(3, cache.getNbHits());
+        assertEquals(0, cache.getNbRejected());
+    }
+
+    /**
+     * A test suit for the parse() method of the ProgramCache class, which checks that truncated, corrupted and
+     * stale entries are refused and replaced, and that invalid sources are not cached.
+     */
+    @Test
+    public void invalidEntryTest() throws IOException {
+        List<Object> expected = run(ProgramParser.parseProgramFromString(CODE, new ProgramFactory()));
+        cache.parse(CODE, new ProgramFactory());
+        Path entry = getEntry();
+        byte[] valid = Files.readAllBytes(entry);
+
+        List<byte[]> invalidEntries = new ArrayList<>();
+        invalidEntries.add(Arrays.copyOf(valid, valid.length - 7));
+        invalidEntries.add(Arrays.copyOf(valid, 10));
+        byte[] corrupted = valid.clone();
+        corrupted[valid.length - 20] ^= 0x5A;
+        invalidEntries.add(corrupted);
+        byte[] stale = valid.clone();
+        stale[7] = 99; // Another version of the format.
+        invalidEntries.add(stale);
+        byte[] otherSource = valid.clone();
+        otherSource[30] ^= 1; // Another digest.
+        invalidEntries.add(otherSource);
+
+        long nbRejected = 0;
+        for (byte[] invalid : invalidEntries) {
+            Files.write(entry, invalid);
+            ParseOutcome<Program> outcome = cache.parse(CODE, new ProgramFactory());
+            assertTrue(outcome.isSuccess());
+            assertEquals(expected, run(outcome.getSuccessValue()));
+            assertEquals(++nbRejected, cache.getNbRejected());
+            assertTrue(Arrays.equals(valid, Files.readAllBytes(entry)));
+        }
+
+        assertTrue(cache.parse("x := ;", new ProgramFactory()).isFail());
+        assertEquals(entry, getEntry());
+    }
+
+    /**
+     * A test suit for the parse() method of the ProgramCache class, which checks that a cache in the same directory
+     * finds the entries of an earlier cache.
+     */
+    @Test
+    public void reopenTest() throws IOException {
+        cache.parse(CODE, new ProgramFactory());
+        ProgramCache reopened = new ProgramCache(directory);
+        assertTrue(reopened.parse(CODE, new ProgramFactory()).isSuccess());
+        assertEquals(1, reopened.getNbHits());
+        assertEquals(0, reopened.getNbMisses());
+    }
+}
@@ -0,0 +1,121 @@
+package asteroids.tests;
+
+import asteroids.model.*;
+import asteroids.replay.*;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestReplay {
+
+    /**
+     * Returns a recording of 100 evolutions of a world with two ships and some asteroids, in which the ships
+     * thrust, turn and fire, together with the hashes of the recorded world after every evolution.
+     */
+    private static Recording record(List<Long> hashes){
+        World world = new World(2000, 2000);
+        Ship ship = new Ship(500, 500, 10, 0, 0, 40, 1E10);
+        Ship other = new Ship(1500, 1500, 0, -5, 1, 30, 1E10);
+        world.addEntity(ship);
+        world.addEntity(other);
+        for (int i = 0; i < 10; i++) {
+            ship.reload(new Bullet(500, 500, 0, 0, 5));
+            other.reload(new Bullet(1500, 1500, 0, 0, 5));
+        }
+        for (int i = 0; i < 8; i++)
+            world.addEntity(new Asteroid(150 + 220 * i, 1000 + 40 * i, 30 - 7 * i, 20 + 5 * i, 30));
+
+        MatchRecorder recorder = new MatchRecorder(world, 1234, 10);
+        for (int tick = 0; tick < 100; tick++) {
+            if (tick % 25 == 0)
+                recorder.setThrusterActive(ship, true);
+            if (tick % 25 == 10)
+                recorder.setThrusterActive(ship, false);
+            if (tick % 7 == 0)
+                recorder.turn(other, 0.3);
+            if (tick % 9 == 0 && ship.getWorld() == world)
+                recorder.fireBullet(ship);
+            if (tick % 13 == 0 && other.getWorld() == world)
+                recorder.fireBullet(other);
+            recorder.evolve(0.05, null);
+            hashes.add(StateHash.of(world));
+        }
+        assertEquals(100, recorder.getNbTicks());
+        assertEquals(5, recorder.getTime(), 1E-9);
+        return recorder.getRecording();
+    }
+
+    /**
+     * A test suit for the Replayer class, which checks that a recording saved to and loaded from a file replays
+     * to exactly the recorded state, also after seeking back and forth.
+     */
+    @Test
+    public void replayTest() throws IOException {
+        List<Long> hashes = new ArrayList<>();
+        Recording recording = record(hashes);
+        assertEquals(10, recording.getNbHashes());
+        assertEquals((long) hashes.get(99), recording.getFinalHash());
+
+        Path path = Files.createTempFile("recording", ".bin");
+        try {
+            recording.save(path);
+            recording = Recording.load(path);
+        }
+        finally {
+            Files.delete(path);
+        }
+
+        Replayer replayer = new Replayer(recording, () -> new ArrayList<Program>(), 20);
+        assertTrue(replayer.runToEnd());
+        assertEquals(100, replayer.getTick());
+        assertEquals(hashes.get(99).longValue(), StateHash.of(replayer.getWorld()));
+
+        replayer.seek(30);
+        assertEquals(30, replayer.getTick());
+        assertEquals(1.5, replayer.getTime(), 1E-9);
+        assertEquals(hashes.get(29).longValue(), StateHash.of(replayer.getWorld()));
+        replayer.seek(77);
+        assertEquals(hashes.get(76).longValue(), StateHash.of(replayer.getWorld()));
+        replayer.seek(5);
+        assertEquals(hashes.get(4).longValue(), StateHash.of(replayer.getWorld()));
+        assertFalse(replayer.hasDiverged());
+    }
+
+    /**
+     * A test suit for the Replayer and Recording classes, which checks that a replay that does not match the
+     * recording is detected, and that truncated recordings are refused.
+     */
+    @Test
+    public void divergenceTest() throws IOException {
+        Recording recording = record(new ArrayList<>());
+        Replayer replayer = new Replayer(recording.withHash(3, recording.getHash(3) + 1));
+        assertFalse(replayer.runToEnd());
+        assertEquals(40, replayer.getDivergentTick());
+
+        Path path = Files.createTempFile("recording", ".bin");
+        try {
+            recording.save(path);
+            byte[] bytes = Files.readAllBytes(path);
+            Files.write(path, Arrays.copyOf(bytes, bytes.length - 6));
+            try {
+                Recording.load(path);
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+            }
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+}
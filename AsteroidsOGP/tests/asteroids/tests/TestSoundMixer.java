@@ -0,0 +1,187 @@
+package asteroids.tests;
+
+import asteroids.part2.internal.FilePcmSink;
+import asteroids.part2.internal.FileSoundManager;
+import asteroids.part2.internal.NullPcmSink;
+import asteroids.part2.internal.PcmSink;
+import asteroids.part2.internal.SoundMixer;
+import asteroids.util.internal.ResourceUtils;
+import org.junit.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestSoundMixer {
+
+    /**
+     * A sink keeping the samples written to it.
+     */
+    private static class RecordingSink implements PcmSink {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void write(byte[] buffer, int length){
+            bytes.write(buffer, 0, length);
+        }
+
+        @Override
+        public boolean isPaced(){
+            return false;
+        }
+
+        @Override
+        public void close(){
+        }
+
+        short getSample(int index){
+            byte[] data = bytes.toByteArray();
+            return (short) ((data[2 * index] & 0xFF) | (data[2 * index + 1] << 8));
+        }
+    }
+
+    /**
+     * Returns sounds with a constant value of 1000, 2000 and 3000 during 1000 frames.
+     */
+    private static Map<String, short[]> createSounds(){
+        Map<String, short[]> sounds = new LinkedHashMap<>();
+        for (int i = 1; i <= 3; i++) {
+            short[] pcm = new short[1000];
+            Arrays.fill(pcm, (short) (1000 * i));
+            sounds.put("sound" + i, pcm);
+        }
+        return sounds;
+    }
+
+    /**
+     * A test suit for the decode() method of the SoundMixer class, which checks that the WAV resources are resampled
+     * to the rate of the mixer.
+     */
+    @Test
+    public void decodeTest() throws Exception {
+        short[] torpedo = SoundMixer.decode(ResourceUtils.toURL("asteroids/resources/torpedo.wav"));
+        AudioFileFormat format = AudioSystem.getAudioFileFormat(ResourceUtils.toURL("asteroids/resources/torpedo.wav"));
+        double expected = format.getFrameLength() * SoundMixer.FORMAT.getSampleRate()
+                / format.getFormat().getSampleRate();
+        assertEquals(expected, torpedo.length, 1);
+    }
+
+    /**
+     * A test suit for the mix() method of the SoundMixer class, which checks that a sound played twice overlaps with
+     * itself, and that a looping sound keeps playing until it is stopped.
+     */
+    @Test
+    public void mixTest() throws Exception {
+        RecordingSink sink = new RecordingSink();
+        SoundMixer mixer = new SoundMixer(createSounds(), sink, 8, 4, 0.01);
+        mixer.play("sound1");
+        mixer.mix(500);
+        mixer.play("sound1");
+        mixer.mix(1000);
+        assertEquals(1000, sink.getSample(499));
+        assertEquals(2000, sink.getSample(500));
+        assertEquals(2000, sink.getSample(999));
+        assertEquals(1000, sink.getSample(1000));
+        assertEquals(1, mixer.getNbActiveVoices());
+
+        mixer.loop("sound2");
+        mixer.mix(5000);
+        assertEquals(1, mixer.getNbActiveVoices());
+        assertEquals(2000, sink.getSample(6499));
+        mixer.stop("sound2");
+        mixer.mix(10);
+        assertEquals(0, mixer.getNbActiveVoices());
+        assertEquals(0, sink.getSample(6500));
+        mixer.close();
+    }
+
+    /**
+     * A test suit for the rate limiting and voice stealing of the SoundMixer class.
+     */
+    @Test
+    public void voiceLimitTest() throws Exception {
+        SoundMixer mixer = new SoundMixer(createSounds(), new NullPcmSink(), 2, 1, 0.01);
+        for (int i = 0; i < 100; i++)
+            mixer.play("sound1");
+        mixer.mix(1);
+        assertEquals(1, mixer.getNbStarted());
+        assertEquals(99, mixer.getNbLimited());
+
+        mixer.mix(300);
+        mixer.play("sound1");
+        mixer.mix(1);
+        assertEquals(2, mixer.getNbStarted());
+        assertEquals(1, mixer.getNbStolen());
+        assertEquals(1, mixer.getNbActiveVoices());
+
+        mixer.play("sound2");
+        mixer.play("sound3");
+        mixer.mix(1);
+        assertEquals(4, mixer.getNbStarted());
+        assertEquals(2, mixer.getNbStolen());
+        assertEquals(2, mixer.getNbActiveVoices());
+        mixer.close();
+    }
+
+    /**
+     * A test suit for the request queue of the SoundMixer class, which checks that requests from several threads
+     * are either executed or counted as dropped.
+     */
+    @Test
+    public void concurrentRequestTest() throws Exception {
+        SoundMixer mixer = new SoundMixer(createSounds(), new NullPcmSink(), 4, 4, 0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++)
+                    mixer.play("sound1");
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        mixer.mix(1);
+        assertEquals(4000, mixer.getNbStarted() + mixer.getNbDropped());
+        assertTrue(mixer.getNbStarted() >= 1024);
+        mixer.close();
+    }
+
+    /**
+     * A test suit for the FileSoundManager class mixing into a FilePcmSink on its own thread, which checks that the
+     * file is a valid WAV file of the format of the mixer.
+     */
+    @Test
+    public void fileSinkTest() throws Exception {
+        Path path = Files.createTempFile("mixer", ".wav");
+        try {
+            FileSoundManager manager = new FileSoundManager("asteroids/resources/sounds.txt",
+                    new FilePcmSink(path, SoundMixer.FORMAT));
+            manager.start();
+            manager.play("explosion");
+            manager.play("torpedo");
+            Thread.sleep(100);
+            manager.close();
+            assertTrue(manager.getNbStarted() == 2);
+
+            AudioFileFormat format = AudioSystem.getAudioFileFormat(path.toFile());
+            assertEquals(AudioFileFormat.Type.WAVE, format.getType());
+            assertEquals(SoundMixer.FORMAT.getSampleRate(), format.getFormat().getSampleRate(), 0);
+            assertEquals(manager.getNbFramesMixed(), format.getFrameLength());
+            assertTrue(format.getFrameLength() > 0);
+        }
+        finally {
+            Files.delete(path);
+        }
+    }
+}
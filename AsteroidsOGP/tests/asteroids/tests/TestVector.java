@@ -1,6 +1,7 @@
 package asteroids.tests;
 
 import static org.junit.Assert.*;
+import asteroids.model.MutableVector;
 import asteroids.model.Vector;
 import org.junit.Test;
 
@@ -160,4 +161,18 @@ public class TestVector {
         assertEquals(0, w.angleBetween(v), EPSILON);
         assertEquals(Math.PI, v.angleBetween(y), EPSILON);
     }
+
+    /**
+     * A test suit which tests the MutableVector class against the results of the Vector class.
+     * The tests are run with the previously defined vector objects v and x.
+     */
+    @Test
+    public void testMutableVector(){
+        MutableVector mutable = new MutableVector().set(v);
+        assertTrue(mutable.add(x.getX(), x.getY()).toVector().equals(v.sum(x)));
+        assertTrue(mutable.subtract(x.getX(), x.getY()).normalize().toVector().equals(v.normalize()));
+        assertEquals(v.normalize().resizeVector(3).scalarProduct(x),
+                mutable.scale(3).scalarProduct(x.getX(), x.getY()), EPSILON);
+        assertEquals(v.scalarProduct(x), Vector.scalarProduct(v.getX(), v.getY(), x.getX(), x.getY()), EPSILON);
+    }
 }
@@ -1,6 +1,7 @@
 package asteroids.tests;
 
 import asteroids.model.*;
+import org.junit.Assume;
 import org.junit.Before;
 
 import static org.junit.Assert.*;
@@ -8,6 +9,12 @@ import org.junit.Test;
 
 import asteroids.model.Ship;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 /**
  * @author WimKunnen and Maarten Doclo
  */
@@ -121,13 +128,13 @@ public class TestWorld {
      */
     @Test
     public void removeEntityTest(){
-        assertTrue(world.entityPositionMap.containsValue(ship1));
+        assertEquals(ship1,world.getEntityAt(position));
 
         world.removeEntity(ship1);
 
         assertEquals(2,world.getAllEntities().size());
         assertEquals(1,world.getAllEntitiesOfType(Ship.class).size());
-        assertFalse(world.entityPositionMap.containsValue(ship1));
+        assertNull(world.getEntityAt(position));
 
         world.removeEntity(ship2);
 
@@ -135,6 +142,355 @@ public class TestWorld {
         assertEquals(0,world.getAllEntitiesOfType(Ship.class).size());
     }
 
+    /**
+     * A test suit for the getTimeToFirstEntityCollision() method of the Collision class, which checks that
+     * the search through the spatial grid finds the same collision as the search through all pairs.
+     */
+    @Test
+    public void firstEntityCollisionWithinHorizonTest(){
+        World bigWorld = new World(5000, 5000);
+        for (int i = 0; i < 20; i++){
+            for (int k = 0; k < 20; k++){
+                bigWorld.addEntity(new Asteroid(100 + 200 * i, 100 + 200 * k, (i % 3 - 1) * 20, (k % 3 - 1) * 20, 20));
+            }
+        }
+        Collision collision = new Collision(bigWorld);
+        double timeToFirstCollision = collision.getTimeToFirstEntityCollision();
+
+        assertEquals(timeToFirstCollision, collision.getTimeToFirstEntityCollision(timeToFirstCollision), EPSILON);
+        assertEquals(timeToFirstCollision, collision.getTimeToFirstEntityCollision(100), EPSILON);
+        assertEquals(Double.POSITIVE_INFINITY, collision.getTimeToFirstEntityCollision(timeToFirstCollision / 2), EPSILON);
+    }
+
+    /**
+     * A test suit for the spatial grid of the World class, which checks that entities are found in their new cell
+     * after the world has evolved.
+     */
+    @Test
+    public void spatialGridEvolveTest(){
+        World bigWorld = new World(5000, 5000);
+        Asteroid asteroid1 = new Asteroid(150, 2500, 100, 0, 20);
+        Asteroid asteroid2 = new Asteroid(4850, 2500, -100, 0, 20);
+        bigWorld.addEntity(asteroid1);
+        bigWorld.addEntity(asteroid2);
+
+        assertEquals(Double.POSITIVE_INFINITY, new Collision(bigWorld).getTimeToFirstEntityCollision(1), EPSILON);
+        bigWorld.evolve(20, null);
+        assertEquals(3.3, new Collision(bigWorld).getTimeToFirstEntityCollision(5), EPSILON);
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, in which two asteroids bounce off each other
+     * and one of them bounces off a boundary afterwards.
+     */
+    @Test
+    public void evolveSuccessiveCollisionsTest(){
+        World world2 = new World(1000, 1000);
+        Asteroid asteroid1 = new Asteroid(100, 500, 50, 0, 10);
+        Asteroid asteroid2 = new Asteroid(300, 500, -50, 0, 10);
+        world2.addEntity(asteroid1);
+        world2.addEntity(asteroid2);
+
+        world2.evolve(6, null);
+
+        assertEquals(40, asteroid1.getPosition().getX(), EPSILON);
+        assertEquals(50, asteroid1.getVelocity().getX(), EPSILON);
+        assertEquals(420, asteroid2.getPosition().getX(), EPSILON);
+        assertEquals(50, asteroid2.getVelocity().getX(), EPSILON);
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, in which an asteroid bounces off the boundaries
+     * many thousands of times during a single call.
+     */
+    @Test
+    public void evolveManyCollisionsTest(){
+        World world2 = new World(100, 100);
+        Asteroid asteroid = new Asteroid(50, 50, 100, 0, 10);
+        world2.addEntity(asteroid);
+
+        world2.evolve(10000, null);
+
+        assertEquals(50, asteroid.getPosition().getX(), 0.01);
+        assertEquals(100, asteroid.getVelocity().getX(), EPSILON);
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, which checks that a world keeping its entities
+     * in an entity store evolves exactly like a world in which the entities keep their own state.
+     */
+    @Test
+    public void entityStoreEvolveTest(){
+        World plainWorld = new World(1000, 1000);
+        World storeWorld = new World(1000, 1000, true);
+        assertFalse(plainWorld.hasEntityStore());
+        assertTrue(storeWorld.hasEntityStore());
+
+        Asteroid[] plainAsteroids = new Asteroid[10];
+        Asteroid[] storeAsteroids = new Asteroid[10];
+        for (int i = 0; i < 10; i++){
+            plainAsteroids[i] = new Asteroid(50 + 90 * i, 100 + 70 * i, 30 * (i % 4) - 45, 25 * (i % 3) - 25, 15);
+            storeAsteroids[i] = new Asteroid(50 + 90 * i, 100 + 70 * i, 30 * (i % 4) - 45, 25 * (i % 3) - 25, 15);
+            plainWorld.addEntity(plainAsteroids[i]);
+            storeWorld.addEntity(storeAsteroids[i]);
+        }
+        plainWorld.removeEntity(plainAsteroids[3]);
+        storeWorld.removeEntity(storeAsteroids[3]);
+
+        for (int step = 0; step < 300; step++){
+            plainWorld.evolve(0.1, null);
+            storeWorld.evolve(0.1, null);
+        }
+
+        for (int i = 0; i < 10; i++){
+            assertEquals(plainAsteroids[i].getPosition(), storeAsteroids[i].getPosition());
+            assertEquals(plainAsteroids[i].getVelocity(), storeAsteroids[i].getVelocity());
+        }
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, which checks that entities not involved in the
+     * collisions of an evolution end up where their velocity takes them and are found there by the queries of
+     * the world.
+     */
+    @Test
+    public void lazyEvolveTest(){
+        World world = new World(1000, 1000);
+        Asteroid bouncing = new Asteroid(50, 50, 1500, 1300, 20);
+        Asteroid distant = new Asteroid(800, 800, 10, -20, 20);
+        Asteroid resting = new Asteroid(600, 200, 0, 0, 20);
+        world.addEntity(bouncing);
+        world.addEntity(distant);
+        world.addEntity(resting);
+
+        world.evolve(1.0, null);
+        assertEquals(-1500, bouncing.getVelocity().getX(), EPSILON);
+        assertEquals(-1300, bouncing.getVelocity().getY(), EPSILON);
+        assertEquals(810, distant.getPosition().getX(), EPSILON);
+        assertEquals(780, distant.getPosition().getY(), EPSILON);
+        assertEquals(new Vector(600, 200), resting.getPosition());
+        assertEquals(1, world.getEntitiesInCircle(new Vector(810, 780), 1).size());
+
+        world.evolve(0.5, null);
+        assertEquals(815, distant.getPosition().getX(), EPSILON);
+        assertEquals(770, distant.getPosition().getY(), EPSILON);
+        assertEquals(distant, world.getEntityNear(new Vector(815, 770), 1));
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, which checks that a ship hitting a planetoid is
+     * terminated when an entity not involved in the collision has moved onto the location it is teleported to.
+     */
+    @Test
+    public void lazyEvolveTeleportTest(){
+        World world = new World(1000, 1000);
+        world.setSeed(1);
+        Random random = new Random(1);
+        double x = 10 + random.nextDouble() * 980;
+        double y = 10 + random.nextDouble() * 980;
+        Ship ship = new Ship(100, 100, 100, 0, 0, 10, 100000000);
+        Planetoid planetoid = new Planetoid(150, 100, 0, 0, 20, 0);
+        Asteroid asteroid = new Asteroid(x + 100, y, -500, 0, 20);
+        world.addEntity(ship);
+        world.addEntity(planetoid);
+        world.addEntity(asteroid);
+
+        world.evolve(0.25, null);
+        assertTrue(ship.checkTermination());
+        assertFalse(world.getAllEntities().contains(ship));
+        assertEquals(x - 25, asteroid.getPosition().getX(), EPSILON);
+    }
+
+    /**
+     * A test suit for the evolve() method of the World class, which checks that a world keeping its entities
+     * in an entity store allocates less memory while evolving than a world in which the entities keep their
+     * own state. It is skipped on virtual machines that cannot measure the memory allocated by a thread.
+     */
+    @Test
+    public void entityStoreAllocationTest(){
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        World plainWorld = createAsteroidField(new World(5000, 5000));
+        World storeWorld = createAsteroidField(new World(5000, 5000, true));
+        evolve(plainWorld, 50);
+        evolve(storeWorld, 50);
+
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        evolve(plainWorld, 200);
+        long plainBytes = threads.getThreadAllocatedBytes(id) - before;
+        before = threads.getThreadAllocatedBytes(id);
+        evolve(storeWorld, 200);
+        long storeBytes = threads.getThreadAllocatedBytes(id) - before;
+        assertTrue("store: " + storeBytes + " bytes, plain: " + plainBytes + " bytes", storeBytes < plainBytes);
+    }
+
+    /**
+     * Add a grid of 100 asteroids that do not collide with each other to the given world.
+     */
+    private static World createAsteroidField(World world){
+        for (int i = 0; i < 100; i++)
+            world.addEntity(new Asteroid(250 + 500 * (i % 10), 250 + 500 * (i / 10), 10, -10, 15));
+        return world;
+    }
+
+    /**
+     * Evolve the given world the given number of steps of 0.1 seconds.
+     */
+    private static void evolve(World world, int nbSteps){
+        for (int step = 0; step < nbSteps; step++)
+            world.evolve(0.1, null);
+    }
+
+    /**
+     * A test suit for the point and range queries of the World class.
+     */
+    @Test
+    public void rangeQueryTest(){
+        assertNull(world.getEntityAt(new Vector(150.0, 150.5)));
+        assertEquals(ship1, world.getEntityNear(new Vector(150.0, 150.5), 1.0));
+        assertEquals(ship2, world.getEntityNear(new Vector(101.0, 100.0), 100.0));
+        assertNull(world.getEntityNear(new Vector(500.0, 500.0), 100.0));
+
+        List<Entity> inRectangle = world.getEntitiesInRectangle(90, 90, 160, 160);
+        assertEquals(2, inRectangle.size());
+        assertTrue(inRectangle.contains(ship1) && inRectangle.contains(ship2));
+        List<Entity> inCircle = world.getEntitiesInCircle(new Vector(300.0, 300.0), 213.0);
+        assertEquals(2, inCircle.size());
+        assertTrue(inCircle.contains(ship1) && inCircle.contains(bullet2));
+
+        world.evolve(1.0, null);
+        assertEquals(ship2, world.getEntityAt(position2));
+        assertEquals(1, world.getEntitiesInRectangle(105, 95, 115, 105).size());
+    }
+
+    /**
+     * A test suit for the registries of the World class, which checks that the sets of ships, bullets, asteroids
+     * and planetoids are read-only views that follow the changes to the world.
+     */
+    @Test
+    public void entityRegistriesTest(){
+        Set<Ship> ships = world.getAllShips();
+        Set<Asteroid> asteroids = world.getAllAsteroids();
+        assertEquals(2, ships.size());
+        assertEquals(1, world.getAllBullets().size());
+        assertTrue(asteroids.isEmpty());
+
+        Asteroid asteroid = new Asteroid(500, 500, 0, 0, 20);
+        Planetoid planetoid = new Planetoid(800, 800, 0, 0, 20, 0);
+        world.addEntity(asteroid);
+        world.addEntity(planetoid);
+        world.removeEntity(ship1);
+
+        assertSame(ships, world.getAllShips());
+        assertEquals(1, ships.size());
+        assertFalse(ships.contains(ship1));
+        assertTrue(asteroids.contains(asteroid));
+        assertFalse(asteroids.contains(planetoid));
+        assertTrue(world.getAllPlanetoids().contains(planetoid));
+        assertEquals(2, world.getAllEntitiesOfType(MinorPlanet.class).size());
+        try {
+            ships.add(ship1);
+            fail();
+        }
+        catch (UnsupportedOperationException e){
+        }
+    }
+
+    /**
+     * A test suit for the nearest-entity queries of the World class, which compares them with a scan over all
+     * entities of a world that is large enough to be searched in the spatial grid.
+     */
+    @Test
+    public void nearestEntitiesTest(){
+        assertEquals(ship2, world.getNearestEntity(ship1, Ship.class));
+        assertEquals(bullet2, world.getNearestEntity(ship1, Bullet.class));
+        assertNull(world.getNearestEntity(ship1, Asteroid.class));
+
+        World largeWorld = new World(5000, 5000);
+        Random random = new Random(13);
+        Ship origin = new Ship(2510.0, 2490.0, 0.0, 0.0, 0.0, 10.0, 100000000);
+        largeWorld.addEntity(origin);
+        for (int i = 1; i < 40; i++) {
+            for (int j = 1; j < 40; j++) {
+                double x = 120 * i + random.nextDouble() * 20;
+                double y = 120 * j + random.nextDouble() * 20;
+                if (Math.abs(x - origin.getPosition().getX()) < 100 && Math.abs(y - origin.getPosition().getY()) < 100)
+                    continue;
+                double radius = (i * j) % 17 == 0 ? 50 : 5 + random.nextDouble() * 20;
+                largeWorld.addEntity((i + j) % 5 == 0 ? new Planetoid(x, y, 0, 0, radius, 0)
+                        : new Asteroid(x, y, 0, 0, radius));
+            }
+        }
+
+        for (Class<? extends Entity> kind : Arrays.asList(Asteroid.class, Planetoid.class, MinorPlanet.class)) {
+            List<Entity> expected = new ArrayList<>(largeWorld.getAllEntitiesOfType(kind));
+            expected.sort((a, b) -> Double.compare(a.getDistanceBetween(origin), b.getDistanceBetween(origin)));
+            List<Entity> nearest = largeWorld.getNearestEntities(origin, kind, 5);
+            assertEquals(5, nearest.size());
+            for (int i = 0; i < 5; i++)
+                assertEquals(expected.get(i).getDistanceBetween(origin), nearest.get(i).getDistanceBetween(origin),
+                        EPSILON);
+            assertEquals(expected.get(0).getDistanceBetween(origin),
+                    largeWorld.getNearestEntity(origin, kind).getDistanceBetween(origin), EPSILON);
+        }
+        assertNull(largeWorld.getNearestEntity(origin, Ship.class));
+        assertEquals(1, largeWorld.getNearestEntities(ship1, Ship.class, 3).size());
+    }
+
+    /**
+     * A test suit for the query cache of the World class, which checks that results are remembered until the world
+     * changes, and that hits and misses are counted.
+     */
+    @Test
+    public void queryCacheTest(){
+        QueryCache cache = world.getQueryCache();
+        cache.resetStatistics();
+        assertEquals(ship2, cache.get(Ship.class, ship1, (World w, Entity e) -> w.getNearestEntity(e, Ship.class)));
+        assertEquals(ship2, cache.get(Ship.class, ship1, (World w, Entity e) -> null));
+        assertEquals(ship1, cache.get(Ship.class, ship2, (World w, Entity e) -> w.getNearestEntity(e, Ship.class)));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        long epoch = world.getEpoch();
+        Ship ship5 = new Ship(180.0, 180.0, 0.0, 0.0, 0.0, 10.0, 100000000);
+        world.addEntity(ship5);
+        assertTrue(world.getEpoch() > epoch);
+        assertEquals(ship5, cache.get(Ship.class, ship1, (World w, Entity e) -> w.getNearestEntity(e, Ship.class)));
+        assertEquals(3, cache.getMisses());
+
+        world.evolve(0.1, null);
+        assertNull(cache.get(Ship.class, ship1, (World w, Entity e) -> null));
+        world.removeEntity(ship5);
+        assertEquals(ship2, cache.get(Ship.class, ship1, (World w, Entity e) -> w.getNearestEntity(e, Ship.class)));
+        assertEquals(1, cache.getHits());
+        assertEquals(5, cache.getMisses());
+    }
+
+    /**
+     * A test suit for the query cache of the World class, which checks that turning a ship keeps the closest entity
+     * remembered, but is still seen by exports of the changed entities.
+     */
+    @Test
+    public void queryCacheTurnTest(){
+        QueryCache cache = world.getQueryCache();
+        cache.resetStatistics();
+        assertEquals(ship2, cache.get(Ship.class, ship1, (World w, Entity e) -> w.getNearestEntity(e, Ship.class)));
+
+        long epoch = world.getEpoch();
+        long exportEpoch = world.getExportEpoch();
+        ship1.turn(0.5);
+        assertEquals(epoch, world.getEpoch());
+        assertTrue(world.getExportEpoch() > exportEpoch);
+        assertEquals(ship2, cache.get(Ship.class, ship1, (World w, Entity e) -> null));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, EntityExport.exportChangedSince(world, exportEpoch, new double[EntityExport.STRIDE], 0));
+    }
+
 //    /**
 //     * A test suit for the resolveBulletEntityCollision() method of the World class.
 //     */
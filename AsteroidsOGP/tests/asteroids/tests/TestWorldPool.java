@@ -0,0 +1,94 @@
+package asteroids.tests;
+
+import asteroids.batch.WorldPool;
+import asteroids.model.*;
+import asteroids.part2.CollisionListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestWorldPool {
+
+    private WorldPool pool;
+
+    /**
+     * A set up method which initializes a world pool with three threads.
+     */
+    @Before
+    public void setUp() {
+        pool = new WorldPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    /**
+     * Returns a new world with asteroids bouncing off each other and off the boundaries.
+     */
+    private static World createWorld(int variant){
+        World world = new World(1000, 1000);
+        for (int i = 0; i < 8; i++)
+            world.addEntity(new Asteroid(60 + 110 * i, 100 + 100 * i, 40 * ((i + variant) % 5) - 80,
+                    30 * ((i * variant) % 4) - 45, 20));
+        return world;
+    }
+
+    /**
+     * A test suit for the evolve() method of the WorldPool class, which checks that worlds evolved by the pool end up
+     * in the same state as the same worlds evolved one after the other, and that every world reports its collisions
+     * to its own listener.
+     */
+    @Test
+    public void evolveTest(){
+        World[] pooledWorlds = new World[6];
+        World[] sequentialWorlds = new World[6];
+        final int[] nbCollisions = new int[6];
+        for (int i = 0; i < 6; i++) {
+            pooledWorlds[i] = createWorld(i);
+            sequentialWorlds[i] = createWorld(i);
+            final int index = i;
+            assertEquals(i, pool.addWorld(pooledWorlds[i], new CollisionListener() {
+                @Override
+                public void boundaryCollision(Object entity, double x, double y) {
+                    nbCollisions[index]++;
+                }
+                @Override
+                public void objectCollision(Object entity1, Object entity2, double x, double y) {
+                    nbCollisions[index]++;
+                }
+            }));
+        }
+
+        pool.evolve(0.05, 200);
+        for (int i = 0; i < 6; i++) {
+            for (int step = 0; step < 200; step++)
+                sequentialWorlds[i].evolve(0.05, null);
+            Entity[] pooledEntities = pooledWorlds[i].getAllEntities().toArray(new Entity[0]);
+            for (Entity pooled : pooledEntities) {
+                boolean found = false;
+                for (Entity sequential : sequentialWorlds[i].getAllEntities())
+                    found |= pooled.getPosition().equals(sequential.getPosition());
+                assertTrue(found);
+            }
+            assertTrue(nbCollisions[i] > 0);
+        }
+    }
+
+    /**
+     * A test suit for the addWorld() method of the WorldPool class, which handles the case in which a world
+     * is added twice.
+     */
+    @Test (expected = IllegalArgumentException.class)
+    public void addWorldTwiceTest(){
+        World world = createWorld(0);
+        pool.addWorld(world, null);
+        pool.addWorld(world, null);
+    }
+}
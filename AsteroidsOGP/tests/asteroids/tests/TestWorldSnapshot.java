@@ -0,0 +1,140 @@
+package asteroids.tests;
+
+import asteroids.model.*;
+import asteroids.model.program.ProgramFactory;
+import asteroids.part3.programs.internal.ProgramParser;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author WimKunnen and Maarten Doclo
+ */
+public class TestWorldSnapshot {
+
+    private static final String CODE = "x := 0; while x < 100 { x := x + 1; turn 0.1; print x; }";
+
+    /**
+     * Returns a new world with a ship carrying bullets and a program, a bullet it fired, an asteroid and a planetoid.
+     */
+    private static World createWorld(Program program){
+        World world = new World(2000, 2000);
+        Ship ship = new Ship(500, 500, 10, 0, 0, 40, 1E10);
+        Ship other = new Ship(1500, 500, 0, -5, 1, 30, 1E10);
+        world.addEntity(ship);
+        world.addEntity(other);
+        for (int i = 0; i < 3; i++)
+            ship.reload(new Bullet(500, 500, 0, 0, 5));
+        Bullet fired = new Bullet(700, 500, 100, 0, 5);
+        fired.setSource(ship);
+        world.addEntity(fired);
+        world.addEntity(new Asteroid(1000, 1500, -20, 10, 50));
+        world.addEntity(new Planetoid(300, 1200, 30, 30, 60, 100));
+        ship.setProgram(program);
+        return world;
+    }
+
+    /**
+     * Returns a sorted description of the state of the entities of the given world.
+     */
+    private static List<String> describe(World world){
+        List<Ship> ships = new ArrayList<>(world.getAllShips());
+        List<String> result = new ArrayList<>();
+        for (Entity entity : world.getAllEntities()) {
+            String description = entity.getClass().getSimpleName() + " " + entity.getPosition().getX() + " "
+                    + entity.getPosition().getY() + " " + entity.getVelocity().getX() + " "
+                    + entity.getVelocity().getY() + " " + entity.getRadius() + " " + entity.getMassOfEntity();
+            if (entity instanceof Ship) {
+                Ship ship = (Ship) entity;
+                description += " " + ship.getHeading() + " " + ship.getTotalMass() + " " + ship.getBullets().size()
+                        + " " + ship.getNbShotsFired() + " " + ship.getThrusterState();
+            }
+            if (entity instanceof Bullet)
+                description += " " + ships.indexOf(((Bullet) entity).getSource()) + " "
+                        + ((Bullet) entity).getNbOfBounces();
+            if (entity instanceof Planetoid)
+                description += " " + ((Planetoid) entity).getDistanceTravelled();
+            result.add(description);
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /**
+     * A test suit for the save() and restore() methods of the WorldSnapshot class, which checks that a restored
+     * world and its ship program continue exactly like the saved world, for compiled and for interpreted programs.
+     */
+    @Test
+    public void saveAndRestoreTest() throws IOException {
+        for (boolean compiled : new boolean[]{true, false}) {
+            ProgramFactory factory = new ProgramFactory(compiled);
+            World world = createWorld(ProgramParser.parseProgramFromString(CODE, factory));
+            world.evolve(0.5, null);
+            world.addScore(42);
+
+            Path path = Files.createTempFile("snapshot", ".bin");
+            try {
+                WorldSnapshot.save(world, path);
+                World restored = WorldSnapshot.restore(path,
+                        Arrays.asList(ProgramParser.parseProgramFromString(CODE, factory)));
+
+                assertEquals(describe(world), describe(restored));
+                assertEquals(world.getScore(), restored.getScore(), 0);
+                Ship ship = world.getAllShips().iterator().next();
+                Ship restoredShip = restored.getAllShips().iterator().next();
+                assertEquals(ship.getProgram().getPrinted(), restoredShip.getProgram().getPrinted());
+                assertEquals(ship.getProgram().getTimeLeft(), restoredShip.getProgram().getTimeLeft(), 0);
+
+                world.evolve(1.3, null);
+                restored.evolve(1.3, null);
+                assertEquals(describe(world), describe(restored));
+                assertEquals(ship.getProgram().getPrinted(), restoredShip.getProgram().getPrinted());
+            }
+            finally {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * A test suit for the read() method of the WorldSnapshot class, which checks that invalid snapshots and
+     * programs that do not match the saved programs are refused.
+     */
+    @Test
+    public void invalidSnapshotTest(){
+        World world = createWorld(ProgramParser.parseProgramFromString(CODE, new ProgramFactory()));
+        ByteBuffer snapshot = WorldSnapshot.write(world);
+        List<Program> programs = Arrays.asList(ProgramParser.parseProgramFromString(CODE, new ProgramFactory()));
+
+        ByteBuffer truncated = snapshot.duplicate();
+        truncated.limit(snapshot.limit() - 10);
+        ByteBuffer newerVersion = ByteBuffer.allocate(snapshot.limit()).put(snapshot.duplicate());
+        newerVersion.putInt(4, WorldSnapshot.VERSION + 1).flip();
+        List<Program> otherPrograms = Arrays.asList(
+                ProgramParser.parseProgramFromString("y := 1; print y;", new ProgramFactory()));
+
+        for (ByteBuffer buffer : Arrays.asList(truncated, newerVersion, ByteBuffer.allocate(3))) {
+            try {
+                WorldSnapshot.read(buffer, programs);
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+            }
+        }
+        for (List<Program> wrongPrograms : Arrays.asList(otherPrograms, new ArrayList<Program>())) {
+            try {
+                WorldSnapshot.read(snapshot.duplicate(), wrongPrograms);
+                fail();
+            }
+            catch (IllegalArgumentException e) {
+            }
+        }
+        assertEquals(5, WorldSnapshot.read(snapshot.duplicate(), programs).getAllEntities().size());
+    }
+}